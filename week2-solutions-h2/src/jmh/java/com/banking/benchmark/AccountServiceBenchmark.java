@@ -0,0 +1,83 @@
+package com.banking.benchmark;
+
+import com.banking.service.AccountService;
+import com.banking.service.BalanceCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hot paths of AccountService against the in-memory H2 database.
+ * Thread count is set on the command line, e.g. -Djmh.args="-t 8".
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AccountServiceBenchmark {
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000000.00");
+    private static final BigDecimal AMOUNT = new BigDecimal("1.00");
+
+    @Param({"100", "10000"})
+    public int accountCount;
+
+    @Param({"true", "false"})
+    public boolean balanceCache;
+
+    private AccountService accountService;
+    private String[] accountIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        accountService = new AccountService(balanceCache ? new BalanceCache(accountCount) : BalanceCache.disabled());
+        accountIds = BenchmarkAccounts.create(accountService, accountCount, INITIAL_BALANCE);
+    }
+
+    @Benchmark
+    public void deposit() {
+        accountService.deposit(randomAccount(), AMOUNT);
+    }
+
+    @Benchmark
+    public void withdraw() {
+        accountService.withdraw(randomAccount(), AMOUNT);
+    }
+
+    @Benchmark
+    public void transfer() {
+        String from = randomAccount();
+        String to = randomAccount();
+        if (from.equals(to)) {
+            to = accountIds[(indexOf(from) + 1) % accountIds.length];
+        }
+        accountService.transfer(from, to, AMOUNT);
+    }
+
+    @Benchmark
+    public BigDecimal getBalance() {
+        return accountService.getBalance(randomAccount());
+    }
+
+    private String randomAccount() {
+        return accountIds[ThreadLocalRandom.current().nextInt(accountIds.length)];
+    }
+
+    private int indexOf(String accountId) {
+        return Integer.parseInt(accountId.substring(accountId.indexOf('_') + 1));
+    }
+}
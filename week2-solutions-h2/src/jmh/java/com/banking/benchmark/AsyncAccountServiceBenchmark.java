@@ -0,0 +1,99 @@
+package com.banking.benchmark;
+
+import com.banking.service.AccountService;
+import com.banking.service.AsyncAccountService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test: a burst of concurrent client requests (deposits and balance
+ * reads) served by the blocking API on a client-side thread pool versus the
+ * async facade. Score is bursts per second; multiply by clients for requests.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AsyncAccountServiceBenchmark {
+    private static final BigDecimal AMOUNT = new BigDecimal("1.00");
+
+    @Param({"100", "2000"})
+    public int clients;
+
+    @Param({"16"})
+    public int blockingThreads;
+
+    private AccountService accountService;
+    private AsyncAccountService asyncService;
+    private ExecutorService blockingPool;
+    private String[] accountIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        accountService = new AccountService();
+        accountIds = BenchmarkAccounts.create(accountService, 1000, new BigDecimal("1000000.00"));
+        asyncService = new AsyncAccountService(accountService, 10, 60_000);
+        blockingPool = Executors.newFixedThreadPool(blockingThreads);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        asyncService.close();
+        blockingPool.shutdown();
+    }
+
+    @Benchmark
+    public void blocking() throws Exception {
+        Future<?>[] requests = new Future<?>[clients];
+        for (int i = 0; i < clients; i++) {
+            String accountId = randomAccount();
+            boolean write = i % 2 == 0;
+            requests[i] = blockingPool.submit(() -> {
+                if (write) {
+                    accountService.deposit(accountId, AMOUNT);
+                } else {
+                    accountService.getBalance(accountId);
+                }
+                return null;
+            });
+        }
+        for (Future<?> request : requests) {
+            request.get();
+        }
+    }
+
+    @Benchmark
+    public void async() {
+        CompletableFuture<?>[] requests = new CompletableFuture<?>[clients];
+        for (int i = 0; i < clients; i++) {
+            String accountId = randomAccount();
+            requests[i] = i % 2 == 0 ? asyncService.deposit(accountId, AMOUNT) : asyncService.getBalance(accountId);
+        }
+        CompletableFuture.allOf(requests).join();
+    }
+
+    private String randomAccount() {
+        return accountIds[ThreadLocalRandom.current().nextInt(accountIds.length)];
+    }
+}
@@ -0,0 +1,29 @@
+package com.banking.benchmark;
+
+import com.banking.model.AccountType;
+import com.banking.service.AccountService;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the accounts a benchmark runs against.
+ * Each fork gets a fresh in-memory database, but several trials can run in
+ * one fork, so every call uses its own id prefix to stay within VARCHAR(10).
+ */
+final class BenchmarkAccounts {
+    private static final AtomicInteger TRIAL = new AtomicInteger();
+
+    static String[] create(AccountService service, int count, BigDecimal initialBalance) {
+        String prefix = "B" + Integer.toString(TRIAL.incrementAndGet(), 36) + "_";
+        String[] ids = new String[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = prefix + i;
+            service.createAccount(i % 2 == 0 ? AccountType.CHECKING : AccountType.SAVINGS, ids[i], initialBalance);
+        }
+        return ids;
+    }
+
+    private BenchmarkAccounts() {
+    }
+}
@@ -0,0 +1,58 @@
+package com.banking.benchmark;
+
+import com.banking.db.DatabaseConnection;
+import com.banking.db.StartupMetrics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time for the first DatabaseConnection.getInstance() in a fresh JVM, i.e.
+ * what a short-lived CLI or batch job pays before its first query.
+ *
+ * Every fork is one cold start. With database=file the first fork creates
+ * the schema and the rest find it already at the current version; with mem
+ * every fork bootstraps an empty database. Each fork prints its StartupMetrics.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+@State(Scope.Benchmark)
+public class ColdStartBenchmark {
+    @Param({"mem", "file"})
+    public String database;
+
+    @Param({"true", "false"})
+    public boolean warmup;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Must not touch DatabaseConnection here, or the start is no longer cold
+        if (database.equals("file")) {
+            String path = Paths.get(System.getProperty("java.io.tmpdir"), "bank-coldstart").toString();
+            System.setProperty("db.url", "jdbc:h2:file:" + path + ";MODE=MySQL");
+        }
+        System.setProperty("db.warmup", Boolean.toString(warmup));
+    }
+
+    @Benchmark
+    public StartupMetrics getInstance() {
+        StartupMetrics metrics = DatabaseConnection.getInstance().getStartupMetrics();
+        System.out.println(metrics);
+        return metrics;
+    }
+}
@@ -0,0 +1,77 @@
+package com.banking.benchmark;
+
+import com.banking.service.AccountService;
+import com.banking.service.BalanceCache;
+import com.banking.service.OperationResult;
+import com.banking.service.ReportAggregates;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cost of idempotency keys on AccountService: deposits without a key, with
+ * a new key each (the happy path: one more INSERT in the same commit) and
+ * retries of keys that already completed (answered from memory, no
+ * connection taken). Thread count is set on the command line, e.g.
+ * -Djmh.args="-t 8 IdempotencyBenchmark".
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IdempotencyBenchmark {
+    private static final BigDecimal AMOUNT = new BigDecimal("1.00");
+    private static final int ACCOUNTS = 1000;
+    private static final int RETRIED_KEYS = 1000;
+
+    private final AtomicLong nextKey = new AtomicLong();
+    private AccountService service;
+    private String[] accountIds;
+    private String[] retriedKeys;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        service = new AccountService(BalanceCache.disabled(), ReportAggregates.disabled());
+        accountIds = BenchmarkAccounts.create(service, ACCOUNTS, new BigDecimal("1000.00"));
+        retriedKeys = new String[RETRIED_KEYS];
+        for (int i = 0; i < RETRIED_KEYS; i++) {
+            retriedKeys[i] = "retry-" + System.nanoTime() + "-" + i;
+            service.deposit(accountIds[i % ACCOUNTS], AMOUNT, retriedKeys[i]);
+        }
+    }
+
+    @Benchmark
+    public void depositWithoutKey() {
+        service.deposit(randomAccount(), AMOUNT);
+    }
+
+    @Benchmark
+    public OperationResult depositWithNewKey() {
+        return service.deposit(randomAccount(), AMOUNT, "new-" + nextKey.incrementAndGet());
+    }
+
+    @Benchmark
+    public OperationResult retriedDeposit() {
+        int i = ThreadLocalRandom.current().nextInt(RETRIED_KEYS);
+        return service.deposit(accountIds[i % ACCOUNTS], AMOUNT, retriedKeys[i]);
+    }
+
+    private String randomAccount() {
+        return accountIds[ThreadLocalRandom.current().nextInt(accountIds.length)];
+    }
+}
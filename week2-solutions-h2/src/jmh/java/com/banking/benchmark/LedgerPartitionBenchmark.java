@@ -0,0 +1,130 @@
+package com.banking.benchmark;
+
+import com.banking.db.DatabaseConnection;
+import com.banking.model.TransactionRecord;
+import com.banking.service.AccountService;
+import com.banking.service.BalanceCache;
+import com.banking.service.ReportAggregates;
+import com.banking.util.LedgerMaintenance;
+import com.banking.util.LedgerMaintenanceStats;
+import com.banking.util.TransactionLogger;
+import com.banking.util.TransactionQuery;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Queries on an aged ledger, spread evenly over the last two years, with
+ * everything in the transactions table (partitioned = false) or after a
+ * LedgerMaintenance run with the default windows: 3 hot months, 9 archived
+ * month tables and 12 months compacted into rollups.
+ * One ledger row is added before each call, since H2 hands back the previous
+ * result of a statement whose tables have not changed.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LedgerPartitionBenchmark {
+    private static final int ACCOUNTS = 10_000;
+    private static final int MONTHS = 24;
+
+    // Raise with -p ledgerRows=... given the heap for it (-jvmArgs -Xmx...)
+    @Param({"1000000"})
+    public int ledgerRows;
+
+    @Param({"false", "true"})
+    public boolean partitioned;
+
+    private AccountService service;
+    private TransactionLogger logger;
+    private LocalDateTime recentDay;
+    private LocalDateTime archivedDay;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        service = new AccountService(BalanceCache.disabled(), ReportAggregates.disabled());
+        logger = new TransactionLogger();
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "INSERT INTO accounts (account_id, account_type, balance) " +
+                    "SELECT CONCAT('LP', X), 'CHECKING', 1000.00 FROM SYSTEM_RANGE(1, ?)")) {
+                stmt.setInt(1, ACCOUNTS);
+                stmt.executeUpdate();
+            }
+            // In slices, since one huge INSERT ... SELECT runs H2 out of memory
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "INSERT INTO transactions (account_id, amount, transaction_date) " +
+                    "SELECT CONCAT('LP', MOD(X * 7919, ?) + 1), MOD(X, 20000) / 100.0 - 100, " +
+                    "DATEADD('SECOND', -MOD(X * 104729, ?), CURRENT_TIMESTAMP) FROM SYSTEM_RANGE(?, ?)")) {
+                for (int first = 1; first <= ledgerRows; first += 100_000) {
+                    stmt.setInt(1, ACCOUNTS);
+                    stmt.setInt(2, MONTHS * 30 * 86400);
+                    stmt.setInt(3, first);
+                    stmt.setInt(4, Math.min(first + 99_999, ledgerRows));
+                    stmt.executeUpdate();
+                }
+            }
+        }
+        if (partitioned) {
+            LedgerMaintenanceStats stats = new LedgerMaintenance(
+                    DatabaseConnection.getInstance()::getConnection, 3, 12, 0).maintain(LocalDate.now());
+            System.out.println(stats);
+        }
+        recentDay = LocalDate.now().minusDays(7).atStartOfDay();
+        archivedDay = LocalDate.now().minusMonths(8).atStartOfDay();
+    }
+
+    @Setup(Level.Invocation)
+    public void touchLedger() throws SQLException {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                 "INSERT INTO transactions (account_id, amount) VALUES ('LP1', 0.01)"
+             )) {
+            stmt.executeUpdate();
+        }
+    }
+
+    @Benchmark
+    public List<TransactionRecord> accountHistory() {
+        return logger.streamTransactions(TransactionQuery.forAccount("LP42")).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<TransactionRecord> recentDayOfLedger() {
+        return logger.streamTransactions(TransactionQuery.all().between(recentDay, recentDay.plusDays(1)))
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<TransactionRecord> archivedDayOfLedger() {
+        return logger.streamTransactions(TransactionQuery.all().between(archivedDay, archivedDay.plusDays(1)))
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public Map<String, Object> accountActivity() {
+        return service.getAccountActivity();
+    }
+}
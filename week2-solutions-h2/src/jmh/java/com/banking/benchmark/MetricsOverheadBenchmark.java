@@ -0,0 +1,79 @@
+package com.banking.benchmark;
+
+import com.banking.metrics.BankingMetrics;
+import com.banking.service.AccountOperations;
+import com.banking.service.AccountService;
+import com.banking.service.BalanceCache;
+import com.banking.service.InstrumentedAccountOperations;
+import com.banking.service.ReportAggregates;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the metrics layer. With metrics=false the engine runs as
+ * BankingSystem builds it when metrics.enabled is off (no wrapper, disabled
+ * registry); with true every call is timed and split into phases.
+ * getBalance is served from the balance cache, so it shows the per-call
+ * overhead on a path that never touches the database.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetricsOverheadBenchmark {
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000000.00");
+    private static final BigDecimal AMOUNT = new BigDecimal("1.00");
+
+    @Param({"false", "true"})
+    public boolean metrics;
+
+    private BankingMetrics registry;
+    private AccountOperations operations;
+    private String[] accountIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        registry = metrics ? new BankingMetrics() : BankingMetrics.disabled();
+        AccountService engine = new AccountService(new BalanceCache(1000), ReportAggregates.disabled(), registry);
+        operations = metrics ? new InstrumentedAccountOperations(engine, registry) : engine;
+        accountIds = BenchmarkAccounts.create(engine, 1000, INITIAL_BALANCE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (metrics) {
+            System.out.println(registry.snapshot());
+        }
+    }
+
+    @Benchmark
+    public void deposit() {
+        operations.deposit(randomAccount(), AMOUNT);
+    }
+
+    @Benchmark
+    public BigDecimal getBalance() {
+        return operations.getBalance(randomAccount());
+    }
+
+    private String randomAccount() {
+        return accountIds[ThreadLocalRandom.current().nextInt(accountIds.length)];
+    }
+}
@@ -0,0 +1,71 @@
+package com.banking.benchmark;
+
+import com.banking.db.DatabaseConnection;
+import com.banking.service.AccountService;
+import com.banking.service.MonthEndProcessor;
+import com.banking.service.MonthEndStats;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.YearMonth;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One full month-end run over every account per invocation; each invocation
+ * is a new period so nothing is skipped. Prints its MonthEndStats (accounts/s).
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MonthEndBenchmark {
+    @Param({"100000"})
+    public int accounts;
+
+    @Param({"100", "1000"})
+    public int chunkSize;
+
+    @Param({"1", "4"})
+    public int parallelism;
+
+    private MonthEndProcessor processor;
+    private YearMonth period = YearMonth.of(2000, 1);
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        AccountService service = new AccountService();
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                 "INSERT INTO accounts (account_id, account_type, balance) " +
+                 "SELECT CONCAT('ME', X), CASEWHEN(MOD(X, 2) = 0, 'CHECKING', 'SAVINGS'), 1000.00 " +
+                 "FROM SYSTEM_RANGE(1, ?)"
+             )) {
+            stmt.setInt(1, accounts);
+            stmt.executeUpdate();
+        }
+        processor = new MonthEndProcessor(service, 16, chunkSize, parallelism);
+    }
+
+    @Benchmark
+    public MonthEndStats runMonthEnd() {
+        period = period.plusMonths(1);
+        MonthEndStats stats = processor.run(period);
+        System.out.println(stats);
+        return stats;
+    }
+}
@@ -0,0 +1,118 @@
+package com.banking.benchmark;
+
+import com.banking.db.DatabaseShards;
+import com.banking.model.AccountType;
+import com.banking.service.MultiDatabaseAccountService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Throughput of the multidb engine with 1 to N in-memory H2 shards and
+ * 8 client threads. Each shard is its own database with its own pool, so
+ * the gain over one shard needs as many free CPUs as busy shards.
+ * transfer picks two random accounts, so with N shards about (N - 1) / N
+ * of them are cross-shard sagas; localTransfer keeps both on one shard.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class MultiDatabaseBenchmark {
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000000.00");
+    private static final BigDecimal AMOUNT = new BigDecimal("1.00");
+    private static final AtomicInteger TRIAL = new AtomicInteger();
+
+    @Param({"1", "2", "4"})
+    public int shardCount;
+
+    @Param({"1000"})
+    public int accountCount;
+
+    private MultiDatabaseAccountService service;
+    private String[] accountIds;
+    // Accounts grouped by the shard that owns them
+    private String[][] byShard;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int trial = TRIAL.incrementAndGet();
+        service = new MultiDatabaseAccountService(new DatabaseShards(shardCount,
+                "jdbc:h2:mem:bench" + trial + "_shard{shard};MODE=MySQL;DB_CLOSE_DELAY=-1", 128));
+        accountIds = new String[accountCount];
+        int[] perShard = new int[shardCount];
+        for (int i = 0; i < accountCount; i++) {
+            accountIds[i] = "M" + i;
+            service.createAccount(AccountType.CHECKING, accountIds[i], INITIAL_BALANCE);
+            perShard[service.getShards().shardFor(accountIds[i])]++;
+        }
+        byShard = new String[shardCount][];
+        for (int shard = 0; shard < shardCount; shard++) {
+            byShard[shard] = new String[perShard[shard]];
+            perShard[shard] = 0;
+        }
+        for (String accountId : accountIds) {
+            int shard = service.getShards().shardFor(accountId);
+            byShard[shard][perShard[shard]++] = accountId;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.println("Cross-shard transfers: " + service.getCrossShardTransfers());
+        service.close();
+    }
+
+    @Benchmark
+    public void deposit() {
+        service.deposit(randomAccount(), AMOUNT);
+    }
+
+    @Benchmark
+    public void withdraw() {
+        service.withdraw(randomAccount(), AMOUNT);
+    }
+
+    @Benchmark
+    public void transfer() {
+        String from = randomAccount();
+        String to = randomAccount();
+        if (!from.equals(to)) {
+            service.transfer(from, to, AMOUNT);
+        }
+    }
+
+    @Benchmark
+    public void localTransfer() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String[] shard = byShard[random.nextInt(shardCount)];
+        String from = shard[random.nextInt(shard.length)];
+        String to = shard[random.nextInt(shard.length)];
+        if (!from.equals(to)) {
+            service.transfer(from, to, AMOUNT);
+        }
+    }
+
+    private String randomAccount() {
+        return accountIds[ThreadLocalRandom.current().nextInt(accountIds.length)];
+    }
+}
@@ -0,0 +1,105 @@
+package com.banking.benchmark;
+
+import com.banking.db.DatabaseConnection;
+import com.banking.service.AccountService;
+import com.banking.service.BalanceCache;
+import com.banking.service.ParallelReports;
+import com.banking.service.ReportAggregates;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Report scans over a large ledger: the single-connection queries of
+ * AccountService (threads = 0) against ParallelReports with 1..n threads,
+ * exact (budgetMs = 0) or within a time budget. Run with more CPUs than
+ * threads to see the scaling; every thread holds a pooled connection.
+ * One ledger row is added before each call, since H2 hands back the previous
+ * result of a statement whose tables have not changed.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParallelReportBenchmark {
+    @Param({"1000000"})
+    public int ledgerRows;
+
+    @Param({"0", "1", "2", "4"})
+    public int threads;
+
+    @Param({"0", "50"})
+    public long budgetMs;
+
+    private AccountService serial;
+    private ParallelReports reports;
+    private String accountId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        serial = new AccountService(BalanceCache.disabled(), ReportAggregates.disabled());
+        String[] accountIds = BenchmarkAccounts.create(serial, 1000, new BigDecimal("1000.00"));
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                 "INSERT INTO transactions (account_id, amount, transaction_date) " +
+                 "SELECT CONCAT(?, MOD(X * X, 1000)), MOD(X, 20000) / 100.0 - 100, " +
+                 "DATEADD('SECOND', -MOD(X, 172800), CURRENT_TIMESTAMP) FROM SYSTEM_RANGE(1, ?)"
+             )) {
+            String id = accountIds[0];
+            accountId = id;
+            stmt.setString(1, id.substring(0, id.length() - 1));
+            stmt.setInt(2, ledgerRows - accountIds.length);
+            stmt.executeUpdate();
+        }
+        if (threads > 0) {
+            reports = new ParallelReports(DatabaseConnection.getInstance()::getConnection, 8, threads, budgetMs);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void touchLedger() throws SQLException {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                 "INSERT INTO transactions (account_id, amount) VALUES (?, 0.01)"
+             )) {
+            stmt.setString(1, accountId);
+            stmt.executeUpdate();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (reports != null) {
+            reports.close();
+        }
+    }
+
+    @Benchmark
+    public Map<String, Object> accountActivity() {
+        return reports != null ? reports.getAccountActivity() : serial.getAccountActivity();
+    }
+
+    @Benchmark
+    public Map<String, Object> dailyTransactions() {
+        return reports != null ? reports.getDailyTransactions() : serial.getDailyTransactions();
+    }
+}
@@ -0,0 +1,76 @@
+package com.banking.benchmark;
+
+import com.banking.db.DatabaseConnection;
+import com.banking.db.QueryTracer;
+import com.banking.service.AccountService;
+import com.banking.service.BalanceCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of db.trace on every statement. The threshold is high enough that
+ * nothing is recorded, so this is the price of timing and wrapping alone.
+ * The balance cache is off so getBalance always runs a query.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class QueryTracerBenchmark {
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000000.00");
+    private static final BigDecimal AMOUNT = new BigDecimal("1.00");
+
+    @Param({"false", "true"})
+    public boolean trace;
+
+    private AccountService accountService;
+    private String[] accountIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Read when DatabaseConnection starts, so set it before the first getInstance() in this fork
+        System.setProperty("db.trace.enabled", Boolean.toString(trace));
+        System.setProperty("db.trace.thresholdMs", "1000");
+        accountService = new AccountService(BalanceCache.disabled());
+        accountIds = BenchmarkAccounts.create(accountService, 1000, INITIAL_BALANCE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        QueryTracer tracer = DatabaseConnection.getInstance().getQueryTracer();
+        if (tracer != null) {
+            tracer.dump(System.out);
+        }
+    }
+
+    @Benchmark
+    public void deposit() {
+        accountService.deposit(randomAccount(), AMOUNT);
+    }
+
+    @Benchmark
+    public BigDecimal getBalance() {
+        return accountService.getBalance(randomAccount());
+    }
+
+    private String randomAccount() {
+        return accountIds[ThreadLocalRandom.current().nextInt(accountIds.length)];
+    }
+}
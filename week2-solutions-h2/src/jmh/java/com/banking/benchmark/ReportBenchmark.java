@@ -0,0 +1,70 @@
+package com.banking.benchmark;
+
+import com.banking.BankingSystem;
+import com.banking.service.AccountService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The report methods in BankingSystem over a populated ledger.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ReportBenchmark {
+    @Param({"100", "10000"})
+    public int accountCount;
+
+    @Param({"10"})
+    public int transactionsPerAccount;
+
+    private BankingSystem bank;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        bank = BankingSystem.getInstance();
+        AccountService accountService = new AccountService();
+        String[] accountIds = BenchmarkAccounts.create(accountService, accountCount, new BigDecimal("1000.00"));
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < accountCount * (transactionsPerAccount - 1); i++) {
+            String accountId = accountIds[random.nextInt(accountIds.length)];
+            if (random.nextBoolean()) {
+                bank.deposit(accountId, BigDecimal.ONE);
+            } else {
+                bank.withdraw(accountId, BigDecimal.ONE);
+            }
+        }
+    }
+
+    @Benchmark
+    public String accountSummaryReport() {
+        return bank.getAccountSummaryReport();
+    }
+
+    @Benchmark
+    public String dailyTransactionReport() {
+        return bank.getDailyTransactionReport();
+    }
+
+    @Benchmark
+    public String accountActivityReport() {
+        return bank.getAccountActivityReport();
+    }
+}
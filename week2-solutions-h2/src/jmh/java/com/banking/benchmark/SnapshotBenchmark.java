@@ -0,0 +1,93 @@
+package com.banking.benchmark;
+
+import com.banking.db.BankSnapshot;
+import com.banking.db.DatabaseConnection;
+import com.banking.db.SnapshotStats;
+import com.banking.service.AccountService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One full export or import of the bank per invocation.
+ * Each invocation prints its SnapshotStats (rows/s, MB/s). The whole ledger
+ * lives in the in-memory database, so size the heap for ledgerRows, e.g.
+ * -jvmArgs -Xmx4g for a few million rows.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SnapshotBenchmark {
+    @Param({"1000000"})
+    public int ledgerRows;
+
+    @Param({"false", "true"})
+    public boolean compress;
+
+    private Path directory;
+    private Path snapshot;
+    private BankSnapshot bankSnapshot;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, SQLException {
+        String[] accountIds = BenchmarkAccounts.create(new AccountService(), 1000, BigDecimal.ZERO);
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                 "INSERT INTO transactions (account_id, amount, transaction_date) " +
+                 "SELECT CONCAT(?, MOD(X, 1000)), MOD(X, 20000) / 100.0 - 100, " +
+                 "DATEADD('SECOND', -X, CURRENT_TIMESTAMP) FROM SYSTEM_RANGE(1, ?)"
+             )) {
+            String id = accountIds[0];
+            stmt.setString(1, id.substring(0, id.length() - 1));
+            stmt.setInt(2, ledgerRows - accountIds.length);
+            stmt.executeUpdate();
+        }
+        directory = Files.createTempDirectory("snapshot-bench");
+        snapshot = directory.resolve("bank.snapshot");
+        bankSnapshot = new BankSnapshot(65536, compress);
+        System.out.println("Exported " + bankSnapshot.exportTo(snapshot));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(directory.resolve("export.snapshot"));
+        Files.deleteIfExists(snapshot);
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public SnapshotStats exportSnapshot() {
+        SnapshotStats stats = bankSnapshot.exportTo(directory.resolve("export.snapshot"));
+        System.out.println(stats);
+        return stats;
+    }
+
+    @Benchmark
+    public SnapshotStats importSnapshot() {
+        SnapshotStats stats = bankSnapshot.importFrom(snapshot);
+        System.out.println(stats);
+        return stats;
+    }
+}
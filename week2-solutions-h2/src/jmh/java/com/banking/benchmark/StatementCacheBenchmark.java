@@ -0,0 +1,80 @@
+package com.banking.benchmark;
+
+import com.banking.db.DatabaseConnection;
+import com.banking.service.AccountService;
+import com.banking.service.BalanceCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AccountService hot paths with the pooled connections' prepared statement
+ * cache on (statementCacheSize > 0) and off. The balance cache is disabled
+ * so every call reaches the database. Each trial prints the cache hit rate.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StatementCacheBenchmark {
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000000.00");
+    private static final BigDecimal AMOUNT = new BigDecimal("1.00");
+
+    @Param({"0", "64"})
+    public int statementCacheSize;
+
+    private AccountService accountService;
+    private String[] accountIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Read when the pool is created, so set it before the first getInstance() in this fork
+        System.setProperty("db.pool.statementCacheSize", Integer.toString(statementCacheSize));
+        accountService = new AccountService(BalanceCache.disabled());
+        accountIds = BenchmarkAccounts.create(accountService, 1000, INITIAL_BALANCE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.println(DatabaseConnection.getInstance().getStatementCacheMetrics());
+    }
+
+    @Benchmark
+    public void deposit() {
+        accountService.deposit(randomAccount(), AMOUNT);
+    }
+
+    @Benchmark
+    public void transfer() {
+        String from = randomAccount();
+        String to = randomAccount();
+        if (!from.equals(to)) {
+            accountService.transfer(from, to, AMOUNT);
+        }
+    }
+
+    @Benchmark
+    public BigDecimal getBalance() {
+        return accountService.getBalance(randomAccount());
+    }
+
+    private String randomAccount() {
+        return accountIds[ThreadLocalRandom.current().nextInt(accountIds.length)];
+    }
+}
@@ -0,0 +1,96 @@
+package com.banking.benchmark;
+
+import com.banking.model.TransactionRecord;
+import com.banking.service.AccountService;
+import com.banking.util.TransactionLogger;
+import com.banking.util.TransactionQuery;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading the ledger back with TransactionLogger.readTransactionHistory.
+ *
+ * Run with -prof gc to compare allocation: readTransactionHistory returns
+ * compact records, formatHistoryLazily formats them at the edge, and
+ * formatHistoryEagerly rebuilds every row the way the old String API did.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TransactionHistoryBenchmark {
+    @Param({"100"})
+    public int accountCount;
+
+    @Param({"1000", "50000"})
+    public int ledgerRows;
+
+    private TransactionLogger logger;
+    private String[] accountIds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        AccountService accountService = new AccountService();
+        accountIds = BenchmarkAccounts.create(accountService, accountCount, BigDecimal.ZERO);
+        logger = new TransactionLogger();
+        for (int i = accountCount; i < ledgerRows; i++) {
+            logger.logTransaction(accountIds[i % accountCount], BigDecimal.ONE);
+        }
+    }
+
+    @Benchmark
+    public List<TransactionRecord> readTransactionHistory() {
+        return logger.readTransactionHistory();
+    }
+
+    @Benchmark
+    public List<String> formatHistoryLazily() {
+        List<TransactionRecord> records = logger.readTransactionHistory();
+        List<String> lines = new ArrayList<>(records.size());
+        for (TransactionRecord record : records) {
+            lines.add(record.toString());
+        }
+        return lines;
+    }
+
+    @Benchmark
+    public List<String> formatHistoryEagerly() {
+        List<TransactionRecord> records = logger.readTransactionHistory();
+        List<String> lines = new ArrayList<>(records.size());
+        for (TransactionRecord record : records) {
+            // BigDecimal + LocalDateTime + Timestamp + String.format per row, as before
+            lines.add(String.format("%s,%s,%.2f", Timestamp.valueOf(record.getTransactionDate()),
+                    record.getAccountId(), record.getAmount()));
+        }
+        return lines;
+    }
+
+    @Benchmark
+    public long streamTransactions() {
+        return logger.streamTransactions(TransactionQuery.all()).count();
+    }
+
+    @Benchmark
+    public List<TransactionRecord> readAccountHistory() {
+        return logger.readTransactionHistory(accountIds[ThreadLocalRandom.current().nextInt(accountIds.length)]);
+    }
+}
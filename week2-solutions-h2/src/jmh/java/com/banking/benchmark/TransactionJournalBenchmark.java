@@ -0,0 +1,78 @@
+package com.banking.benchmark;
+
+import com.banking.util.JournalSyncPolicy;
+import com.banking.util.TransactionJournal;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Raw TransactionJournal appends for each sync policy, without H2.
+ * ALWAYS shares one force between concurrent appends, so also run with -t.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TransactionJournalBenchmark {
+    private static final BigDecimal AMOUNT = new BigDecimal("1.00");
+    private static final String[] ACCOUNT_IDS = new String[100];
+
+    static {
+        for (int i = 0; i < ACCOUNT_IDS.length; i++) {
+            ACCOUNT_IDS[i] = String.format("JB%05d", i);
+        }
+    }
+
+    @Param({"ALWAYS", "INTERVAL", "NONE"})
+    public JournalSyncPolicy sync;
+
+    private Path directory;
+    private TransactionJournal journal;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("journal-bench");
+        journal = new TransactionJournal(directory, 64 << 20, sync, 10);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        journal.close();
+        deleteJournal(directory);
+    }
+
+    @Benchmark
+    public long append() {
+        return journal.append(ACCOUNT_IDS[ThreadLocalRandom.current().nextInt(ACCOUNT_IDS.length)], AMOUNT);
+    }
+
+    static void deleteJournal(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+}
@@ -0,0 +1,85 @@
+package com.banking.benchmark;
+
+import com.banking.service.AccountService;
+import com.banking.util.DurabilityMode;
+import com.banking.util.JournalSyncPolicy;
+import com.banking.util.TransactionJournal;
+import com.banking.util.TransactionLogger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ledger insert throughput for each durability mode and batch size.
+ * GROUP_COMMIT only batches when several threads log at once, so also run with -t.
+ * JOURNAL forces its record to disk before returning (ALWAYS), like SYNC's commit.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TransactionLoggerBenchmark {
+    private static final BigDecimal AMOUNT = new BigDecimal("1.00");
+
+    @Param({"SYNC", "GROUP_COMMIT", "ASYNC", "JOURNAL"})
+    public DurabilityMode durability;
+
+    @Param({"1", "10", "100", "1000"})
+    public int batchSize;
+
+    private TransactionLogger logger;
+    private TransactionJournal journal;
+    private Path journalDirectory;
+    private String[] accountIds;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        accountIds = BenchmarkAccounts.create(new AccountService(), 100, BigDecimal.ZERO);
+        if (durability == DurabilityMode.JOURNAL) {
+            journalDirectory = Files.createTempDirectory("journal-bench");
+            journal = new TransactionJournal(journalDirectory, 64 << 20, JournalSyncPolicy.ALWAYS, 0);
+            logger = new TransactionLogger(journal, batchSize, 5, 10_000);
+        } else {
+            logger = new TransactionLogger(durability, batchSize, 5, 10_000);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void flush() {
+        // Count only rows that actually reached the database
+        logger.flush();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        logger.close();
+        if (journal != null) {
+            journal.close();
+            TransactionJournalBenchmark.deleteJournal(journalDirectory);
+        }
+    }
+
+    @Benchmark
+    public void logTransaction() {
+        logger.logTransaction(accountIds[ThreadLocalRandom.current().nextInt(accountIds.length)], AMOUNT);
+    }
+}
@@ -0,0 +1,102 @@
+package com.banking.benchmark;
+
+import com.banking.service.AccountOperations;
+import com.banking.service.AccountService;
+import com.banking.service.BalanceCache;
+import com.banking.service.ReportAggregates;
+import com.banking.service.ShardedAccountService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Skewed deposit/transfer load: account popularity follows a Zipf
+ * distribution, so a few "merchant" accounts receive most of the traffic.
+ * Compares the JDBC engine (row-lock contention) with the sharded engine
+ * (per-account mailboxes with coalesced commits).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(32)
+@State(Scope.Benchmark)
+public class ZipfianWorkloadBenchmark {
+    private static final BigDecimal AMOUNT = new BigDecimal("1.00");
+
+    @Param({"jdbc", "sharded"})
+    public String engine;
+
+    @Param({"1000"})
+    public int accountCount;
+
+    // 0 = uniform; around 1 most traffic lands on the first few accounts
+    @Param({"1.1"})
+    public double skew;
+
+    private AccountOperations accounts;
+    private String[] accountIds;
+    private double[] cumulative;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        AccountService jdbc = new AccountService(BalanceCache.disabled(), ReportAggregates.disabled());
+        accountIds = BenchmarkAccounts.create(jdbc, accountCount, new BigDecimal("1000000.00"));
+        accounts = "sharded".equals(engine) ? new ShardedAccountService() : jdbc;
+
+        // Cumulative Zipf weights: account i is picked with probability ~ 1 / (i + 1)^skew
+        cumulative = new double[accountCount];
+        double total = 0;
+        for (int i = 0; i < accountCount; i++) {
+            total += 1.0 / Math.pow(i + 1, skew);
+            cumulative[i] = total;
+        }
+        for (int i = 0; i < accountCount; i++) {
+            cumulative[i] /= total;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (accounts instanceof ShardedAccountService) {
+            ((ShardedAccountService) accounts).close();
+        }
+    }
+
+    @Benchmark
+    public void deposit() {
+        accounts.deposit(zipfAccount(), AMOUNT);
+    }
+
+    @Benchmark
+    public void transfer() {
+        // Uniform payer, skewed payee: customers paying a few merchants
+        String from = accountIds[ThreadLocalRandom.current().nextInt(accountIds.length)];
+        String to = zipfAccount();
+        if (!from.equals(to)) {
+            accounts.transfer(from, to, AMOUNT);
+        }
+    }
+
+    private String zipfAccount() {
+        int index = Arrays.binarySearch(cumulative, ThreadLocalRandom.current().nextDouble());
+        return accountIds[Math.min(index < 0 ? -index - 1 : index, accountIds.length - 1)];
+    }
+}
@@ -3,19 +3,53 @@ package com.banking;
 import com.banking.exception.BankingException;
 import com.banking.model.Account;
 import com.banking.model.AccountType;
+import com.banking.model.TransactionRecord;
+import com.banking.db.DatabaseConnection;
+import com.banking.metrics.BankingMetrics;
+import com.banking.service.AccountOperations;
 import com.banking.service.AccountService;
+import com.banking.service.AsyncAccountService;
+import com.banking.service.InMemoryAccountService;
+import com.banking.service.InstrumentedAccountOperations;
+import com.banking.service.MultiDatabaseAccountService;
+import com.banking.service.ShardedAccountService;
+import com.banking.service.BatchMode;
+import com.banking.service.TransferInstruction;
+import com.banking.service.TransferResult;
+import com.banking.util.TransactionQuery;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 public class BankingSystem {
-    private final AccountService accountService;
+    private final AccountOperations accountService;
+    private AsyncAccountService asyncService;
 
     private BankingSystem() {
-        this.accountService = new AccountService();
+        AccountOperations engine = createAccountOperations();
+        BankingMetrics metrics = BankingMetrics.getInstance();
+        this.accountService = metrics.isEnabled() ? new InstrumentedAccountOperations(engine, metrics) : engine;
+    }
+
+    // banking.engine picks the backend: jdbc (default), memory, sharded or multidb
+    private static AccountOperations createAccountOperations() {
+        String engine = DatabaseConnection.getInstance().getProperty("banking.engine", "jdbc");
+        switch (engine.toLowerCase()) {
+            case "jdbc":
+                return new AccountService();
+            case "memory":
+                return new InMemoryAccountService();
+            case "sharded":
+                return new ShardedAccountService();
+            case "multidb":
+                return new MultiDatabaseAccountService();
+            default:
+                throw new IllegalArgumentException("Unknown banking.engine: " + engine);
+        }
     }
 
     private static class SingletonHolder {
@@ -26,6 +60,23 @@ public class BankingSystem {
         return SingletonHolder.INSTANCE;
     }
 
+    /**
+     * Per-operation counters and latencies (metrics.enabled); snapshot() is empty when disabled.
+     */
+    public BankingMetrics metrics() {
+        return BankingMetrics.getInstance();
+    }
+
+    /**
+     * CompletableFuture versions of the account calls, created on first use.
+     */
+    public synchronized AsyncAccountService async() {
+        if (asyncService == null) {
+            asyncService = new AsyncAccountService(accountService);
+        }
+        return asyncService;
+    }
+
     public Account createAccount(AccountType type, String accountId, BigDecimal initialBalance) throws BankingException {
         return accountService.createAccount(type, accountId, initialBalance);
     }
@@ -42,18 +93,26 @@ public class BankingSystem {
         accountService.transfer(fromAccountId, toAccountId, amount);
     }
 
+    public List<TransferResult> transferBatch(List<TransferInstruction> instructions, BatchMode mode) throws BankingException {
+        return accountService.transferBatch(instructions, mode);
+    }
+
     public BigDecimal getBalance(String accountId) throws BankingException {
         return accountService.getBalance(accountId);
     }
 
-    public List<String> getTransactionHistory(String accountId) {
+    public List<TransactionRecord> getTransactionHistory(String accountId) {
         return accountService.getTransactionHistory(accountId);
     }
 
-    public List<String> getAllTransactions() {
+    public List<TransactionRecord> getAllTransactions() {
         return accountService.getAllTransactions();
     }
 
+    public Stream<TransactionRecord> streamTransactions(TransactionQuery query) {
+        return accountService.streamTransactions(query);
+    }
+
     // Add this method for Account Summary Report
     public String getAccountSummaryReport() throws BankingException {
         Map<String, Object> data = accountService.getAccountSummary();
@@ -105,4 +164,4 @@ public class BankingSystem {
                 data.get("highestBalance")
         );
     }
-}
\ No newline at end of file
+}
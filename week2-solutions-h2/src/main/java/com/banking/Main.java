@@ -2,6 +2,7 @@ package com.banking;
 
 import com.banking.model.Account;
 import com.banking.model.AccountType;
+import com.banking.model.TransactionRecord;
 import java.math.BigDecimal;
 
 public class Main {
@@ -62,17 +63,17 @@ public class Main {
 
             // View transaction history
             System.out.println("\nTransaction History for SAV001:");
-            for (String transaction : bank.getTransactionHistory("SAV001")) {
+            for (TransactionRecord transaction : bank.getTransactionHistory("SAV001")) {
                 System.out.println(transaction);
             }
 
             System.out.println("\nTransaction History for CHK001:");
-            for (String transaction : bank.getTransactionHistory("CHK001")) {
+            for (TransactionRecord transaction : bank.getTransactionHistory("CHK001")) {
                 System.out.println(transaction);
             }
 
             System.out.println("\nAll Transactions:");
-            for (String transaction : bank.getAllTransactions()) {
+            for (TransactionRecord transaction : bank.getAllTransactions()) {
                 System.out.println(transaction);
             }
 
@@ -0,0 +1,574 @@
+package com.banking.db;
+
+import com.banking.exception.BankingException;
+import com.banking.model.TransactionRecord;
+import com.banking.util.LedgerMaintenance;
+import com.banking.util.LedgerPartitions;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Bulk export and import of the accounts and transactions tables.
+ *
+ * The file is a header followed by blocks of up to blockRows rows of one
+ * table. A block stores each column contiguously (numbers as fixed-width
+ * longs, text length-prefixed), carries a CRC32 and can be deflated on its
+ * own. Blocks move between direct buffers and a FileChannel; rows are read
+ * page by page in primary key order from one consistent snapshot.
+ *
+ * Import checks every block's checksum before touching the database, then
+ * replaces both tables. Secondary indexes from schema.sql are dropped
+ * first and rebuilt once at the end, rows go in with one executeBatch and one
+ * commit per block, and the transaction_id sequence is moved past the
+ * imported ids. It is not atomic and bypasses the service layer, so run it
+ * before any service (and its caches) is created.
+ *
+ * The archived months of the ledger are exported with it and come back in
+ * the transactions table, to be archived again by the next
+ * {@link LedgerMaintenance} run; rollups of compacted months are not kept.
+ */
+public class BankSnapshot {
+    private static final long MAGIC = 0x42414e4b534e4150L; // "BANKSNAP"
+    private static final int VERSION = 1;
+    private static final int FILE_HEADER_SIZE = 12;
+    // table, codec, rows, raw length, stored length, payload crc, crc of the header so far
+    private static final int BLOCK_HEADER_SIZE = 22;
+
+    private static final byte END = 0;
+    private static final byte ACCOUNTS = 1;
+    private static final byte TRANSACTIONS = 2;
+    private static final byte RAW = 0;
+    private static final byte DEFLATED = 1;
+    // Stands in for a NULL timestamp
+    private static final long NO_TIME = Long.MIN_VALUE;
+
+    private static final Pattern INDEX = Pattern.compile(
+            "CREATE\\s+INDEX\\s+IF\\s+NOT\\s+EXISTS\\s+(\\w+)\\s+ON", Pattern.CASE_INSENSITIVE);
+
+    private final DatabaseConnection dbConnection;
+    private final UnitOfWork unitOfWork;
+    private final int blockRows;
+    private final boolean compress;
+
+    public BankSnapshot() {
+        this(Integer.parseInt(DatabaseConnection.getInstance().getProperty("snapshot.blockRows", "65536")),
+             Boolean.parseBoolean(DatabaseConnection.getInstance().getProperty("snapshot.compress", "false")));
+    }
+
+    public BankSnapshot(int blockRows, boolean compress) {
+        this.dbConnection = DatabaseConnection.getInstance();
+        this.unitOfWork = new UnitOfWork(dbConnection::getConnection);
+        this.blockRows = blockRows;
+        this.compress = compress;
+    }
+
+    /**
+     * Write every account and ledger row to the file, replacing it.
+     */
+    public SnapshotStats exportTo(Path file) {
+        long start = System.nanoTime();
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             Connection conn = dbConnection.getConnection()) {
+            BlockWriter writer = new BlockWriter(out);
+            ByteBuffer header = ByteBuffer.allocateDirect(FILE_HEADER_SIZE);
+            header.putLong(MAGIC).putInt(VERSION).flip();
+            writeFully(out, header);
+
+            // Both tables from the same snapshot, even while writers carry on
+            int isolation = conn.getTransactionIsolation();
+            conn.setAutoCommit(false);
+            conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            long accounts;
+            long transactions;
+            try {
+                accounts = exportAccounts(conn, writer);
+                transactions = exportTransactions(conn, writer);
+                conn.commit();
+            } finally {
+                conn.setTransactionIsolation(isolation);
+                conn.setAutoCommit(true);
+            }
+
+            writer.writeEnd();
+            out.force(true);
+            return new SnapshotStats(accounts, transactions, writer.blocks, out.size(), System.nanoTime() - start);
+        } catch (IOException | SQLException e) {
+            throw new BankingException("Failed to export snapshot to " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Replace the contents of both tables with the snapshot in the file.
+     */
+    public SnapshotStats importFrom(Path file) {
+        long start = System.nanoTime();
+        List<String> indexes = readIndexDefinitions();
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocateDirect(FILE_HEADER_SIZE);
+            readFully(in, header);
+            if (header.getLong() != MAGIC || header.getInt() != VERSION) {
+                throw new BankingException("Not a bank snapshot: " + file);
+            }
+            BlockReader verifier = new BlockReader(in);
+            while (verifier.next()) {
+                // A damaged file must fail here, before the tables are emptied
+            }
+            in.position(FILE_HEADER_SIZE);
+
+            unitOfWork.execute(conn -> {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("TRUNCATE TABLE transactions");
+                    LedgerPartitions.load(conn).clear(conn);
+                    stmt.execute("DELETE FROM accounts");
+                    for (String index : indexes) {
+                        Matcher matcher = INDEX.matcher(index);
+                        matcher.find();
+                        stmt.execute("DROP INDEX IF EXISTS " + matcher.group(1));
+                    }
+                }
+                return null;
+            });
+
+            BlockReader reader = new BlockReader(in);
+            long accounts = 0;
+            long transactions = 0;
+            long maxTransactionId = 0;
+            try {
+                while (reader.next()) {
+                    Block block = reader.decode();
+                    unitOfWork.execute(conn -> {
+                        insert(conn, block);
+                        return null;
+                    });
+                    if (block.table == ACCOUNTS) {
+                        accounts += block.rows;
+                    } else {
+                        transactions += block.rows;
+                        maxTransactionId = Math.max(maxTransactionId, block.ids[block.rows - 1]);
+                    }
+                }
+            } finally {
+                // Build each index once over the loaded rows, even if the load failed
+                unitOfWork.execute(conn -> {
+                    try (Statement stmt = conn.createStatement()) {
+                        for (String index : indexes) {
+                            stmt.execute(index);
+                        }
+                    }
+                    return null;
+                });
+            }
+
+            long nextId = maxTransactionId + 1;
+            unitOfWork.execute(conn -> {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("ALTER TABLE transactions ALTER COLUMN transaction_id RESTART WITH " + nextId);
+                }
+                return null;
+            });
+            return new SnapshotStats(accounts, transactions, reader.blocks, in.size(), System.nanoTime() - start);
+        } catch (IOException | SQLException e) {
+            throw new BankingException("Failed to import snapshot from " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    private long exportAccounts(Connection conn, BlockWriter writer) throws SQLException, IOException {
+        Block block = new Block(ACCOUNTS, blockRows);
+        long total = 0;
+        String after = "";
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT account_id, account_type, balance, created_at FROM accounts " +
+                "WHERE account_id > ? ORDER BY account_id LIMIT ?"
+        )) {
+            do {
+                block.rows = 0;
+                stmt.setString(1, after);
+                stmt.setInt(2, blockRows);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        int i = block.rows++;
+                        block.accountIds[i] = rs.getString(1);
+                        block.texts[i] = rs.getString(2);
+                        block.amounts[i] = TransactionRecord.toMinorUnits(rs.getBigDecimal(3));
+                        block.times[i] = toMicros(rs.getTimestamp(4));
+                    }
+                }
+                if (block.rows > 0) {
+                    writer.write(block);
+                    total += block.rows;
+                    after = block.accountIds[block.rows - 1];
+                }
+            } while (block.rows == blockRows);
+        }
+        return total;
+    }
+
+    private long exportTransactions(Connection conn, BlockWriter writer) throws SQLException, IOException {
+        long total = 0;
+        for (String table : LedgerPartitions.load(conn).tables(null, null)) {
+            total += exportTransactions(conn, writer, table);
+        }
+        return total;
+    }
+
+    private long exportTransactions(Connection conn, BlockWriter writer, String table) throws SQLException, IOException {
+        Block block = new Block(TRANSACTIONS, blockRows);
+        long total = 0;
+        long after = Long.MIN_VALUE;
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT transaction_id, account_id, amount, description, transaction_date FROM " + table + " " +
+                "WHERE transaction_id > ? ORDER BY transaction_id LIMIT ?"
+        )) {
+            do {
+                block.rows = 0;
+                stmt.setLong(1, after);
+                stmt.setInt(2, blockRows);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        int i = block.rows++;
+                        block.ids[i] = rs.getLong(1);
+                        block.accountIds[i] = rs.getString(2);
+                        block.amounts[i] = TransactionRecord.toMinorUnits(rs.getBigDecimal(3));
+                        block.texts[i] = rs.getString(4);
+                        block.times[i] = toMicros(rs.getTimestamp(5));
+                    }
+                }
+                if (block.rows > 0) {
+                    writer.write(block);
+                    total += block.rows;
+                    after = block.ids[block.rows - 1];
+                }
+            } while (block.rows == blockRows);
+        }
+        return total;
+    }
+
+    private static void insert(Connection conn, Block block) throws SQLException {
+        boolean accounts = block.table == ACCOUNTS;
+        try (PreparedStatement stmt = conn.prepareStatement(accounts
+                ? "INSERT INTO accounts (account_id, account_type, balance, created_at) VALUES (?, ?, ?, ?)"
+                : "INSERT INTO transactions (transaction_id, account_id, amount, description, transaction_date) " +
+                  "VALUES (?, ?, ?, ?, ?)"
+        )) {
+            for (int i = 0; i < block.rows; i++) {
+                int column = 1;
+                if (!accounts) {
+                    stmt.setLong(column++, block.ids[i]);
+                }
+                stmt.setString(column++, block.accountIds[i]);
+                if (accounts) {
+                    stmt.setString(column++, block.texts[i]);
+                    stmt.setBigDecimal(column++, BigDecimal.valueOf(block.amounts[i], 2));
+                } else {
+                    stmt.setBigDecimal(column++, BigDecimal.valueOf(block.amounts[i], 2));
+                    stmt.setString(column++, block.texts[i]);
+                }
+                stmt.setTimestamp(column, block.times[i] == NO_TIME ? null : TransactionRecord.toTimestamp(block.times[i]));
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * The CREATE INDEX statements from schema.sql, so import rebuilds exactly those.
+     */
+    private List<String> readIndexDefinitions() {
+        List<String> indexes = new ArrayList<>();
+        try (InputStream schemaStream = getClass().getClassLoader().getResourceAsStream("schema.sql")) {
+            if (schemaStream == null) {
+                throw new BankingException("Unable to find schema.sql");
+            }
+            for (String statement : new String(schemaStream.readAllBytes()).split(";")) {
+                // Drop comment lines so only the statement itself is matched
+                String sql = statement.replaceAll("(?m)^\\s*--.*$", "").trim();
+                if (INDEX.matcher(sql).find()) {
+                    indexes.add(sql);
+                }
+            }
+        } catch (IOException e) {
+            throw new BankingException("Failed to read schema.sql: " + e.getMessage(), e);
+        }
+        return indexes;
+    }
+
+    private static long toMicros(Timestamp timestamp) {
+        return timestamp == null ? NO_TIME : TransactionRecord.toEpochMicros(timestamp);
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer... buffers) throws IOException {
+        ByteBuffer last = buffers[buffers.length - 1];
+        while (last.hasRemaining()) {
+            out.write(buffers);
+        }
+    }
+
+    private static void readFully(FileChannel in, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (in.read(buffer) < 0) {
+                throw new BankingException("Snapshot file ends in the middle of a block");
+            }
+        }
+        buffer.flip();
+    }
+
+    private static ByteBuffer ensureCapacity(ByteBuffer buffer, int size) {
+        if (buffer != null && buffer.capacity() >= size) {
+            buffer.clear();
+            return buffer;
+        }
+        return ByteBuffer.allocateDirect(Math.max(size, buffer == null ? 0 : buffer.capacity() * 2));
+    }
+
+    /**
+     * Rows of one table, one array per column. For accounts, texts holds the
+     * account type, amounts the balance and times created_at; ids is unused.
+     */
+    private static final class Block {
+        private final byte table;
+        private final long[] ids;
+        private final String[] accountIds;
+        private final String[] texts;
+        private final long[] amounts;
+        private final long[] times;
+        private int rows;
+
+        private Block(byte table, int capacity) {
+            this.table = table;
+            this.ids = new long[capacity];
+            this.accountIds = new String[capacity];
+            this.texts = new String[capacity];
+            this.amounts = new long[capacity];
+            this.times = new long[capacity];
+        }
+    }
+
+    /**
+     * Encodes blocks column by column into a direct buffer, deflates them
+     * when compression is on, and writes them with one gathering write.
+     */
+    private final class BlockWriter {
+        private final FileChannel out;
+        private final ByteBuffer header = ByteBuffer.allocateDirect(BLOCK_HEADER_SIZE);
+        private final CRC32 crc = new CRC32();
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        private ByteBuffer raw;
+        private ByteBuffer deflated;
+        private byte[][] keys = new byte[0][];
+        private byte[][] texts = new byte[0][];
+        private long blocks;
+
+        private BlockWriter(FileChannel out) {
+            this.out = out;
+        }
+
+        private void write(Block block) throws IOException {
+            int rows = block.rows;
+            if (keys.length < rows) {
+                keys = new byte[rows][];
+                texts = new byte[rows][];
+            }
+            int size = rows * (block.table == TRANSACTIONS ? 24 : 16);
+            for (int i = 0; i < rows; i++) {
+                keys[i] = block.accountIds[i].getBytes(StandardCharsets.UTF_8);
+                texts[i] = block.texts[i] == null ? null : block.texts[i].getBytes(StandardCharsets.UTF_8);
+                size += 4 + keys[i].length + (texts[i] == null ? 0 : texts[i].length);
+            }
+
+            raw = ensureCapacity(raw, size);
+            if (block.table == TRANSACTIONS) {
+                raw.asLongBuffer().put(block.ids, 0, rows);
+                raw.position(rows * 8);
+            }
+            for (int i = 0; i < rows; i++) {
+                raw.putShort((short) keys[i].length).put(keys[i]);
+            }
+            for (int i = 0; i < rows; i++) {
+                if (texts[i] == null) {
+                    raw.putShort((short) -1);
+                } else {
+                    raw.putShort((short) texts[i].length).put(texts[i]);
+                }
+            }
+            raw.asLongBuffer().put(block.amounts, 0, rows);
+            raw.position(raw.position() + rows * 8);
+            raw.asLongBuffer().put(block.times, 0, rows);
+            raw.position(raw.position() + rows * 8);
+            raw.flip();
+
+            crc.reset();
+            crc.update(raw.duplicate());
+            ByteBuffer payload = raw;
+            byte codec = RAW;
+            if (compress) {
+                deflated = ensureCapacity(deflated, size);
+                deflater.reset();
+                deflater.setInput(raw.duplicate());
+                deflater.finish();
+                deflater.deflate(deflated);
+                // Keep the raw block if deflating did not make it smaller
+                if (deflater.finished() && deflated.position() < size) {
+                    deflated.flip();
+                    payload = deflated;
+                    codec = DEFLATED;
+                }
+            }
+
+            header.clear();
+            header.put(block.table).put(codec).putInt(rows).putInt(size)
+                  .putInt(payload.remaining()).putInt((int) crc.getValue());
+            sealHeader();
+            writeFully(out, header, payload);
+            blocks++;
+        }
+
+        private void writeEnd() throws IOException {
+            header.clear();
+            header.put(END).put(RAW).putInt(0).putInt(0).putInt(0).putInt(0);
+            sealHeader();
+            writeFully(out, header);
+            deflater.end();
+        }
+
+        private void sealHeader() {
+            ByteBuffer covered = header.duplicate();
+            covered.flip();
+            crc.reset();
+            crc.update(covered);
+            header.putInt((int) crc.getValue()).flip();
+        }
+    }
+
+    /**
+     * Reads, inflates and checks the blocks written by {@link BlockWriter}.
+     */
+    private final class BlockReader {
+        private final FileChannel in;
+        private final ByteBuffer header = ByteBuffer.allocateDirect(BLOCK_HEADER_SIZE);
+        private final CRC32 crc = new CRC32();
+        private final Inflater inflater = new Inflater();
+        private ByteBuffer raw;
+        private ByteBuffer stored;
+        private Block accounts;
+        private Block transactions;
+        private byte table;
+        private int rows;
+        private long blocks;
+
+        private BlockReader(FileChannel in) {
+            this.in = in;
+        }
+
+        /**
+         * Load and check the next block; false after the end marker.
+         */
+        private boolean next() throws IOException {
+            header.clear();
+            readFully(in, header);
+            table = header.get();
+            byte codec = header.get();
+            rows = header.getInt();
+            int size = header.getInt();
+            int storedSize = header.getInt();
+            int checksum = header.getInt();
+            ByteBuffer covered = header.duplicate();
+            covered.flip();
+            crc.reset();
+            crc.update(covered);
+            if (header.getInt() != (int) crc.getValue() || rows < 0 || size < 0 || storedSize < 0) {
+                throw new BankingException("Corrupt snapshot block " + blocks + ": bad header");
+            }
+            if (table == END) {
+                inflater.end();
+                if (in.position() != in.size()) {
+                    throw new BankingException("Corrupt snapshot: data after the end marker");
+                }
+                return false;
+            }
+
+            raw = ensureCapacity(raw, size);
+            if (codec == DEFLATED) {
+                stored = ensureCapacity(stored, storedSize);
+                stored.limit(storedSize);
+                readFully(in, stored);
+                inflater.reset();
+                inflater.setInput(stored);
+                try {
+                    inflater.inflate(raw);
+                } catch (DataFormatException e) {
+                    throw new BankingException("Corrupt snapshot block " + blocks + ": " + e.getMessage(), e);
+                }
+                raw.flip();
+            } else {
+                raw.limit(size);
+                readFully(in, raw);
+            }
+            crc.reset();
+            crc.update(raw.duplicate());
+            if (raw.remaining() != size || (int) crc.getValue() != checksum) {
+                throw new BankingException("Corrupt snapshot block " + blocks + ": checksum mismatch");
+            }
+            blocks++;
+            return true;
+        }
+
+        /**
+         * Decode the rows of the block loaded by {@link #next()}.
+         */
+        private Block decode() {
+            Block block;
+            if (table == ACCOUNTS) {
+                block = accounts = accounts != null && accounts.ids.length >= rows ? accounts : new Block(ACCOUNTS, rows);
+            } else {
+                block = transactions = transactions != null && transactions.ids.length >= rows
+                        ? transactions : new Block(TRANSACTIONS, rows);
+            }
+            block.rows = rows;
+            if (table == TRANSACTIONS) {
+                raw.asLongBuffer().get(block.ids, 0, rows);
+                raw.position(rows * 8);
+            }
+            for (int i = 0; i < rows; i++) {
+                block.accountIds[i] = readString(raw);
+            }
+            for (int i = 0; i < rows; i++) {
+                block.texts[i] = readString(raw);
+            }
+            raw.asLongBuffer().get(block.amounts, 0, rows);
+            raw.position(raw.position() + rows * 8);
+            raw.asLongBuffer().get(block.times, 0, rows);
+            return block;
+        }
+
+        private String readString(ByteBuffer buffer) {
+            int length = buffer.getShort();
+            if (length < 0) {
+                return null;
+            }
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,549 @@
+package com.banking.db;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded pool of JDBC connections.
+ * Replaces opening a new DriverManager connection for every call.
+ *
+ * Borrowed connections are handed out as proxies; calling close() on them
+ * returns the physical connection to the pool instead of closing it.
+ *
+ * Each physical connection also keeps an LRU cache of prepared statements
+ * (db.pool.statementCacheSize), so prepareStatement(sql) with the same SQL
+ * reuses the parsed statement and close() on it only returns it to the cache.
+ */
+public class ConnectionPool implements AutoCloseable {
+    private final String url;
+    private final String username;
+    private final String password;
+    private final PoolConfig config;
+
+    // Idle connections, most recently returned first
+    private final LinkedBlockingDeque<PooledEntry> idle = new LinkedBlockingDeque<>();
+    private final AtomicInteger total = new AtomicInteger();
+    private final ScheduledExecutorService evictor;
+    private volatile boolean closed;
+
+    // Metrics
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong destroyedCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong statementHits = new AtomicLong();
+    private final AtomicLong statementMisses = new AtomicLong();
+    private final AtomicLong statementEvictions = new AtomicLong();
+    private final AtomicInteger statementsCached = new AtomicInteger();
+
+    public ConnectionPool(String url, String username, String password, PoolConfig config) {
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.config = config;
+
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "connection-pool-evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        if (config.getEvictionIntervalMs() > 0) {
+            evictor.scheduleWithFixedDelay(this::evictIdle,
+                    config.getEvictionIntervalMs(), config.getEvictionIntervalMs(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Borrow a connection, waiting up to the configured borrow timeout
+     * when the pool is exhausted.
+     */
+    public Connection getConnection() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(config.getBorrowTimeoutMs());
+
+        while (true) {
+            PooledEntry entry = idle.pollFirst();
+            if (entry == null) {
+                if (reserveSlot()) {
+                    entry = createEntry();
+                } else {
+                    entry = waitForIdle(deadline);
+                }
+            }
+            if (entry.reused && config.isValidateOnBorrow() && !isValid(entry)) {
+                destroy(entry);
+                continue;
+            }
+
+            recordWait(System.nanoTime() - start);
+            return entry.borrow();
+        }
+    }
+
+    public PoolMetrics getMetrics() {
+        int idleCount = idle.size();
+        return new PoolMetrics(
+                Math.max(0, total.get() - idleCount),
+                idleCount,
+                borrowCount.get(),
+                timeoutCount.get(),
+                createdCount.get(),
+                destroyedCount.get(),
+                totalWaitNanos.get(),
+                maxWaitNanos.get()
+        );
+    }
+
+    public StatementCacheMetrics getStatementCacheMetrics() {
+        return new StatementCacheMetrics(
+                statementHits.get(),
+                statementMisses.get(),
+                statementEvictions.get(),
+                statementsCached.get()
+        );
+    }
+
+    public PoolConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Open connections until the pool holds at least min size.
+     */
+    public void fillToMinimum() {
+        while (!closed && total.get() < config.getMinSize() && reserveSlot()) {
+            try {
+                PooledEntry entry = createEntry();
+                entry.lastUsedNanos = System.nanoTime();
+                idle.offerLast(entry);
+            } catch (SQLException e) {
+                System.err.println("Failed to open pooled connection: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        evictor.shutdownNow();
+        PooledEntry entry;
+        while ((entry = idle.pollFirst()) != null) {
+            destroy(entry);
+        }
+    }
+
+    private boolean reserveSlot() {
+        while (true) {
+            int current = total.get();
+            if (current >= config.getMaxSize()) {
+                return false;
+            }
+            if (total.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private PooledEntry waitForIdle(long deadline) throws SQLException {
+        long remaining = deadline - System.nanoTime();
+        PooledEntry entry = null;
+        try {
+            // Slots can also free up when a broken connection is destroyed,
+            // so wake up periodically and retry instead of one long poll
+            while (entry == null && remaining > 0) {
+                entry = idle.pollFirst(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(50)), TimeUnit.NANOSECONDS);
+                if (entry == null && reserveSlot()) {
+                    return createEntry();
+                }
+                remaining = deadline - System.nanoTime();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        }
+        if (entry == null) {
+            timeoutCount.incrementAndGet();
+            throw new SQLException(String.format(
+                    "Timed out after %dms waiting for a connection (max pool size %d)",
+                    config.getBorrowTimeoutMs(), config.getMaxSize()));
+        }
+        return entry;
+    }
+
+    private PooledEntry createEntry() throws SQLException {
+        try {
+            Connection physical = DriverManager.getConnection(url, username, password);
+            createdCount.incrementAndGet();
+            return new PooledEntry(physical);
+        } catch (SQLException e) {
+            total.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private boolean isValid(PooledEntry entry) {
+        try {
+            return entry.physical.isValid(config.getValidationTimeoutSeconds());
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void destroy(PooledEntry entry) {
+        total.decrementAndGet();
+        destroyedCount.incrementAndGet();
+        if (entry.statements != null) {
+            entry.statements.closeAll();
+        }
+        try {
+            entry.physical.close();
+        } catch (SQLException e) {
+            // Connection is being discarded anyway
+        }
+    }
+
+    private void release(PooledEntry entry) {
+        if (closed) {
+            destroy(entry);
+            return;
+        }
+        try {
+            // Never hand out a connection with a half-finished transaction
+            if (!entry.physical.getAutoCommit()) {
+                entry.physical.rollback();
+                entry.physical.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            destroy(entry);
+            return;
+        }
+        entry.reused = true;
+        entry.lastUsedNanos = System.nanoTime();
+        idle.offerFirst(entry);
+    }
+
+    private void evictIdle() {
+        long idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(config.getIdleTimeoutMs());
+        long now = System.nanoTime();
+
+        // Oldest idle connections sit at the tail of the deque
+        List<PooledEntry> keep = new ArrayList<>();
+        PooledEntry entry;
+        while (total.get() > config.getMinSize() && (entry = idle.pollLast()) != null) {
+            if (now - entry.lastUsedNanos > idleTimeoutNanos) {
+                destroy(entry);
+            } else {
+                keep.add(entry);
+                break;
+            }
+        }
+        for (PooledEntry kept : keep) {
+            idle.offerLast(kept);
+        }
+        fillToMinimum();
+    }
+
+    private void recordWait(long waitNanos) {
+        borrowCount.incrementAndGet();
+        totalWaitNanos.addAndGet(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    // prepareStatement(sql) and prepareStatement(sql, autoGeneratedKeys)
+    private static boolean isCacheable(Method method, Object[] args) {
+        return method.getName().equals("prepareStatement")
+                && (args.length == 1 || (args.length == 2 && args[1] instanceof Integer));
+    }
+
+    private static void closeQuietly(Statement stmt) {
+        try {
+            stmt.close();
+        } catch (SQLException e) {
+            // Statement is being discarded anyway
+        }
+    }
+
+    /**
+     * A physical connection owned by the pool.
+     */
+    private final class PooledEntry {
+        private final Connection physical;
+        private final StatementCache statements;
+        private volatile long lastUsedNanos;
+        private volatile boolean reused;
+
+        private PooledEntry(Connection physical) {
+            this.physical = physical;
+            this.statements = config.getStatementCacheSize() > 0 ? new StatementCache(physical) : null;
+            this.lastUsedNanos = System.nanoTime();
+        }
+
+        private Connection borrow() {
+            return (Connection) Proxy.newProxyInstance(
+                    ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{Connection.class},
+                    new BorrowedConnection(this));
+        }
+    }
+
+    /**
+     * Handle given to callers. Each borrow gets its own handle so a stale
+     * reference cannot close a connection that has since been reused.
+     */
+    private final class BorrowedConnection implements InvocationHandler {
+        private final PooledEntry entry;
+        private boolean returned;
+
+        private BorrowedConnection(PooledEntry entry) {
+            this.entry = entry;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        if (entry.statements != null) {
+                            entry.statements.reclaimAll();
+                        }
+                        release(entry);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || entry.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + entry.physical + "]";
+                default:
+                    if (returned) {
+                        throw new SQLException("Connection has already been returned to the pool");
+                    }
+                    if (entry.statements != null && isCacheable(method, args)) {
+                        int generatedKeys = args.length == 2 ? (Integer) args[1] : Statement.NO_GENERATED_KEYS;
+                        return entry.statements.prepare(this, (Connection) proxy, (String) args[0], generatedKeys);
+                    }
+                    try {
+                        return method.invoke(entry.physical, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+    }
+
+    /**
+     * LRU cache of prepared statements on one physical connection.
+     * Only the borrower of the connection (or the pool, while it is idle)
+     * touches it, so it needs no locking.
+     */
+    private final class StatementCache {
+        private final Connection physical;
+        private final LinkedHashMap<String, CachedStatement> statements;
+
+        private StatementCache(Connection physical) {
+            this.physical = physical;
+            this.statements = new LinkedHashMap<String, CachedStatement>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                    if (size() <= config.getStatementCacheSize()) {
+                        return false;
+                    }
+                    statementEvictions.incrementAndGet();
+                    discard(eldest.getValue());
+                    return true;
+                }
+            };
+        }
+
+        private PreparedStatement prepare(BorrowedConnection owner, Connection connection,
+                                          String sql, int generatedKeys) throws SQLException {
+            String key = generatedKeys == Statement.NO_GENERATED_KEYS ? sql : generatedKeys + ":" + sql;
+            CachedStatement cached = statements.get(key);
+            if (cached != null && cached.inUse) {
+                // The same SQL is already open on this connection; give out a plain statement
+                statementMisses.incrementAndGet();
+                return physical.prepareStatement(sql, generatedKeys);
+            }
+            if (cached != null) {
+                statementHits.incrementAndGet();
+            } else {
+                statementMisses.incrementAndGet();
+                cached = new CachedStatement(key, physical.prepareStatement(sql, generatedKeys));
+                statementsCached.incrementAndGet();
+                statements.put(key, cached);
+            }
+            cached.inUse = true;
+            return (PreparedStatement) Proxy.newProxyInstance(
+                    ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class},
+                    new BorrowedStatement(cached, owner, connection));
+        }
+
+        /**
+         * Put a statement back for reuse, or close it if it cannot be reset.
+         */
+        private void checkIn(CachedStatement cached, boolean reusable, boolean limitsChanged) {
+            cached.inUse = false;
+            if (cached.evicted) {
+                closeQuietly(cached.physical);
+                return;
+            }
+            try {
+                if (reusable) {
+                    PreparedStatement stmt = cached.physical;
+                    ResultSet rs = stmt.getResultSet();
+                    if (rs != null) {
+                        rs.close();
+                    }
+                    stmt.clearParameters();
+                    stmt.clearBatch();
+                    stmt.clearWarnings();
+                    if (limitsChanged) {
+                        stmt.setFetchSize(0);
+                        stmt.setMaxRows(0);
+                        stmt.setQueryTimeout(0);
+                    }
+                    return;
+                }
+            } catch (SQLException e) {
+                // Fall through and drop it
+            }
+            statements.remove(cached.key);
+            discard(cached);
+        }
+
+        /**
+         * Take back statements the borrower never closed before returning the connection.
+         */
+        private void reclaimAll() {
+            for (CachedStatement cached : new ArrayList<>(statements.values())) {
+                if (cached.inUse) {
+                    checkIn(cached, true, true);
+                }
+            }
+        }
+
+        private void closeAll() {
+            for (CachedStatement cached : statements.values()) {
+                discard(cached);
+            }
+            statements.clear();
+        }
+
+        private void discard(CachedStatement cached) {
+            statementsCached.decrementAndGet();
+            cached.evicted = true;
+            // A statement still in use is closed when it is checked in
+            if (!cached.inUse) {
+                closeQuietly(cached.physical);
+            }
+        }
+    }
+
+    private static final class CachedStatement {
+        private final String key;
+        private final PreparedStatement physical;
+        private boolean inUse;
+        private boolean evicted;
+
+        private CachedStatement(String key, PreparedStatement physical) {
+            this.key = key;
+            this.physical = physical;
+        }
+    }
+
+    /**
+     * Handle for one use of a cached statement; close() returns it to the cache.
+     */
+    private final class BorrowedStatement implements InvocationHandler {
+        private final CachedStatement cached;
+        private final BorrowedConnection owner;
+        private final Connection connection;
+        private boolean closed;
+        private boolean reusable = true;
+        private boolean limitsChanged;
+
+        private BorrowedStatement(CachedStatement cached, BorrowedConnection owner, Connection connection) {
+            this.cached = cached;
+            this.owner = owner;
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    // After the connection was returned the statement was already reclaimed
+                    if (!closed && !owner.returned) {
+                        owner.entry.statements.checkIn(cached, reusable, limitsChanged);
+                    }
+                    closed = true;
+                    return null;
+                case "isClosed":
+                    return closed || owner.returned;
+                case "getConnection":
+                    return connection;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement[" + cached.physical + "]";
+                case "setFetchSize":
+                case "setMaxRows":
+                case "setLargeMaxRows":
+                case "setQueryTimeout":
+                    limitsChanged = true;
+                    break;
+                case "setCursorName":
+                case "setEscapeProcessing":
+                case "setFetchDirection":
+                case "setMaxFieldSize":
+                case "setPoolable":
+                case "closeOnCompletion":
+                    // Settings that are not reset on check-in; do not hand this statement out again
+                    reusable = false;
+                    break;
+                default:
+                    break;
+            }
+            if (closed || owner.returned) {
+                throw new SQLException("Statement is closed");
+            }
+            try {
+                return method.invoke(cached.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
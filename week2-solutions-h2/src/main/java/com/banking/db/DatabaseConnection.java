@@ -1,50 +1,131 @@
 package com.banking.db;
 
+import com.banking.service.AccountService;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
+import java.util.zip.CRC32;
 import java.io.IOException;
 import java.io.InputStream;
 
 /**
  * Singleton class to manage H2 database connections.
  * Replaces file-based storage from week1 with database storage.
+ *
+ * schema.sql only runs when schema_version does not already record this
+ * version of it, so restarting against an existing database skips the DDL.
+ * With db.warmup the pool is filled, and the hot statements are parsed on
+ * every pooled connection, on a background thread after getInstance() returns.
  */
 public class DatabaseConnection {
     private static final String CONFIG_FILE = "application.properties";
-    private static DatabaseConnection instance;
-    private final String url;
-    private final String username;
-    private final String password;
+    private static final String SCHEMA_FILE = "schema.sql";
+    // Bump together with schema.sql when re-running it is not enough to migrate
+    static final int SCHEMA_VERSION = 1;
+
+    private final Properties props;
+    private final ConnectionPool pool;
+    private final QueryTracer queryTracer;
+    private final long propertiesNanos;
+    private final long poolNanos;
+    private final long connectNanos;
+    private final long schemaNanos;
+    private final boolean schemaBootstrapped;
+    private final long readyNanos;
+    private volatile long warmupNanos = -1;
+    private volatile int warmedConnections;
+
+    // Created on first access by the JVM's class initialization, which is thread-safe
+    private static class Holder {
+        private static final DatabaseConnection INSTANCE = new DatabaseConnection();
+    }
 
     private DatabaseConnection() {
-        Properties props = loadProperties();
-        this.url = props.getProperty("db.url");
-        this.username = props.getProperty("db.username");
-        this.password = props.getProperty("db.password");
+        long start = System.nanoTime();
+        this.props = loadProperties();
+        long loaded = System.nanoTime();
+        this.pool = new ConnectionPool(
+                getProperty("db.url", null),
+                getProperty("db.username", null),
+                getProperty("db.password", null),
+                PoolConfig.fromProperties(poolProperties())
+        );
+        this.queryTracer = createQueryTracer();
+        long pooled = System.nanoTime();
 
         // Initialize database schema
+        long connected;
         try (Connection conn = getConnection()) {
-            initializeDatabase(conn);
+            connected = System.nanoTime();
+            this.schemaBootstrapped = ensureSchema(conn);
         } catch (SQLException e) {
             throw new RuntimeException("Failed to initialize database", e);
         }
+        long schemaDone = System.nanoTime();
+
+        if (Boolean.parseBoolean(getProperty("db.warmup", "true"))) {
+            Thread warmup = new Thread(this::warmUp, "db-warmup");
+            warmup.setDaemon(true);
+            warmup.start();
+        } else {
+            pool.fillToMinimum();
+        }
+
+        this.propertiesNanos = loaded - start;
+        this.poolNanos = pooled - loaded;
+        this.connectNanos = connected - pooled;
+        this.schemaNanos = schemaDone - connected;
+        this.readyNanos = System.nanoTime() - start;
     }
 
     public static DatabaseConnection getInstance() {
-        if (instance == null) {
-            instance = new DatabaseConnection();
-        }
-        return instance;
+        return Holder.INSTANCE;
     }
 
     /**
-     * Get a database connection.
-     * Simple connection management for learning purposes.
+     * Get a database connection from the pool.
+     * Closing the returned connection hands it back to the pool.
      */
     public Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(url, username, password);
+        Connection conn = pool.getConnection();
+        return queryTracer != null ? queryTracer.wrap(conn) : conn;
+    }
+
+    /**
+     * Slow statement tracing on the connections from getConnection(), or null
+     * when db.trace.enabled is off.
+     */
+    public QueryTracer getQueryTracer() {
+        return queryTracer;
+    }
+
+    /**
+     * Read a setting from application.properties, falling back to a default.
+     */
+    public String getProperty(String key, String defaultValue) {
+        return System.getProperty(key, props.getProperty(key, defaultValue));
+    }
+
+    public PoolMetrics getPoolMetrics() {
+        return pool.getMetrics();
+    }
+
+    PoolConfig getPoolConfig() {
+        return pool.getConfig();
+    }
+
+    public StatementCacheMetrics getStatementCacheMetrics() {
+        return pool.getStatementCacheMetrics();
+    }
+
+    public StartupMetrics getStartupMetrics() {
+        return new StartupMetrics(propertiesNanos, poolNanos, connectNanos, schemaNanos, schemaBootstrapped,
+                readyNanos, warmupNanos, warmedConnections);
     }
 
     private Properties loadProperties() {
@@ -60,24 +141,112 @@ public class DatabaseConnection {
         return props;
     }
 
-    private void initializeDatabase(Connection conn) {
+    private QueryTracer createQueryTracer() {
+        if (!Boolean.parseBoolean(getProperty("db.trace.enabled", "false"))) {
+            return null;
+        }
+        String url = getProperty("db.url", null);
+        String username = getProperty("db.username", null);
+        String password = getProperty("db.password", null);
+        return new QueryTracer(
+                Long.parseLong(getProperty("db.trace.thresholdMs", "50")),
+                Integer.parseInt(getProperty("db.trace.capacity", "1000")),
+                Long.parseLong(getProperty("db.trace.lockSampleMs", "10")),
+                // The lock sampler's own connection, outside the pool so it cannot be starved
+                () -> DriverManager.getConnection(url, username, password)
+        );
+    }
+
+    // db.pool.* settings, with system properties overriding the file as in getProperty()
+    private Properties poolProperties() {
+        Properties poolProps = new Properties(props);
+        for (String key : System.getProperties().stringPropertyNames()) {
+            if (key.startsWith("db.pool.")) {
+                poolProps.setProperty(key, System.getProperty(key));
+            }
+        }
+        return poolProps;
+    }
+
+    /**
+     * Run schema.sql unless schema_version already records this version and
+     * checksum of it. Returns true if the schema was (re)applied.
+     */
+    boolean ensureSchema(Connection conn) throws SQLException {
+        String schema = readSchema();
+        CRC32 crc = new CRC32();
+        crc.update(schema.getBytes());
+        long checksum = crc.getValue();
+
+        try (Statement stmt = conn.createStatement()) {
+            if (storedChecksum(stmt) == checksum) {
+                System.out.println("Database schema is up to date (version " + SCHEMA_VERSION + ")");
+                return false;
+            }
+            // Split and execute each statement separately
+            for (String statement : schema.split(";")) {
+                if (!statement.trim().isEmpty()) {
+                    stmt.execute(statement);
+                }
+            }
+            stmt.execute("MERGE INTO schema_version (version, checksum) KEY (version) VALUES ("
+                    + SCHEMA_VERSION + ", " + checksum + ")");
+        }
+        System.out.println("Database schema initialized successfully");
+        return true;
+    }
+
+    private static long storedChecksum(Statement stmt) {
+        try (ResultSet rs = stmt.executeQuery(
+                "SELECT checksum FROM schema_version WHERE version = " + SCHEMA_VERSION)) {
+            return rs.next() ? rs.getLong(1) : -1;
+        } catch (SQLException e) {
+            // No schema_version table yet: a new database
+            return -1;
+        }
+    }
+
+    private String readSchema() {
+        try (InputStream schemaStream = getClass().getClassLoader().getResourceAsStream(SCHEMA_FILE)) {
+            if (schemaStream == null) {
+                throw new RuntimeException("Unable to find " + SCHEMA_FILE);
+            }
+            return new String(schemaStream.readAllBytes());
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to initialize database schema", e);
+        }
+    }
+
+    /**
+     * Fill the pool and parse the hot statements on each pooled connection,
+     * so the first requests neither open connections nor parse SQL.
+     */
+    private void warmUp() {
+        long start = System.nanoTime();
+        pool.fillToMinimum();
+        List<Connection> held = new ArrayList<>();
         try {
-            // Execute schema.sql to create tables
-            try (InputStream schemaStream = getClass().getClassLoader().getResourceAsStream("schema.sql")) {
-                if (schemaStream == null) {
-                    throw new RuntimeException("Unable to find schema.sql");
+            // Hold them all at once so each pooled connection is warmed, not the same one
+            for (int i = 0; i < pool.getConfig().getMinSize(); i++) {
+                Connection conn = getConnection();
+                held.add(conn);
+                // Left in the connection's statement cache for the write paths that own them
+                for (String sql : AccountService.WARMUP_SQL) {
+                    conn.prepareStatement(sql).close();
                 }
-                String schema = new String(schemaStream.readAllBytes());
-                // Split and execute each statement separately
-                for (String statement : schema.split(";")) {
-                    if (!statement.trim().isEmpty()) {
-                        conn.createStatement().execute(statement);
-                    }
+            }
+        } catch (SQLException e) {
+            System.err.println("Database warmup failed: " + e.getMessage());
+        } finally {
+            for (Connection conn : held) {
+                try {
+                    conn.close();
+                } catch (SQLException e) {
+                    System.err.println("Failed to return warmed connection: " + e.getMessage());
                 }
             }
-            System.out.println("Database schema initialized successfully");
-        } catch (IOException | SQLException e) {
-            throw new RuntimeException("Failed to initialize database schema", e);
         }
+        warmedConnections = held.size();
+        warmupNanos = System.nanoTime() - start;
     }
 }
@@ -0,0 +1,97 @@
+package com.banking.db;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A set of H2 databases that each hold a slice of the accounts, picked by a
+ * {@link ShardRing} over account_id.
+ *
+ * Every shard has its own connection pool and the full schema.sql, so an
+ * account's row, its ledger rows and the cross-shard transfer log entries it
+ * started all live in one database. The main {@link DatabaseConnection}
+ * database only supplies the settings.
+ */
+public class DatabaseShards implements AutoCloseable {
+    private final ConnectionPool[] pools;
+    private final ShardRing ring;
+
+    public DatabaseShards() {
+        this(Integer.parseInt(DatabaseConnection.getInstance().getProperty("db.shards.count", "4")),
+             DatabaseConnection.getInstance().getProperty("db.shards.url",
+                     "jdbc:h2:mem:bankingdb_shard{shard};MODE=MySQL;DB_CLOSE_DELAY=-1"),
+             Integer.parseInt(DatabaseConnection.getInstance().getProperty("db.shards.virtualNodes", "128")));
+    }
+
+    /**
+     * @param urlTemplate JDBC URL with {shard} standing for the shard number
+     */
+    public DatabaseShards(int shardCount, String urlTemplate, int virtualNodes) {
+        this(urls(shardCount, urlTemplate), virtualNodes);
+    }
+
+    public DatabaseShards(List<String> urls, int virtualNodes) {
+        DatabaseConnection db = DatabaseConnection.getInstance();
+        this.ring = new ShardRing(urls.size(), virtualNodes);
+        this.pools = new ConnectionPool[urls.size()];
+        try {
+            for (int shard = 0; shard < pools.length; shard++) {
+                pools[shard] = new ConnectionPool(urls.get(shard),
+                        db.getProperty("db.username", null), db.getProperty("db.password", null),
+                        db.getPoolConfig());
+                try (Connection conn = pools[shard].getConnection()) {
+                    db.ensureSchema(conn);
+                }
+            }
+        } catch (SQLException e) {
+            close();
+            throw new RuntimeException("Failed to initialize database shards", e);
+        }
+    }
+
+    private static List<String> urls(int shardCount, String urlTemplate) {
+        if (!urlTemplate.contains("{shard}")) {
+            throw new IllegalArgumentException("Shard URL needs a {shard} placeholder: " + urlTemplate);
+        }
+        List<String> urls = new ArrayList<>();
+        for (int shard = 0; shard < shardCount; shard++) {
+            urls.add(urlTemplate.replace("{shard}", Integer.toString(shard)));
+        }
+        return urls;
+    }
+
+    public int shardFor(String accountId) {
+        return ring.shardFor(accountId);
+    }
+
+    public int getShardCount() {
+        return pools.length;
+    }
+
+    public Connection getConnection(int shard) throws SQLException {
+        return pools[shard].getConnection();
+    }
+
+    /**
+     * Connections to one shard, for a {@link UnitOfWork} or a service bound to it.
+     */
+    public UnitOfWork.ConnectionSource connectionSource(int shard) {
+        ConnectionPool pool = pools[shard];
+        return pool::getConnection;
+    }
+
+    public PoolMetrics getPoolMetrics(int shard) {
+        return pools[shard].getMetrics();
+    }
+
+    @Override
+    public void close() {
+        for (ConnectionPool pool : pools) {
+            if (pool != null) {
+                pool.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.banking.db;
+
+import java.util.Properties;
+
+/**
+ * Settings for {@link ConnectionPool}.
+ * Values are read from the db.pool.* keys in application.properties.
+ */
+public class PoolConfig {
+    private final int minSize;
+    private final int maxSize;
+    private final long idleTimeoutMs;
+    private final long evictionIntervalMs;
+    private final long borrowTimeoutMs;
+    private final boolean validateOnBorrow;
+    private final int validationTimeoutSeconds;
+    private final int statementCacheSize;
+
+    public PoolConfig(int minSize, int maxSize, long idleTimeoutMs, long evictionIntervalMs,
+                      long borrowTimeoutMs, boolean validateOnBorrow, int validationTimeoutSeconds,
+                      int statementCacheSize) {
+        if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+            throw new IllegalArgumentException(
+                    String.format("Invalid pool size: min=%d, max=%d", minSize, maxSize));
+        }
+        if (statementCacheSize < 0) {
+            throw new IllegalArgumentException("Invalid statement cache size: " + statementCacheSize);
+        }
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.evictionIntervalMs = evictionIntervalMs;
+        this.borrowTimeoutMs = borrowTimeoutMs;
+        this.validateOnBorrow = validateOnBorrow;
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    public static PoolConfig fromProperties(Properties props) {
+        return new PoolConfig(
+                Integer.parseInt(props.getProperty("db.pool.minSize", "2")),
+                Integer.parseInt(props.getProperty("db.pool.maxSize", "10")),
+                Long.parseLong(props.getProperty("db.pool.idleTimeoutMs", "300000")),
+                Long.parseLong(props.getProperty("db.pool.evictionIntervalMs", "30000")),
+                Long.parseLong(props.getProperty("db.pool.borrowTimeoutMs", "5000")),
+                Boolean.parseBoolean(props.getProperty("db.pool.validateOnBorrow", "true")),
+                Integer.parseInt(props.getProperty("db.pool.validationTimeoutSeconds", "2")),
+                Integer.parseInt(props.getProperty("db.pool.statementCacheSize", "64"))
+        );
+    }
+
+    public int getMinSize() {
+        return minSize;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getIdleTimeoutMs() {
+        return idleTimeoutMs;
+    }
+
+    public long getEvictionIntervalMs() {
+        return evictionIntervalMs;
+    }
+
+    public long getBorrowTimeoutMs() {
+        return borrowTimeoutMs;
+    }
+
+    public boolean isValidateOnBorrow() {
+        return validateOnBorrow;
+    }
+
+    public int getValidationTimeoutSeconds() {
+        return validationTimeoutSeconds;
+    }
+
+    /**
+     * Prepared statements kept per pooled connection; 0 disables the cache.
+     */
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+}
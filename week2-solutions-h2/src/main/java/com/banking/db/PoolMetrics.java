@@ -0,0 +1,74 @@
+package com.banking.db;
+
+/**
+ * Point-in-time snapshot of {@link ConnectionPool} statistics.
+ */
+public class PoolMetrics {
+    private final int active;
+    private final int idle;
+    private final long borrowCount;
+    private final long timeoutCount;
+    private final long createdCount;
+    private final long destroyedCount;
+    private final long totalWaitNanos;
+    private final long maxWaitNanos;
+
+    public PoolMetrics(int active, int idle, long borrowCount, long timeoutCount,
+                       long createdCount, long destroyedCount, long totalWaitNanos, long maxWaitNanos) {
+        this.active = active;
+        this.idle = idle;
+        this.borrowCount = borrowCount;
+        this.timeoutCount = timeoutCount;
+        this.createdCount = createdCount;
+        this.destroyedCount = destroyedCount;
+        this.totalWaitNanos = totalWaitNanos;
+        this.maxWaitNanos = maxWaitNanos;
+    }
+
+    public int getActive() {
+        return active;
+    }
+
+    public int getIdle() {
+        return idle;
+    }
+
+    public int getTotal() {
+        return active + idle;
+    }
+
+    public long getBorrowCount() {
+        return borrowCount;
+    }
+
+    public long getTimeoutCount() {
+        return timeoutCount;
+    }
+
+    public long getCreatedCount() {
+        return createdCount;
+    }
+
+    public long getDestroyedCount() {
+        return destroyedCount;
+    }
+
+    public long getTotalWaitNanos() {
+        return totalWaitNanos;
+    }
+
+    public long getMaxWaitNanos() {
+        return maxWaitNanos;
+    }
+
+    public double getAverageWaitMillis() {
+        return borrowCount == 0 ? 0.0 : totalWaitNanos / (double) borrowCount / 1_000_000.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("PoolMetrics[active=%d, idle=%d, borrows=%d, timeouts=%d, avgWait=%.3fms, maxWait=%.3fms]",
+                active, idle, borrowCount, timeoutCount,
+                getAverageWaitMillis(), maxWaitNanos / 1_000_000.0);
+    }
+}
@@ -0,0 +1,118 @@
+package com.banking.db;
+
+import java.util.List;
+
+/**
+ * One statement that took longer than the {@link QueryTracer} threshold.
+ */
+public class QueryTrace {
+    private final long timestampMillis;
+    private final String threadName;
+    private final String sql;
+    private final List<String> parameterTypes;
+    private final int batchSize;
+    private final long elapsedNanos;
+    private final long rows;
+    private final long lockWaitNanos;
+    private final int blockerSessionId;
+    private final String error;
+
+    QueryTrace(long timestampMillis, String threadName, String sql, List<String> parameterTypes, int batchSize,
+               long elapsedNanos, long rows, long lockWaitNanos, int blockerSessionId, String error) {
+        this.timestampMillis = timestampMillis;
+        this.threadName = threadName;
+        this.sql = sql;
+        this.parameterTypes = parameterTypes;
+        this.batchSize = batchSize;
+        this.elapsedNanos = elapsedNanos;
+        this.rows = rows;
+        this.lockWaitNanos = lockWaitNanos;
+        this.blockerSessionId = blockerSessionId;
+        this.error = error;
+    }
+
+    /**
+     * When the statement finished.
+     */
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public String getThreadName() {
+        return threadName;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * Type of each bind parameter, e.g. [String, BigDecimal]; values are never kept.
+     */
+    public List<String> getParameterTypes() {
+        return parameterTypes;
+    }
+
+    /**
+     * Rows sent with executeBatch, or 0 for a single execution.
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Time from execute until the result set was closed (or the update returned).
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Rows read from the result set, or the update count.
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * Time the statement was seen blocked on another session's lock; sampled,
+     * so accurate to the sample interval.
+     */
+    public long getLockWaitNanos() {
+        return lockWaitNanos;
+    }
+
+    /**
+     * H2 session holding the lock at the last blocked sample, or -1.
+     */
+    public int getBlockerSessionId() {
+        return blockerSessionId;
+    }
+
+    /**
+     * Simple name of the exception the statement failed with, or null.
+     */
+    public String getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%.3fms rows=%d", elapsedNanos / 1_000_000.0, rows));
+        if (lockWaitNanos > 0) {
+            sb.append(String.format(" lockWait=%.3fms blocker=%d", lockWaitNanos / 1_000_000.0, blockerSessionId));
+        }
+        if (batchSize > 0) {
+            sb.append(" batch=").append(batchSize);
+        }
+        if (error != null) {
+            sb.append(" error=").append(error);
+        }
+        sb.append(" [").append(threadName).append("] ").append(sql);
+        if (!parameterTypes.isEmpty()) {
+            sb.append(" ").append(parameterTypes);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,431 @@
+package com.banking.db;
+
+import java.io.PrintStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lightweight slow-statement tracing for the JDBC layer (db.trace.*).
+ *
+ * Connections passed through {@link #wrap} hand out statements that time each
+ * execution, from execute until the result set is closed, and count the rows
+ * read or updated. Statements slower than the threshold are kept, with their
+ * SQL and bind parameter types, in a fixed-size ring buffer that
+ * {@link #dump()} returns on demand; older entries are overwritten.
+ *
+ * Lock waits are sampled: while a statement has been running for longer than
+ * the sample interval, a background thread asks H2 which sessions are blocked
+ * (INFORMATION_SCHEMA.SESSIONS.BLOCKER_ID) and charges the interval to them.
+ */
+public class QueryTracer implements AutoCloseable {
+    private static final String BLOCKED_SQL =
+        "SELECT SESSION_ID, BLOCKER_ID FROM INFORMATION_SCHEMA.SESSIONS WHERE BLOCKER_ID IS NOT NULL";
+
+    private final long thresholdNanos;
+    private final long lockSampleNanos;
+    private final UnitOfWork.ConnectionSource probeSource;
+
+    // Ring buffer: entry n lives in slot n % capacity
+    private final AtomicReferenceArray<QueryTrace> ring;
+    private final AtomicLong written = new AtomicLong();
+    private volatile long clearedBefore;
+
+    // Executions in flight by H2 session id, for the lock sampler
+    private final ConcurrentHashMap<Integer, Execution> running = new ConcurrentHashMap<>();
+    private final Map<Connection, Integer> sessionIds = Collections.synchronizedMap(new WeakHashMap<>());
+    private final ScheduledExecutorService sampler;
+    private Connection probe;
+
+    /**
+     * @param thresholdMs  statements at least this slow are recorded (0 = all)
+     * @param capacity     entries kept in the ring buffer
+     * @param lockSampleMs how often to look for blocked sessions (0 = no lock sampling)
+     * @param probeSource  unwrapped connection for the lock sampler; it is kept open
+     */
+    public QueryTracer(long thresholdMs, int capacity, long lockSampleMs, UnitOfWork.ConnectionSource probeSource) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Invalid trace capacity: " + capacity);
+        }
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMs);
+        this.lockSampleNanos = TimeUnit.MILLISECONDS.toNanos(lockSampleMs);
+        this.probeSource = probeSource;
+        this.ring = new AtomicReferenceArray<>(capacity);
+
+        if (lockSampleMs > 0) {
+            sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "query-tracer-lock-sampler");
+                t.setDaemon(true);
+                return t;
+            });
+            sampler.scheduleWithFixedDelay(this::sampleLocks, lockSampleMs, lockSampleMs, TimeUnit.MILLISECONDS);
+        } else {
+            sampler = null;
+        }
+    }
+
+    /**
+     * Trace the statements created on this connection.
+     */
+    public Connection wrap(Connection conn) throws SQLException {
+        // Statement caching and pooling hand out new proxies; key sessions by the physical connection
+        Connection physical = sampler != null ? conn.unwrap(Connection.class) : null;
+        return (Connection) Proxy.newProxyInstance(
+                QueryTracer.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new TracedConnection(conn, physical));
+    }
+
+    /**
+     * Recorded statements, oldest first.
+     */
+    public List<QueryTrace> dump() {
+        long end = written.get();
+        long start = Math.max(clearedBefore, end - ring.length());
+        List<QueryTrace> traces = new ArrayList<>();
+        for (long n = start; n < end; n++) {
+            QueryTrace trace = ring.get((int) (n % ring.length()));
+            // A slot can still be empty while its writer is finishing
+            if (trace != null) {
+                traces.add(trace);
+            }
+        }
+        return traces;
+    }
+
+    public void dump(PrintStream out) {
+        List<QueryTrace> traces = dump();
+        out.println("Slow statements (" + traces.size() + " of " + getRecordedCount() + " recorded):");
+        for (QueryTrace trace : traces) {
+            out.println("  " + trace);
+        }
+    }
+
+    public void clear() {
+        clearedBefore = written.get();
+    }
+
+    /**
+     * Statements recorded since start, including ones already overwritten.
+     */
+    public long getRecordedCount() {
+        return written.get();
+    }
+
+    @Override
+    public void close() {
+        if (sampler != null) {
+            sampler.shutdownNow();
+            try {
+                sampler.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        closeProbe();
+    }
+
+    private Execution begin(String sql, Connection physical, List<String> parameterTypes, int batchSize) {
+        int sessionId = physical != null ? sessionId(physical) : -1;
+        Execution execution = new Execution(sql, parameterTypes, batchSize, sessionId);
+        if (sessionId >= 0) {
+            running.put(sessionId, execution);
+        }
+        return execution;
+    }
+
+    private void end(Execution execution, long rows, Throwable error) {
+        long elapsed = System.nanoTime() - execution.startNanos;
+        if (execution.sessionId >= 0) {
+            running.remove(execution.sessionId, execution);
+        }
+        if (elapsed < thresholdNanos) {
+            return;
+        }
+        QueryTrace trace = new QueryTrace(System.currentTimeMillis(), Thread.currentThread().getName(),
+                execution.sql, execution.parameterTypes, execution.batchSize, elapsed, rows,
+                execution.lockWaitNanos, execution.blockerSessionId,
+                error != null ? error.getClass().getSimpleName() : null);
+        long n = written.getAndIncrement();
+        ring.set((int) (n % ring.length()), trace);
+    }
+
+    private int sessionId(Connection physical) {
+        Integer id = sessionIds.get(physical);
+        if (id != null) {
+            return id;
+        }
+        try (Statement stmt = physical.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT SESSION_ID()")) {
+            rs.next();
+            id = rs.getInt(1);
+        } catch (SQLException e) {
+            // Trace without lock attribution
+            return -1;
+        }
+        sessionIds.put(physical, id);
+        return id;
+    }
+
+    private synchronized void sampleLocks() {
+        // Only query H2 when something has been running for a whole interval
+        long now = System.nanoTime();
+        boolean stalled = false;
+        for (Execution execution : running.values()) {
+            if (now - execution.startNanos >= lockSampleNanos) {
+                stalled = true;
+                break;
+            }
+        }
+        if (!stalled) {
+            return;
+        }
+        try {
+            if (probe == null) {
+                probe = probeSource.getConnection();
+            }
+            try (Statement stmt = probe.createStatement();
+                 ResultSet rs = stmt.executeQuery(BLOCKED_SQL)) {
+                while (rs.next()) {
+                    Execution execution = running.get(rs.getInt(1));
+                    if (execution != null) {
+                        execution.lockWaitNanos += lockSampleNanos;
+                        execution.blockerSessionId = rs.getInt(2);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Failed to sample lock waits: " + e.getMessage());
+            closeProbe();
+        }
+    }
+
+    private synchronized void closeProbe() {
+        if (probe != null) {
+            try {
+                probe.close();
+            } catch (SQLException e) {
+                // Being replaced anyway
+            }
+            probe = null;
+        }
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * One execution of a statement.
+     */
+    private static final class Execution {
+        private final String sql;
+        private final List<String> parameterTypes;
+        private final int batchSize;
+        private final int sessionId;
+        private final long startNanos = System.nanoTime();
+        // Written only by the sampler thread
+        private volatile long lockWaitNanos;
+        private volatile int blockerSessionId = -1;
+
+        private Execution(String sql, List<String> parameterTypes, int batchSize, int sessionId) {
+            this.sql = sql;
+            this.parameterTypes = parameterTypes;
+            this.batchSize = batchSize;
+            this.sessionId = sessionId;
+        }
+    }
+
+    private final class TracedConnection implements InvocationHandler {
+        private final Connection target;
+        private final Connection physical;
+
+        private TracedConnection(Connection target, Connection physical) {
+            this.target = target;
+            this.physical = physical;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = QueryTracer.invoke(target, method, args);
+            if (!(result instanceof Statement)) {
+                return result;
+            }
+            String sql = method.getName().startsWith("prepare") ? (String) args[0] : null;
+            Class<?> type = result instanceof CallableStatement ? CallableStatement.class
+                    : result instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+            return Proxy.newProxyInstance(
+                    QueryTracer.class.getClassLoader(),
+                    new Class<?>[]{type},
+                    new TracedStatement((Statement) result, sql, physical, (Connection) proxy));
+        }
+    }
+
+    private final class TracedStatement implements InvocationHandler {
+        private final Statement target;
+        private final String sql;
+        private final Connection physical;
+        private final Connection connection;
+        private final List<String> parameterTypes = new ArrayList<>();
+        private int batchSize;
+        // Query whose result set is still open
+        private Execution pending;
+        private long pendingRows;
+
+        private TracedStatement(Statement target, String sql, Connection physical, Connection connection) {
+            this.target = target;
+            this.sql = sql;
+            this.physical = physical;
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                return execute(proxy, method, args);
+            }
+            switch (name) {
+                case "close":
+                    finishPending();
+                    break;
+                case "getConnection":
+                    return connection;
+                case "getResultSet":
+                    Object rs = QueryTracer.invoke(target, method, args);
+                    return rs != null && pending != null ? wrapResultSet((ResultSet) rs, (Statement) proxy) : rs;
+                case "addBatch":
+                    batchSize++;
+                    break;
+                case "clearBatch":
+                    batchSize = 0;
+                    break;
+                case "clearParameters":
+                    parameterTypes.clear();
+                    break;
+                default:
+                    // setString(1, ...), setBigDecimal(2, ...): remember the type, never the value
+                    if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                        setParameterType((Integer) args[0], name.substring(3));
+                    }
+                    break;
+            }
+            return QueryTracer.invoke(target, method, args);
+        }
+
+        private Object execute(Object proxy, Method method, Object[] args) throws Throwable {
+            finishPending();
+            String name = method.getName();
+            String text = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : sql;
+            boolean batch = name.equals("executeBatch") || name.equals("executeLargeBatch");
+            Execution execution = begin(text, physical, new ArrayList<>(parameterTypes), batch ? batchSize : 0);
+            Object result;
+            try {
+                result = QueryTracer.invoke(target, method, args);
+            } catch (Throwable e) {
+                end(execution, -1, e);
+                throw e;
+            } finally {
+                if (batch) {
+                    batchSize = 0;
+                }
+            }
+
+            if (result instanceof ResultSet) {
+                pending = execution;
+                return wrapResultSet((ResultSet) result, (Statement) proxy);
+            }
+            if (Boolean.TRUE.equals(result)) {
+                // execute() produced a result set; finished when it is read and closed
+                pending = execution;
+                return result;
+            }
+            end(execution, updateCount(result), null);
+            return result;
+        }
+
+        private long updateCount(Object result) throws SQLException {
+            if (result instanceof Number) {
+                return ((Number) result).longValue();
+            }
+            long rows = 0;
+            if (result instanceof int[]) {
+                for (int count : (int[]) result) {
+                    rows += Math.max(0, count);
+                }
+            } else if (result instanceof long[]) {
+                for (long count : (long[]) result) {
+                    rows += Math.max(0, count);
+                }
+            } else {
+                // execute() without a result set
+                rows = target.getLargeUpdateCount();
+            }
+            return rows;
+        }
+
+        private void setParameterType(int index, String type) {
+            while (parameterTypes.size() < index) {
+                parameterTypes.add("?");
+            }
+            parameterTypes.set(index - 1, type);
+        }
+
+        private void finishPending() {
+            if (pending != null) {
+                end(pending, pendingRows, null);
+                pending = null;
+                pendingRows = 0;
+            }
+        }
+
+        private ResultSet wrapResultSet(ResultSet rs, Statement statement) {
+            Execution owner = pending;
+            return (ResultSet) Proxy.newProxyInstance(
+                    QueryTracer.class.getClassLoader(),
+                    new Class<?>[]{ResultSet.class},
+                    (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "next":
+                                Object more = QueryTracer.invoke(rs, method, args);
+                                if (Boolean.TRUE.equals(more) && pending == owner) {
+                                    pendingRows++;
+                                }
+                                return more;
+                            case "close":
+                                if (pending == owner) {
+                                    finishPending();
+                                }
+                                break;
+                            case "getStatement":
+                                return statement;
+                            default:
+                                break;
+                        }
+                        return QueryTracer.invoke(rs, method, args);
+                    });
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.banking.db;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Consistent hashing of account ids onto shards.
+ *
+ * Each shard owns virtualNodes points on a 64-bit ring and an account goes
+ * to the first point at or after its own hash. Going from N to N + 1 shards
+ * only moves about 1/(N + 1) of the accounts, all of them to the new shard.
+ * The ring is immutable; lookups are a binary search with no locking.
+ */
+public class ShardRing {
+    private final long[] points;
+    private final int[] owners;
+    private final int shardCount;
+
+    public ShardRing(int shardCount, int virtualNodes) {
+        if (shardCount < 1 || virtualNodes < 1) {
+            throw new IllegalArgumentException("Need at least one shard and one virtual node");
+        }
+        this.shardCount = shardCount;
+        long[][] ring = new long[shardCount * virtualNodes][];
+        for (int shard = 0; shard < shardCount; shard++) {
+            for (int v = 0; v < virtualNodes; v++) {
+                ring[shard * virtualNodes + v] = new long[]{hash("shard-" + shard + "#" + v), shard};
+            }
+        }
+        // Ties (practically never) go to the lower shard so the order is stable
+        Arrays.sort(ring, (a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1]));
+        this.points = new long[ring.length];
+        this.owners = new int[ring.length];
+        for (int i = 0; i < ring.length; i++) {
+            points[i] = ring[i][0];
+            owners[i] = (int) ring[i][1];
+        }
+    }
+
+    public int shardFor(String accountId) {
+        int i = Arrays.binarySearch(points, hash(accountId));
+        if (i < 0) {
+            i = -i - 1;
+        }
+        return owners[i == points.length ? 0 : i];
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    // FNV-1a over the UTF-8 bytes, then a 64-bit finalizer so short, similar ids spread out
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,62 @@
+package com.banking.db;
+
+/**
+ * Result of one {@link BankSnapshot} export or import.
+ */
+public class SnapshotStats {
+    private final long accountRows;
+    private final long transactionRows;
+    private final long blocks;
+    private final long bytes;
+    private final long elapsedNanos;
+
+    public SnapshotStats(long accountRows, long transactionRows, long blocks, long bytes, long elapsedNanos) {
+        this.accountRows = accountRows;
+        this.transactionRows = transactionRows;
+        this.blocks = blocks;
+        this.bytes = bytes;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getAccountRows() {
+        return accountRows;
+    }
+
+    public long getTransactionRows() {
+        return transactionRows;
+    }
+
+    public long getRows() {
+        return accountRows + transactionRows;
+    }
+
+    public long getBlocks() {
+        return blocks;
+    }
+
+    /**
+     * Size of the snapshot file.
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : getRows() * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    public double getMegabytesPerSecond() {
+        return elapsedNanos == 0 ? 0.0 : bytes / (1024.0 * 1024.0) * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SnapshotStats[accounts=%d, transactions=%d, blocks=%d, size=%.1fMB, time=%.3fs, %.0f rows/s, %.1f MB/s]",
+                accountRows, transactionRows, blocks, bytes / (1024.0 * 1024.0), elapsedNanos / 1_000_000_000.0,
+                getRowsPerSecond(), getMegabytesPerSecond());
+    }
+}
@@ -0,0 +1,83 @@
+package com.banking.db;
+
+/**
+ * Point-in-time view of how long {@link DatabaseConnection} took to start.
+ */
+public class StartupMetrics {
+    private final long propertiesNanos;
+    private final long poolNanos;
+    private final long connectNanos;
+    private final long schemaNanos;
+    private final boolean schemaBootstrapped;
+    private final long readyNanos;
+    private final long warmupNanos;
+    private final int warmedConnections;
+
+    public StartupMetrics(long propertiesNanos, long poolNanos, long connectNanos, long schemaNanos,
+                          boolean schemaBootstrapped, long readyNanos, long warmupNanos, int warmedConnections) {
+        this.propertiesNanos = propertiesNanos;
+        this.poolNanos = poolNanos;
+        this.connectNanos = connectNanos;
+        this.schemaNanos = schemaNanos;
+        this.schemaBootstrapped = schemaBootstrapped;
+        this.readyNanos = readyNanos;
+        this.warmupNanos = warmupNanos;
+        this.warmedConnections = warmedConnections;
+    }
+
+    public long getPropertiesNanos() {
+        return propertiesNanos;
+    }
+
+    public long getPoolNanos() {
+        return poolNanos;
+    }
+
+    /**
+     * Time to open the first connection; in a fresh JVM this includes starting H2.
+     */
+    public long getConnectNanos() {
+        return connectNanos;
+    }
+
+    /**
+     * Time for the schema version check, plus running schema.sql if it was needed.
+     */
+    public long getSchemaNanos() {
+        return schemaNanos;
+    }
+
+    /**
+     * False when the stored schema version matched and schema.sql was skipped.
+     */
+    public boolean isSchemaBootstrapped() {
+        return schemaBootstrapped;
+    }
+
+    /**
+     * Time until getInstance() first returned.
+     */
+    public long getReadyNanos() {
+        return readyNanos;
+    }
+
+    /**
+     * Time the background warmup took, or -1 while it is still running (or disabled).
+     */
+    public long getWarmupNanos() {
+        return warmupNanos;
+    }
+
+    public int getWarmedConnections() {
+        return warmedConnections;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("StartupMetrics[ready=%.1fms, properties=%.1fms, pool=%.1fms, connect=%.1fms, schema=%.1fms (%s), warmup=%s]",
+                readyNanos / 1_000_000.0, propertiesNanos / 1_000_000.0, poolNanos / 1_000_000.0,
+                connectNanos / 1_000_000.0, schemaNanos / 1_000_000.0, schemaBootstrapped ? "bootstrapped" : "up to date",
+                warmupNanos < 0 ? "pending" : String.format("%.1fms, %d connections",
+                        warmupNanos / 1_000_000.0, warmedConnections));
+    }
+}
@@ -0,0 +1,51 @@
+package com.banking.db;
+
+/**
+ * Point-in-time snapshot of the prepared statement caches in a {@link ConnectionPool}.
+ */
+public class StatementCacheMetrics {
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+    private final int cached;
+
+    public StatementCacheMetrics(long hitCount, long missCount, long evictionCount, int cached) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.cached = cached;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * Statements that had to be parsed: not cached yet, or the cached one was still open.
+     */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Statements currently held open across all pooled connections.
+     */
+    public int getCached() {
+        return cached;
+    }
+
+    public double getHitRate() {
+        long requests = hitCount + missCount;
+        return requests == 0 ? 0.0 : hitCount / (double) requests;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("StatementCacheMetrics[hits=%d, misses=%d, hitRate=%.1f%%, evictions=%d, cached=%d]",
+                hitCount, missCount, getHitRate() * 100, evictionCount, cached);
+    }
+}
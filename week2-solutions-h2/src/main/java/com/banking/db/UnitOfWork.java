@@ -0,0 +1,88 @@
+package com.banking.db;
+
+import com.banking.metrics.BankingMetrics;
+import com.banking.metrics.OperationMetrics;
+import com.banking.metrics.Phase;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Runs a piece of work on a single connection inside one database transaction.
+ * Commits when the work returns normally and rolls back on any exception.
+ *
+ * With enabled metrics, the time spent getting the connection, running the
+ * work and committing is recorded against the operation timed on this thread.
+ */
+public class UnitOfWork {
+
+    /**
+     * Source of connections, e.g. {@code DatabaseConnection.getInstance()::getConnection}.
+     */
+    @FunctionalInterface
+    public interface ConnectionSource {
+        Connection getConnection() throws SQLException;
+    }
+
+    /**
+     * Work executed against the transaction's connection.
+     */
+    @FunctionalInterface
+    public interface Work<T> {
+        T execute(Connection conn) throws SQLException;
+    }
+
+    private final ConnectionSource connectionSource;
+    private final BankingMetrics metrics;
+
+    public UnitOfWork(ConnectionSource connectionSource) {
+        this(connectionSource, BankingMetrics.disabled());
+    }
+
+    public UnitOfWork(ConnectionSource connectionSource, BankingMetrics metrics) {
+        this.connectionSource = connectionSource;
+        this.metrics = metrics;
+    }
+
+    public <T> T execute(Work<T> work) throws SQLException {
+        if (metrics.isEnabled()) {
+            return executeTimed(work);
+        }
+        try (Connection conn = connectionSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                T result = work.execute(conn);
+                conn.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    private <T> T executeTimed(Work<T> work) throws SQLException {
+        OperationMetrics operation = metrics.currentOperation();
+        long start = System.nanoTime();
+        try (Connection conn = connectionSource.getConnection()) {
+            long acquired = System.nanoTime();
+            operation.recordPhase(Phase.ACQUIRE, acquired - start);
+            conn.setAutoCommit(false);
+            try {
+                T result = work.execute(conn);
+                long executed = System.nanoTime();
+                operation.recordPhase(Phase.EXECUTE, executed - acquired);
+                conn.commit();
+                operation.recordPhase(Phase.COMMIT, System.nanoTime() - executed);
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.banking.exception;
+
+/**
+ * A transfer whose debit has committed but whose credit has not. The money
+ * has left the source account and recovery will finish the transfer, so it
+ * must not be submitted again.
+ */
+public class TransferPendingException extends BankingException {
+    private static final long serialVersionUID = 1L;
+
+    private final String transferId;
+
+    public TransferPendingException(String transferId, String message, Throwable cause) {
+        super(message, cause);
+        this.transferId = transferId;
+    }
+
+    public String getTransferId() {
+        return transferId;
+    }
+}
@@ -0,0 +1,221 @@
+package com.banking.metrics;
+
+import com.banking.db.DatabaseConnection;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registry of per-operation metrics: call counts, errors by exception type
+ * and latency histograms (see {@link Phase}).
+ *
+ * A disabled registry hands out a shared no-op timer and never reads the
+ * clock, so instrumented code costs one branch when metrics are off.
+ * Snapshots can be pulled with {@link #snapshot()}, pushed to registered
+ * {@link MetricsReporter}s, and each operation is also visible over JMX.
+ */
+public class BankingMetrics implements AutoCloseable {
+    // Operation that units of work are recorded under when no timer is running
+    public static final String UNATTRIBUTED = "other";
+
+    private static final BankingMetrics DISABLED = new BankingMetrics(false, false);
+
+    private final boolean enabled;
+    private final boolean jmx;
+    private final ConcurrentHashMap<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+    private final List<MetricsReporter> reporters = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<OperationTimer> current = new ThreadLocal<>();
+    private ScheduledExecutorService reportScheduler;
+
+    /**
+     * An enabled registry that is not registered with JMX.
+     */
+    public BankingMetrics() {
+        this(true, false);
+    }
+
+    public BankingMetrics(boolean enabled, boolean jmx) {
+        this.enabled = enabled;
+        this.jmx = enabled && jmx;
+    }
+
+    private static class Holder {
+        private static final BankingMetrics INSTANCE = fromProperties();
+    }
+
+    /**
+     * The application-wide registry, configured by the metrics.* settings.
+     */
+    public static BankingMetrics getInstance() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * A registry that records nothing.
+     */
+    public static BankingMetrics disabled() {
+        return DISABLED;
+    }
+
+    private static BankingMetrics fromProperties() {
+        DatabaseConnection db = DatabaseConnection.getInstance();
+        if (!Boolean.parseBoolean(db.getProperty("metrics.enabled", "false"))) {
+            return DISABLED;
+        }
+        BankingMetrics metrics = new BankingMetrics(true,
+                Boolean.parseBoolean(db.getProperty("metrics.jmx", "true")));
+        long intervalMs = Long.parseLong(db.getProperty("metrics.reportIntervalMs", "0"));
+        if (intervalMs > 0) {
+            metrics.addReporter(System.out::println);
+            metrics.startReporting(intervalMs);
+        }
+        return metrics;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Metrics of the named operation, created on first use.
+     */
+    public OperationMetrics operation(String name) {
+        OperationMetrics metrics = operations.get(name);
+        if (metrics != null) {
+            return metrics;
+        }
+        return operations.computeIfAbsent(name, this::create);
+    }
+
+    /**
+     * Start timing a call of the named operation on this thread.
+     */
+    public OperationTimer start(String name) {
+        if (!enabled) {
+            return OperationTimer.NOOP;
+        }
+        OperationTimer timer = new OperationTimer(this, operation(name), current.get(), System.nanoTime());
+        current.set(timer);
+        return timer;
+    }
+
+    /**
+     * Operation of the timer running on this thread, or {@link #UNATTRIBUTED}.
+     */
+    public OperationMetrics currentOperation() {
+        OperationTimer timer = current.get();
+        return timer != null ? timer.getOperation() : operation(UNATTRIBUTED);
+    }
+
+    /**
+     * Count a failure of the named operation that no timer saw, e.g. on a background thread.
+     */
+    public void recordError(String name, Throwable error) {
+        if (enabled) {
+            operation(name).recordError(error);
+        }
+    }
+
+    public MetricsSnapshot snapshot() {
+        Map<String, OperationSnapshot> copies = new TreeMap<>();
+        for (OperationMetrics metrics : operations.values()) {
+            copies.put(metrics.getName(), metrics.snapshot());
+        }
+        return new MetricsSnapshot(System.currentTimeMillis(), copies);
+    }
+
+    public void addReporter(MetricsReporter reporter) {
+        reporters.add(reporter);
+    }
+
+    public void removeReporter(MetricsReporter reporter) {
+        reporters.remove(reporter);
+    }
+
+    /**
+     * Send a snapshot to every registered reporter.
+     */
+    public void report() {
+        if (reporters.isEmpty()) {
+            return;
+        }
+        MetricsSnapshot snapshot = snapshot();
+        for (MetricsReporter reporter : reporters) {
+            try {
+                reporter.report(snapshot);
+            } catch (RuntimeException e) {
+                System.err.println("Metrics reporter failed: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Call {@link #report()} every intervalMs on a daemon thread.
+     */
+    public synchronized void startReporting(long intervalMs) {
+        if (reportScheduler != null) {
+            throw new IllegalStateException("Metrics reporting is already running");
+        }
+        reportScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "metrics-reporter");
+            t.setDaemon(true);
+            return t;
+        });
+        reportScheduler.scheduleAtFixedRate(this::report, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop scheduled reporting and unregister the JMX beans.
+     */
+    @Override
+    public synchronized void close() {
+        if (reportScheduler != null) {
+            reportScheduler.shutdownNow();
+            reportScheduler = null;
+        }
+        if (jmx) {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            for (String name : operations.keySet()) {
+                try {
+                    server.unregisterMBean(objectName(name));
+                } catch (JMException e) {
+                    // Already gone
+                }
+            }
+        }
+    }
+
+    void finished(OperationTimer outer) {
+        if (outer != null) {
+            current.set(outer);
+        } else {
+            current.remove();
+        }
+    }
+
+    private OperationMetrics create(String name) {
+        OperationMetrics metrics = new OperationMetrics(name);
+        if (jmx) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, objectName(name));
+            } catch (JMException e) {
+                System.err.println("Failed to register metrics for " + name + " with JMX: " + e.getMessage());
+            }
+        }
+        return metrics;
+    }
+
+    private static ObjectName objectName(String operation) throws JMException {
+        return new ObjectName("com.banking:type=Operation,name=" + ObjectName.quote(operation));
+    }
+}
@@ -0,0 +1,63 @@
+package com.banking.metrics;
+
+/**
+ * Point-in-time copy of a {@link LatencyHistogram}. All values are nanoseconds.
+ */
+public class HistogramSnapshot {
+    private final long[] counts;
+    private final long count;
+    private final long sum;
+    private final long min;
+    private final long max;
+
+    HistogramSnapshot(long[] counts, long count, long sum, long min, long max) {
+        this.counts = counts;
+        this.count = count;
+        this.sum = sum;
+        this.min = min;
+        this.max = max;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMinNanos() {
+        return min;
+    }
+
+    public long getMaxNanos() {
+        return max;
+    }
+
+    public double getMeanNanos() {
+        return count == 0 ? 0.0 : sum / (double) count;
+    }
+
+    /**
+     * Smallest recorded value that at least the given percentage of values
+     * do not exceed, e.g. 99.0 for p99. Accurate to the bucket width (~6%).
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(LatencyHistogram.bucketUpperBound(i), max);
+            }
+        }
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d, mean=%.3fms, p50=%.3fms, p99=%.3fms, p99.9=%.3fms, max=%.3fms",
+                count, getMeanNanos() / 1_000_000.0,
+                getValueAtPercentile(50) / 1_000_000.0, getValueAtPercentile(99) / 1_000_000.0,
+                getValueAtPercentile(99.9) / 1_000_000.0, max / 1_000_000.0);
+    }
+}
@@ -0,0 +1,10 @@
+package com.banking.metrics;
+
+/**
+ * Receives snapshots from {@link BankingMetrics#report()}, e.g. to log them
+ * or push them to a monitoring system.
+ */
+@FunctionalInterface
+public interface MetricsReporter {
+    void report(MetricsSnapshot snapshot);
+}
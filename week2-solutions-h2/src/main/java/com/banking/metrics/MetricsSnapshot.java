@@ -0,0 +1,43 @@
+package com.banking.metrics;
+
+import java.util.Map;
+
+/**
+ * Point-in-time copy of every operation in a {@link BankingMetrics} registry.
+ */
+public class MetricsSnapshot {
+    private final long timestampMillis;
+    private final Map<String, OperationSnapshot> operations;
+
+    MetricsSnapshot(long timestampMillis, Map<String, OperationSnapshot> operations) {
+        this.timestampMillis = timestampMillis;
+        this.operations = operations;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    /**
+     * Operations by name, sorted.
+     */
+    public Map<String, OperationSnapshot> getOperations() {
+        return operations;
+    }
+
+    /**
+     * The named operation, or null if it has not been recorded yet.
+     */
+    public OperationSnapshot getOperation(String name) {
+        return operations.get(name);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("MetricsSnapshot");
+        for (OperationSnapshot operation : operations.values()) {
+            sb.append("\n").append(operation);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,117 @@
+package com.banking.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms for one named operation, e.g. "deposit".
+ */
+public class OperationMetrics implements OperationMetricsMXBean {
+    private final String name;
+    private final LongAdder calls = new LongAdder();
+    private final ConcurrentHashMap<String, LongAdder> errors = new ConcurrentHashMap<>();
+    private final LatencyHistogram[] latencies = new LatencyHistogram[Phase.values().length];
+
+    OperationMetrics(String name) {
+        this.name = name;
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LatencyHistogram();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * A finished call; error is null when it succeeded.
+     */
+    public void recordCall(long totalNanos, Throwable error) {
+        calls.increment();
+        latencies[Phase.TOTAL.ordinal()].record(totalNanos);
+        if (error != null) {
+            recordError(error);
+        }
+    }
+
+    public void recordPhase(Phase phase, long nanos) {
+        latencies[phase.ordinal()].record(nanos);
+    }
+
+    /**
+     * A failure that is not tied to a timed call, e.g. on a background thread.
+     */
+    public void recordError(Throwable error) {
+        errors.computeIfAbsent(error.getClass().getSimpleName(), type -> new LongAdder()).increment();
+    }
+
+    public OperationSnapshot snapshot() {
+        HistogramSnapshot[] copies = new HistogramSnapshot[latencies.length];
+        for (int i = 0; i < latencies.length; i++) {
+            copies[i] = latencies[i].snapshot();
+        }
+        return new OperationSnapshot(name, calls.sum(), getErrorsByType(), copies);
+    }
+
+    @Override
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    @Override
+    public long getErrors() {
+        long total = 0;
+        for (LongAdder count : errors.values()) {
+            total += count.sum();
+        }
+        return total;
+    }
+
+    @Override
+    public Map<String, Long> getErrorsByType() {
+        Map<String, Long> byType = new TreeMap<>();
+        errors.forEach((type, count) -> byType.put(type, count.sum()));
+        return byType;
+    }
+
+    @Override
+    public double getMeanMillis() {
+        return latencies[Phase.TOTAL.ordinal()].snapshot().getMeanNanos() / 1_000_000.0;
+    }
+
+    @Override
+    public double getP50Millis() {
+        return percentileMillis(Phase.TOTAL, 50);
+    }
+
+    @Override
+    public double getP99Millis() {
+        return percentileMillis(Phase.TOTAL, 99);
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return latencies[Phase.TOTAL.ordinal()].snapshot().getMaxNanos() / 1_000_000.0;
+    }
+
+    @Override
+    public double getAcquireP99Millis() {
+        return percentileMillis(Phase.ACQUIRE, 99);
+    }
+
+    @Override
+    public double getExecuteP99Millis() {
+        return percentileMillis(Phase.EXECUTE, 99);
+    }
+
+    @Override
+    public double getCommitP99Millis() {
+        return percentileMillis(Phase.COMMIT, 99);
+    }
+
+    private double percentileMillis(Phase phase, double percentile) {
+        return latencies[phase.ordinal()].snapshot().getValueAtPercentile(percentile) / 1_000_000.0;
+    }
+}
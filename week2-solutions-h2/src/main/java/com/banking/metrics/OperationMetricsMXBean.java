@@ -0,0 +1,29 @@
+package com.banking.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of one operation, registered as com.banking:type=Operation,name=&lt;operation&gt;.
+ * Latencies are in milliseconds.
+ */
+public interface OperationMetricsMXBean {
+    long getCalls();
+
+    long getErrors();
+
+    Map<String, Long> getErrorsByType();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP99Millis();
+
+    double getMaxMillis();
+
+    double getAcquireP99Millis();
+
+    double getExecuteP99Millis();
+
+    double getCommitP99Millis();
+}
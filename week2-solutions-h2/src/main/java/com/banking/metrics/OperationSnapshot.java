@@ -0,0 +1,60 @@
+package com.banking.metrics;
+
+import java.util.Map;
+
+/**
+ * Point-in-time copy of the metrics of one operation.
+ */
+public class OperationSnapshot {
+    private final String name;
+    private final long calls;
+    private final Map<String, Long> errorsByType;
+    private final HistogramSnapshot[] latencies;
+
+    OperationSnapshot(String name, long calls, Map<String, Long> errorsByType, HistogramSnapshot[] latencies) {
+        this.name = name;
+        this.calls = calls;
+        this.errorsByType = errorsByType;
+        this.latencies = latencies;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCalls() {
+        return calls;
+    }
+
+    public long getErrors() {
+        long errors = 0;
+        for (long count : errorsByType.values()) {
+            errors += count;
+        }
+        return errors;
+    }
+
+    /**
+     * Failed calls keyed by the simple name of the exception, e.g. InsufficientFundsException.
+     */
+    public Map<String, Long> getErrorsByType() {
+        return errorsByType;
+    }
+
+    public HistogramSnapshot getLatency(Phase phase) {
+        return latencies[phase.ordinal()];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(name).append(": calls=").append(calls).append(", errors=").append(errorsByType);
+        for (Phase phase : Phase.values()) {
+            HistogramSnapshot latency = latencies[phase.ordinal()];
+            if (latency.getCount() > 0) {
+                sb.append("\n  ").append(phase.name().toLowerCase()).append(": ").append(latency);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,43 @@
+package com.banking.metrics;
+
+/**
+ * Times one call of an operation. Obtained from {@link BankingMetrics#start}
+ * and finished with {@link #stop}; while it runs, units of work on the same
+ * thread record their phases against its operation.
+ */
+public class OperationTimer {
+    // Handed out by a disabled registry; records nothing
+    static final OperationTimer NOOP = new OperationTimer(null, null, null, 0);
+
+    private final BankingMetrics owner;
+    private final OperationMetrics operation;
+    private final OperationTimer outer;
+    private final long startNanos;
+    private Throwable error;
+
+    OperationTimer(BankingMetrics owner, OperationMetrics operation, OperationTimer outer, long startNanos) {
+        this.owner = owner;
+        this.operation = operation;
+        this.outer = outer;
+        this.startNanos = startNanos;
+    }
+
+    OperationMetrics getOperation() {
+        return operation;
+    }
+
+    /**
+     * Mark the call as failed; recorded under the exception's type on stop().
+     */
+    public void fail(Throwable error) {
+        this.error = error;
+    }
+
+    public void stop() {
+        if (operation == null) {
+            return;
+        }
+        operation.recordCall(System.nanoTime() - startNanos, error);
+        owner.finished(outer);
+    }
+}
@@ -0,0 +1,16 @@
+package com.banking.metrics;
+
+/**
+ * Where the time of an operation went. Only work run through
+ * {@link com.banking.db.UnitOfWork} is split into the database phases.
+ */
+public enum Phase {
+    // Whole call, as seen by the caller
+    TOTAL,
+    // Borrowing a connection from the pool
+    ACQUIRE,
+    // Running the SQL of the transaction
+    EXECUTE,
+    // Committing it
+    COMMIT
+}
@@ -13,7 +13,7 @@ public abstract class Account {
     protected LocalDateTime lastTransaction;
 
     // Static field - shared across instances
-    private static final BigDecimal MINIMUM_BALANCE = new BigDecimal("100.00");
+    static final BigDecimal MINIMUM_BALANCE = new BigDecimal("100.00");
 
     // Public constructor
     public Account(String accountNumber, BigDecimal balance) {
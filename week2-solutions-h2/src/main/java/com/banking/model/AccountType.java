@@ -1,5 +1,7 @@
 package com.banking.model;
 
+import java.math.BigDecimal;
+
 public enum AccountType {
     SAVINGS("SAV"),
     CHECKING("CHK");
@@ -13,4 +15,19 @@ public enum AccountType {
     public String getCode() {
         return code;
     }
+
+    /**
+     * The lowest balance a withdrawal may leave, as checked by
+     * {@link SavingsAccount} and {@link CheckingAccount}.
+     */
+    public BigDecimal getWithdrawalFloor() {
+        switch (this) {
+            case SAVINGS:
+                return Account.MINIMUM_BALANCE;
+            case CHECKING:
+                return CheckingAccount.OVERDRAFT_LIMIT;
+            default:
+                return BigDecimal.ZERO;
+        }
+    }
 }
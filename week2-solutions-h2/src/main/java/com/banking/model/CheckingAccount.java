@@ -4,7 +4,7 @@ import java.math.BigDecimal;
 
 public class CheckingAccount extends Account {
     private static final BigDecimal MONTHLY_FEE = new BigDecimal("12.00");
-    private static final BigDecimal OVERDRAFT_LIMIT = new BigDecimal("-100.00");
+    static final BigDecimal OVERDRAFT_LIMIT = new BigDecimal("-100.00");
     private int monthlyTransactions;
 
     public CheckingAccount(String accountNumber, BigDecimal balance) {
@@ -0,0 +1,100 @@
+package com.banking.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * One row of the transactions ledger.
+ *
+ * Kept compact: the amount is stored as long minor units (cents) and the
+ * timestamp as epoch microseconds, so a record is one object plus its account
+ * id. BigDecimal, LocalDateTime and the "date,account,amount" text are only
+ * built when a caller asks for them.
+ */
+public class TransactionRecord {
+    private static final int SCALE = 2;
+
+    private final long transactionId;
+    private final String accountId;
+    private final long amountMinor;
+    private final long epochMicros;
+
+    public TransactionRecord(long transactionId, String accountId, long amountMinor, long epochMicros) {
+        this.transactionId = transactionId;
+        this.accountId = accountId;
+        this.amountMinor = amountMinor;
+        this.epochMicros = epochMicros;
+    }
+
+    public TransactionRecord(long transactionId, String accountId, BigDecimal amount, LocalDateTime transactionDate) {
+        this(transactionId, accountId, toMinorUnits(amount), toEpochMicros(Timestamp.valueOf(transactionDate)));
+    }
+
+    /**
+     * Amount in cents, e.g. -1050 for -10.50.
+     */
+    public static long toMinorUnits(BigDecimal amount) {
+        return amount.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Microseconds since the epoch; H2 timestamps carry no finer precision.
+     */
+    public static long toEpochMicros(Timestamp timestamp) {
+        return Math.floorDiv(timestamp.getTime(), 1000) * 1_000_000 + timestamp.getNanos() / 1000;
+    }
+
+    public static Timestamp toTimestamp(long epochMicros) {
+        Timestamp timestamp = new Timestamp(Math.floorDiv(epochMicros, 1_000_000) * 1000);
+        timestamp.setNanos(Math.floorMod(epochMicros, 1_000_000) * 1000);
+        return timestamp;
+    }
+
+    public long getTransactionId() {
+        return transactionId;
+    }
+
+    public String getAccountId() {
+        return accountId;
+    }
+
+    public long getAmountMinor() {
+        return amountMinor;
+    }
+
+    public long getEpochMicros() {
+        return epochMicros;
+    }
+
+    public BigDecimal getAmount() {
+        return BigDecimal.valueOf(amountMinor, SCALE);
+    }
+
+    public LocalDateTime getTransactionDate() {
+        return toTimestamp(epochMicros).toLocalDateTime();
+    }
+
+    /**
+     * Same "date,account,amount" line the history methods have always returned.
+     */
+    @Override
+    public String toString() {
+        StringBuilder line = new StringBuilder(48)
+                .append(toTimestamp(epochMicros))
+                .append(',')
+                .append(accountId)
+                .append(',');
+        long units = Math.abs(amountMinor);
+        if (amountMinor < 0) {
+            line.append('-');
+        }
+        line.append(units / 100).append('.');
+        long cents = units % 100;
+        if (cents < 10) {
+            line.append('0');
+        }
+        return line.append(cents).toString();
+    }
+}
@@ -0,0 +1,46 @@
+package com.banking.service;
+
+import com.banking.exception.BankingException;
+import com.banking.model.Account;
+import com.banking.model.AccountType;
+import com.banking.model.TransactionRecord;
+import com.banking.util.TransactionQuery;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Operations behind the BankingSystem facade.
+ * Implemented by the JDBC-backed {@link AccountService},
+ * {@link InMemoryAccountService}, {@link ShardedAccountService} and
+ * {@link MultiDatabaseAccountService}; choose one with banking.engine.
+ */
+public interface AccountOperations {
+    Account createAccount(AccountType type, String accountId, BigDecimal initialBalance) throws BankingException;
+
+    void deposit(String accountId, BigDecimal amount) throws BankingException;
+
+    void withdraw(String accountId, BigDecimal amount) throws BankingException;
+
+    void transfer(String fromAccountId, String toAccountId, BigDecimal amount) throws BankingException;
+
+    List<TransferResult> transferBatch(List<TransferInstruction> instructions, BatchMode mode) throws BankingException;
+
+    BigDecimal getBalance(String accountId) throws BankingException;
+
+    List<TransactionRecord> getTransactionHistory(String accountId);
+
+    List<TransactionRecord> getAllTransactions();
+
+    Stream<TransactionRecord> streamTransactions(TransactionQuery query);
+
+    void deleteAccount(String accountId) throws BankingException;
+
+    Map<String, Object> getAccountSummary();
+
+    Map<String, Object> getDailyTransactions();
+
+    Map<String, Object> getAccountActivity();
+}
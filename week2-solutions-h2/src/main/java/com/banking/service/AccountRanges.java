@@ -0,0 +1,51 @@
+package com.banking.service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits the account_id space into ranges holding about the same number of
+ * accounts. Range i covers bounds[i-1] < account_id <= bounds[i]; the first
+ * range has no lower bound and the last, whose bound is null, no upper bound.
+ */
+final class AccountRanges {
+
+    /**
+     * Upper bounds of at most the given number of ranges, the last one null.
+     */
+    static List<String> upperBounds(Connection conn, int ranges) throws SQLException {
+        long count;
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM accounts");
+             ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            count = rs.getLong(1);
+        }
+
+        // Every step-th id (in order) ends a range
+        List<String> bounds = new ArrayList<>();
+        if (ranges > 1 && count > 1) {
+            long step = (count + ranges - 1) / ranges;
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT account_id FROM (SELECT account_id, ROW_NUMBER() OVER (ORDER BY account_id) AS rn " +
+                    "FROM accounts) WHERE MOD(rn, ?) = 0 AND rn < ? ORDER BY account_id"
+            )) {
+                stmt.setLong(1, step);
+                stmt.setLong(2, count);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next() && bounds.size() < ranges - 1) {
+                        bounds.add(rs.getString(1));
+                    }
+                }
+            }
+        }
+        bounds.add(null);
+        return bounds;
+    }
+
+    private AccountRanges() {
+    }
+}
@@ -1,180 +1,707 @@
 package com.banking.service;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 import com.banking.db.DatabaseConnection;
+import com.banking.db.UnitOfWork;
 import com.banking.exception.AccountNotFoundException;
 import com.banking.exception.BankingException;
 import com.banking.exception.InsufficientFundsException;
+import com.banking.metrics.BankingMetrics;
 import com.banking.model.Account;
 import com.banking.model.AccountFactory;
 import com.banking.model.AccountType;
+import com.banking.model.TransactionRecord;
+import com.banking.util.LedgerPartitions;
 import com.banking.util.TransactionLogger;
+import com.banking.util.TransactionQuery;
 
 import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.LocalDate;
 import java.util.List;
-
-public class AccountService {
-    private final DatabaseConnection dbConnection;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+public class AccountService implements AccountOperations {
+    // Max ids per SELECT ... FOR UPDATE when locking a transfer batch
+    private static final int LOCK_CHUNK_SIZE = 500;
+
+    static final String INSERT_ACCOUNT_SQL =
+        "INSERT INTO accounts (account_id, account_type, balance) VALUES (?, ?, ?)";
+    static final String SELECT_BALANCE_SQL =
+        "SELECT balance FROM accounts WHERE account_id = ?";
+    static final String SELECT_VERSIONED_BALANCE_SQL =
+        "SELECT account_type, balance, version FROM accounts WHERE account_id = ?";
+    static final String APPLY_CHANGE_SQL =
+        "UPDATE accounts SET balance = balance + ?, version = version + 1 WHERE account_id = ?";
+    static final String APPLY_CHANGE_IF_UNCHANGED_SQL =
+        "UPDATE accounts SET balance = balance + ?, version = version + 1 WHERE account_id = ? AND version = ?";
+
+    /**
+     * The statements every deposit, withdrawal and transfer prepares, for
+     * the DatabaseConnection warmup to leave in each connection's statement
+     * cache. The cache matches on the exact text, so these are the constants
+     * the write paths themselves use.
+     */
+    public static final List<String> WARMUP_SQL = Collections.unmodifiableList(Arrays.asList(
+        SELECT_BALANCE_SQL,
+        SELECT_VERSIONED_BALANCE_SQL,
+        WithdrawalFloors.DEBIT_SQL,
+        APPLY_CHANGE_SQL,
+        APPLY_CHANGE_IF_UNCHANGED_SQL,
+        INSERT_ACCOUNT_SQL,
+        TransactionLogger.INSERT_SQL
+    ));
+
+    private final UnitOfWork.ConnectionSource connectionSource;
     private final TransactionLogger transactionLogger;
+    private final UnitOfWork unitOfWork;
+    private final BalanceCache balanceCache;
+    private final ReportAggregates reportAggregates;
+    // Null unless reports.parallel.enabled; used when the aggregates are off
+    private final ParallelReports parallelReports;
+    private final IdempotencyKeys idempotencyKeys = createIdempotencyKeys();
+    private final ConcurrencyMode concurrencyMode;
+    // OPTIMISTIC only: retries after a version conflict, and the first backoff (doubled per retry)
+    private final int optimisticMaxRetries;
+    private final long optimisticBackoffNanos;
+    private final AtomicLong versionConflicts = new AtomicLong();
 
     public AccountService() {
-        this.dbConnection = DatabaseConnection.getInstance();
-        this.transactionLogger = new TransactionLogger();
+        this(createBalanceCache());
+    }
+
+    public AccountService(BalanceCache balanceCache) {
+        this(balanceCache, createReportAggregates());
+    }
+
+    public AccountService(BalanceCache balanceCache, ReportAggregates reportAggregates) {
+        this(balanceCache, reportAggregates, BankingMetrics.getInstance());
+    }
+
+    /**
+     * With metrics enabled, each transaction's acquire/execute/commit time is
+     * recorded against the operation timed on the calling thread.
+     */
+    public AccountService(BalanceCache balanceCache, ReportAggregates reportAggregates, BankingMetrics metrics) {
+        this(balanceCache, reportAggregates, metrics, createConcurrencyMode());
+    }
+
+    public AccountService(BalanceCache balanceCache, ReportAggregates reportAggregates,
+                          ConcurrencyMode concurrencyMode) {
+        this(balanceCache, reportAggregates, BankingMetrics.getInstance(), concurrencyMode);
+    }
+
+    private AccountService(BalanceCache balanceCache, ReportAggregates reportAggregates, BankingMetrics metrics,
+                           ConcurrencyMode concurrencyMode) {
+        this.connectionSource = DatabaseConnection.getInstance()::getConnection;
+        this.transactionLogger = TransactionLogger.getInstance();
+        this.unitOfWork = new UnitOfWork(connectionSource, metrics);
+        this.balanceCache = balanceCache;
+        this.reportAggregates = reportAggregates;
+        this.parallelReports = createParallelReports();
+        this.concurrencyMode = concurrencyMode;
+        this.optimisticMaxRetries = createOptimisticMaxRetries();
+        this.optimisticBackoffNanos = createOptimisticBackoffNanos();
+    }
+
+    /**
+     * Against another database with the same schema, e.g. one of
+     * {@link com.banking.db.DatabaseShards}. Its ledger is written with
+     * SYNC inserts and reports always scan its tables.
+     */
+    public AccountService(UnitOfWork.ConnectionSource connectionSource, BalanceCache balanceCache) {
+        this.connectionSource = connectionSource;
+        this.transactionLogger = new TransactionLogger(connectionSource);
+        this.unitOfWork = new UnitOfWork(connectionSource, BankingMetrics.getInstance());
+        this.balanceCache = balanceCache;
+        this.reportAggregates = ReportAggregates.disabled();
+        this.parallelReports = null;
+        this.concurrencyMode = createConcurrencyMode();
+        this.optimisticMaxRetries = createOptimisticMaxRetries();
+        this.optimisticBackoffNanos = createOptimisticBackoffNanos();
     }
 
+    private static BalanceCache createBalanceCache() {
+        DatabaseConnection db = DatabaseConnection.getInstance();
+        if (!Boolean.parseBoolean(db.getProperty("cache.balance.enabled", "true"))) {
+            return BalanceCache.disabled();
+        }
+        return new BalanceCache(Integer.parseInt(db.getProperty("cache.balance.capacity", "10000")));
+    }
+
+    private static ReportAggregates createReportAggregates() {
+        DatabaseConnection db = DatabaseConnection.getInstance();
+        if (!Boolean.parseBoolean(db.getProperty("reports.aggregates.enabled", "true"))) {
+            return ReportAggregates.disabled();
+        }
+        return ReportAggregates.getInstance();
+    }
+
+    private static IdempotencyKeys createIdempotencyKeys() {
+        DatabaseConnection db = DatabaseConnection.getInstance();
+        return new IdempotencyKeys(Integer.parseInt(db.getProperty("idempotency.capacity", "100000")),
+                Long.parseLong(db.getProperty("idempotency.ttlMs", "86400000")));
+    }
+
+    private static ConcurrencyMode createConcurrencyMode() {
+        return ConcurrencyMode.valueOf(DatabaseConnection.getInstance()
+                .getProperty("accounts.concurrency", "PESSIMISTIC").trim().toUpperCase());
+    }
+
+    private static int createOptimisticMaxRetries() {
+        return Integer.parseInt(DatabaseConnection.getInstance().getProperty("accounts.optimistic.maxRetries", "10"));
+    }
+
+    private static long createOptimisticBackoffNanos() {
+        return TimeUnit.MICROSECONDS.toNanos(Long.parseLong(
+                DatabaseConnection.getInstance().getProperty("accounts.optimistic.backoffMicros", "100")));
+    }
+
+    private static ParallelReports createParallelReports() {
+        DatabaseConnection db = DatabaseConnection.getInstance();
+        if (!Boolean.parseBoolean(db.getProperty("reports.parallel.enabled", "false"))) {
+            return null;
+        }
+        return ParallelReports.getInstance();
+    }
+
+    @Override
     public Account createAccount(AccountType type, String accountId, BigDecimal initialBalance) throws BankingException {
         Account account = AccountFactory.createAccount(type, accountId, initialBalance);
-        try (Connection conn = dbConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(
-                     "INSERT INTO accounts (account_id, account_type, balance) VALUES (?, ?, ?)"
-             )) {
-            stmt.setString(1, accountId);
-            stmt.setString(2, type.toString());
-            stmt.setBigDecimal(3, initialBalance);
-            stmt.executeUpdate();
+        ReportAggregates.WriteFence fence = reportAggregates.enterWrite();
+        try {
+            unitOfWork.execute(conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(INSERT_ACCOUNT_SQL)) {
+                    stmt.setString(1, accountId);
+                    stmt.setString(2, type.toString());
+                    stmt.setBigDecimal(3, initialBalance);
+                    stmt.executeUpdate();
+                }
 
-            // Log initial deposit
-            transactionLogger.logTransaction(accountId, initialBalance);
-            return account;
+                // Log initial deposit
+                transactionLogger.logTransaction(conn, accountId, initialBalance);
+                return null;
+            });
+            reportAggregates.accountCreated(accountId, initialBalance);
+            reportAggregates.transactionLogged(accountId, initialBalance, LocalDate.now());
         } catch (SQLException e) {
             throw new BankingException("Failed to create account: " + e.getMessage());
+        } finally {
+            fence.close();
         }
+        return account;
     }
 
+    @Override
     public void deposit(String accountId, BigDecimal amount) throws BankingException {
+        deposit(accountId, amount, (OperationResult) null);
+    }
+
+    /**
+     * Deposit at most once per idempotency key (null = no key): a retry
+     * returns the first call's result without changing the balance.
+     */
+    public OperationResult deposit(String accountId, BigDecimal amount, String idempotencyKey) throws BankingException {
+        return idempotent(request(idempotencyKey, OperationResult.Kind.DEPOSIT, accountId, null, amount),
+                request -> deposit(accountId, amount, request));
+    }
+
+    private void deposit(String accountId, BigDecimal amount, OperationResult request) throws BankingException {
         if (amount.compareTo(BigDecimal.ZERO) <= 0) {
             throw new BankingException("Deposit amount must be positive");
         }
 
-        try (Connection conn = dbConnection.getConnection()) {
-            conn.setAutoCommit(false);
-            try {
-                // Update account balance
-                try (PreparedStatement stmt = conn.prepareStatement(
-                        "UPDATE accounts SET balance = balance + ? WHERE account_id = ?"
-                )) {
-                    stmt.setBigDecimal(1, amount);
-                    stmt.setString(2, accountId);
-                    int updated = stmt.executeUpdate();
-                    if (updated == 0) {
-                        throw new AccountNotFoundException("Account not found: " + accountId);
-                    }
-                }
-
-                // Log transaction
-                transactionLogger.logTransaction(accountId, amount);
-                conn.commit();
-            } catch (Exception e) {
-                conn.rollback();
-                throw e;
-            } finally {
-                conn.setAutoCommit(true);
-            }
+        ReportAggregates.WriteFence fence = reportAggregates.enterWrite();
+        try {
+            unitOfWork.execute(conn -> {
+                claim(conn, request);
+                // Update account balance (takes the row lock)
+                applyBalanceChange(conn, accountId, amount);
+
+                // Log transaction in the same commit
+                transactionLogger.logTransaction(conn, accountId, amount);
+                return null;
+            });
+            recordChange(accountId, amount);
         } catch (SQLException e) {
             throw new BankingException("Failed to process deposit: " + e.getMessage());
+        } finally {
+            balanceCache.invalidate(accountId);
+            fence.close();
         }
     }
 
+    @Override
     public void withdraw(String accountId, BigDecimal amount) throws BankingException {
+        withdraw(accountId, amount, (OperationResult) null);
+    }
+
+    /**
+     * Withdraw at most once per idempotency key; see {@link #deposit(String, BigDecimal, String)}.
+     */
+    public OperationResult withdraw(String accountId, BigDecimal amount, String idempotencyKey) throws BankingException {
+        return idempotent(request(idempotencyKey, OperationResult.Kind.WITHDRAW, accountId, null, amount),
+                request -> withdraw(accountId, amount, request));
+    }
+
+    private void withdraw(String accountId, BigDecimal amount, OperationResult request) throws BankingException {
         if (amount.compareTo(BigDecimal.ZERO) <= 0) {
             throw new BankingException("Withdrawal amount must be positive");
         }
 
-        try (Connection conn = dbConnection.getConnection()) {
-            conn.setAutoCommit(false);
-            try {
-                // Check balance
-                BigDecimal currentBalance = getBalance(accountId);
-                if (currentBalance.compareTo(amount) < 0) {
-                    throw new InsufficientFundsException("Insufficient funds for withdrawal", currentBalance, amount);
-                }
-
-                // Update account balance
-                try (PreparedStatement stmt = conn.prepareStatement(
-                        "UPDATE accounts SET balance = balance - ? WHERE account_id = ?"
-                )) {
-                    stmt.setBigDecimal(1, amount);
-                    stmt.setString(2, accountId);
-                    stmt.executeUpdate();
+        ReportAggregates.WriteFence fence = reportAggregates.enterWrite();
+        try {
+            execute(conn -> {
+                claim(conn, request);
+                if (concurrencyMode == ConcurrencyMode.OPTIMISTIC) {
+                    // Check the balance as read, then debit only if nobody has changed it since
+                    VersionedBalance current = readVersionedBalance(conn, accountId);
+                    if (!WithdrawalFloors.allows(current.accountType, current.balance, amount)) {
+                        throw new InsufficientFundsException(accountId, amount, current.balance);
+                    }
+                    applyBalanceChangeIfUnchanged(conn, accountId, amount.negate(), current.version);
+                } else {
+                    // Funds check and debit in one statement, under the row lock it takes
+                    WithdrawalFloors.debit(conn, accountId, amount);
                 }
-
-                // Log transaction
-                transactionLogger.logTransaction(accountId, amount.negate());
-                conn.commit();
-            } catch (Exception e) {
-                conn.rollback();
-                throw e;
-            } finally {
-                conn.setAutoCommit(true);
-            }
+                transactionLogger.logTransaction(conn, accountId, amount.negate());
+                return null;
+            });
+            recordChange(accountId, amount.negate());
         } catch (SQLException e) {
             throw new BankingException("Failed to process withdrawal: " + e.getMessage());
+        } finally {
+            balanceCache.invalidate(accountId);
+            fence.close();
         }
     }
 
+    @Override
     public void transfer(String fromAccountId, String toAccountId, BigDecimal amount) throws BankingException {
+        transfer(fromAccountId, toAccountId, amount, (OperationResult) null);
+    }
+
+    /**
+     * Transfer at most once per idempotency key; see {@link #deposit(String, BigDecimal, String)}.
+     */
+    public OperationResult transfer(String fromAccountId, String toAccountId, BigDecimal amount,
+                                    String idempotencyKey) throws BankingException {
+        return idempotent(request(idempotencyKey, OperationResult.Kind.TRANSFER, fromAccountId, toAccountId, amount),
+                request -> transfer(fromAccountId, toAccountId, amount, request));
+    }
+
+    private void transfer(String fromAccountId, String toAccountId, BigDecimal amount, OperationResult request)
+            throws BankingException {
         if (amount.compareTo(BigDecimal.ZERO) <= 0) {
             throw new BankingException("Transfer amount must be positive");
         }
 
-        try (Connection conn = dbConnection.getConnection()) {
-            conn.setAutoCommit(false);
-            try {
-                // Check balance
-                BigDecimal fromBalance = getBalance(fromAccountId);
-                if (fromBalance.compareTo(amount) < 0) {
-                    throw new InsufficientFundsException("Insufficient funds for transfer", fromBalance, amount);
+        ReportAggregates.WriteFence fence = reportAggregates.enterWrite();
+        try {
+            execute(conn -> {
+                claim(conn, request);
+                if (concurrencyMode == ConcurrencyMode.OPTIMISTIC) {
+                    VersionedBalance from = readVersionedBalance(conn, fromAccountId);
+                    if (!WithdrawalFloors.allows(from.accountType, from.balance, amount)) {
+                        throw new InsufficientFundsException(fromAccountId, amount, from.balance);
+                    }
+                    // Only the debit depends on what was read. The UPDATEs still take
+                    // both row locks, so they go in a fixed order as well
+                    if (fromAccountId.compareTo(toAccountId) <= 0) {
+                        applyBalanceChangeIfUnchanged(conn, fromAccountId, amount.negate(), from.version);
+                        applyBalanceChange(conn, toAccountId, amount);
+                    } else {
+                        applyBalanceChange(conn, toAccountId, amount);
+                        applyBalanceChangeIfUnchanged(conn, fromAccountId, amount.negate(), from.version);
+                    }
+                    transactionLogger.logTransaction(conn, fromAccountId, amount.negate());
+                    transactionLogger.logTransaction(conn, toAccountId, amount);
+                    return null;
                 }
 
-                // Update both accounts
-                try (PreparedStatement withdrawStmt = conn.prepareStatement(
-                        "UPDATE accounts SET balance = balance - ? WHERE account_id = ?"
-                )) {
-                    withdrawStmt.setBigDecimal(1, amount);
-                    withdrawStmt.setString(2, fromAccountId);
-                    withdrawStmt.executeUpdate();
+                // Guarded debit and plain credit, in a fixed order so opposite transfers cannot deadlock
+                if (fromAccountId.compareTo(toAccountId) <= 0) {
+                    try {
+                        WithdrawalFloors.debit(conn, fromAccountId, amount);
+                    } catch (InsufficientFundsException e) {
+                        // A missing destination is reported first, as when both rows were locked up front
+                        WithdrawalFloors.readBalance(conn, toAccountId);
+                        throw e;
+                    }
+                    applyBalanceChange(conn, toAccountId, amount);
+                } else {
+                    applyBalanceChange(conn, toAccountId, amount);
+                    WithdrawalFloors.debit(conn, fromAccountId, amount);
                 }
 
-                try (PreparedStatement depositStmt = conn.prepareStatement(
-                        "UPDATE accounts SET balance = balance + ? WHERE account_id = ?"
-                )) {
-                    depositStmt.setBigDecimal(1, amount);
-                    depositStmt.setString(2, toAccountId);
-                    depositStmt.executeUpdate();
+                // Log transactions
+                transactionLogger.logTransaction(conn, fromAccountId, amount.negate());
+                transactionLogger.logTransaction(conn, toAccountId, amount);
+                return null;
+            });
+            recordChange(fromAccountId, amount.negate());
+            recordChange(toAccountId, amount);
+        } catch (SQLException e) {
+            throw new BankingException("Failed to process transfer: " + e.getMessage());
+        } finally {
+            balanceCache.invalidate(fromAccountId);
+            balanceCache.invalidate(toAccountId);
+            fence.close();
+        }
+    }
+
+    public List<TransferResult> transferBatch(List<TransferInstruction> instructions) throws BankingException {
+        return transferBatch(instructions, BatchMode.BEST_EFFORT);
+    }
+
+    /**
+     * Apply many transfers in one database transaction.
+     * All rows are locked up front in account_id order (so concurrent batches
+     * cannot deadlock), balance changes are summed per account and written
+     * with batched UPDATEs, and the ledger rows go out in a single batch.
+     */
+    @Override
+    public List<TransferResult> transferBatch(List<TransferInstruction> instructions, BatchMode mode) throws BankingException {
+        TransferResult[] results = new TransferResult[instructions.size()];
+
+        // Reject malformed instructions before touching the database
+        SortedSet<String> accountIds = new TreeSet<>();
+        for (int i = 0; i < instructions.size(); i++) {
+            TransferInstruction instruction = instructions.get(i);
+            String error = validateInstruction(instruction);
+            if (error != null) {
+                results[i] = new TransferResult(instruction, TransferResult.Status.REJECTED, error);
+            } else {
+                accountIds.add(instruction.getFromAccountId());
+                accountIds.add(instruction.getToAccountId());
+            }
+        }
+
+        ReportAggregates.WriteFence fence = reportAggregates.enterWrite();
+        try {
+            unitOfWork.execute(conn -> {
+                Map<String, String> accountTypes = new HashMap<>();
+                Map<String, BigDecimal> balances = lockBalances(conn, accountIds, accountTypes);
+                Map<String, BigDecimal> deltas = new TreeMap<>();
+                boolean anyRejected = false;
+
+                // Replay the instructions in order against the locked balances
+                for (int i = 0; i < instructions.size(); i++) {
+                    if (results[i] != null) {
+                        anyRejected = true;
+                        continue;
+                    }
+                    TransferInstruction instruction = instructions.get(i);
+                    String from = instruction.getFromAccountId();
+                    String to = instruction.getToAccountId();
+                    BigDecimal amount = instruction.getAmount();
+
+                    String error = null;
+                    if (!balances.containsKey(from)) {
+                        error = "Account not found: " + from;
+                    } else if (!balances.containsKey(to)) {
+                        error = "Account not found: " + to;
+                    } else if (!WithdrawalFloors.allows(accountTypes.get(from), balances.get(from), amount)) {
+                        error = String.format("Insufficient funds in account %s: requested %.2f, available %.2f",
+                                from, amount, balances.get(from));
+                    }
+                    if (error != null) {
+                        results[i] = new TransferResult(instruction, TransferResult.Status.REJECTED, error);
+                        anyRejected = true;
+                        continue;
+                    }
+
+                    balances.merge(from, amount.negate(), BigDecimal::add);
+                    balances.merge(to, amount, BigDecimal::add);
+                    deltas.merge(from, amount.negate(), BigDecimal::add);
+                    deltas.merge(to, amount, BigDecimal::add);
+                    results[i] = new TransferResult(instruction, TransferResult.Status.APPLIED, null);
                 }
 
-                // Log transactions
-                transactionLogger.logTransaction(fromAccountId, amount.negate());
-                transactionLogger.logTransaction(toAccountId, amount);
-                conn.commit();
-            } catch (Exception e) {
-                conn.rollback();
-                throw e;
-            } finally {
-                conn.setAutoCommit(true);
+                if (mode == BatchMode.ALL_OR_NOTHING && anyRejected) {
+                    // Nothing has been written yet, so there is nothing to undo
+                    for (int i = 0; i < results.length; i++) {
+                        if (results[i].isApplied()) {
+                            results[i] = new TransferResult(instructions.get(i), TransferResult.Status.ROLLED_BACK,
+                                    "Batch rolled back because another instruction failed");
+                        }
+                    }
+                    return null;
+                }
+
+                // One UPDATE per account with the net change, sent as one batch
+                try (PreparedStatement stmt = conn.prepareStatement(APPLY_CHANGE_SQL)) {
+                    for (Map.Entry<String, BigDecimal> delta : deltas.entrySet()) {
+                        if (delta.getValue().signum() != 0) {
+                            stmt.setBigDecimal(1, delta.getValue());
+                            stmt.setString(2, delta.getKey());
+                            stmt.addBatch();
+                        }
+                    }
+                    stmt.executeBatch();
+                }
+
+                // Ledger rows for every applied transfer, also as one batch
+                try (TransactionLogger.LedgerBatch ledger = transactionLogger.newBatch(conn)) {
+                    for (TransferResult result : results) {
+                        if (result.isApplied()) {
+                            TransferInstruction instruction = result.getInstruction();
+                            ledger.add(instruction.getFromAccountId(), instruction.getAmount().negate());
+                            ledger.add(instruction.getToAccountId(), instruction.getAmount());
+                        }
+                    }
+                    ledger.execute();
+                }
+                return null;
+            });
+            for (TransferResult result : results) {
+                if (result.isApplied()) {
+                    TransferInstruction instruction = result.getInstruction();
+                    recordChange(instruction.getFromAccountId(), instruction.getAmount().negate());
+                    recordChange(instruction.getToAccountId(), instruction.getAmount());
+                }
             }
         } catch (SQLException e) {
-            throw new BankingException("Failed to process transfer: " + e.getMessage());
+            throw new BankingException("Failed to process transfer batch: " + e.getMessage());
+        } finally {
+            balanceCache.invalidateAll(accountIds);
+            fence.close();
         }
+        return Arrays.asList(results);
     }
 
+    private static OperationResult request(String idempotencyKey, OperationResult.Kind kind, String accountId,
+                                           String toAccountId, BigDecimal amount) {
+        if (idempotencyKey == null) {
+            return null;
+        }
+        return new OperationResult(idempotencyKey, kind, accountId, toAccountId, amount,
+                System.currentTimeMillis(), false);
+    }
+
+    /**
+     * Run the operation unless its key is already known. The in-memory
+     * lookup happens before any connection or row lock is taken; a key it
+     * misses is claimed in the table by the operation's own transaction.
+     */
+    private OperationResult idempotent(OperationResult request, Consumer<OperationResult> operation) {
+        if (request == null) {
+            operation.accept(null);
+            return null;
+        }
+        OperationResult done = idempotencyKeys.get(request.getIdempotencyKey());
+        if (done == null) {
+            try {
+                operation.accept(request);
+                // Completed now, so the TTL runs from the commit
+                done = new OperationResult(request.getIdempotencyKey(), request.getKind(), request.getAccountId(),
+                        request.getToAccountId(), request.getAmount(), System.currentTimeMillis(), false);
+                idempotencyKeys.remember(done);
+                return done;
+            } catch (IdempotencyKeys.KeyTaken e) {
+                // Committed by an earlier call or one that raced this one
+                done = idempotencyKeys.load(unitOfWork, request.getIdempotencyKey());
+                if (done == null) {
+                    // Expired and deleted just now
+                    return idempotent(request, operation);
+                }
+                idempotencyKeys.remember(done);
+            }
+        }
+        if (!done.sameRequest(request)) {
+            throw new BankingException("Idempotency key " + request.getIdempotencyKey() +
+                    " was already used for a different request: " + done);
+        }
+        return done.asReplay();
+    }
+
+    private void claim(Connection conn, OperationResult request) throws SQLException {
+        if (request != null) {
+            idempotencyKeys.claim(conn, request);
+        }
+    }
+
+    public IdempotencyKeys getIdempotencyKeys() {
+        return idempotencyKeys;
+    }
+
+    public ConcurrencyMode getConcurrencyMode() {
+        return concurrencyMode;
+    }
+
+    /**
+     * OPTIMISTIC only: attempts rolled back because an account changed after it was read.
+     */
+    public long getVersionConflictCount() {
+        return versionConflicts.get();
+    }
+
+    /**
+     * Apply a committed balance change and its ledger row to the report aggregates.
+     */
+    private void recordChange(String accountId, BigDecimal delta) {
+        reportAggregates.balanceChanged(accountId, delta);
+        reportAggregates.transactionLogged(accountId, delta, LocalDate.now());
+    }
+
+    static String validateInstruction(TransferInstruction instruction) {
+        if (instruction.getFromAccountId() == null || instruction.getToAccountId() == null) {
+            return "Source and destination accounts are required";
+        }
+        if (instruction.getAmount() == null || instruction.getAmount().compareTo(BigDecimal.ZERO) <= 0) {
+            return "Transfer amount must be positive";
+        }
+        if (instruction.getFromAccountId().equals(instruction.getToAccountId())) {
+            return "Cannot transfer to the same account";
+        }
+        return null;
+    }
+
+    /**
+     * Lock many rows with SELECT ... FOR UPDATE, in account_id order.
+     * Accounts that do not exist are simply missing from the result.
+     * Their account_type goes into accountTypes.
+     */
+    private Map<String, BigDecimal> lockBalances(Connection conn, SortedSet<String> accountIds,
+                                                 Map<String, String> accountTypes) throws SQLException {
+        Map<String, BigDecimal> balances = new HashMap<>();
+        List<String> ids = new ArrayList<>(accountIds);
+        for (int start = 0; start < ids.size(); start += LOCK_CHUNK_SIZE) {
+            List<String> chunk = ids.subList(start, Math.min(start + LOCK_CHUNK_SIZE, ids.size()));
+            String placeholders = String.join(",", Collections.nCopies(chunk.size(), "?"));
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT account_id, account_type, balance FROM accounts WHERE account_id IN (" + placeholders + ") " +
+                    "ORDER BY account_id FOR UPDATE"
+            )) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    stmt.setString(i + 1, chunk.get(i));
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        BigDecimal balance = rs.getBigDecimal("balance");
+                        balances.put(rs.getString("account_id"), balance != null ? balance : BigDecimal.ZERO);
+                        accountTypes.put(rs.getString("account_id"), rs.getString("account_type"));
+                    }
+                }
+            }
+        }
+        return balances;
+    }
+
+    /**
+     * Read a balance, its version and the account type without locking the row.
+     */
+    private VersionedBalance readVersionedBalance(Connection conn, String accountId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(SELECT_VERSIONED_BALANCE_SQL)) {
+            stmt.setString(1, accountId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    BigDecimal balance = rs.getBigDecimal("balance");
+                    return new VersionedBalance(rs.getString("account_type"),
+                            balance != null ? balance : BigDecimal.ZERO, rs.getLong("version"));
+                }
+                throw new AccountNotFoundException(accountId);
+            }
+        }
+    }
+
+    /**
+     * Apply the change only if the row still has the version that was read;
+     * otherwise throw {@link VersionConflict} so the transaction is retried.
+     */
+    private void applyBalanceChangeIfUnchanged(Connection conn, String accountId, BigDecimal delta, long version)
+            throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(APPLY_CHANGE_IF_UNCHANGED_SQL)) {
+            stmt.setBigDecimal(1, delta);
+            stmt.setString(2, accountId);
+            stmt.setLong(3, version);
+            if (stmt.executeUpdate() == 0) {
+                throw new VersionConflict(accountId);
+            }
+        }
+    }
+
+    /**
+     * Run the work in one transaction. A version conflict rolls it back and
+     * runs it again after a random pause of up to the backoff, which doubles
+     * on each retry, until optimisticMaxRetries is used up.
+     */
+    private <T> T execute(UnitOfWork.Work<T> work) throws SQLException {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return unitOfWork.execute(work);
+            } catch (VersionConflict e) {
+                versionConflicts.incrementAndGet();
+                if (attempt >= optimisticMaxRetries) {
+                    throw new BankingException("Account " + e.accountId + " changed under " + (attempt + 1) +
+                            " attempts in a row, giving up");
+                }
+                long maxPause = optimisticBackoffNanos << Math.min(attempt, 10);
+                if (maxPause > 0) {
+                    LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(maxPause) + 1);
+                }
+            }
+        }
+    }
+
+    private void applyBalanceChange(Connection conn, String accountId, BigDecimal delta) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(APPLY_CHANGE_SQL)) {
+            stmt.setBigDecimal(1, delta);
+            stmt.setString(2, accountId);
+            if (stmt.executeUpdate() == 0) {
+                throw new AccountNotFoundException(accountId);
+            }
+        }
+    }
+
+    /**
+     * Current balance, served from the balance cache when possible.
+     */
+    @Override
     public BigDecimal getBalance(String accountId) throws BankingException {
-        try (Connection conn = dbConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(
-                     "SELECT balance FROM accounts WHERE account_id = ?"
-             )) {
+        BigDecimal cached = balanceCache.get(accountId);
+        if (cached != null) {
+            return cached;
+        }
+        long stamp = balanceCache.stamp(accountId);
+        BigDecimal balance = loadBalance(accountId);
+        balanceCache.putIfUnchanged(accountId, balance, stamp);
+        return balance;
+    }
+
+    public BalanceCache getBalanceCache() {
+        return balanceCache;
+    }
+
+    public ReportAggregates getReportAggregates() {
+        return reportAggregates;
+    }
+
+    private BigDecimal loadBalance(String accountId) throws BankingException {
+        try (Connection conn = connectionSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(SELECT_BALANCE_SQL)) {
             stmt.setString(1, accountId);
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
                     BigDecimal balance = rs.getBigDecimal("balance");
                     return balance != null ? balance : BigDecimal.ZERO;  // Ensure balance is never null
                 }
-                throw new AccountNotFoundException("Account not found: " + accountId);
+                throw new AccountNotFoundException(accountId);
             }
         } catch (SQLException e) {
             throw new BankingException("Failed to get balance: " + e.getMessage());
@@ -182,26 +709,36 @@ public class AccountService {
     }
 
 
-    public List<String> getTransactionHistory(String accountId) {
+    @Override
+    public List<TransactionRecord> getTransactionHistory(String accountId) {
         return transactionLogger.readTransactionHistory(accountId);
     }
 
-    public List<String> getAllTransactions() {
+    @Override
+    public List<TransactionRecord> getAllTransactions() {
         return transactionLogger.readTransactionHistory();
     }
 
+    @Override
+    public Stream<TransactionRecord> streamTransactions(TransactionQuery query) {
+        return transactionLogger.streamTransactions(query);
+    }
+
+    @Override
     public void deleteAccount(String accountId) throws BankingException {
-        try (Connection conn = dbConnection.getConnection()) {
+        Map<LocalDate, BigDecimal[]> removedDailyTotals = Collections.emptyMap();
+        ReportAggregates.WriteFence fence = reportAggregates.enterWrite();
+        try (Connection conn = connectionSource.getConnection()) {
             conn.setAutoCommit(false);
             try {
-                // First delete related transactions (due to foreign key)
-                try (PreparedStatement stmt = conn.prepareStatement(
-                        "DELETE FROM transactions WHERE account_id = ?"
-                )) {
-                    stmt.setString(1, accountId);
-                    stmt.executeUpdate();
+                // Remember what the deleted ledger rows added to the daily totals
+                if (reportAggregates.isEnabled()) {
+                    removedDailyTotals = ReportAggregates.loadDailyTotals(conn, accountId);
                 }
 
+                // First delete related transactions (due to foreign key), archived months included
+                LedgerPartitions.load(conn).deleteAccount(conn, accountId);
+
                 // Then delete the account
                 try (PreparedStatement stmt = conn.prepareStatement(
                         "DELETE FROM accounts WHERE account_id = ?"
@@ -220,15 +757,28 @@ public class AccountService {
             } finally {
                 conn.setAutoCommit(true);
             }
+            reportAggregates.accountDeleted(accountId, removedDailyTotals);
         } catch (SQLException e) {
             throw new BankingException("Database error while deleting account: " + e.getMessage());
+        } finally {
+            balanceCache.invalidate(accountId);
+            fence.close();
         }
     } // <-- This curly brace properly closes deleteAccount()
 
     // ✅ Make sure these methods are OUTSIDE deleteAccount()
+    @Override
     public Map<String, Object> getAccountSummary() {
         Map<String, Object> summary = new HashMap<>();
-        try (Connection conn = dbConnection.getConnection()) {
+        if (reportAggregates.isEnabled()) {
+            summary.put("totalAccounts", reportAggregates.getAccountCount());
+            summary.put("totalBalance", reportAggregates.getTotalBalance());
+            return summary;
+        }
+        if (parallelReports != null) {
+            return parallelReports.getAccountSummary();
+        }
+        try (Connection conn = connectionSource.getConnection()) {
             // Count total accounts
             String sql = "SELECT COUNT(*) as total FROM accounts";
             try (PreparedStatement stmt = conn.prepareStatement(sql);
@@ -255,15 +805,27 @@ public class AccountService {
 
 
     // Add this method for Daily Transactions Report
+        @Override
         public Map<String, Object> getDailyTransactions() {
             Map<String, Object> report = new HashMap<>();
+            if (reportAggregates.isEnabled()) {
+                LocalDate today = LocalDate.now();
+                report.put("totalDeposits", reportAggregates.getDeposits(today));
+                report.put("totalWithdrawals", reportAggregates.getWithdrawals(today));
+                return report;
+            }
+            if (parallelReports != null) {
+                return parallelReports.getDailyTransactions();
+            }
 
-            try (Connection conn = dbConnection.getConnection()) {
+            try (Connection conn = connectionSource.getConnection()) {
+                // Range on transaction_date so idx_transaction_date can be used
                 // Get today's deposits
                 String sql =
                         "SELECT SUM(amount) as total " +
                                 "FROM transactions " +
-                                "WHERE DATE(transaction_date) = CURRENT_DATE " +
+                                "WHERE transaction_date >= CURRENT_DATE " +
+                                "AND transaction_date < DATEADD('DAY', 1, CURRENT_DATE) " +
                                 "AND amount > 0";
                 try (PreparedStatement stmt = conn.prepareStatement(sql)) {
                     ResultSet rs = stmt.executeQuery();
@@ -277,7 +839,8 @@ public class AccountService {
                 sql =
                         "SELECT SUM(amount) as total " +
                                 "FROM transactions " +
-                                "WHERE DATE(transaction_date) = CURRENT_DATE " +
+                                "WHERE transaction_date >= CURRENT_DATE " +
+                                "AND transaction_date < DATEADD('DAY', 1, CURRENT_DATE) " +
                                 "AND amount < 0";
                 try (PreparedStatement stmt = conn.prepareStatement(sql)) {
                     ResultSet rs = stmt.executeQuery();
@@ -294,16 +857,31 @@ public class AccountService {
         }
 
         // Add this method for Account Activity Report
+        @Override
         public Map<String, Object> getAccountActivity() {
             Map<String, Object> report = new HashMap<>();
+            if (reportAggregates.isEnabled()) {
+                Map.Entry<String, Long> mostActive = reportAggregates.getMostActiveAccount();
+                if (mostActive != null) {
+                    report.put("mostActiveAccount", mostActive.getKey());
+                    report.put("transactionCount", mostActive.getValue().intValue());
+                }
+                List<Map.Entry<String, BigDecimal>> highest = reportAggregates.getTopBalances(1);
+                if (!highest.isEmpty()) {
+                    report.put("highestBalanceAccount", highest.get(0).getKey());
+                    report.put("highestBalance", highest.get(0).getValue());
+                }
+                return report;
+            }
+            if (parallelReports != null) {
+                return parallelReports.getAccountActivity();
+            }
 
-            try (Connection conn = dbConnection.getConnection()) {
-                // Find most active account
+            try (Connection conn = connectionSource.getConnection()) {
+                // Find most active account, archived months and rollups included
                 String sql =
-                        "SELECT account_id, COUNT(*) as tx_count " +
-                                "FROM transactions " +
-                                "GROUP BY account_id " +
-                                "ORDER BY tx_count DESC " +
+                        LedgerPartitions.load(conn).accountCountsSql(null) +
+                                " ORDER BY tx_count DESC " +
                                 "LIMIT 1";
                 try (PreparedStatement stmt = conn.prepareStatement(sql)) {
                     ResultSet rs = stmt.executeQuery();
@@ -332,5 +910,31 @@ public class AccountService {
 
             return report;
         }
+    
+
+    private static final class VersionedBalance {
+        final String accountType;
+        final BigDecimal balance;
+        final long version;
+
+        VersionedBalance(String accountType, BigDecimal balance, long version) {
+            this.accountType = accountType;
+            this.balance = balance;
+            this.version = version;
+        }
     }
 
+    /**
+     * An optimistic UPDATE found a newer version; thrown inside the transaction so it rolls back.
+     */
+    private static final class VersionConflict extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final String accountId;
+
+        VersionConflict(String accountId) {
+            super("Account changed since it was read: " + accountId, null, false, false);
+            this.accountId = accountId;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.banking.service;
+
+import com.banking.db.UnitOfWork;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Checks {@link ReportAggregates} against the accounts and transactions tables.
+ *
+ * A write that commits between the table scan and the comparison shows up as
+ * a difference, so every check is run twice and only differences seen both
+ * times are reported. With repair on, reported differences are fixed by
+ * reloading the aggregates from the tables with writers fenced off, see
+ * {@link ReportAggregates#reloadFrom}; the copies compared here are not
+ * installed, since writes may have landed between their load and now.
+ */
+public class AggregateReconciler implements AutoCloseable {
+    private final ReportAggregates aggregates;
+    private final UnitOfWork.ConnectionSource connectionSource;
+    private final boolean repair;
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong discrepancies = new AtomicLong();
+    private volatile Thread thread;
+
+    public AggregateReconciler(ReportAggregates aggregates, UnitOfWork.ConnectionSource connectionSource, boolean repair) {
+        this.aggregates = aggregates;
+        this.connectionSource = connectionSource;
+        this.repair = repair;
+    }
+
+    /**
+     * Run one check and return the differences found, keyed by figure.
+     */
+    public Map<String, String> reconcile() throws SQLException {
+        runs.incrementAndGet();
+        Map<String, String> first = aggregates.diff(loadFromTables());
+        if (first.isEmpty()) {
+            return first;
+        }
+
+        ReportAggregates fresh = loadFromTables();
+        Map<String, String> confirmed = new LinkedHashMap<>();
+        for (Map.Entry<String, String> difference : aggregates.diff(fresh).entrySet()) {
+            if (first.containsKey(difference.getKey())) {
+                confirmed.put(difference.getKey(), difference.getValue());
+            }
+        }
+        if (!confirmed.isEmpty()) {
+            discrepancies.addAndGet(confirmed.size());
+            if (repair) {
+                aggregates.reloadFrom(connectionSource);
+            }
+        }
+        return confirmed;
+    }
+
+    /**
+     * Reconcile every intervalMs on a daemon thread until closed.
+     */
+    public void start(long intervalMs) {
+        Thread worker = new Thread(() -> {
+            while (thread != null) {
+                try {
+                    Thread.sleep(intervalMs);
+                    for (String difference : reconcile().values()) {
+                        System.err.println("Report aggregate mismatch " + difference);
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                } catch (SQLException | RuntimeException e) {
+                    System.err.println("Report aggregate reconciliation failed: " + e.getMessage());
+                }
+            }
+        }, "report-aggregate-reconciler");
+        worker.setDaemon(true);
+        thread = worker;
+        worker.start();
+    }
+
+    public long getRuns() {
+        return runs.get();
+    }
+
+    public long getDiscrepancies() {
+        return discrepancies.get();
+    }
+
+    @Override
+    public void close() {
+        Thread worker = thread;
+        thread = null;
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    private ReportAggregates loadFromTables() throws SQLException {
+        try (Connection conn = connectionSource.getConnection()) {
+            return ReportAggregates.load(conn);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.banking.service;
+
+import com.banking.db.DatabaseConnection;
+import com.banking.model.Account;
+import com.banking.model.AccountType;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Non-blocking facade over {@link AccountOperations}.
+ *
+ * Every call runs on the executor and returns a CompletableFuture. At most
+ * maxConcurrency calls touch the database at once (by default the connection
+ * pool size, so callers wait here rather than in the pool), and a call that
+ * has not finished within its timeout completes with a TimeoutException.
+ * A call still waiting for a permit when it times out is never started.
+ *
+ * The default executor uses virtual threads when the runtime has them
+ * (Java 21+) and a fixed pool of maxConcurrency daemon threads otherwise.
+ */
+public class AsyncAccountService implements AutoCloseable {
+    private final AccountOperations accounts;
+    private final Executor executor;
+    private final boolean ownsExecutor;
+    private final Semaphore permits;
+    private final int maxConcurrency;
+    private final long timeoutMs;
+
+    public AsyncAccountService(AccountOperations accounts) {
+        this(accounts,
+             Integer.parseInt(DatabaseConnection.getInstance().getProperty("async.maxConcurrency",
+                     DatabaseConnection.getInstance().getProperty("db.pool.maxSize", "10"))),
+             Long.parseLong(DatabaseConnection.getInstance().getProperty("async.timeoutMs", "5000")));
+    }
+
+    public AsyncAccountService(AccountOperations accounts, int maxConcurrency, long timeoutMs) {
+        this(accounts, defaultExecutor(maxConcurrency), true, new Semaphore(maxConcurrency), maxConcurrency, timeoutMs);
+    }
+
+    /**
+     * Run on the caller's executor; it is not shut down by {@link #close()}.
+     */
+    public AsyncAccountService(AccountOperations accounts, Executor executor, int maxConcurrency, long timeoutMs) {
+        this(accounts, executor, false, new Semaphore(maxConcurrency), maxConcurrency, timeoutMs);
+    }
+
+    private AsyncAccountService(AccountOperations accounts, Executor executor, boolean ownsExecutor,
+                                Semaphore permits, int maxConcurrency, long timeoutMs) {
+        this.accounts = accounts;
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+        this.permits = permits;
+        this.maxConcurrency = maxConcurrency;
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * Virtual-thread-per-task executor if the runtime supports it, otherwise
+     * a fixed pool of daemon threads. Looked up reflectively so the build can
+     * keep targeting Java 11.
+     */
+    public static ExecutorService defaultExecutor(int platformThreads) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(platformThreads, runnable -> {
+                Thread thread = new Thread(runnable, "async-account-service");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Same executor and concurrency limit, different per-call timeout.
+     */
+    public AsyncAccountService withTimeout(long timeoutMs) {
+        return new AsyncAccountService(accounts, executor, false, permits, maxConcurrency, timeoutMs);
+    }
+
+    public CompletableFuture<Account> createAccount(AccountType type, String accountId, BigDecimal initialBalance) {
+        return submit(() -> accounts.createAccount(type, accountId, initialBalance));
+    }
+
+    public CompletableFuture<Void> deposit(String accountId, BigDecimal amount) {
+        return submit(() -> {
+            accounts.deposit(accountId, amount);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> withdraw(String accountId, BigDecimal amount) {
+        return submit(() -> {
+            accounts.withdraw(accountId, amount);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> transfer(String fromAccountId, String toAccountId, BigDecimal amount) {
+        return submit(() -> {
+            accounts.transfer(fromAccountId, toAccountId, amount);
+            return null;
+        });
+    }
+
+    public CompletableFuture<BigDecimal> getBalance(String accountId) {
+        return submit(() -> accounts.getBalance(accountId));
+    }
+
+    public CompletableFuture<Map<String, Object>> getAccountSummary() {
+        return submit(accounts::getAccountSummary);
+    }
+
+    public CompletableFuture<Map<String, Object>> getDailyTransactions() {
+        return submit(accounts::getDailyTransactions);
+    }
+
+    public CompletableFuture<Map<String, Object>> getAccountActivity() {
+        return submit(accounts::getAccountActivity);
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public long getTimeoutMs() {
+        return timeoutMs;
+    }
+
+    /**
+     * Calls currently holding a permit.
+     */
+    public int getInFlight() {
+        return maxConcurrency - permits.availablePermits();
+    }
+
+    @Override
+    public void close() {
+        if (ownsExecutor) {
+            ((ExecutorService) executor).shutdown();
+        }
+    }
+
+    <T> CompletableFuture<T> submit(Callable<T> call) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> run(call, future));
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future.orTimeout(timeoutMs, TimeUnit.MILLISECONDS);
+    }
+
+    private <T> void run(Callable<T> call, CompletableFuture<T> future) {
+        try {
+            if (!permits.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS)) {
+                future.completeExceptionally(new TimeoutException("No permit within " + timeoutMs + " ms"));
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.completeExceptionally(e);
+            return;
+        }
+        try {
+            // Timed out while queued: do not start work nobody is waiting for
+            if (!future.isDone()) {
+                future.complete(call.call());
+            }
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+        } finally {
+            permits.release();
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.banking.service;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded LRU cache of account balances keyed by account_id.
+ *
+ * Writers invalidate an account after their transaction commits. Readers that
+ * miss load from the database and only store the value if no invalidation
+ * happened in the meantime (see {@link #stamp} and {@link #putIfUnchanged}),
+ * so a slow read can never put back a balance that a writer already replaced.
+ *
+ * The map is split into segments, each with its own lock, so concurrent
+ * readers of different accounts do not contend.
+ */
+public class BalanceCache {
+    private static final int SEGMENTS = 16;
+
+    private final boolean enabled;
+    private final Segment[] segments;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public BalanceCache(int capacity) {
+        this.enabled = capacity > 0;
+        this.segments = new Segment[SEGMENTS];
+        int perSegment = Math.max(1, (capacity + SEGMENTS - 1) / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+    }
+
+    /**
+     * A cache that never stores anything.
+     */
+    public static BalanceCache disabled() {
+        return new BalanceCache(0);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Cached balance, or null on a miss.
+     */
+    public BigDecimal get(String accountId) {
+        if (!enabled) {
+            return null;
+        }
+        Segment segment = segmentFor(accountId);
+        BigDecimal balance;
+        synchronized (segment) {
+            balance = segment.entries.get(accountId);
+        }
+        if (balance != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return balance;
+    }
+
+    /**
+     * Take a stamp before loading a balance from the database.
+     */
+    public long stamp(String accountId) {
+        Segment segment = segmentFor(accountId);
+        synchronized (segment) {
+            return segment.invalidations;
+        }
+    }
+
+    /**
+     * Store a loaded balance unless the account was invalidated after the stamp was taken.
+     */
+    public void putIfUnchanged(String accountId, BigDecimal balance, long stamp) {
+        if (!enabled) {
+            return;
+        }
+        Segment segment = segmentFor(accountId);
+        synchronized (segment) {
+            if (segment.invalidations == stamp) {
+                segment.entries.put(accountId, balance);
+            }
+        }
+    }
+
+    /**
+     * Drop an account's balance. Call after the transaction that changed it commits.
+     */
+    public void invalidate(String accountId) {
+        if (!enabled) {
+            return;
+        }
+        Segment segment = segmentFor(accountId);
+        synchronized (segment) {
+            segment.invalidations++;
+            segment.entries.remove(accountId);
+        }
+    }
+
+    public void invalidateAll(Iterable<String> accountIds) {
+        for (String accountId : accountIds) {
+            invalidate(accountId);
+        }
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.invalidations++;
+                segment.entries.clear();
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.entries.size();
+            }
+        }
+        return size;
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    public double getHitRate() {
+        long total = hits.get() + misses.get();
+        return total == 0 ? 0.0 : hits.get() / (double) total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BalanceCache[enabled=%s, size=%d, hits=%d, misses=%d, evictions=%d, hitRate=%.2f%%]",
+                enabled, size(), getHitCount(), getMissCount(), getEvictionCount(), getHitRate() * 100);
+    }
+
+    private Segment segmentFor(String accountId) {
+        int h = accountId.hashCode();
+        return segments[(h ^ (h >>> 16)) & (SEGMENTS - 1)];
+    }
+
+    private final class Segment {
+        private final Map<String, BigDecimal> entries;
+        private long invalidations;
+
+        private Segment(int capacity) {
+            // Access-ordered LinkedHashMap gives LRU eviction
+            this.entries = new LinkedHashMap<String, BigDecimal>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, BigDecimal> eldest) {
+                    if (size() > capacity) {
+                        evictions.incrementAndGet();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+    }
+}
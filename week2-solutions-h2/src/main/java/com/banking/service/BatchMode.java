@@ -0,0 +1,11 @@
+package com.banking.service;
+
+/**
+ * How {@link AccountService#transferBatch} treats failed instructions.
+ */
+public enum BatchMode {
+    // Apply every valid instruction and report the rest as rejected
+    BEST_EFFORT,
+    // Apply nothing if any instruction fails
+    ALL_OR_NOTHING
+}
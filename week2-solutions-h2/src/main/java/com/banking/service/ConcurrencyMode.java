@@ -0,0 +1,12 @@
+package com.banking.service;
+
+/**
+ * How {@link AccountService} keeps a withdrawal or transfer from spending
+ * money another transaction has already taken.
+ */
+public enum ConcurrencyMode {
+    // Funds check inside the debit's own UPDATE; writers of one account queue on its row lock
+    PESSIMISTIC,
+    // Plain read of balance and version; the UPDATE only applies if the version is unchanged, else retry
+    OPTIMISTIC
+}
@@ -0,0 +1,216 @@
+package com.banking.service;
+
+import com.banking.db.UnitOfWork;
+import com.banking.exception.BankingException;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Dedup index for idempotency keys: a bounded in-memory map of recent
+ * results in front of the idempotency_keys table.
+ *
+ * A new key is inserted into the table inside the operation's own
+ * transaction, so the key and the money movement commit or roll back
+ * together, and the primary key makes a concurrent or later retry fail
+ * instead of applying twice. Only a key that finds no row takes any lock.
+ *
+ * The in-memory side is a ConcurrentHashMap read without locking, plus a
+ * queue in completion order. Entries expire ttlMs after they completed, so
+ * the queue is also in expiry order and eviction, by age or by capacity,
+ * always takes its head.
+ */
+public class IdempotencyKeys {
+    private static final String INSERT_SQL =
+        "INSERT INTO idempotency_keys (idempotency_key, operation, account_id, to_account_id, amount) " +
+        "VALUES (?, ?, ?, ?, ?)";
+    // H2's SQLState for a duplicate primary key
+    private static final String DUPLICATE_KEY = "23505";
+
+    private final int capacity;
+    private final long ttlMs;
+    private final Map<String, OperationResult> results = new ConcurrentHashMap<>();
+    private final Queue<OperationResult> order = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong tableHits = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param capacity results kept in memory; older ones are only in the table
+     * @param ttlMs    how long a key protects against retries, in memory and in the table
+     */
+    public IdempotencyKeys(int capacity, long ttlMs) {
+        this.capacity = capacity;
+        this.ttlMs = ttlMs;
+    }
+
+    /**
+     * The result recorded in memory for the key, or null.
+     */
+    public OperationResult get(String key) {
+        OperationResult result = results.get(key);
+        if (result == null) {
+            return null;
+        }
+        if (isExpired(result, System.currentTimeMillis())) {
+            results.remove(key, result);
+            return null;
+        }
+        hits.incrementAndGet();
+        return result;
+    }
+
+    /**
+     * Record the key in the table on the operation's connection. Throws
+     * {@link KeyTaken} when a row for it already exists.
+     */
+    void claim(Connection conn, OperationResult request) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(INSERT_SQL)) {
+            stmt.setString(1, request.getIdempotencyKey());
+            stmt.setString(2, request.getKind().name());
+            stmt.setString(3, request.getAccountId());
+            stmt.setString(4, request.getToAccountId());
+            stmt.setBigDecimal(5, request.getAmount());
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            if (DUPLICATE_KEY.equals(e.getSQLState())) {
+                throw new KeyTaken(request.getIdempotencyKey());
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * The committed result for the key from the table, or null. A row past
+     * its TTL is deleted instead, so the key can be used again.
+     */
+    OperationResult load(UnitOfWork unitOfWork, String key) {
+        try {
+            return unitOfWork.execute(conn -> {
+                OperationResult stored;
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "SELECT operation, account_id, to_account_id, amount, created_at " +
+                        "FROM idempotency_keys WHERE idempotency_key = ?"
+                )) {
+                    stmt.setString(1, key);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        if (!rs.next()) {
+                            return null;
+                        }
+                        BigDecimal amount = rs.getBigDecimal("amount");
+                        stored = new OperationResult(key, OperationResult.Kind.valueOf(rs.getString("operation")),
+                                rs.getString("account_id"), rs.getString("to_account_id"), amount,
+                                rs.getTimestamp("created_at").getTime(), false);
+                    }
+                }
+                if (isExpired(stored, System.currentTimeMillis())) {
+                    try (PreparedStatement stmt = conn.prepareStatement(
+                            "DELETE FROM idempotency_keys WHERE idempotency_key = ?"
+                    )) {
+                        stmt.setString(1, key);
+                        stmt.executeUpdate();
+                    }
+                    return null;
+                }
+                tableHits.incrementAndGet();
+                return stored;
+            });
+        } catch (SQLException e) {
+            throw new BankingException("Failed to read idempotency key: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Keep a committed result in memory, evicting expired and surplus entries.
+     */
+    void remember(OperationResult result) {
+        if (capacity <= 0) {
+            return;
+        }
+        if (results.put(result.getIdempotencyKey(), result) == null) {
+            size.incrementAndGet();
+        }
+        order.add(result);
+        long now = System.currentTimeMillis();
+        OperationResult oldest;
+        while ((oldest = order.peek()) != null && (size.get() > capacity || isExpired(oldest, now))) {
+            if (order.remove(oldest) && results.remove(oldest.getIdempotencyKey(), oldest)) {
+                size.decrementAndGet();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Delete table rows past their TTL. Returns the number deleted.
+     */
+    public int purgeExpired(UnitOfWork unitOfWork) {
+        try {
+            return unitOfWork.execute(conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "DELETE FROM idempotency_keys WHERE created_at < ?"
+                )) {
+                    stmt.setTimestamp(1, new Timestamp(System.currentTimeMillis() - ttlMs));
+                    return stmt.executeUpdate();
+                }
+            });
+        } catch (SQLException e) {
+            throw new BankingException("Failed to purge idempotency keys: " + e.getMessage(), e);
+        }
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    /**
+     * Retries answered from memory.
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * Retries answered from the table, after a restart or an eviction.
+     */
+    public long getTableHitCount() {
+        return tableHits.get();
+    }
+
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("IdempotencyKeys[size=%d, hits=%d, tableHits=%d, evictions=%d]",
+                size(), getHitCount(), getTableHitCount(), getEvictionCount());
+    }
+
+    private boolean isExpired(OperationResult result, long now) {
+        return now - result.getCompletedAtMillis() >= ttlMs;
+    }
+
+    /**
+     * The key already has a row; thrown inside the operation's transaction so it rolls back.
+     */
+    static final class KeyTaken extends BankingException {
+        private static final long serialVersionUID = 1L;
+
+        KeyTaken(String key) {
+            super("Idempotency key already used: " + key);
+        }
+    }
+}
@@ -0,0 +1,372 @@
+package com.banking.service;
+
+import com.banking.db.DatabaseConnection;
+import com.banking.db.UnitOfWork;
+import com.banking.exception.AccountNotFoundException;
+import com.banking.exception.BankingException;
+import com.banking.exception.InsufficientFundsException;
+import com.banking.model.Account;
+import com.banking.model.AccountFactory;
+import com.banking.model.AccountType;
+import com.banking.model.SavingsAccount;
+import com.banking.model.TransactionRecord;
+import com.banking.util.TransactionLogger;
+import com.banking.util.TransactionQuery;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Account engine that keeps balances in memory.
+ *
+ * Each account is an {@link Account} model object, so the withdrawal rules in
+ * SavingsAccount and CheckingAccount apply unchanged. Accounts are guarded by
+ * a fixed set of striped locks; operations touching two accounts take their
+ * stripes in index order. Every change is queued on a {@link WriteBehindQueue}
+ * and persisted to H2 asynchronously.
+ *
+ * History and report reads flush the queue first and then read H2, so they
+ * see every change made through this engine.
+ */
+public class InMemoryAccountService implements AccountOperations, AutoCloseable {
+    private final Map<String, Account> accounts = new ConcurrentHashMap<>();
+    private final ReentrantLock[] stripes;
+    private final WriteBehindQueue writeBehind;
+    private final AccountService reportSource;
+    private final TransactionLogger transactionLogger;
+
+    public InMemoryAccountService() {
+        this(Integer.parseInt(DatabaseConnection.getInstance().getProperty("engine.memory.stripes", "64")),
+             Integer.parseInt(DatabaseConnection.getInstance().getProperty("engine.memory.batchSize", "500")),
+             Integer.parseInt(DatabaseConnection.getInstance().getProperty("engine.memory.queueCapacity", "100000")));
+    }
+
+    public InMemoryAccountService(int stripeCount, int batchSize, int queueCapacity) {
+        DatabaseConnection dbConnection = DatabaseConnection.getInstance();
+        this.stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.transactionLogger = TransactionLogger.getInstance();
+        this.writeBehind = new WriteBehindQueue(new UnitOfWork(dbConnection::getConnection),
+                transactionLogger, batchSize, queueCapacity);
+        this.reportSource = new AccountService(BalanceCache.disabled(), ReportAggregates.disabled());
+        loadAccounts(dbConnection);
+    }
+
+    @Override
+    public Account createAccount(AccountType type, String accountId, BigDecimal initialBalance) throws BankingException {
+        Account account = AccountFactory.createAccount(type, accountId, initialBalance);
+        ReentrantLock lock = lockFor(accountId);
+        lock.lock();
+        try {
+            if (accounts.putIfAbsent(accountId, account) != null) {
+                throw new BankingException("Failed to create account: duplicate account " + accountId);
+            }
+            writeBehind.accountCreated(accountId, type.toString(), initialBalance);
+            // Log initial deposit
+            writeBehind.transactionLogged(accountId, initialBalance);
+        } finally {
+            lock.unlock();
+        }
+        return account;
+    }
+
+    @Override
+    public void deposit(String accountId, BigDecimal amount) throws BankingException {
+        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new BankingException("Deposit amount must be positive");
+        }
+        ReentrantLock lock = lockFor(accountId);
+        lock.lock();
+        try {
+            Account account = requireAccount(accountId);
+            account.deposit(amount);
+            recordChange(account, amount);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void withdraw(String accountId, BigDecimal amount) throws BankingException {
+        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new BankingException("Withdrawal amount must be positive");
+        }
+        ReentrantLock lock = lockFor(accountId);
+        lock.lock();
+        try {
+            Account account = requireAccount(accountId);
+            // Account.withdraw applies the savings minimum / checking overdraft rules
+            account.withdraw(amount);
+            recordChange(account, amount.negate());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void transfer(String fromAccountId, String toAccountId, BigDecimal amount) throws BankingException {
+        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new BankingException("Transfer amount must be positive");
+        }
+        List<ReentrantLock> locks = lockAll(Arrays.asList(fromAccountId, toAccountId));
+        try {
+            Account from = requireAccount(fromAccountId);
+            Account to = requireAccount(toAccountId);
+            from.withdraw(amount);
+            to.deposit(amount);
+            recordChange(from, amount.negate());
+            recordChange(to, amount);
+        } finally {
+            unlockAll(locks);
+        }
+    }
+
+    @Override
+    public List<TransferResult> transferBatch(List<TransferInstruction> instructions, BatchMode mode) throws BankingException {
+        TransferResult[] results = new TransferResult[instructions.size()];
+        SortedSet<String> accountIds = new TreeSet<>();
+        for (TransferInstruction instruction : instructions) {
+            if (instruction.getFromAccountId() != null) {
+                accountIds.add(instruction.getFromAccountId());
+            }
+            if (instruction.getToAccountId() != null) {
+                accountIds.add(instruction.getToAccountId());
+            }
+        }
+
+        List<ReentrantLock> locks = lockAll(accountIds);
+        try {
+            // Dry run on copies so the account rules decide without touching real balances
+            Map<String, Account> copies = new HashMap<>();
+            for (String accountId : accountIds) {
+                Account account = accounts.get(accountId);
+                if (account != null) {
+                    copies.put(accountId, copyOf(account));
+                }
+            }
+            boolean anyRejected = false;
+            for (int i = 0; i < instructions.size(); i++) {
+                TransferInstruction instruction = instructions.get(i);
+                String error = simulate(instruction, copies);
+                if (error != null) {
+                    results[i] = new TransferResult(instruction, TransferResult.Status.REJECTED, error);
+                    anyRejected = true;
+                } else {
+                    results[i] = new TransferResult(instruction, TransferResult.Status.APPLIED, null);
+                }
+            }
+
+            if (mode == BatchMode.ALL_OR_NOTHING && anyRejected) {
+                for (int i = 0; i < results.length; i++) {
+                    if (results[i].isApplied()) {
+                        results[i] = new TransferResult(instructions.get(i), TransferResult.Status.ROLLED_BACK,
+                                "Batch rolled back because another instruction failed");
+                    }
+                }
+                return Arrays.asList(results);
+            }
+
+            // Same sequence as the dry run, so none of these can fail
+            for (TransferResult result : results) {
+                if (result.isApplied()) {
+                    TransferInstruction instruction = result.getInstruction();
+                    Account from = accounts.get(instruction.getFromAccountId());
+                    Account to = accounts.get(instruction.getToAccountId());
+                    from.withdraw(instruction.getAmount());
+                    to.deposit(instruction.getAmount());
+                    recordChange(from, instruction.getAmount().negate());
+                    recordChange(to, instruction.getAmount());
+                }
+            }
+        } finally {
+            unlockAll(locks);
+        }
+        return Arrays.asList(results);
+    }
+
+    @Override
+    public BigDecimal getBalance(String accountId) throws BankingException {
+        ReentrantLock lock = lockFor(accountId);
+        lock.lock();
+        try {
+            return requireAccount(accountId).getBalance();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<TransactionRecord> getTransactionHistory(String accountId) {
+        writeBehind.flush();
+        return transactionLogger.readTransactionHistory(accountId);
+    }
+
+    @Override
+    public List<TransactionRecord> getAllTransactions() {
+        writeBehind.flush();
+        return transactionLogger.readTransactionHistory();
+    }
+
+    @Override
+    public Stream<TransactionRecord> streamTransactions(TransactionQuery query) {
+        writeBehind.flush();
+        return transactionLogger.streamTransactions(query);
+    }
+
+    @Override
+    public void deleteAccount(String accountId) throws BankingException {
+        ReentrantLock lock = lockFor(accountId);
+        lock.lock();
+        try {
+            if (accounts.remove(accountId) == null) {
+                throw new AccountNotFoundException(accountId);
+            }
+            writeBehind.accountDeleted(accountId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Map<String, Object> getAccountSummary() {
+        writeBehind.flush();
+        return reportSource.getAccountSummary();
+    }
+
+    @Override
+    public Map<String, Object> getDailyTransactions() {
+        writeBehind.flush();
+        return reportSource.getDailyTransactions();
+    }
+
+    @Override
+    public Map<String, Object> getAccountActivity() {
+        writeBehind.flush();
+        return reportSource.getAccountActivity();
+    }
+
+    /**
+     * Wait until every change made so far has been written to H2.
+     */
+    public void flush() {
+        writeBehind.flush();
+    }
+
+    public int getPendingChanges() {
+        return writeBehind.getPendingChanges();
+    }
+
+    @Override
+    public void close() {
+        writeBehind.close();
+    }
+
+    private void recordChange(Account account, BigDecimal amount) {
+        // Called with the account's stripe held, so H2 sees changes in the same order
+        writeBehind.balanceChanged(account.getAccountNumber(), account.getBalance());
+        writeBehind.transactionLogged(account.getAccountNumber(), amount);
+    }
+
+    private String simulate(TransferInstruction instruction, Map<String, Account> copies) {
+        String from = instruction.getFromAccountId();
+        String to = instruction.getToAccountId();
+        BigDecimal amount = instruction.getAmount();
+        if (from == null || to == null) {
+            return "Source and destination accounts are required";
+        }
+        if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
+            return "Transfer amount must be positive";
+        }
+        if (from.equals(to)) {
+            return "Cannot transfer to the same account";
+        }
+        if (!copies.containsKey(from)) {
+            return "Account not found: " + from;
+        }
+        if (!copies.containsKey(to)) {
+            return "Account not found: " + to;
+        }
+        try {
+            copies.get(from).withdraw(amount);
+        } catch (InsufficientFundsException e) {
+            return e.getMessage();
+        }
+        copies.get(to).deposit(amount);
+        return null;
+    }
+
+    private Account copyOf(Account account) {
+        AccountType type = account instanceof SavingsAccount ? AccountType.SAVINGS : AccountType.CHECKING;
+        return AccountFactory.createAccount(type, account.getAccountNumber(), account.getBalance());
+    }
+
+    private Account requireAccount(String accountId) {
+        Account account = accounts.get(accountId);
+        if (account == null) {
+            throw new AccountNotFoundException(accountId);
+        }
+        return account;
+    }
+
+    private ReentrantLock lockFor(String accountId) {
+        return stripes[stripeIndex(accountId)];
+    }
+
+    private int stripeIndex(String accountId) {
+        int h = accountId.hashCode();
+        return Math.floorMod(h ^ (h >>> 16), stripes.length);
+    }
+
+    /**
+     * Lock the stripes for several accounts in index order to avoid deadlock.
+     */
+    private List<ReentrantLock> lockAll(Iterable<String> accountIds) {
+        SortedSet<Integer> indexes = new TreeSet<>();
+        for (String accountId : accountIds) {
+            indexes.add(stripeIndex(accountId));
+        }
+        List<ReentrantLock> locked = new ArrayList<>(indexes.size());
+        for (int index : indexes) {
+            stripes[index].lock();
+            locked.add(stripes[index]);
+        }
+        return locked;
+    }
+
+    private void unlockAll(List<ReentrantLock> locks) {
+        for (int i = locks.size() - 1; i >= 0; i--) {
+            locks.get(i).unlock();
+        }
+    }
+
+    private void loadAccounts(DatabaseConnection dbConnection) {
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT account_id, account_type, balance FROM accounts"
+             );
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                String accountId = rs.getString("account_id");
+                AccountType type = AccountType.valueOf(rs.getString("account_type"));
+                accounts.put(accountId, AccountFactory.createAccount(type, accountId, rs.getBigDecimal("balance")));
+            }
+        } catch (SQLException e) {
+            throw new BankingException("Failed to load accounts into memory", e);
+        }
+    }
+}
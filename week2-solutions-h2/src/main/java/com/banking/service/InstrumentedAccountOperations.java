@@ -0,0 +1,120 @@
+package com.banking.service;
+
+import com.banking.exception.BankingException;
+import com.banking.metrics.BankingMetrics;
+import com.banking.metrics.OperationTimer;
+import com.banking.model.Account;
+import com.banking.model.AccountType;
+import com.banking.model.TransactionRecord;
+import com.banking.util.TransactionQuery;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Records a call count, errors by exception type and latency for every
+ * operation of the wrapped engine. Units of work the engine runs on the
+ * calling thread are split into acquire/execute/commit under the same name.
+ * Only installed when metrics are enabled, so it costs nothing otherwise.
+ */
+public class InstrumentedAccountOperations implements AccountOperations {
+    private final AccountOperations delegate;
+    private final BankingMetrics metrics;
+
+    public InstrumentedAccountOperations(AccountOperations delegate, BankingMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    public AccountOperations getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public Account createAccount(AccountType type, String accountId, BigDecimal initialBalance) throws BankingException {
+        return timed("createAccount", () -> delegate.createAccount(type, accountId, initialBalance));
+    }
+
+    @Override
+    public void deposit(String accountId, BigDecimal amount) throws BankingException {
+        timed("deposit", () -> delegate.deposit(accountId, amount));
+    }
+
+    @Override
+    public void withdraw(String accountId, BigDecimal amount) throws BankingException {
+        timed("withdraw", () -> delegate.withdraw(accountId, amount));
+    }
+
+    @Override
+    public void transfer(String fromAccountId, String toAccountId, BigDecimal amount) throws BankingException {
+        timed("transfer", () -> delegate.transfer(fromAccountId, toAccountId, amount));
+    }
+
+    @Override
+    public List<TransferResult> transferBatch(List<TransferInstruction> instructions, BatchMode mode) throws BankingException {
+        return timed("transferBatch", () -> delegate.transferBatch(instructions, mode));
+    }
+
+    @Override
+    public BigDecimal getBalance(String accountId) throws BankingException {
+        return timed("getBalance", () -> delegate.getBalance(accountId));
+    }
+
+    @Override
+    public List<TransactionRecord> getTransactionHistory(String accountId) {
+        return timed("getTransactionHistory", () -> delegate.getTransactionHistory(accountId));
+    }
+
+    @Override
+    public List<TransactionRecord> getAllTransactions() {
+        return timed("getAllTransactions", delegate::getAllTransactions);
+    }
+
+    // Times opening the stream only; rows are read as the caller consumes it
+    @Override
+    public Stream<TransactionRecord> streamTransactions(TransactionQuery query) {
+        return timed("streamTransactions", () -> delegate.streamTransactions(query));
+    }
+
+    @Override
+    public void deleteAccount(String accountId) throws BankingException {
+        timed("deleteAccount", () -> delegate.deleteAccount(accountId));
+    }
+
+    @Override
+    public Map<String, Object> getAccountSummary() {
+        return timed("getAccountSummary", delegate::getAccountSummary);
+    }
+
+    @Override
+    public Map<String, Object> getDailyTransactions() {
+        return timed("getDailyTransactions", delegate::getDailyTransactions);
+    }
+
+    @Override
+    public Map<String, Object> getAccountActivity() {
+        return timed("getAccountActivity", delegate::getAccountActivity);
+    }
+
+    private <T> T timed(String operation, Supplier<T> call) {
+        OperationTimer timer = metrics.start(operation);
+        try {
+            return call.get();
+        } catch (RuntimeException e) {
+            timer.fail(e);
+            throw e;
+        } finally {
+            timer.stop();
+        }
+    }
+
+    private void timed(String operation, Runnable call) {
+        timed(operation, () -> {
+            call.run();
+            return null;
+        });
+    }
+}
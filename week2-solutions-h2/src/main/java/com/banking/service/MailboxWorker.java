@@ -0,0 +1,504 @@
+package com.banking.service;
+
+import com.banking.db.UnitOfWork;
+import com.banking.exception.AccountNotFoundException;
+import com.banking.exception.BankingException;
+import com.banking.exception.InsufficientFundsException;
+import com.banking.exception.TransferPendingException;
+import com.banking.metrics.BankingMetrics;
+import com.banking.util.TransactionLogger;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One worker thread of {@link ShardedAccountService}.
+ *
+ * The worker owns a shard of the accounts: every command for those accounts
+ * is queued here and runs on this thread, in arrival order. Each pass drains
+ * up to batchSize commands, replays them against the current balances and
+ * commits the net change per account with one batched UPDATE plus one
+ * batched ledger insert.
+ *
+ * A transfer between two accounts of this worker is one command and one
+ * commit. A transfer to another worker's account is logged in
+ * mailbox_transfers as DEBITED in the debit's commit; the credit leg (or,
+ * if it fails, the refund) then moves it to COMPLETED (or COMPENSATED) in
+ * its own commit, and only while it is still DEBITED, so a leg that is
+ * delivered twice, e.g. by recovery, applies once.
+ *
+ * Callers block once capacity commands are waiting. Transfer legs forwarded
+ * from other workers never block, so two full mailboxes cannot deadlock.
+ */
+class MailboxWorker implements AutoCloseable {
+    // Max ids per SELECT ... IN (...)
+    private static final int CHUNK_SIZE = 500;
+    // Replays of a batch whose guarded balances were changed by another writer
+    private static final int MAX_ATTEMPTS = 3;
+
+    // TRANSFER stays on one worker; DEBIT, CREDIT and REFUND are the legs of one that does not
+    enum Kind { DEPOSIT, WITHDRAW, TRANSFER, DEBIT, CREDIT, REFUND }
+
+    static final String DEBITED = "DEBITED";
+    static final String COMPLETED = "COMPLETED";
+    static final String COMPENSATED = "COMPENSATED";
+
+    private final ShardedAccountService router;
+    private final UnitOfWork unitOfWork;
+    private final TransactionLogger transactionLogger;
+    private final int batchSize;
+    private final BlockingQueue<Command> mailbox = new LinkedBlockingQueue<>();
+    private final Semaphore slots;
+    private final Thread thread;
+    // Guards running against submit and forward, so nothing is queued once the loop may have exited
+    private final Object stateLock = new Object();
+    private volatile boolean running = true;
+
+    private final AtomicLong batchesCommitted = new AtomicLong();
+    private final AtomicLong commandsProcessed = new AtomicLong();
+
+    MailboxWorker(int index, ShardedAccountService router, UnitOfWork unitOfWork,
+                  TransactionLogger transactionLogger, int batchSize, int capacity) {
+        this.router = router;
+        this.unitOfWork = unitOfWork;
+        this.transactionLogger = transactionLogger;
+        this.batchSize = batchSize;
+        this.slots = new Semaphore(capacity);
+        this.thread = new Thread(this::run, "account-mailbox-" + index);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Queue a caller's command, blocking while the mailbox is full.
+     * Throws BankingException once the worker has been closed.
+     */
+    void submit(Command command) throws InterruptedException {
+        slots.acquire();
+        synchronized (stateLock) {
+            if (!running) {
+                slots.release();
+                throw new BankingException("Account mailbox is closed");
+            }
+            command.holdsSlot = true;
+            mailbox.add(command);
+        }
+    }
+
+    /**
+     * Queue a transfer leg from another worker without blocking. Returns
+     * false, queueing nothing, once the worker has been closed.
+     */
+    boolean forward(Command command) {
+        synchronized (stateLock) {
+            if (!running) {
+                return false;
+            }
+            mailbox.add(command);
+            return true;
+        }
+    }
+
+    long getBatchesCommitted() {
+        return batchesCommitted.get();
+    }
+
+    long getCommandsProcessed() {
+        return commandsProcessed.get();
+    }
+
+    int getQueued() {
+        return mailbox.size();
+    }
+
+    boolean isAlive() {
+        return thread.isAlive();
+    }
+
+    /**
+     * Stop taking commands, finish the queued ones and stop the thread.
+     */
+    @Override
+    public void close() {
+        synchronized (stateLock) {
+            running = false;
+        }
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        List<Command> batch = new ArrayList<>(batchSize);
+        while (running || !mailbox.isEmpty()) {
+            try {
+                Command first = mailbox.poll(50, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                mailbox.drainTo(batch, batchSize - 1);
+                process(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                for (Command command : batch) {
+                    if (command.holdsSlot) {
+                        slots.release();
+                    }
+                }
+                router.finished(batch.size());
+                batch.clear();
+            }
+        }
+    }
+
+    private void process(List<Command> batch) {
+        RuntimeException[] errors = new RuntimeException[batch.size()];
+        RuntimeException failure = null;
+        for (int attempt = 1; failure == null; attempt++) {
+            try {
+                Arrays.fill(errors, null);
+                unitOfWork.execute(conn -> {
+                    applyBatch(conn, batch, errors);
+                    return null;
+                });
+                break;
+            } catch (BalanceChanged e) {
+                if (attempt == MAX_ATTEMPTS) {
+                    failure = new BankingException("Failed to process account commands: balances kept changing");
+                }
+            } catch (SQLException | RuntimeException e) {
+                failure = new BankingException("Failed to process account commands: " + e.getMessage(), e);
+            }
+        }
+        if (failure != null) {
+            for (Command command : batch) {
+                fail(command, failure);
+            }
+            return;
+        }
+
+        batchesCommitted.incrementAndGet();
+        commandsProcessed.addAndGet(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            Command command = batch.get(i);
+            if (errors[i] != null) {
+                fail(command, errors[i]);
+            } else if (command.finishedState != null) {
+                // Leg already applied, e.g. by recovery: report how the transfer ended
+                if (COMPLETED.equals(command.finishedState)) {
+                    command.result.complete(null);
+                } else {
+                    command.result.completeExceptionally(command.cause != null ? command.cause
+                            : new BankingException("Transfer " + command.transferId + " was refunded"));
+                }
+            } else if (command.kind == Kind.DEBIT) {
+                // Money has left the source and the transfer is logged; the target's worker credits it
+                router.forward(new Command(Kind.CREDIT, command.counterparty, command.amount,
+                        command.accountId, command.transferId, null, command.result));
+            } else if (command.kind == Kind.REFUND) {
+                // The transfer failed, but the source has its money back
+                command.result.completeExceptionally(command.cause);
+            } else {
+                command.result.complete(null);
+            }
+        }
+    }
+
+    /**
+     * Replay the batch and write it: one UPDATE per account, one ledger batch.
+     *
+     * Only accounts being debited need their balance, and those are read
+     * without FOR UPDATE. This worker is their only writer apart from
+     * transferBatch and deleteAccount, so each UPDATE is guarded by the value
+     * read; if one of those got in first the batch is rolled back and
+     * replayed. Deposit-only accounts are updated blindly and found missing
+     * when their UPDATE matches no row. Rows are locked by the UPDATEs in
+     * account_id order, the same order every other writer uses.
+     *
+     * A CREDIT or REFUND leg whose transfer is no longer DEBITED has already
+     * been applied and is skipped; its command's finishedState says how the
+     * transfer ended.
+     */
+    private void applyBatch(Connection conn, List<Command> batch, RuntimeException[] errors) throws SQLException {
+        SortedSet<String> checked = new TreeSet<>();
+        Set<String> transferIds = new HashSet<>();
+        for (Command command : batch) {
+            command.finishedState = null;
+            if (command.kind == Kind.WITHDRAW || command.kind == Kind.DEBIT || command.kind == Kind.TRANSFER) {
+                checked.add(command.accountId);
+            }
+            if (command.kind == Kind.DEBIT || command.kind == Kind.TRANSFER) {
+                checked.add(command.counterparty);
+            }
+            if (command.isLeg()) {
+                transferIds.add(command.transferId);
+            }
+        }
+        Map<String, String> accountTypes = new HashMap<>();
+        Map<String, BigDecimal> readBalances = readBalances(conn, checked, accountTypes);
+        Map<String, BigDecimal> balances = new HashMap<>(readBalances);
+        Map<String, BigDecimal> deltas = new TreeMap<>();
+        Map<String, String> transferStates = readTransferStates(conn, transferIds);
+
+        for (int i = 0; i < batch.size(); i++) {
+            Command command = batch.get(i);
+            BigDecimal balance = balances.get(command.accountId);
+            if (command.isLeg() && !DEBITED.equals(transferStates.get(command.transferId))) {
+                command.finishedState = transferStates.getOrDefault(command.transferId, COMPENSATED);
+            } else if (command.kind == Kind.DEPOSIT || command.isLeg()) {
+                if (command.isLeg()) {
+                    // A second copy of this leg in the same batch must not apply again
+                    transferStates.put(command.transferId, command.kind == Kind.CREDIT ? COMPLETED : COMPENSATED);
+                }
+                if (balance != null) {
+                    balances.put(command.accountId, balance.add(command.amount));
+                }
+                deltas.merge(command.accountId, command.amount, BigDecimal::add);
+            } else if (balance == null) {
+                errors[i] = new AccountNotFoundException(command.accountId);
+            } else if (command.counterparty != null && !readBalances.containsKey(command.counterparty)) {
+                errors[i] = new AccountNotFoundException(command.counterparty);
+            } else if (!WithdrawalFloors.allows(accountTypes.get(command.accountId), balance, command.amount)) {
+                errors[i] = new InsufficientFundsException(command.accountId, command.amount, balance);
+            } else {
+                balances.put(command.accountId, balance.subtract(command.amount));
+                deltas.merge(command.accountId, command.amount.negate(), BigDecimal::add);
+                if (command.kind == Kind.TRANSFER) {
+                    // Both accounts are this worker's, so the credit commits with the debit
+                    balances.merge(command.counterparty, command.amount, BigDecimal::add);
+                    deltas.merge(command.counterparty, command.amount, BigDecimal::add);
+                }
+            }
+        }
+
+        Set<String> missing = new HashSet<>();
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "UPDATE accounts SET balance = balance + ?, version = version + 1 WHERE account_id = ? AND balance = COALESCE(?, balance)"
+        )) {
+            for (Map.Entry<String, BigDecimal> delta : deltas.entrySet()) {
+                stmt.setBigDecimal(1, delta.getValue());
+                stmt.setString(2, delta.getKey());
+                stmt.setBigDecimal(3, readBalances.get(delta.getKey()));
+                stmt.addBatch();
+            }
+            int[] counts = stmt.executeBatch();
+            int i = 0;
+            for (String accountId : deltas.keySet()) {
+                if (counts[i++] == 0) {
+                    if (readBalances.containsKey(accountId)) {
+                        throw BalanceChanged.INSTANCE;
+                    }
+                    missing.add(accountId);
+                }
+            }
+        }
+
+        try (TransactionLogger.LedgerBatch ledger = transactionLogger.newBatch(conn)) {
+            for (int i = 0; i < batch.size(); i++) {
+                Command command = batch.get(i);
+                if (command.finishedState != null) {
+                    continue;
+                }
+                if (missing.contains(command.accountId)) {
+                    errors[i] = new AccountNotFoundException(command.accountId);
+                } else if (errors[i] == null) {
+                    boolean credit = command.kind == Kind.DEPOSIT || command.isLeg();
+                    ledger.add(command.accountId, credit ? command.amount : command.amount.negate());
+                    if (command.kind == Kind.TRANSFER) {
+                        ledger.add(command.counterparty, command.amount);
+                    } else if (command.kind == Kind.DEBIT) {
+                        logTransfer(conn, command);
+                    } else if (command.isLeg()
+                            && !finishTransfer(conn, command.transferId, command.kind == Kind.CREDIT ? COMPLETED : COMPENSATED)) {
+                        // Finished by someone else since it was read: replay, which then skips it
+                        throw BalanceChanged.INSTANCE;
+                    }
+                }
+            }
+            ledger.execute();
+        }
+    }
+
+    private void fail(Command command, RuntimeException error) {
+        if (command.kind == Kind.CREDIT) {
+            // Credit leg of a transfer failed: give the money back to the source. The
+            // caller hears about the failure once the refund has committed
+            router.forward(new Command(Kind.REFUND, command.counterparty, command.amount,
+                    command.accountId, command.transferId, error, command.result));
+            return;
+        }
+        if (command.kind == Kind.REFUND) {
+            // Neither leg went through: the transfer stays DEBITED for recovery
+            System.err.println("Failed to refund transfer " + command.transferId + " of " + command.amount
+                    + " to " + command.accountId + ", left for recovery: " + error.getMessage());
+            BankingMetrics.getInstance().recordError("transferRefund", error);
+            command.result.completeExceptionally(new TransferPendingException(command.transferId,
+                    "Transfer " + command.transferId + " debited " + command.accountId + " but neither its credit nor its "
+                    + "refund went through; it is left for recovery: " + error.getMessage(), error));
+            return;
+        }
+        command.result.completeExceptionally(error);
+    }
+
+    private void logTransfer(Connection conn, Command debit) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "INSERT INTO mailbox_transfers (transfer_id, from_account, to_account, amount, state) " +
+                "VALUES (?, ?, ?, ?, ?)"
+        )) {
+            stmt.setString(1, debit.transferId);
+            stmt.setString(2, debit.accountId);
+            stmt.setString(3, debit.counterparty);
+            stmt.setBigDecimal(4, debit.amount);
+            stmt.setString(5, DEBITED);
+            stmt.executeUpdate();
+        }
+    }
+
+    private static boolean finishTransfer(Connection conn, String transferId, String state) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "UPDATE mailbox_transfers SET state = ?, updated_at = CURRENT_TIMESTAMP " +
+                "WHERE transfer_id = ? AND state = ?"
+        )) {
+            stmt.setString(1, state);
+            stmt.setString(2, transferId);
+            stmt.setString(3, DEBITED);
+            return stmt.executeUpdate() == 1;
+        }
+    }
+
+    private static Map<String, String> readTransferStates(Connection conn, Set<String> transferIds)
+            throws SQLException {
+        Map<String, String> states = new HashMap<>();
+        for (String transferId : transferIds) {
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT state FROM mailbox_transfers WHERE transfer_id = ?"
+            )) {
+                stmt.setString(1, transferId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        states.put(transferId, rs.getString(1));
+                    }
+                }
+            }
+        }
+        return states;
+    }
+
+    /**
+     * Current balances for the given accounts, without locking them.
+     * Accounts that do not exist are simply missing from the result.
+     * Their account_type, which sets the withdrawal floor, goes into accountTypes.
+     */
+    private Map<String, BigDecimal> readBalances(Connection conn, SortedSet<String> accountIds,
+                                                 Map<String, String> accountTypes) throws SQLException {
+        Map<String, BigDecimal> balances = new HashMap<>();
+        List<String> ids = new ArrayList<>(accountIds);
+        for (int start = 0; start < ids.size(); start += CHUNK_SIZE) {
+            List<String> chunk = ids.subList(start, Math.min(start + CHUNK_SIZE, ids.size()));
+            String placeholders = String.join(",", Collections.nCopies(chunk.size(), "?"));
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT account_id, account_type, balance FROM accounts WHERE account_id IN (" + placeholders + ")"
+            )) {
+                for (int i = 0; i < chunk.size(); i++) {
+                    stmt.setString(i + 1, chunk.get(i));
+                }
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        BigDecimal balance = rs.getBigDecimal("balance");
+                        balances.put(rs.getString("account_id"), balance != null ? balance : BigDecimal.ZERO);
+                        accountTypes.put(rs.getString("account_id"), rs.getString("account_type"));
+                    }
+                }
+            }
+        }
+        return balances;
+    }
+
+    /**
+     * Thrown inside the transaction to roll it back when a guarded UPDATE
+     * finds a balance other than the one the batch was replayed against.
+     */
+    private static final class BalanceChanged extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        private static final BalanceChanged INSTANCE = new BalanceChanged();
+
+        private BalanceChanged() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * A queued operation on one account. For TRANSFER and DEBIT the
+     * counterparty is the account to credit; for the CREDIT leg it is the
+     * source, refunded if the credit fails, and for REFUND the target whose
+     * credit failed with cause. The legs carry their mailbox_transfers id.
+     */
+    static final class Command {
+        private final Kind kind;
+        private final String accountId;
+        private final BigDecimal amount;
+        private final String counterparty;
+        private final String transferId;
+        private final RuntimeException cause;
+        private final CompletableFuture<Void> result;
+        private boolean holdsSlot;
+        // Set by applyBatch for a leg whose transfer had already finished
+        private String finishedState;
+
+        Command(Kind kind, String accountId, BigDecimal amount, String counterparty, CompletableFuture<Void> result) {
+            this(kind, accountId, amount, counterparty, null, null, result);
+        }
+
+        Command(Kind kind, String accountId, BigDecimal amount, String counterparty, String transferId,
+                RuntimeException cause, CompletableFuture<Void> result) {
+            this.kind = kind;
+            this.accountId = accountId;
+            this.amount = amount;
+            this.counterparty = counterparty;
+            this.transferId = transferId;
+            this.cause = cause;
+            this.result = result;
+        }
+
+        String getAccountId() {
+            return accountId;
+        }
+
+        String getTransferId() {
+            return transferId;
+        }
+
+        private boolean isLeg() {
+            return kind == Kind.CREDIT || kind == Kind.REFUND;
+        }
+
+        CompletableFuture<Void> getResult() {
+            return result;
+        }
+    }
+}
@@ -0,0 +1,426 @@
+package com.banking.service;
+
+import com.banking.db.DatabaseConnection;
+import com.banking.db.UnitOfWork;
+import com.banking.exception.BankingException;
+import com.banking.exception.InsufficientFundsException;
+import com.banking.model.Account;
+import com.banking.model.AccountFactory;
+import com.banking.model.AccountType;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Month-end batch: charges the checking fee and credits savings interest on
+ * every account, using each account type's own processMonthlyFees().
+ *
+ * The account_id space is split into ranges of about equal size, and the
+ * ranges run in parallel on a fork-join pool. Each range is read in keyset
+ * chunks; a chunk's rows are locked, its balance updates and ledger rows go
+ * out as two batches, and the range's checkpoint row moves forward in the
+ * same transaction. A run that dies part way can therefore be started again
+ * for the same period: finished ranges are skipped and the others continue
+ * after their last committed chunk, so no account is charged twice.
+ *
+ * Balances are changed in H2 directly, so use it with the jdbc engine; the
+ * given service's balance cache and report aggregates are kept up to date.
+ */
+public class MonthEndProcessor {
+
+    /**
+     * Called on a pool thread after each committed chunk.
+     */
+    @FunctionalInterface
+    public interface ProgressListener {
+        void chunkCommitted(String period, int partition, long accountsDone);
+    }
+
+    // H2 locks every row matching a FOR UPDATE before applying LIMIT, so a
+    // chunk's end key is found first and only that range is locked
+    private static final String SELECT_CHUNK_END =
+        "SELECT account_id FROM accounts WHERE account_id > ? ORDER BY account_id LIMIT 1 OFFSET ?";
+    private static final String SELECT_BOUNDED_CHUNK_END =
+        "SELECT account_id FROM accounts WHERE account_id > ? AND account_id <= ? " +
+        "ORDER BY account_id LIMIT 1 OFFSET ?";
+    private static final String LOCK_CHUNK =
+        "SELECT account_id, account_type, balance FROM accounts " +
+        "WHERE account_id > ? AND account_id <= ? ORDER BY account_id FOR UPDATE";
+    private static final String LOCK_LAST_CHUNK =
+        "SELECT account_id, account_type, balance FROM accounts " +
+        "WHERE account_id > ? ORDER BY account_id FOR UPDATE";
+    private static final String UPDATE_BALANCE =
+        "UPDATE accounts SET balance = balance + ?, version = version + 1 WHERE account_id = ?";
+    private static final String INSERT_LEDGER =
+        "INSERT INTO transactions (account_id, amount, description) VALUES (?, ?, ?)";
+    private static final String UPDATE_CHECKPOINT =
+        "UPDATE month_end_checkpoints SET last_account_id = ?, accounts_done = accounts_done + ?, " +
+        "completed = ?, updated_at = CURRENT_TIMESTAMP WHERE period = ? AND partition_no = ?";
+
+    private final UnitOfWork unitOfWork;
+    private final BalanceCache balanceCache;
+    private final ReportAggregates reportAggregates;
+    private final int partitions;
+    private final int chunkSize;
+    private final int parallelism;
+    private volatile ProgressListener progressListener;
+
+    public MonthEndProcessor(AccountService accountService) {
+        this(accountService,
+             Integer.parseInt(DatabaseConnection.getInstance().getProperty("monthend.partitions", "16")),
+             Integer.parseInt(DatabaseConnection.getInstance().getProperty("monthend.chunkSize", "1000")),
+             Integer.parseInt(DatabaseConnection.getInstance().getProperty("monthend.parallelism",
+                     String.valueOf(Runtime.getRuntime().availableProcessors()))));
+    }
+
+    /**
+     * @param partitions  account_id ranges a new run is split into
+     * @param chunkSize   accounts committed per transaction
+     * @param parallelism ranges processed at once; each holds a pooled connection
+     */
+    public MonthEndProcessor(AccountService accountService, int partitions, int chunkSize, int parallelism) {
+        if (partitions < 1 || chunkSize < 1 || parallelism < 1) {
+            throw new IllegalArgumentException("partitions, chunkSize and parallelism must be positive");
+        }
+        this.unitOfWork = new UnitOfWork(DatabaseConnection.getInstance()::getConnection);
+        this.balanceCache = accountService.getBalanceCache();
+        this.reportAggregates = accountService.getReportAggregates();
+        this.partitions = partitions;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+    }
+
+    public void setProgressListener(ProgressListener progressListener) {
+        this.progressListener = progressListener;
+    }
+
+    /**
+     * Process every account for the month, or resume an unfinished run of it.
+     * Running a period that already finished does nothing.
+     */
+    public MonthEndStats run(YearMonth month) throws BankingException {
+        String period = month.toString();
+        long start = System.nanoTime();
+        List<Partition> all;
+        try {
+            all = unitOfWork.execute(conn -> {
+                List<Partition> existing = loadPartitions(conn, period);
+                return existing.isEmpty() ? createPartitions(conn, period) : existing;
+            });
+        } catch (SQLException e) {
+            throw new BankingException("Failed to plan month end " + period + ": " + e.getMessage(), e);
+        }
+
+        List<Partition> pending = new ArrayList<>();
+        for (Partition partition : all) {
+            if (!partition.completed) {
+                pending.add(partition);
+            }
+        }
+
+        Totals totals = new Totals();
+        Queue<Exception> failures = new ConcurrentLinkedQueue<>();
+        if (!pending.isEmpty()) {
+            ForkJoinPool pool = new ForkJoinPool(Math.min(parallelism, pending.size()));
+            try {
+                pool.invoke(new PartitionTask(period, pending, 0, pending.size(), totals, failures));
+            } finally {
+                pool.shutdown();
+            }
+        }
+        if (!failures.isEmpty()) {
+            Exception first = failures.poll();
+            BankingException e = new BankingException(String.format(
+                    "Month end %s failed in %d of %d partitions, run it again to resume: %s",
+                    period, failures.size() + 1, all.size(), first.getMessage()), first);
+            failures.forEach(e::addSuppressed);
+            throw e;
+        }
+        return totals.toStats(period, all.size(), all.size() - pending.size(), System.nanoTime() - start);
+    }
+
+    private List<Partition> loadPartitions(Connection conn, String period) throws SQLException {
+        List<Partition> result = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT partition_no, upper_bound, last_account_id, accounts_done, completed " +
+                "FROM month_end_checkpoints WHERE period = ? ORDER BY partition_no"
+        )) {
+            stmt.setString(1, period);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    result.add(new Partition(rs.getInt(1), rs.getString(2), rs.getString(3),
+                            rs.getLong(4), rs.getBoolean(5)));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Split the current accounts into ranges of about equal size and record them.
+     * Accounts created later fall into whichever range covers their id.
+     */
+    private List<Partition> createPartitions(Connection conn, String period) throws SQLException {
+        List<String> upperBounds = AccountRanges.upperBounds(conn, partitions);
+
+        List<Partition> result = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "INSERT INTO month_end_checkpoints (period, partition_no, lower_bound, upper_bound, last_account_id) " +
+                "VALUES (?, ?, ?, ?, ?)"
+        )) {
+            String lower = null;
+            for (int i = 0; i < upperBounds.size(); i++) {
+                String upper = upperBounds.get(i);
+                stmt.setString(1, period);
+                stmt.setInt(2, i);
+                stmt.setString(3, lower);
+                stmt.setString(4, upper);
+                stmt.setString(5, lower);
+                stmt.addBatch();
+                result.add(new Partition(i, upper, lower, 0, false));
+                lower = upper;
+            }
+            stmt.executeBatch();
+        }
+        return result;
+    }
+
+    private void processPartition(String period, Partition partition, Totals totals) throws SQLException {
+        while (!partition.completed) {
+            Chunk chunk;
+            ReportAggregates.WriteFence fence = reportAggregates.enterWrite();
+            try {
+                chunk = unitOfWork.execute(conn -> processChunk(conn, period, partition));
+                LocalDate today = LocalDate.now();
+                for (int i = 0; i < chunk.accountIds.size(); i++) {
+                    reportAggregates.balanceChanged(chunk.accountIds.get(i), chunk.deltas.get(i));
+                    reportAggregates.transactionLogged(chunk.accountIds.get(i), chunk.deltas.get(i), today);
+                }
+            } finally {
+                fence.close();
+            }
+            partition.advance(chunk);
+            balanceCache.invalidateAll(chunk.accountIds);
+            totals.add(chunk);
+
+            ProgressListener listener = progressListener;
+            if (listener != null) {
+                listener.chunkCommitted(period, partition.number, partition.accountsDone);
+            }
+        }
+    }
+
+    /**
+     * Apply the month end to the next chunk of the range. Leaves the partition
+     * untouched; it is advanced once the chunk has committed.
+     */
+    private Chunk processChunk(Connection conn, String period, Partition partition) throws SQLException {
+        Chunk chunk = new Chunk();
+        String after = partition.lastAccountId != null ? partition.lastAccountId : "";
+        String end = chunkEnd(conn, after, partition.upperBound);
+        chunk.last = end == null;
+        if (end == null) {
+            end = partition.upperBound;
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(end != null ? LOCK_CHUNK : LOCK_LAST_CHUNK)) {
+            stmt.setString(1, after);
+            if (end != null) {
+                stmt.setString(2, end);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    chunk.accept(rs.getString("account_id"), AccountType.valueOf(rs.getString("account_type")),
+                            rs.getBigDecimal("balance"));
+                }
+            }
+        }
+
+        if (!chunk.accountIds.isEmpty()) {
+            try (PreparedStatement update = conn.prepareStatement(UPDATE_BALANCE);
+                 PreparedStatement ledger = conn.prepareStatement(INSERT_LEDGER)) {
+                for (int i = 0; i < chunk.accountIds.size(); i++) {
+                    String accountId = chunk.accountIds.get(i);
+                    BigDecimal delta = chunk.deltas.get(i);
+                    update.setBigDecimal(1, delta);
+                    update.setString(2, accountId);
+                    update.addBatch();
+                    ledger.setString(1, accountId);
+                    ledger.setBigDecimal(2, delta);
+                    ledger.setString(3, (delta.signum() < 0 ? "Monthly fee " : "Interest ") + period);
+                    ledger.addBatch();
+                }
+                update.executeBatch();
+                ledger.executeBatch();
+            }
+        }
+
+        try (PreparedStatement stmt = conn.prepareStatement(UPDATE_CHECKPOINT)) {
+            stmt.setString(1, chunk.lastAccountId != null ? chunk.lastAccountId : partition.lastAccountId);
+            stmt.setLong(2, chunk.accounts);
+            stmt.setBoolean(3, chunk.last);
+            stmt.setString(4, period);
+            stmt.setInt(5, partition.number);
+            stmt.executeUpdate();
+        }
+        return chunk;
+    }
+
+    /**
+     * Id of the chunkSize-th account after the given one within the range,
+     * or null if the rest of the range fits in one chunk.
+     */
+    private String chunkEnd(Connection conn, String after, String upperBound) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                upperBound != null ? SELECT_BOUNDED_CHUNK_END : SELECT_CHUNK_END
+        )) {
+            int index = 1;
+            stmt.setString(index++, after);
+            if (upperBound != null) {
+                stmt.setString(index++, upperBound);
+            }
+            stmt.setInt(index, chunkSize - 1);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+
+    /**
+     * Splits the pending ranges in halves down to one range per task.
+     */
+    private class PartitionTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final String period;
+        private final List<Partition> partitions;
+        private final int from;
+        private final int to;
+        private final Totals totals;
+        private final Queue<Exception> failures;
+
+        PartitionTask(String period, List<Partition> partitions, int from, int to,
+                      Totals totals, Queue<Exception> failures) {
+            this.period = period;
+            this.partitions = partitions;
+            this.from = from;
+            this.to = to;
+            this.totals = totals;
+            this.failures = failures;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new PartitionTask(period, partitions, from, middle, totals, failures),
+                          new PartitionTask(period, partitions, middle, to, totals, failures));
+                return;
+            }
+            // A failed range keeps its checkpoint; the other ranges carry on
+            try {
+                processPartition(period, partitions.get(from), totals);
+            } catch (SQLException | RuntimeException e) {
+                failures.add(e);
+            }
+        }
+    }
+
+    /**
+     * One account_id range of a run and how far it has got.
+     */
+    private static class Partition {
+        final int number;
+        final String upperBound;
+        String lastAccountId;
+        long accountsDone;
+        boolean completed;
+
+        Partition(int number, String upperBound, String lastAccountId, long accountsDone, boolean completed) {
+            this.number = number;
+            this.upperBound = upperBound;
+            this.lastAccountId = lastAccountId;
+            this.accountsDone = accountsDone;
+            this.completed = completed;
+        }
+
+        void advance(Chunk chunk) {
+            if (chunk.lastAccountId != null) {
+                lastAccountId = chunk.lastAccountId;
+            }
+            accountsDone += chunk.accounts;
+            completed = chunk.last;
+        }
+    }
+
+    /**
+     * Balance changes worked out for one chunk.
+     */
+    private static class Chunk {
+        final List<String> accountIds = new ArrayList<>();
+        final List<BigDecimal> deltas = new ArrayList<>();
+        String lastAccountId;
+        int accounts;
+        int waived;
+        BigDecimal fees = BigDecimal.ZERO;
+        BigDecimal interest = BigDecimal.ZERO;
+        boolean last;
+
+        void accept(String accountId, AccountType type, BigDecimal balance) {
+            lastAccountId = accountId;
+            accounts++;
+            Account account = AccountFactory.createAccount(type, accountId, balance);
+            try {
+                account.processMonthlyFees();
+            } catch (InsufficientFundsException | IllegalArgumentException e) {
+                // Fee would pass the overdraft limit, or there is no balance to pay interest on
+                waived++;
+                return;
+            }
+            BigDecimal delta = account.getBalance().subtract(balance).setScale(2, RoundingMode.HALF_EVEN);
+            if (delta.signum() == 0) {
+                waived++;
+                return;
+            }
+            accountIds.add(accountId);
+            deltas.add(delta);
+            if (delta.signum() < 0) {
+                fees = fees.subtract(delta);
+            } else {
+                interest = interest.add(delta);
+            }
+        }
+    }
+
+    private static class Totals {
+        private long accounts;
+        private long chunks;
+        private long waived;
+        private BigDecimal fees = BigDecimal.ZERO;
+        private BigDecimal interest = BigDecimal.ZERO;
+
+        synchronized void add(Chunk chunk) {
+            accounts += chunk.accounts;
+            chunks++;
+            waived += chunk.waived;
+            fees = fees.add(chunk.fees);
+            interest = interest.add(chunk.interest);
+        }
+
+        synchronized MonthEndStats toStats(String period, int partitions, int alreadyDone, long elapsedNanos) {
+            return new MonthEndStats(period, partitions, alreadyDone, accounts, chunks, waived,
+                    fees, interest, elapsedNanos);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.banking.service;
+
+import java.math.BigDecimal;
+
+/**
+ * Result of one {@link MonthEndProcessor} run. Counts cover the accounts
+ * processed by this run only, not those done before a resume.
+ */
+public class MonthEndStats {
+    private final String period;
+    private final int partitions;
+    private final int partitionsAlreadyDone;
+    private final long accounts;
+    private final long chunks;
+    private final long waived;
+    private final BigDecimal feesCharged;
+    private final BigDecimal interestCredited;
+    private final long elapsedNanos;
+
+    public MonthEndStats(String period, int partitions, int partitionsAlreadyDone, long accounts, long chunks,
+                         long waived, BigDecimal feesCharged, BigDecimal interestCredited, long elapsedNanos) {
+        this.period = period;
+        this.partitions = partitions;
+        this.partitionsAlreadyDone = partitionsAlreadyDone;
+        this.accounts = accounts;
+        this.chunks = chunks;
+        this.waived = waived;
+        this.feesCharged = feesCharged;
+        this.interestCredited = interestCredited;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public String getPeriod() {
+        return period;
+    }
+
+    public int getPartitions() {
+        return partitions;
+    }
+
+    /**
+     * Partitions finished by an earlier run of the same period and skipped.
+     */
+    public int getPartitionsAlreadyDone() {
+        return partitionsAlreadyDone;
+    }
+
+    public boolean isResumed() {
+        return partitionsAlreadyDone > 0;
+    }
+
+    public long getAccounts() {
+        return accounts;
+    }
+
+    public long getChunks() {
+        return chunks;
+    }
+
+    /**
+     * Accounts whose fee was not charged because it would pass the overdraft
+     * limit, or that had nothing to credit.
+     */
+    public long getWaived() {
+        return waived;
+    }
+
+    /**
+     * Total of the monthly fees charged, as a positive amount.
+     */
+    public BigDecimal getFeesCharged() {
+        return feesCharged;
+    }
+
+    public BigDecimal getInterestCredited() {
+        return interestCredited;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double getAccountsPerSecond() {
+        return elapsedNanos > 0 ? accounts * 1_000_000_000.0 / elapsedNanos : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Month end %s: %d accounts in %d chunks over %d partitions%s, %d waived, "
+                        + "fees %.2f, interest %.2f, %.1f ms (%.0f accounts/s)",
+                period, accounts, chunks, partitions,
+                isResumed() ? " (" + partitionsAlreadyDone + " already done)" : "",
+                waived, feesCharged, interestCredited, elapsedNanos / 1_000_000.0, getAccountsPerSecond());
+    }
+}
@@ -0,0 +1,361 @@
+package com.banking.service;
+
+import com.banking.db.DatabaseConnection;
+import com.banking.db.DatabaseShards;
+import com.banking.exception.BankingException;
+import com.banking.exception.TransferPendingException;
+import com.banking.model.Account;
+import com.banking.model.AccountType;
+import com.banking.model.TransactionRecord;
+import com.banking.util.TransactionQuery;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Account engine that spreads the accounts over several H2 databases
+ * ({@link DatabaseShards}), each with its own pool, locks and ledger.
+ *
+ * Every call about one account goes to the JDBC {@link AccountService} of the
+ * shard that owns it, and so does a transfer between two accounts on the
+ * same shard. A transfer between shards runs as a {@link ShardTransferSaga};
+ * DEBITED transfers left by a crash are finished when the engine starts.
+ * Reports are computed on every shard at once and then merged, and history
+ * over all accounts is merged newest first from the shards' cursors.
+ */
+public class MultiDatabaseAccountService implements AccountOperations, AutoCloseable {
+    // Newest first, as the shards' cursors return them
+    private static final Comparator<TransactionRecord> NEWEST_FIRST =
+            Comparator.comparingLong(TransactionRecord::getEpochMicros)
+                    .thenComparingLong(TransactionRecord::getTransactionId)
+                    .reversed();
+
+    private final DatabaseShards shards;
+    private final AccountService[] services;
+    private final ShardTransferSaga saga;
+    private final ExecutorService scatter;
+
+    public MultiDatabaseAccountService() {
+        this(new DatabaseShards());
+    }
+
+    /**
+     * The shards are closed with this engine.
+     */
+    public MultiDatabaseAccountService(DatabaseShards shards) {
+        this.shards = shards;
+        int shardCount = shards.getShardCount();
+        this.services = new AccountService[shardCount];
+        BalanceCache[] balanceCaches = new BalanceCache[shardCount];
+        for (int shard = 0; shard < shardCount; shard++) {
+            balanceCaches[shard] = createBalanceCache(shardCount);
+            services[shard] = new AccountService(shards.connectionSource(shard), balanceCaches[shard]);
+        }
+        this.saga = new ShardTransferSaga(shards, balanceCaches);
+        AtomicInteger threads = new AtomicInteger();
+        this.scatter = Executors.newFixedThreadPool(shardCount, r -> {
+            Thread t = new Thread(r, "shard-scatter-" + threads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        int recovered = saga.recover();
+        if (recovered > 0) {
+            System.out.println("Finished " + recovered + " interrupted cross-shard transfers");
+        }
+    }
+
+    // cache.balance.capacity is shared out over the shards
+    private static BalanceCache createBalanceCache(int shardCount) {
+        DatabaseConnection db = DatabaseConnection.getInstance();
+        if (!Boolean.parseBoolean(db.getProperty("cache.balance.enabled", "true"))) {
+            return BalanceCache.disabled();
+        }
+        int capacity = Integer.parseInt(db.getProperty("cache.balance.capacity", "10000"));
+        return new BalanceCache(Math.max(1, capacity / shardCount));
+    }
+
+    @Override
+    public Account createAccount(AccountType type, String accountId, BigDecimal initialBalance) throws BankingException {
+        return serviceFor(accountId).createAccount(type, accountId, initialBalance);
+    }
+
+    @Override
+    public void deposit(String accountId, BigDecimal amount) throws BankingException {
+        serviceFor(accountId).deposit(accountId, amount);
+    }
+
+    @Override
+    public void withdraw(String accountId, BigDecimal amount) throws BankingException {
+        serviceFor(accountId).withdraw(accountId, amount);
+    }
+
+    @Override
+    public void transfer(String fromAccountId, String toAccountId, BigDecimal amount) throws BankingException {
+        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new BankingException("Transfer amount must be positive");
+        }
+        int fromShard = shards.shardFor(fromAccountId);
+        if (fromShard == shards.shardFor(toAccountId)) {
+            services[fromShard].transfer(fromAccountId, toAccountId, amount);
+        } else {
+            saga.transfer(fromAccountId, toAccountId, amount);
+        }
+    }
+
+    /**
+     * A batch on one shard runs there in one transaction. A batch spanning
+     * shards is applied one transfer at a time, in order, which only works
+     * for BEST_EFFORT: the sagas cannot be rolled back together. A transfer
+     * whose debit committed but whose credit was left for recovery is
+     * reported as PENDING, not REJECTED.
+     */
+    @Override
+    public List<TransferResult> transferBatch(List<TransferInstruction> instructions, BatchMode mode) throws BankingException {
+        int shard = -1;
+        boolean singleShard = true;
+        for (TransferInstruction instruction : instructions) {
+            if (AccountService.validateInstruction(instruction) != null) {
+                continue;
+            }
+            for (String accountId : new String[]{instruction.getFromAccountId(), instruction.getToAccountId()}) {
+                int owner = shards.shardFor(accountId);
+                singleShard &= shard == -1 || shard == owner;
+                shard = owner;
+            }
+        }
+        if (singleShard) {
+            return services[Math.max(shard, 0)].transferBatch(instructions, mode);
+        }
+        if (mode == BatchMode.ALL_OR_NOTHING) {
+            throw new BankingException("ALL_OR_NOTHING transfer batches cannot span database shards");
+        }
+
+        List<TransferResult> results = new ArrayList<>(instructions.size());
+        for (TransferInstruction instruction : instructions) {
+            String error = AccountService.validateInstruction(instruction);
+            TransferResult.Status status = TransferResult.Status.REJECTED;
+            if (error == null) {
+                try {
+                    transfer(instruction.getFromAccountId(), instruction.getToAccountId(), instruction.getAmount());
+                } catch (TransferPendingException e) {
+                    // The debit committed; recovery finishes it, so this is not a rejection
+                    status = TransferResult.Status.PENDING;
+                    error = e.getMessage();
+                } catch (BankingException e) {
+                    error = e.getMessage();
+                }
+            }
+            results.add(error == null
+                    ? new TransferResult(instruction, TransferResult.Status.APPLIED, null)
+                    : new TransferResult(instruction, status, error));
+        }
+        return results;
+    }
+
+    @Override
+    public BigDecimal getBalance(String accountId) throws BankingException {
+        return serviceFor(accountId).getBalance(accountId);
+    }
+
+    @Override
+    public List<TransactionRecord> getTransactionHistory(String accountId) {
+        return serviceFor(accountId).getTransactionHistory(accountId);
+    }
+
+    @Override
+    public List<TransactionRecord> getAllTransactions() {
+        return streamTransactions(TransactionQuery.all()).collect(Collectors.toList());
+    }
+
+    /**
+     * One account's history comes from its shard; otherwise the shards'
+     * cursors are merged, still holding at most one page per shard.
+     */
+    @Override
+    public Stream<TransactionRecord> streamTransactions(TransactionQuery query) {
+        if (query.getAccountId() != null) {
+            return serviceFor(query.getAccountId()).streamTransactions(query);
+        }
+        List<Iterator<TransactionRecord>> cursors = new ArrayList<>();
+        for (AccountService service : services) {
+            cursors.add(service.streamTransactions(query).iterator());
+        }
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(new MergedCursor(cursors),
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    @Override
+    public void deleteAccount(String accountId) throws BankingException {
+        serviceFor(accountId).deleteAccount(accountId);
+    }
+
+    @Override
+    public Map<String, Object> getAccountSummary() {
+        int accounts = 0;
+        BigDecimal balance = BigDecimal.ZERO;
+        for (Map<String, Object> partial : gather(AccountService::getAccountSummary)) {
+            accounts += (Integer) partial.getOrDefault("totalAccounts", 0);
+            balance = balance.add((BigDecimal) partial.getOrDefault("totalBalance", BigDecimal.ZERO));
+        }
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("totalAccounts", accounts);
+        summary.put("totalBalance", balance);
+        return summary;
+    }
+
+    @Override
+    public Map<String, Object> getDailyTransactions() {
+        BigDecimal deposits = BigDecimal.ZERO;
+        BigDecimal withdrawals = BigDecimal.ZERO;
+        for (Map<String, Object> partial : gather(AccountService::getDailyTransactions)) {
+            deposits = deposits.add((BigDecimal) partial.getOrDefault("totalDeposits", BigDecimal.ZERO));
+            withdrawals = withdrawals.add((BigDecimal) partial.getOrDefault("totalWithdrawals", BigDecimal.ZERO));
+        }
+        Map<String, Object> report = new HashMap<>();
+        report.put("totalDeposits", deposits);
+        report.put("totalWithdrawals", withdrawals);
+        return report;
+    }
+
+    @Override
+    public Map<String, Object> getAccountActivity() {
+        Map<String, Object> report = new HashMap<>();
+        for (Map<String, Object> partial : gather(AccountService::getAccountActivity)) {
+            Integer count = (Integer) partial.get("transactionCount");
+            if (count != null && (!report.containsKey("transactionCount")
+                    || count > (Integer) report.get("transactionCount"))) {
+                report.put("mostActiveAccount", partial.get("mostActiveAccount"));
+                report.put("transactionCount", count);
+            }
+            BigDecimal balance = (BigDecimal) partial.get("highestBalance");
+            if (balance != null && (!report.containsKey("highestBalance")
+                    || balance.compareTo((BigDecimal) report.get("highestBalance")) > 0)) {
+                report.put("highestBalanceAccount", partial.get("highestBalanceAccount"));
+                report.put("highestBalance", balance);
+            }
+        }
+        return report;
+    }
+
+    /**
+     * Finish DEBITED cross-shard transfers now rather than at the next start.
+     * Returns the number finished.
+     */
+    public int recoverTransfers() {
+        return saga.recover();
+    }
+
+    public DatabaseShards getShards() {
+        return shards;
+    }
+
+    /**
+     * Cross-shard transfers whose credit was applied, by the caller or by recovery.
+     */
+    public long getCrossShardTransfers() {
+        return saga.getCompleted();
+    }
+
+    /**
+     * Cross-shard transfers refunded because the target account was missing.
+     */
+    public long getCompensatedTransfers() {
+        return saga.getCompensated();
+    }
+
+    @Override
+    public void close() {
+        scatter.shutdown();
+        shards.close();
+    }
+
+    private AccountService serviceFor(String accountId) {
+        return services[shards.shardFor(accountId)];
+    }
+
+    /**
+     * Run the report on every shard at once and return the partial results.
+     */
+    private List<Map<String, Object>> gather(Function<AccountService, Map<String, Object>> report) {
+        List<Future<Map<String, Object>>> futures = new ArrayList<>();
+        for (AccountService service : services) {
+            futures.add(scatter.submit(() -> report.apply(service)));
+        }
+        List<Map<String, Object>> partials = new ArrayList<>();
+        for (Future<Map<String, Object>> future : futures) {
+            try {
+                partials.add(future.get());
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new BankingException("Shard report failed: " + e.getCause().getMessage(), e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new BankingException("Interrupted while waiting for shard reports", e);
+            }
+        }
+        return partials;
+    }
+
+    /**
+     * k-way merge of newest-first cursors.
+     */
+    private static final class MergedCursor implements Iterator<TransactionRecord> {
+        private final PriorityQueue<Head> heads = new PriorityQueue<>((a, b) -> NEWEST_FIRST.compare(a.row, b.row));
+
+        MergedCursor(List<Iterator<TransactionRecord>> cursors) {
+            for (Iterator<TransactionRecord> cursor : cursors) {
+                if (cursor.hasNext()) {
+                    heads.add(new Head(cursor.next(), cursor));
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public TransactionRecord next() {
+            Head head = heads.poll();
+            if (head == null) {
+                throw new NoSuchElementException();
+            }
+            if (head.cursor.hasNext()) {
+                heads.add(new Head(head.cursor.next(), head.cursor));
+            }
+            return head.row;
+        }
+
+        private static final class Head {
+            final TransactionRecord row;
+            final Iterator<TransactionRecord> cursor;
+
+            Head(TransactionRecord row, Iterator<TransactionRecord> cursor) {
+                this.row = row;
+                this.cursor = cursor;
+            }
+        }
+    }
+}
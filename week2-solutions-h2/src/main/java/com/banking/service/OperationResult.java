@@ -0,0 +1,89 @@
+package com.banking.service;
+
+import java.math.BigDecimal;
+import java.util.Objects;
+
+/**
+ * Outcome of a deposit, withdrawal or transfer made with an idempotency key.
+ * A retry with the same key gets the original result back with
+ * {@link #isReplayed()} set, and the balance is not touched again.
+ */
+public class OperationResult {
+    public enum Kind {
+        DEPOSIT,
+        WITHDRAW,
+        TRANSFER
+    }
+
+    private final String idempotencyKey;
+    private final Kind kind;
+    private final String accountId;
+    // Transfer target, otherwise null
+    private final String toAccountId;
+    private final BigDecimal amount;
+    private final long completedAtMillis;
+    private final boolean replayed;
+
+    public OperationResult(String idempotencyKey, Kind kind, String accountId, String toAccountId,
+                           BigDecimal amount, long completedAtMillis, boolean replayed) {
+        this.idempotencyKey = idempotencyKey;
+        this.kind = kind;
+        this.accountId = accountId;
+        this.toAccountId = toAccountId;
+        this.amount = amount;
+        this.completedAtMillis = completedAtMillis;
+        this.replayed = replayed;
+    }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getAccountId() {
+        return accountId;
+    }
+
+    public String getToAccountId() {
+        return toAccountId;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    /**
+     * When the original request committed.
+     */
+    public long getCompletedAtMillis() {
+        return completedAtMillis;
+    }
+
+    /**
+     * True when this is a retry answered from the dedup index.
+     */
+    public boolean isReplayed() {
+        return replayed;
+    }
+
+    /**
+     * Whether the other result is for the same operation, accounts and amount.
+     */
+    boolean sameRequest(OperationResult other) {
+        return kind == other.kind && accountId.equals(other.accountId)
+                && Objects.equals(toAccountId, other.toAccountId) && amount.compareTo(other.amount) == 0;
+    }
+
+    OperationResult asReplay() {
+        return new OperationResult(idempotencyKey, kind, accountId, toAccountId, amount, completedAtMillis, true);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("OperationResult[%s, %s %s%s %.2f%s]", idempotencyKey, kind, accountId,
+                toAccountId != null ? " -> " + toAccountId : "", amount, replayed ? ", replayed" : "");
+    }
+}
@@ -0,0 +1,519 @@
+package com.banking.service;
+
+import com.banking.db.DatabaseConnection;
+import com.banking.db.UnitOfWork;
+import com.banking.exception.BankingException;
+import com.banking.util.CountMinSketch;
+import com.banking.util.LedgerPartitions;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The AccountService reports computed by scanning the tables in partitions,
+ * each on its own pooled connection, and merging the partial results.
+ * Accounts and their ledger rows are split by account_id range, today's
+ * ledger rows by time slice.
+ *
+ * With a time budget, statements still running when it runs out are
+ * timed out and the report is built from those that finished. The most
+ * active account is then counted with a {@link CountMinSketch} per partition
+ * over transaction_id chunks instead of an exact GROUP BY, so every
+ * partition contributes whatever it has read by the deadline. Such reports
+ * carry "approximate" = true and the fraction of the data they cover.
+ */
+public class ParallelReports implements AutoCloseable {
+    private static final int SKETCH_WIDTH = 8192;
+    private static final int SKETCH_DEPTH = 4;
+    // Accounts per partition kept as most-active candidates in budgeted mode
+    private static final int CANDIDATES = 32;
+    // transaction_ids read per statement in budgeted mode; the deadline is checked between chunks
+    private static final int SCAN_CHUNK = 10_000;
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    private static ParallelReports instance;
+
+    private final UnitOfWork.ConnectionSource connectionSource;
+    private final int partitions;
+    private final long budgetNanos;
+    private final ExecutorService workers;
+
+    /**
+     * @param partitions ranges each report is split into
+     * @param threads    partitions run at once; each holds a pooled connection
+     * @param budgetMs   time a report may take before it settles for an approximate result (0 = exact)
+     */
+    public ParallelReports(UnitOfWork.ConnectionSource connectionSource, int partitions, int threads, long budgetMs) {
+        if (partitions < 1 || threads < 1 || budgetMs < 0) {
+            throw new IllegalArgumentException("partitions and threads must be positive and budgetMs not negative");
+        }
+        this.connectionSource = connectionSource;
+        this.partitions = partitions;
+        this.budgetNanos = TimeUnit.MILLISECONDS.toNanos(budgetMs);
+        AtomicInteger count = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "report-worker-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * The instance used by every AccountService, configured by the reports.parallel.* settings.
+     */
+    public static synchronized ParallelReports getInstance() {
+        if (instance == null) {
+            DatabaseConnection db = DatabaseConnection.getInstance();
+            instance = new ParallelReports(db::getConnection,
+                    Integer.parseInt(db.getProperty("reports.parallel.partitions", "8")),
+                    Integer.parseInt(db.getProperty("reports.parallel.threads",
+                            String.valueOf(Runtime.getRuntime().availableProcessors()))),
+                    Long.parseLong(db.getProperty("reports.parallel.budgetMs", "0")));
+        }
+        return instance;
+    }
+
+    public Map<String, Object> getAccountSummary() {
+        Run run = new Run();
+        List<String> bounds = accountRanges();
+        List<Future<Object[]>> futures = new ArrayList<>();
+        for (int i = 0; i < bounds.size(); i++) {
+            String lower = i > 0 ? bounds.get(i - 1) : null;
+            String upper = bounds.get(i);
+            futures.add(run.submit(conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "SELECT COUNT(*), SUM(balance) FROM accounts WHERE " + rangeCondition(upper))) {
+                    bindRange(stmt, 1, lower, upper);
+                    try (ResultSet rs = run.executeQuery(stmt)) {
+                        rs.next();
+                        return new Object[]{rs.getInt(1), rs.getBigDecimal(2)};
+                    }
+                }
+            }));
+        }
+
+        int totalAccounts = 0;
+        BigDecimal totalBalance = BigDecimal.ZERO;
+        for (Object[] partial : run.collect(futures)) {
+            if (partial == null) {
+                continue;
+            }
+            totalAccounts += (Integer) partial[0];
+            if (partial[1] != null) {
+                totalBalance = totalBalance.add((BigDecimal) partial[1]);
+            }
+        }
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("totalAccounts", totalAccounts);
+        summary.put("totalBalance", totalBalance);
+        run.describe(summary);
+        return summary;
+    }
+
+    public Map<String, Object> getDailyTransactions() {
+        Run run = new Run();
+        LocalDateTime start = LocalDate.now().atStartOfDay();
+        long sliceNanos = TimeUnit.DAYS.toNanos(1) / partitions;
+        List<Future<BigDecimal[]>> futures = new ArrayList<>();
+        for (int i = 0; i < partitions; i++) {
+            Timestamp from = Timestamp.valueOf(start.plusNanos(sliceNanos * i));
+            Timestamp to = Timestamp.valueOf(i == partitions - 1 ? start.plusDays(1) : start.plusNanos(sliceNanos * (i + 1)));
+            futures.add(run.submit(conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "SELECT SUM(CASE WHEN amount > 0 THEN amount ELSE 0 END), " +
+                        "SUM(CASE WHEN amount < 0 THEN amount ELSE 0 END) " +
+                        "FROM transactions WHERE transaction_date >= ? AND transaction_date < ?")) {
+                    stmt.setTimestamp(1, from);
+                    stmt.setTimestamp(2, to);
+                    try (ResultSet rs = run.executeQuery(stmt)) {
+                        rs.next();
+                        return new BigDecimal[]{rs.getBigDecimal(1), rs.getBigDecimal(2)};
+                    }
+                }
+            }));
+        }
+
+        BigDecimal deposits = BigDecimal.ZERO;
+        BigDecimal withdrawals = BigDecimal.ZERO;
+        for (BigDecimal[] partial : run.collect(futures)) {
+            if (partial != null && partial[0] != null) {
+                deposits = deposits.add(partial[0]);
+                withdrawals = withdrawals.add(partial[1]);
+            }
+        }
+        Map<String, Object> report = new HashMap<>();
+        report.put("totalDeposits", deposits);
+        report.put("totalWithdrawals", withdrawals);
+        run.describe(report);
+        return report;
+    }
+
+    public Map<String, Object> getAccountActivity() {
+        Run run = new Run();
+        List<String> bounds = accountRanges();
+        List<Future<Object[]>> richest = new ArrayList<>();
+        for (int i = 0; i < bounds.size(); i++) {
+            String lower = i > 0 ? bounds.get(i - 1) : null;
+            String upper = bounds.get(i);
+            richest.add(run.submit(conn -> top(conn, run,
+                    "SELECT account_id, balance FROM accounts WHERE " + rangeCondition(upper) +
+                    " ORDER BY balance DESC LIMIT 1", 1, lower, upper)));
+        }
+
+        Map<String, Object> report = new HashMap<>();
+        if (run.hasDeadline()) {
+            mostActiveApproximate(run, report);
+        } else {
+            LedgerPartitions ledger = loadLedger();
+            List<Future<Object[]>> active = new ArrayList<>();
+            for (int i = 0; i < bounds.size(); i++) {
+                String lower = i > 0 ? bounds.get(i - 1) : null;
+                String upper = bounds.get(i);
+                active.add(run.submit(conn -> top(conn, run,
+                        ledger.accountCountsSql(rangeCondition(upper)) + " ORDER BY tx_count DESC LIMIT 1",
+                        ledger.branches(), lower, upper)));
+            }
+            Object[] best = null;
+            for (Object[] partial : run.collect(active)) {
+                if (partial != null && (best == null || ((Long) partial[1]) > (Long) best[1])) {
+                    best = partial;
+                }
+            }
+            if (best != null) {
+                report.put("mostActiveAccount", best[0]);
+                report.put("transactionCount", ((Long) best[1]).intValue());
+            }
+        }
+
+        Object[] best = null;
+        for (Object[] partial : run.collect(richest)) {
+            if (partial != null && (best == null || ((BigDecimal) partial[1]).compareTo((BigDecimal) best[1]) > 0)) {
+                best = partial;
+            }
+        }
+        if (best != null) {
+            report.put("highestBalanceAccount", best[0]);
+            report.put("highestBalance", best[1]);
+        }
+        run.describe(report);
+        return report;
+    }
+
+    /**
+     * Most active account from per-partition sketches over transaction_id
+     * chunks; every partition stops reading at the deadline. Only the hot
+     * transactions table is read, not the archived months.
+     */
+    private void mostActiveApproximate(Run run, Map<String, Object> report) {
+        long[] ids;
+        try (Connection conn = connectionSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT MIN(transaction_id), MAX(transaction_id) FROM transactions");
+             ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            ids = new long[]{rs.getLong(1), rs.getLong(2)};
+        } catch (SQLException e) {
+            throw new BankingException("Could not create activity report", e);
+        }
+        long span = ids[1] - ids[0] + 1;
+        long step = (span + partitions - 1) / partitions;
+        List<Future<ActivitySketch>> futures = new ArrayList<>();
+        for (long from = ids[0]; from <= ids[1]; from += step) {
+            long first = from;
+            long last = Math.min(from + step - 1, ids[1]);
+            futures.add(run.submit(conn -> scanActivity(conn, run, first, last)));
+        }
+
+        ActivitySketch merged = new ActivitySketch();
+        for (ActivitySketch partial : run.collect(futures)) {
+            if (partial != null) {
+                merged.merge(partial);
+            }
+        }
+        run.cover(merged.idsScanned, span);
+        String best = null;
+        long bestCount = 0;
+        for (String candidate : merged.candidates.keySet()) {
+            long estimate = merged.sketch.estimate(candidate);
+            if (estimate > bestCount) {
+                best = candidate;
+                bestCount = estimate;
+            }
+        }
+        if (best != null) {
+            report.put("mostActiveAccount", best);
+            report.put("transactionCount", (int) bestCount);
+        }
+        run.approximate();
+    }
+
+    private ActivitySketch scanActivity(Connection conn, Run run, long first, long last) throws SQLException {
+        ActivitySketch partial = new ActivitySketch();
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT account_id FROM transactions WHERE transaction_id BETWEEN ? AND ?")) {
+            for (long from = first; from <= last && !run.isExpired(); from += SCAN_CHUNK) {
+                long to = Math.min(from + SCAN_CHUNK - 1, last);
+                stmt.setLong(1, from);
+                stmt.setLong(2, to);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        partial.add(rs.getString(1));
+                    }
+                }
+                partial.idsScanned += to - from + 1;
+            }
+        }
+        return partial;
+    }
+
+    private static Object[] top(Connection conn, Run run, String sql, int ranges,
+                                String lower, String upper) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int i = 1;
+            for (int r = 0; r < ranges; r++) {
+                i = bindRange(stmt, i, lower, upper);
+            }
+            try (ResultSet rs = run.executeQuery(stmt)) {
+                // Value is a Long count or a BigDecimal balance
+                return rs.next() ? new Object[]{rs.getString(1), rs.getObject(2)} : null;
+            }
+        }
+    }
+
+    private LedgerPartitions loadLedger() {
+        try (Connection conn = connectionSource.getConnection()) {
+            return LedgerPartitions.load(conn);
+        } catch (SQLException e) {
+            throw new BankingException("Could not read the ledger partitions", e);
+        }
+    }
+
+    private List<String> accountRanges() {
+        try (Connection conn = connectionSource.getConnection()) {
+            return AccountRanges.upperBounds(conn, partitions);
+        } catch (SQLException e) {
+            throw new BankingException("Could not split accounts for a report", e);
+        }
+    }
+
+    private static String rangeCondition(String upper) {
+        return upper != null ? "account_id > ? AND account_id <= ?" : "account_id > ?";
+    }
+
+    private static int bindRange(PreparedStatement stmt, int i, String lower, String upper) throws SQLException {
+        stmt.setString(i++, lower != null ? lower : "");
+        if (upper != null) {
+            stmt.setString(i++, upper);
+        }
+        return i;
+    }
+
+    @Override
+    public void close() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * Computes one partition of a report on a pooled connection.
+     */
+    @FunctionalInterface
+    private interface Partial<T> {
+        T compute(Connection conn) throws SQLException;
+    }
+
+    /**
+     * One report: its deadline and how much of the data made it into the result.
+     *
+     * The deadline is enforced with H2's session QUERY_TIMEOUT rather than
+     * Statement.cancel(): H2 caches commands per session by SQL and a cancel
+     * that lands as a statement finishes stays on the cached command, failing
+     * the next report that runs the same SQL on that connection.
+     */
+    private class Run {
+        private final long deadline = budgetNanos > 0 ? System.nanoTime() + budgetNanos : NO_DEADLINE;
+        private volatile boolean expired;
+        private int partitionsRun;
+        private int partitionsDone;
+        private double idCoverage = -1;
+        private boolean approximate;
+
+        boolean hasDeadline() {
+            return deadline != NO_DEADLINE;
+        }
+
+        boolean isExpired() {
+            return expired;
+        }
+
+        <T> Future<T> submit(Partial<T> partial) {
+            return workers.submit(() -> {
+                if (expired) {
+                    return null;
+                }
+                try (Connection conn = connectionSource.getConnection()) {
+                    try {
+                        return partial.compute(conn);
+                    } finally {
+                        if (hasDeadline()) {
+                            setQueryTimeout(conn, 0);
+                        }
+                    }
+                } catch (SQLException e) {
+                    if (expired || (hasDeadline() && e instanceof SQLTimeoutException)) {
+                        // Stopped at the deadline
+                        return null;
+                    }
+                    throw e;
+                }
+            });
+        }
+
+        /**
+         * Execute the query so that it times out at the deadline.
+         */
+        ResultSet executeQuery(PreparedStatement stmt) throws SQLException {
+            if (hasDeadline()) {
+                long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (expired || remainingMs <= 0) {
+                    throw new SQLTimeoutException("Report time budget exceeded");
+                }
+                // Also covers the rows fetched lazily after executeQuery returns
+                setQueryTimeout(stmt.getConnection(), remainingMs);
+            }
+            return stmt.executeQuery();
+        }
+
+        private void setQueryTimeout(Connection conn, long millis) throws SQLException {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("SET QUERY_TIMEOUT " + millis);
+            }
+        }
+
+        /**
+         * Results of the partitions that finished before the deadline; the
+         * others are null.
+         */
+        <T> List<T> collect(List<Future<T>> futures) {
+            List<T> results = new ArrayList<>();
+            for (Future<T> future : futures) {
+                T result;
+                try {
+                    result = waitFor(future);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new BankingException("Interrupted while waiting for a report");
+                } catch (ExecutionException e) {
+                    throw new BankingException("Report partition failed: " + e.getCause().getMessage(), e.getCause());
+                }
+                partitionsRun++;
+                if (result != null) {
+                    partitionsDone++;
+                }
+                results.add(result);
+            }
+            return results;
+        }
+
+        private <T> T waitFor(Future<T> future) throws InterruptedException, ExecutionException {
+            if (expired || !hasDeadline()) {
+                return future.get();
+            }
+            try {
+                return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                // The partition's statement times out by itself at about the same moment
+                expired = true;
+                return future.get();
+            }
+        }
+
+        /**
+         * Record that only part of the ledger's transaction_id span was read.
+         */
+        void cover(long ids, long span) {
+            idCoverage = span > 0 ? Math.min(1.0, (double) ids / span) : 1.0;
+        }
+
+        void approximate() {
+            approximate = true;
+        }
+
+        /**
+         * Flag the report as approximate, with its coverage, if it is.
+         */
+        void describe(Map<String, Object> report) {
+            if (!approximate && partitionsDone == partitionsRun) {
+                return;
+            }
+            double coverage = partitionsRun > 0 ? (double) partitionsDone / partitionsRun : 1.0;
+            report.put("approximate", true);
+            report.put("coverage", idCoverage >= 0 ? Math.min(coverage, idCoverage) : coverage);
+        }
+    }
+
+    /**
+     * Ledger rows per account as seen by one partition, in bounded memory:
+     * a count-min sketch plus the accounts that looked most active so far.
+     */
+    private static class ActivitySketch {
+        final CountMinSketch sketch = new CountMinSketch(SKETCH_WIDTH, SKETCH_DEPTH);
+        final Map<String, Long> candidates = new HashMap<>();
+        long weakest;
+        long idsScanned;
+
+        void add(String accountId) {
+            sketch.add(accountId);
+            long estimate = sketch.estimate(accountId);
+            if (candidates.size() < CANDIDATES || candidates.containsKey(accountId)) {
+                candidates.put(accountId, estimate);
+                return;
+            }
+            // weakest can lag behind the candidates' estimates, which only costs a rescan
+            if (estimate <= weakest) {
+                return;
+            }
+            String weakestId = weakestCandidate();
+            if (estimate > candidates.get(weakestId)) {
+                candidates.remove(weakestId);
+                candidates.put(accountId, estimate);
+                weakestId = weakestCandidate();
+            }
+            weakest = candidates.get(weakestId);
+        }
+
+        private String weakestCandidate() {
+            String weakestId = null;
+            for (Map.Entry<String, Long> entry : candidates.entrySet()) {
+                if (weakestId == null || entry.getValue() < candidates.get(weakestId)) {
+                    weakestId = entry.getKey();
+                }
+            }
+            return weakestId;
+        }
+
+        void merge(ActivitySketch other) {
+            sketch.merge(other.sketch);
+            candidates.putAll(other.candidates);
+            idsScanned += other.idsScanned;
+        }
+    }
+}
@@ -0,0 +1,407 @@
+package com.banking.service;
+
+import com.banking.db.DatabaseConnection;
+import com.banking.db.UnitOfWork;
+import com.banking.exception.BankingException;
+import com.banking.util.LedgerPartitions;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Report figures kept up to date on every write instead of recomputed per call.
+ *
+ * Holds account count and total balance, per-day deposit/withdrawal totals,
+ * per-account transaction counts and a balance ranking. Lookups are O(1)
+ * (totals) or O(log n) (rankings). Built once from the base tables with
+ * {@link #load}; {@link AggregateReconciler} checks it against them later.
+ *
+ * Writers apply changes after their transaction commits, so a report can
+ * briefly lag a write that is still in flight. Each writer holds a
+ * {@link WriteFence} from before its commit until its changes are applied,
+ * which lets {@link #reloadFrom} load the tables while no write is half done.
+ */
+public class ReportAggregates {
+    private static ReportAggregates instance;
+    private static AggregateReconciler reconciler;
+    private static final WriteFence NO_FENCE = () -> { };
+
+    private final boolean enabled;
+    private final Object lock = new Object();
+    // Shared by writers between commit and apply, exclusive while reloading
+    private final ReentrantReadWriteLock fence = new ReentrantReadWriteLock();
+
+    private final Map<String, BigDecimal> balances = new HashMap<>();
+    private final TreeSet<Ranked<BigDecimal>> balanceRanking = new TreeSet<>();
+    private final Map<String, Long> transactionCounts = new HashMap<>();
+    private final TreeSet<Ranked<Long>> activityRanking = new TreeSet<>();
+    private final Map<LocalDate, BigDecimal[]> dailyTotals = new HashMap<>();
+    private BigDecimal totalBalance = BigDecimal.ZERO;
+
+    public ReportAggregates() {
+        this(true);
+    }
+
+    private ReportAggregates(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Aggregates that ignore every change; reports fall back to SQL.
+     */
+    public static ReportAggregates disabled() {
+        return new ReportAggregates(false);
+    }
+
+    /**
+     * The aggregates shared by every AccountService, loaded from the tables on
+     * first use. Starts the reconciliation job if an interval is configured.
+     */
+    public static synchronized ReportAggregates getInstance() {
+        if (instance == null) {
+            DatabaseConnection db = DatabaseConnection.getInstance();
+            try (Connection conn = db.getConnection()) {
+                instance = load(conn);
+            } catch (SQLException e) {
+                throw new BankingException("Failed to load report aggregates", e);
+            }
+            long intervalMs = Long.parseLong(db.getProperty("reports.aggregates.reconcileIntervalMs", "60000"));
+            if (intervalMs > 0) {
+                reconciler = new AggregateReconciler(instance, db::getConnection,
+                        Boolean.parseBoolean(db.getProperty("reports.aggregates.repair", "true")));
+                reconciler.start(intervalMs);
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * The background job started by {@link #getInstance()}, or null.
+     */
+    public static synchronized AggregateReconciler getReconciler() {
+        return reconciler;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Build the aggregates from the accounts table and the ledger, archived
+     * months and rollups included.
+     */
+    public static ReportAggregates load(Connection conn) throws SQLException {
+        ReportAggregates aggregates = new ReportAggregates();
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT account_id, balance FROM accounts");
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                aggregates.accountCreated(rs.getString("account_id"), rs.getBigDecimal("balance"));
+            }
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(LedgerPartitions.load(conn).accountCountsSql(null));
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                aggregates.setTransactionCount(rs.getString("account_id"), rs.getLong("tx_count"));
+            }
+        }
+        for (Map.Entry<LocalDate, BigDecimal[]> day : loadDailyTotals(conn, null).entrySet()) {
+            aggregates.dailyTotals.put(day.getKey(), day.getValue());
+        }
+        return aggregates;
+    }
+
+    /**
+     * Deposits [0] and withdrawals [1] per day, for one account or (null) all of them.
+     */
+    static Map<LocalDate, BigDecimal[]> loadDailyTotals(Connection conn, String accountId) throws SQLException {
+        Map<LocalDate, BigDecimal[]> totals = new HashMap<>();
+        LedgerPartitions ledger = LedgerPartitions.load(conn);
+        try (PreparedStatement stmt = conn.prepareStatement(
+                ledger.dailyTotalsSql(accountId != null ? "account_id = ?" : null))) {
+            if (accountId != null) {
+                for (int i = 1; i <= ledger.branches(); i++) {
+                    stmt.setString(i, accountId);
+                }
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    totals.put(rs.getDate("tx_day").toLocalDate(), new BigDecimal[]{
+                            rs.getBigDecimal("deposits"), rs.getBigDecimal("withdrawals")});
+                }
+            }
+        }
+        return totals;
+    }
+
+    public void accountCreated(String accountId, BigDecimal balance) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (lock) {
+            setBalance(accountId, balance);
+            totalBalance = totalBalance.add(balance);
+        }
+    }
+
+    public void balanceChanged(String accountId, BigDecimal delta) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (lock) {
+            BigDecimal current = balances.get(accountId);
+            if (current == null) {
+                return;
+            }
+            setBalance(accountId, current.add(delta));
+            totalBalance = totalBalance.add(delta);
+        }
+    }
+
+    public void transactionLogged(String accountId, BigDecimal amount, LocalDate day) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (lock) {
+            setTransactionCount(accountId, transactionCounts.getOrDefault(accountId, 0L) + 1);
+            BigDecimal[] totals = dailyTotals.computeIfAbsent(day, d -> new BigDecimal[]{BigDecimal.ZERO, BigDecimal.ZERO});
+            int slot = amount.signum() > 0 ? 0 : 1;
+            if (amount.signum() != 0) {
+                totals[slot] = totals[slot].add(amount);
+            }
+        }
+    }
+
+    /**
+     * Remove an account and the ledger rows that were deleted with it.
+     */
+    public void accountDeleted(String accountId, Map<LocalDate, BigDecimal[]> removedDailyTotals) {
+        if (!enabled) {
+            return;
+        }
+        synchronized (lock) {
+            BigDecimal balance = balances.remove(accountId);
+            if (balance != null) {
+                balanceRanking.remove(new Ranked<>(balance, accountId));
+                totalBalance = totalBalance.subtract(balance);
+            }
+            Long count = transactionCounts.remove(accountId);
+            if (count != null) {
+                activityRanking.remove(new Ranked<>(count, accountId));
+            }
+            for (Map.Entry<LocalDate, BigDecimal[]> removed : removedDailyTotals.entrySet()) {
+                BigDecimal[] totals = dailyTotals.get(removed.getKey());
+                if (totals != null) {
+                    totals[0] = totals[0].subtract(removed.getValue()[0]);
+                    totals[1] = totals[1].subtract(removed.getValue()[1]);
+                }
+            }
+        }
+    }
+
+    public int getAccountCount() {
+        synchronized (lock) {
+            return balances.size();
+        }
+    }
+
+    public BigDecimal getTotalBalance() {
+        synchronized (lock) {
+            return totalBalance;
+        }
+    }
+
+    public BigDecimal getDeposits(LocalDate day) {
+        synchronized (lock) {
+            BigDecimal[] totals = dailyTotals.get(day);
+            return totals != null ? totals[0] : BigDecimal.ZERO;
+        }
+    }
+
+    public BigDecimal getWithdrawals(LocalDate day) {
+        synchronized (lock) {
+            BigDecimal[] totals = dailyTotals.get(day);
+            return totals != null ? totals[1] : BigDecimal.ZERO;
+        }
+    }
+
+    /**
+     * Account with the most ledger rows, or null if there are none.
+     */
+    public Map.Entry<String, Long> getMostActiveAccount() {
+        synchronized (lock) {
+            return activityRanking.isEmpty() ? null : activityRanking.first().toEntry();
+        }
+    }
+
+    /**
+     * The n highest balances, highest first.
+     */
+    public List<Map.Entry<String, BigDecimal>> getTopBalances(int n) {
+        synchronized (lock) {
+            List<Map.Entry<String, BigDecimal>> top = new ArrayList<>(Math.min(n, balanceRanking.size()));
+            Iterator<Ranked<BigDecimal>> it = balanceRanking.iterator();
+            while (top.size() < n && it.hasNext()) {
+                top.add(it.next().toEntry());
+            }
+            return top;
+        }
+    }
+
+    /**
+     * Differences between these aggregates and another copy, keyed by figure.
+     */
+    Map<String, String> diff(ReportAggregates expected) {
+        Map<String, String> differences = new LinkedHashMap<>();
+        synchronized (lock) {
+            synchronized (expected.lock) {
+                compare(differences, "totalAccounts", balances.size(), expected.balances.size());
+                compare(differences, "totalBalance", totalBalance, expected.totalBalance);
+                for (String accountId : union(balances.keySet(), expected.balances.keySet())) {
+                    compare(differences, "balance:" + accountId,
+                            balances.get(accountId), expected.balances.get(accountId));
+                }
+                for (String accountId : union(transactionCounts.keySet(), expected.transactionCounts.keySet())) {
+                    compare(differences, "transactions:" + accountId,
+                            transactionCounts.getOrDefault(accountId, 0L),
+                            expected.transactionCounts.getOrDefault(accountId, 0L));
+                }
+                for (LocalDate day : union(dailyTotals.keySet(), expected.dailyTotals.keySet())) {
+                    BigDecimal[] actual = dailyTotals.getOrDefault(day, new BigDecimal[]{BigDecimal.ZERO, BigDecimal.ZERO});
+                    BigDecimal[] wanted = expected.dailyTotals.getOrDefault(day, new BigDecimal[]{BigDecimal.ZERO, BigDecimal.ZERO});
+                    compare(differences, "deposits:" + day, actual[0], wanted[0]);
+                    compare(differences, "withdrawals:" + day, actual[1], wanted[1]);
+                }
+            }
+        }
+        return differences;
+    }
+
+    /**
+     * Enter before the transaction whose changes will be applied here starts
+     * committing, and close once they have been applied.
+     */
+    public WriteFence enterWrite() {
+        if (!enabled) {
+            return NO_FENCE;
+        }
+        fence.readLock().lock();
+        return () -> fence.readLock().unlock();
+    }
+
+    /**
+     * Replace the contents with a copy loaded from the tables. Writers are
+     * fenced off meanwhile, so every write is either in the loaded copy or
+     * applied after it, never both or neither. Blocks writes for one scan.
+     */
+    void reloadFrom(UnitOfWork.ConnectionSource connectionSource) throws SQLException {
+        fence.writeLock().lock();
+        try (Connection conn = connectionSource.getConnection()) {
+            replaceWith(load(conn));
+        } finally {
+            fence.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replace the contents with a freshly loaded copy.
+     */
+    void replaceWith(ReportAggregates fresh) {
+        synchronized (lock) {
+            synchronized (fresh.lock) {
+                balances.clear();
+                balances.putAll(fresh.balances);
+                balanceRanking.clear();
+                balanceRanking.addAll(fresh.balanceRanking);
+                transactionCounts.clear();
+                transactionCounts.putAll(fresh.transactionCounts);
+                activityRanking.clear();
+                activityRanking.addAll(fresh.activityRanking);
+                dailyTotals.clear();
+                for (Map.Entry<LocalDate, BigDecimal[]> day : fresh.dailyTotals.entrySet()) {
+                    dailyTotals.put(day.getKey(), day.getValue().clone());
+                }
+                totalBalance = fresh.totalBalance;
+            }
+        }
+    }
+
+    private void setBalance(String accountId, BigDecimal balance) {
+        BigDecimal previous = balances.put(accountId, balance);
+        if (previous != null) {
+            balanceRanking.remove(new Ranked<>(previous, accountId));
+        }
+        balanceRanking.add(new Ranked<>(balance, accountId));
+    }
+
+    private void setTransactionCount(String accountId, long count) {
+        Long previous = transactionCounts.put(accountId, count);
+        if (previous != null) {
+            activityRanking.remove(new Ranked<>(previous, accountId));
+        }
+        activityRanking.add(new Ranked<>(count, accountId));
+    }
+
+    private static void compare(Map<String, String> differences, String key, Object actual, Object expected) {
+        boolean same = actual instanceof BigDecimal && expected instanceof BigDecimal
+                ? ((BigDecimal) actual).compareTo((BigDecimal) expected) == 0
+                : Objects.equals(actual, expected);
+        if (!same) {
+            differences.put(key, String.format("%s: aggregate=%s, tables=%s", key, actual, expected));
+        }
+    }
+
+    private static <T> TreeSet<T> union(Iterable<T> a, Iterable<T> b) {
+        TreeSet<T> all = new TreeSet<>();
+        a.forEach(all::add);
+        b.forEach(all::add);
+        return all;
+    }
+
+    /**
+     * Held by a writer from before its commit until its changes are applied.
+     */
+    public interface WriteFence extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /**
+     * Ranking entry: highest value first, ties broken by account id.
+     */
+    private static final class Ranked<T extends Comparable<T>> implements Comparable<Ranked<T>> {
+        private static final Comparator<Ranked<?>> BY_ID = Comparator.comparing(r -> r.accountId);
+
+        private final T value;
+        private final String accountId;
+
+        private Ranked(T value, String accountId) {
+            this.value = value;
+            this.accountId = accountId;
+        }
+
+        @Override
+        public int compareTo(Ranked<T> other) {
+            int byValue = other.value.compareTo(value);
+            return byValue != 0 ? byValue : BY_ID.compare(this, other);
+        }
+
+        private Map.Entry<String, T> toEntry() {
+            return Map.entry(accountId, value);
+        }
+    }
+}
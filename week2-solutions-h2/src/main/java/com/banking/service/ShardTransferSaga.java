@@ -0,0 +1,292 @@
+package com.banking.service;
+
+import com.banking.db.DatabaseShards;
+import com.banking.db.UnitOfWork;
+import com.banking.exception.AccountNotFoundException;
+import com.banking.exception.BankingException;
+import com.banking.exception.TransferPendingException;
+import com.banking.util.TransactionLogger;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Transfers between accounts on different {@link DatabaseShards}, as a saga
+ * of local transactions with shard_transfers as the recovery log:
+ * <ol>
+ *   <li>debit: on the source shard, lock and debit the source account, write
+ *       its ledger row and log the transfer as DEBITED, in one commit;</li>
+ *   <li>credit: on the target shard, record the transfer in
+ *       shard_transfer_credits and credit the target, in one commit;</li>
+ *   <li>on the source shard, mark the transfer COMPLETED, or, if the target
+ *       account does not exist, refund the source and mark it COMPENSATED.</li>
+ * </ol>
+ * A credit is applied at most once, since its shard_transfer_credits row
+ * commits with it, and a refund at most once, since it commits with the
+ * DEBITED to COMPENSATED change. {@link #recover()} can therefore finish
+ * DEBITED transfers at any time, also while the saga that started them is
+ * still running. Between the debit and the credit the amount is in neither
+ * account, so reports over all shards can briefly come up short.
+ */
+class ShardTransferSaga {
+    static final String DEBITED = "DEBITED";
+    static final String COMPLETED = "COMPLETED";
+    static final String COMPENSATED = "COMPENSATED";
+
+    // H2's SQLState for a duplicate primary key
+    private static final String DUPLICATE_KEY = "23505";
+
+    private final DatabaseShards shards;
+    private final UnitOfWork[] unitsOfWork;
+    private final BalanceCache[] balanceCaches;
+    // Only writes on the saga's own connections, whichever shard it was created for
+    private final TransactionLogger transactionLogger;
+
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong compensated = new AtomicLong();
+    private final AtomicLong recovered = new AtomicLong();
+
+    ShardTransferSaga(DatabaseShards shards, BalanceCache[] balanceCaches) {
+        this.shards = shards;
+        this.balanceCaches = balanceCaches;
+        this.transactionLogger = new TransactionLogger(shards.connectionSource(0));
+        this.unitsOfWork = new UnitOfWork[shards.getShardCount()];
+        for (int shard = 0; shard < unitsOfWork.length; shard++) {
+            unitsOfWork[shard] = new UnitOfWork(shards.connectionSource(shard));
+        }
+    }
+
+    /**
+     * Move money between accounts on two different shards. Returns once the
+     * credit has committed. If the credit fails for another reason than a
+     * missing account, the transfer stays DEBITED for {@link #recover()} and
+     * a {@link TransferPendingException} is thrown: the money has moved out
+     * of the source account, so the transfer must not be retried.
+     */
+    void transfer(String fromAccountId, String toAccountId, BigDecimal amount) throws BankingException {
+        int fromShard = shards.shardFor(fromAccountId);
+        int toShard = shards.shardFor(toAccountId);
+        String transferId = UUID.randomUUID().toString();
+        try {
+            // Cheap check first, so the common mistake does not need a refund
+            requireAccount(toShard, toAccountId);
+            debit(fromShard, transferId, fromAccountId, toAccountId, toShard, amount);
+        } catch (SQLException e) {
+            throw new BankingException("Failed to process transfer: " + e.getMessage());
+        }
+
+        String state;
+        try {
+            state = finish(fromShard, transferId, fromAccountId, toAccountId, toShard, amount);
+        } catch (SQLException | RuntimeException e) {
+            throw new TransferPendingException(transferId, "Transfer " + transferId + " debited " + fromAccountId +
+                    " but its credit failed; it is left for recovery: " + e.getMessage(), e);
+        }
+        if (COMPENSATED.equals(state)) {
+            throw new AccountNotFoundException(toAccountId);
+        }
+    }
+
+    /**
+     * Finish every DEBITED transfer on every shard: credit it if that has
+     * not happened, otherwise just mark it COMPLETED; refund it when the
+     * target account is gone. Returns the number of transfers finished.
+     */
+    int recover() {
+        int finished = 0;
+        for (int shard = 0; shard < unitsOfWork.length; shard++) {
+            List<Object[]> pending;
+            try {
+                pending = pendingTransfers(shard);
+            } catch (SQLException e) {
+                System.err.println("Failed to read transfer log of shard " + shard + ": " + e.getMessage());
+                continue;
+            }
+            for (Object[] transfer : pending) {
+                try {
+                    finish(shard, (String) transfer[0], (String) transfer[1], (String) transfer[2],
+                            (Integer) transfer[3], (BigDecimal) transfer[4]);
+                    finished++;
+                    recovered.incrementAndGet();
+                } catch (SQLException | RuntimeException e) {
+                    System.err.println("Failed to recover transfer " + transfer[0] + ": " + e.getMessage());
+                }
+            }
+        }
+        return finished;
+    }
+
+    long getCompleted() {
+        return completed.get();
+    }
+
+    long getCompensated() {
+        return compensated.get();
+    }
+
+    long getRecovered() {
+        return recovered.get();
+    }
+
+    /**
+     * Steps 2 and 3. Returns the state the transfer ended in.
+     */
+    private String finish(int fromShard, String transferId, String fromAccountId, String toAccountId,
+                          int toShard, BigDecimal amount) throws SQLException {
+        try {
+            credit(toShard, transferId, toAccountId, amount);
+        } catch (AccountNotFoundException e) {
+            compensate(fromShard, transferId, fromAccountId, amount);
+            return COMPENSATED;
+        }
+        setState(fromShard, transferId, COMPLETED);
+        return COMPLETED;
+    }
+
+    private void requireAccount(int shard, String accountId) throws SQLException {
+        unitsOfWork[shard].execute(conn -> {
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT 1 FROM accounts WHERE account_id = ?"
+            )) {
+                stmt.setString(1, accountId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (!rs.next()) {
+                        throw new AccountNotFoundException(accountId);
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    private void debit(int shard, String transferId, String fromAccountId, String toAccountId, int toShard,
+                       BigDecimal amount) throws SQLException {
+        try {
+            unitsOfWork[shard].execute(conn -> {
+                WithdrawalFloors.debit(conn, fromAccountId, amount);
+                transactionLogger.logTransaction(conn, fromAccountId, amount.negate());
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "INSERT INTO shard_transfers (transfer_id, from_account, to_account, to_shard, amount, state) " +
+                        "VALUES (?, ?, ?, ?, ?, ?)"
+                )) {
+                    stmt.setString(1, transferId);
+                    stmt.setString(2, fromAccountId);
+                    stmt.setString(3, toAccountId);
+                    stmt.setInt(4, toShard);
+                    stmt.setBigDecimal(5, amount);
+                    stmt.setString(6, DEBITED);
+                    stmt.executeUpdate();
+                }
+                return null;
+            });
+        } finally {
+            balanceCaches[shard].invalidate(fromAccountId);
+        }
+    }
+
+    /**
+     * Apply the credit unless it already was. Throws AccountNotFoundException,
+     * with nothing written, when the target account does not exist.
+     */
+    private void credit(int shard, String transferId, String toAccountId, BigDecimal amount) throws SQLException {
+        try {
+            unitsOfWork[shard].execute(conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "INSERT INTO shard_transfer_credits (transfer_id) VALUES (?)"
+                )) {
+                    stmt.setString(1, transferId);
+                    stmt.executeUpdate();
+                } catch (SQLException e) {
+                    if (DUPLICATE_KEY.equals(e.getSQLState())) {
+                        return null;
+                    }
+                    throw e;
+                }
+                changeBalance(conn, toAccountId, amount);
+                transactionLogger.logTransaction(conn, toAccountId, amount);
+                return null;
+            });
+        } finally {
+            balanceCaches[shard].invalidate(toAccountId);
+        }
+    }
+
+    private void compensate(int shard, String transferId, String fromAccountId, BigDecimal amount)
+            throws SQLException {
+        try {
+            boolean refunded = unitsOfWork[shard].execute(conn -> {
+                // Only the first of two racing compensations gets the row
+                if (!changeState(conn, transferId, DEBITED, COMPENSATED)) {
+                    return false;
+                }
+                changeBalance(conn, fromAccountId, amount);
+                transactionLogger.logTransaction(conn, fromAccountId, amount);
+                return true;
+            });
+            if (refunded) {
+                compensated.incrementAndGet();
+            }
+        } finally {
+            balanceCaches[shard].invalidate(fromAccountId);
+        }
+    }
+
+    private void setState(int shard, String transferId, String state) throws SQLException {
+        boolean changed = unitsOfWork[shard].execute(conn -> changeState(conn, transferId, DEBITED, state));
+        if (changed && COMPLETED.equals(state)) {
+            completed.incrementAndGet();
+        }
+    }
+
+    private List<Object[]> pendingTransfers(int shard) throws SQLException {
+        return unitsOfWork[shard].execute(conn -> {
+            List<Object[]> pending = new ArrayList<>();
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT transfer_id, from_account, to_account, to_shard, amount FROM shard_transfers " +
+                    "WHERE state = ? ORDER BY updated_at"
+            )) {
+                stmt.setString(1, DEBITED);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        pending.add(new Object[]{rs.getString(1), rs.getString(2), rs.getString(3),
+                                rs.getInt(4), rs.getBigDecimal(5)});
+                    }
+                }
+            }
+            return pending;
+        });
+    }
+
+    private static boolean changeState(Connection conn, String transferId, String from, String to)
+            throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "UPDATE shard_transfers SET state = ?, updated_at = CURRENT_TIMESTAMP " +
+                "WHERE transfer_id = ? AND state = ?"
+        )) {
+            stmt.setString(1, to);
+            stmt.setString(2, transferId);
+            stmt.setString(3, from);
+            return stmt.executeUpdate() == 1;
+        }
+    }
+
+    private static void changeBalance(Connection conn, String accountId, BigDecimal delta)
+            throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "UPDATE accounts SET balance = balance + ?, version = version + 1 WHERE account_id = ?"
+        )) {
+            stmt.setBigDecimal(1, delta);
+            stmt.setString(2, accountId);
+            if (stmt.executeUpdate() == 0) {
+                throw new AccountNotFoundException(accountId);
+            }
+        }
+    }
+}
@@ -0,0 +1,321 @@
+package com.banking.service;
+
+import com.banking.db.DatabaseConnection;
+import com.banking.db.UnitOfWork;
+import com.banking.exception.BankingException;
+import com.banking.exception.TransferPendingException;
+import com.banking.model.Account;
+import com.banking.model.AccountType;
+import com.banking.model.TransactionRecord;
+import com.banking.util.TransactionLogger;
+import com.banking.util.TransactionQuery;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Account engine that serializes balance changes per account.
+ *
+ * Accounts are hashed onto a fixed set of {@link MailboxWorker} threads.
+ * Deposits and withdrawals for an account always run on its worker, so
+ * concurrent callers queue in memory instead of on the H2 row lock, and a
+ * worker commits everything it has queued with one UPDATE per account.
+ *
+ * A transfer between two accounts of one worker commits in one
+ * transaction. Otherwise it is a debit on the source's worker, logged in
+ * mailbox_transfers in the same commit, followed by a credit on the
+ * target's worker. Each worker only locks its own accounts, so transfers
+ * cannot deadlock; if the credit fails the debit is refunded. The call
+ * returns once both legs have committed. Transfers a crash or a failed
+ * refund left open are resumed when the engine starts.
+ *
+ * Account creation, deletion, batches, reads and reports go straight to
+ * the JDBC {@link AccountService}.
+ */
+public class ShardedAccountService implements AccountOperations, AutoCloseable {
+    private final MailboxWorker[] workers;
+    private final UnitOfWork unitOfWork;
+    private final AccountService jdbc;
+    private final AtomicInteger pending = new AtomicInteger();
+    private volatile boolean closed;
+
+    public ShardedAccountService() {
+        this(Integer.parseInt(DatabaseConnection.getInstance().getProperty("engine.sharded.workers", "8")),
+             Integer.parseInt(DatabaseConnection.getInstance().getProperty("engine.sharded.batchSize", "256")),
+             Integer.parseInt(DatabaseConnection.getInstance().getProperty("engine.sharded.queueCapacity", "10000")));
+    }
+
+    public ShardedAccountService(int workerCount, int batchSize, int queueCapacity) {
+        DatabaseConnection dbConnection = DatabaseConnection.getInstance();
+        this.unitOfWork = new UnitOfWork(dbConnection::getConnection);
+        TransactionLogger transactionLogger = TransactionLogger.getInstance();
+        this.workers = new MailboxWorker[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            workers[i] = new MailboxWorker(i, this, unitOfWork, transactionLogger, batchSize, queueCapacity);
+        }
+        // Workers change balances behind its back, so no balance cache or aggregates
+        this.jdbc = new AccountService(BalanceCache.disabled(), ReportAggregates.disabled());
+
+        int recovered = recoverTransfers();
+        if (recovered > 0) {
+            System.out.println("Finished " + recovered + " interrupted transfers between account mailboxes");
+        }
+    }
+
+    @Override
+    public Account createAccount(AccountType type, String accountId, BigDecimal initialBalance) throws BankingException {
+        return jdbc.createAccount(type, accountId, initialBalance);
+    }
+
+    @Override
+    public void deposit(String accountId, BigDecimal amount) throws BankingException {
+        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new BankingException("Deposit amount must be positive");
+        }
+        await(submit(MailboxWorker.Kind.DEPOSIT, accountId, amount, null, null));
+    }
+
+    @Override
+    public void withdraw(String accountId, BigDecimal amount) throws BankingException {
+        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new BankingException("Withdrawal amount must be positive");
+        }
+        await(submit(MailboxWorker.Kind.WITHDRAW, accountId, amount, null, null));
+    }
+
+    @Override
+    public void transfer(String fromAccountId, String toAccountId, BigDecimal amount) throws BankingException {
+        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new BankingException("Transfer amount must be positive");
+        }
+        if (workerFor(fromAccountId) == workerFor(toAccountId)) {
+            await(submit(MailboxWorker.Kind.TRANSFER, fromAccountId, amount, toAccountId, null));
+        } else {
+            await(submit(MailboxWorker.Kind.DEBIT, fromAccountId, amount, toAccountId, UUID.randomUUID().toString()));
+        }
+    }
+
+    /**
+     * Runs on the JDBC engine, which locks rows in account_id order like the
+     * workers do, so batches and mailboxes cannot deadlock each other.
+     */
+    @Override
+    public List<TransferResult> transferBatch(List<TransferInstruction> instructions, BatchMode mode) throws BankingException {
+        return jdbc.transferBatch(instructions, mode);
+    }
+
+    @Override
+    public BigDecimal getBalance(String accountId) throws BankingException {
+        return jdbc.getBalance(accountId);
+    }
+
+    @Override
+    public List<TransactionRecord> getTransactionHistory(String accountId) {
+        return jdbc.getTransactionHistory(accountId);
+    }
+
+    @Override
+    public List<TransactionRecord> getAllTransactions() {
+        return jdbc.getAllTransactions();
+    }
+
+    @Override
+    public Stream<TransactionRecord> streamTransactions(TransactionQuery query) {
+        return jdbc.streamTransactions(query);
+    }
+
+    @Override
+    public void deleteAccount(String accountId) throws BankingException {
+        jdbc.deleteAccount(accountId);
+    }
+
+    @Override
+    public Map<String, Object> getAccountSummary() {
+        return jdbc.getAccountSummary();
+    }
+
+    @Override
+    public Map<String, Object> getDailyTransactions() {
+        return jdbc.getDailyTransactions();
+    }
+
+    @Override
+    public Map<String, Object> getAccountActivity() {
+        return jdbc.getAccountActivity();
+    }
+
+    public long getBatchesCommitted() {
+        long total = 0;
+        for (MailboxWorker worker : workers) {
+            total += worker.getBatchesCommitted();
+        }
+        return total;
+    }
+
+    /**
+     * Commands (including transfer legs) committed so far. Divided by
+     * {@link #getBatchesCommitted()} this is the average coalescing factor.
+     */
+    public long getCommandsProcessed() {
+        long total = 0;
+        for (MailboxWorker worker : workers) {
+            total += worker.getCommandsProcessed();
+        }
+        return total;
+    }
+
+    public int getQueuedCommands() {
+        int total = 0;
+        for (MailboxWorker worker : workers) {
+            total += worker.getQueued();
+        }
+        return total;
+    }
+
+    /**
+     * Resume transfers between workers that are still DEBITED: credit them,
+     * or refund them if the target is gone. A leg that was applied in the
+     * meantime is skipped, so this is safe while transfers are in flight.
+     * Returns the number finished.
+     */
+    public int recoverTransfers() {
+        List<MailboxWorker.Command> open;
+        try {
+            open = unitOfWork.execute(conn -> {
+                List<MailboxWorker.Command> legs = new ArrayList<>();
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "SELECT transfer_id, from_account, to_account, amount FROM mailbox_transfers " +
+                        "WHERE state = ? ORDER BY updated_at"
+                )) {
+                    stmt.setString(1, MailboxWorker.DEBITED);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            legs.add(new MailboxWorker.Command(MailboxWorker.Kind.CREDIT, rs.getString(3),
+                                    rs.getBigDecimal(4), rs.getString(2), rs.getString(1), null,
+                                    new CompletableFuture<>()));
+                        }
+                    }
+                }
+                return legs;
+            });
+        } catch (SQLException e) {
+            System.err.println("Failed to read the mailbox transfer log: " + e.getMessage());
+            return 0;
+        }
+        for (MailboxWorker.Command credit : open) {
+            forward(credit);
+        }
+        int finished = 0;
+        for (MailboxWorker.Command credit : open) {
+            try {
+                credit.getResult().join();
+                finished++;
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof TransferPendingException) {
+                    System.err.println("Failed to recover transfer " + credit.getTransferId() + ": "
+                            + e.getCause().getMessage());
+                } else {
+                    // Refunded: finished, just not as the caller asked
+                    finished++;
+                }
+            }
+        }
+        return finished;
+    }
+
+    /**
+     * Close in two phases: stop taking commands and wait until every queued
+     * one has finished, including the credits and refunds transfers forward
+     * between workers; then stop the workers.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        while (pending.get() > 0 && allWorkersAlive()) {
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        for (MailboxWorker worker : workers) {
+            worker.close();
+        }
+    }
+
+    /**
+     * Hand a transfer leg or refund to the worker that owns its account. A
+     * worker that has stopped refuses it; the transfer then stays DEBITED
+     * in mailbox_transfers for the next start to finish.
+     */
+    void forward(MailboxWorker.Command command) {
+        pending.incrementAndGet();
+        if (!workerFor(command.getAccountId()).forward(command)) {
+            pending.decrementAndGet();
+            command.getResult().completeExceptionally(new TransferPendingException(command.getTransferId(),
+                    "Account mailbox closed before transfer " + command.getTransferId() +
+                    " finished; it is left for recovery", null));
+        }
+    }
+
+    void finished(int commands) {
+        pending.addAndGet(-commands);
+    }
+
+    private CompletableFuture<Void> submit(MailboxWorker.Kind kind, String accountId, BigDecimal amount,
+                                           String counterparty, String transferId) {
+        if (closed) {
+            throw new BankingException("Sharded account engine is closed");
+        }
+        MailboxWorker.Command command = new MailboxWorker.Command(kind, accountId, amount, counterparty,
+                transferId, null, new CompletableFuture<>());
+        pending.incrementAndGet();
+        try {
+            workerFor(accountId).submit(command);
+        } catch (InterruptedException e) {
+            pending.decrementAndGet();
+            Thread.currentThread().interrupt();
+            throw new BankingException("Interrupted while queueing command for " + accountId, e);
+        } catch (BankingException e) {
+            pending.decrementAndGet();
+            throw e;
+        }
+        return command.getResult();
+    }
+
+    private boolean allWorkersAlive() {
+        for (MailboxWorker worker : workers) {
+            if (!worker.isAlive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    MailboxWorker workerFor(String accountId) {
+        int h = accountId.hashCode();
+        return workers[Math.floorMod(h ^ (h >>> 16), workers.length)];
+    }
+
+    private static void await(CompletableFuture<Void> result) {
+        try {
+            result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new BankingException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+}
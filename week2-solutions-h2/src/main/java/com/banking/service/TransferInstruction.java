@@ -0,0 +1,36 @@
+package com.banking.service;
+
+import java.math.BigDecimal;
+
+/**
+ * One transfer inside a batch passed to {@link AccountService#transferBatch}.
+ */
+public class TransferInstruction {
+    private final String fromAccountId;
+    private final String toAccountId;
+    private final BigDecimal amount;
+
+    public TransferInstruction(String fromAccountId, String toAccountId, BigDecimal amount) {
+        this.fromAccountId = fromAccountId;
+        this.toAccountId = toAccountId;
+        this.amount = amount;
+    }
+
+    public String getFromAccountId() {
+        return fromAccountId;
+    }
+
+    public String getToAccountId() {
+        return toAccountId;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TransferInstruction[from=%s, to=%s, amount=%.2f]",
+                fromAccountId, toAccountId, amount);
+    }
+}
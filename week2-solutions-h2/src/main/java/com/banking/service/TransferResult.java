@@ -0,0 +1,47 @@
+package com.banking.service;
+
+/**
+ * Outcome of one {@link TransferInstruction} in a batch.
+ */
+public class TransferResult {
+    public enum Status {
+        APPLIED,
+        REJECTED,
+        // Valid on its own, but the ALL_OR_NOTHING batch failed
+        ROLLED_BACK,
+        // Debited, but the cross-shard credit is left for recovery; must not be resubmitted
+        PENDING
+    }
+
+    private final TransferInstruction instruction;
+    private final Status status;
+    private final String message;
+
+    public TransferResult(TransferInstruction instruction, Status status, String message) {
+        this.instruction = instruction;
+        this.status = status;
+        this.message = message;
+    }
+
+    public TransferInstruction getInstruction() {
+        return instruction;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public boolean isApplied() {
+        return status == Status.APPLIED;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TransferResult[%s, status=%s%s]", instruction, status,
+                message != null ? ", message=" + message : "");
+    }
+}
@@ -0,0 +1,97 @@
+package com.banking.service;
+
+import com.banking.exception.AccountNotFoundException;
+import com.banking.exception.InsufficientFundsException;
+import com.banking.model.AccountType;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * The lowest balance a debit may leave, and the single guarded UPDATE
+ * that checks it and debits in one statement.
+ *
+ * The floors come from {@link AccountType#getWithdrawalFloor()}, the
+ * same constants the model objects check and so what
+ * {@link InMemoryAccountService} enforces: savings keep 100.00, checking
+ * may be overdrawn to -100.00. The SQL engines use these so every engine
+ * refuses the same withdrawals.
+ *
+ * The UPDATE takes the row lock and re-checks its WHERE clause against
+ * the latest committed balance, so no SELECT ... FOR UPDATE is needed
+ * first. Only a debit it refuses reads the row, to tell a missing account
+ * from a short one.
+ */
+final class WithdrawalFloors {
+    private static final Map<AccountType, BigDecimal> TYPE_FLOORS = new EnumMap<>(AccountType.class);
+
+    static {
+        for (AccountType type : AccountType.values()) {
+            TYPE_FLOORS.put(type, type.getWithdrawalFloor());
+        }
+    }
+
+    static final String DEBIT_SQL =
+        "UPDATE accounts SET balance = balance - ?, version = version + 1 " +
+        "WHERE account_id = ? AND balance - ? >= " + floorCase();
+
+    /**
+     * The balance an account of the given account_type may not go below.
+     */
+    static BigDecimal floorFor(String accountType) {
+        BigDecimal floor = accountType != null ? TYPE_FLOORS.get(AccountType.valueOf(accountType)) : null;
+        return floor != null ? floor : BigDecimal.ZERO;
+    }
+
+    static boolean allows(String accountType, BigDecimal balance, BigDecimal amount) {
+        return balance.subtract(amount).compareTo(floorFor(accountType)) >= 0;
+    }
+
+    /**
+     * Debit the account if that keeps it at or above its floor. Throws
+     * AccountNotFoundException or InsufficientFundsException otherwise.
+     */
+    static void debit(Connection conn, String accountId, BigDecimal amount) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(DEBIT_SQL)) {
+            stmt.setBigDecimal(1, amount);
+            stmt.setString(2, accountId);
+            stmt.setBigDecimal(3, amount);
+            if (stmt.executeUpdate() == 1) {
+                return;
+            }
+        }
+        throw new InsufficientFundsException(accountId, amount, readBalance(conn, accountId));
+    }
+
+    /**
+     * Balance for a refused debit's exception, read without a lock.
+     */
+    static BigDecimal readBalance(Connection conn, String accountId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(AccountService.SELECT_BALANCE_SQL)) {
+            stmt.setString(1, accountId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    BigDecimal balance = rs.getBigDecimal("balance");
+                    return balance != null ? balance : BigDecimal.ZERO;
+                }
+                throw new AccountNotFoundException(accountId);
+            }
+        }
+    }
+
+    private static String floorCase() {
+        StringBuilder sql = new StringBuilder("CASE account_type");
+        for (Map.Entry<AccountType, BigDecimal> floor : TYPE_FLOORS.entrySet()) {
+            sql.append(" WHEN '").append(floor.getKey().name()).append("' THEN ").append(floor.getValue().toPlainString());
+        }
+        return sql.append(" ELSE 0 END").toString();
+    }
+
+    private WithdrawalFloors() {
+    }
+}
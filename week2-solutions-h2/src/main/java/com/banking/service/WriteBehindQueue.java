@@ -0,0 +1,340 @@
+package com.banking.service;
+
+import com.banking.db.DatabaseConnection;
+import com.banking.db.UnitOfWork;
+import com.banking.exception.BankingException;
+import com.banking.util.LedgerPartitions;
+import com.banking.util.TransactionLogger;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Persists {@link InMemoryAccountService} changes to H2 in the background.
+ *
+ * Changes are queued in the order they happened in memory. A single writer
+ * thread drains them in batches: new accounts are inserted, balance updates
+ * are collapsed to the latest value per account, and ledger rows are written
+ * with one executeBatch, all in one commit.
+ *
+ * A commit that fails is retried, in order and before anything queued
+ * later, with a doubling pause. When the retries run out H2 can no longer
+ * be brought in line with memory, so the queue stops: the failed and all
+ * later changes complete exceptionally, and flush, close and every further
+ * change throw a BankingException carrying the cause.
+ */
+class WriteBehindQueue implements AutoCloseable {
+    private enum Kind { CREATE, BALANCE, LEDGER, DELETE, FLUSH }
+
+    private final UnitOfWork unitOfWork;
+    private final TransactionLogger transactionLogger;
+    private final int batchSize;
+    private final int maxRetries;
+    private final long retryBackoffMs;
+    private final BlockingQueue<Change> queue;
+    private final Thread writerThread;
+    private volatile boolean running = true;
+    // Set once a segment has used up its retries; nothing is written after that
+    private volatile Exception failure;
+
+    private final AtomicLong changesWritten = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+
+    WriteBehindQueue(UnitOfWork unitOfWork, TransactionLogger transactionLogger, int batchSize, int capacity) {
+        this(unitOfWork, transactionLogger, batchSize, capacity,
+             Integer.parseInt(DatabaseConnection.getInstance().getProperty("engine.memory.writeRetries", "5")),
+             Long.parseLong(DatabaseConnection.getInstance().getProperty("engine.memory.retryBackoffMs", "50")));
+    }
+
+    /**
+     * @param maxRetries     further attempts at a failed commit before the queue stops
+     * @param retryBackoffMs pause before the first retry, doubled for each further one
+     */
+    WriteBehindQueue(UnitOfWork unitOfWork, TransactionLogger transactionLogger, int batchSize, int capacity,
+                     int maxRetries, long retryBackoffMs) {
+        this.unitOfWork = unitOfWork;
+        this.transactionLogger = transactionLogger;
+        this.batchSize = batchSize;
+        this.maxRetries = maxRetries;
+        this.retryBackoffMs = retryBackoffMs;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.writerThread = new Thread(this::run, "write-behind-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    void accountCreated(String accountId, String accountType, BigDecimal balance) {
+        enqueue(new Change(Kind.CREATE, accountId, accountType, balance));
+    }
+
+    void balanceChanged(String accountId, BigDecimal newBalance) {
+        enqueue(new Change(Kind.BALANCE, accountId, null, newBalance));
+    }
+
+    void transactionLogged(String accountId, BigDecimal amount) {
+        enqueue(new Change(Kind.LEDGER, accountId, null, amount));
+    }
+
+    void accountDeleted(String accountId) {
+        enqueue(new Change(Kind.DELETE, accountId, null, null));
+    }
+
+    /**
+     * Wait until every change queued before this call is in the database.
+     * Throws if the queue has stopped after a failed write.
+     */
+    void flush() {
+        Change marker = new Change(Kind.FLUSH, null, null, null);
+        enqueue(marker);
+        try {
+            marker.done.join();
+        } catch (CompletionException e) {
+            throw stopped();
+        }
+    }
+
+    long getChangesWritten() {
+        return changesWritten.get();
+    }
+
+    /**
+     * Commit attempts that failed, retried ones included.
+     */
+    long getFailedBatches() {
+        return failedBatches.get();
+    }
+
+    boolean isFailed() {
+        return failure != null;
+    }
+
+    int getPendingChanges() {
+        return queue.size();
+    }
+
+    @Override
+    public void close() {
+        if (!running) {
+            return;
+        }
+        try {
+            flush();
+        } finally {
+            running = false;
+            try {
+                writerThread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void enqueue(Change change) {
+        if (failure != null) {
+            throw stopped();
+        }
+        if (!running) {
+            throw new IllegalStateException("Write-behind queue is closed");
+        }
+        try {
+            // Blocks when the database falls too far behind
+            queue.put(change);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing change", e);
+        }
+    }
+
+    private void run() {
+        List<Change> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Change first = queue.poll(50, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                if (failure != null) {
+                    // Stopped; changes that raced past the check in enqueue are failed too
+                    fail(batch);
+                } else {
+                    writeBatch(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+        if (!queue.isEmpty()) {
+            // Interrupted: nothing will write what is still queued, so its callers must not wait for it
+            if (failure == null) {
+                failure = new IllegalStateException("Write-behind writer was interrupted");
+            }
+            queue.drainTo(batch);
+            fail(batch);
+        }
+    }
+
+    private void writeBatch(List<Change> batch) {
+        // A delete must see every earlier change, so split the batch at deletes
+        int start = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            if (batch.get(i).kind == Kind.DELETE || i == batch.size() - 1) {
+                List<Change> segment = batch.subList(start, i + 1);
+                if (!writeSegment(segment)) {
+                    fail(batch.subList(start, batch.size()));
+                    return;
+                }
+                for (Change change : segment) {
+                    change.done.complete(null);
+                }
+                start = i + 1;
+            }
+        }
+    }
+
+    /**
+     * Commit the changes, retrying after a failure. Returns false, with the
+     * queue stopped, once the retries are used up.
+     */
+    private boolean writeSegment(List<Change> changes) {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                unitOfWork.execute(conn -> {
+                    writeCreates(conn, changes);
+                    writeBalances(conn, changes);
+                    writeLedger(conn, changes);
+                    writeDeletes(conn, changes);
+                    return null;
+                });
+                changesWritten.addAndGet(changes.size());
+                return true;
+            } catch (SQLException | RuntimeException e) {
+                failedBatches.incrementAndGet();
+                if (attempt >= maxRetries) {
+                    System.err.println("Failed to persist in-memory changes, stopping write-behind: " + e.getMessage());
+                    failure = e;
+                    return false;
+                }
+                System.err.println("Failed to persist in-memory changes, retrying: " + e.getMessage());
+                try {
+                    Thread.sleep(retryBackoffMs << Math.min(attempt, 10));
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    failure = e;
+                    return false;
+                }
+            }
+        }
+    }
+
+    private void fail(List<Change> changes) {
+        for (Change change : changes) {
+            change.done.completeExceptionally(failure);
+        }
+    }
+
+    private BankingException stopped() {
+        return new BankingException("Write-behind queue stopped after a failed write: " + failure.getMessage(),
+                failure);
+    }
+
+    private void writeCreates(Connection conn, List<Change> changes) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "INSERT INTO accounts (account_id, account_type, balance) VALUES (?, ?, ?)"
+        )) {
+            boolean any = false;
+            for (Change change : changes) {
+                if (change.kind == Kind.CREATE) {
+                    stmt.setString(1, change.accountId);
+                    stmt.setString(2, change.accountType);
+                    stmt.setBigDecimal(3, change.amount);
+                    stmt.addBatch();
+                    any = true;
+                }
+            }
+            if (any) {
+                stmt.executeBatch();
+            }
+        }
+    }
+
+    private void writeBalances(Connection conn, List<Change> changes) throws SQLException {
+        // Only the newest balance per account matters
+        Map<String, BigDecimal> latest = new LinkedHashMap<>();
+        for (Change change : changes) {
+            if (change.kind == Kind.BALANCE) {
+                latest.put(change.accountId, change.amount);
+            }
+        }
+        if (latest.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "UPDATE accounts SET balance = ?, version = version + 1 WHERE account_id = ?"
+        )) {
+            for (Map.Entry<String, BigDecimal> entry : latest.entrySet()) {
+                stmt.setBigDecimal(1, entry.getValue());
+                stmt.setString(2, entry.getKey());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    private void writeLedger(Connection conn, List<Change> changes) throws SQLException {
+        try (TransactionLogger.LedgerBatch ledger = transactionLogger.newBatch(conn)) {
+            for (Change change : changes) {
+                if (change.kind == Kind.LEDGER) {
+                    ledger.add(change.accountId, change.amount);
+                }
+            }
+            ledger.execute();
+        }
+    }
+
+    private void writeDeletes(Connection conn, List<Change> changes) throws SQLException {
+        for (Change change : changes) {
+            if (change.kind != Kind.DELETE) {
+                continue;
+            }
+            LedgerPartitions.load(conn).deleteAccount(conn, change.accountId);
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "DELETE FROM accounts WHERE account_id = ?"
+            )) {
+                stmt.setString(1, change.accountId);
+                stmt.executeUpdate();
+            }
+        }
+    }
+
+    private static final class Change {
+        private final Kind kind;
+        private final String accountId;
+        private final String accountType;
+        private final BigDecimal amount;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        private Change(Kind kind, String accountId, String accountType, BigDecimal amount) {
+            this.kind = kind;
+            this.accountId = accountId;
+            this.accountType = accountType;
+            this.amount = amount;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package com.banking.util;
+
+import com.banking.db.UnitOfWork;
+import com.banking.metrics.BankingMetrics;
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background writer used by {@link TransactionLogger} in GROUP_COMMIT, ASYNC and JOURNAL mode.
+ * Callers put rows on a bounded queue; a single thread drains it and writes
+ * each batch with addBatch/executeBatch in one commit.
+ */
+class BatchedLedgerWriter implements AutoCloseable {
+    private static final String INSERT_SQL =
+        "INSERT INTO transactions (account_id, amount) VALUES (?, ?)";
+
+    private final UnitOfWork unitOfWork;
+    private final DurabilityMode mode;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final BlockingQueue<Entry> queue;
+    private final Thread writerThread;
+    private volatile boolean running = true;
+
+    private final AtomicLong rowsWritten = new AtomicLong();
+    private final AtomicLong batchesWritten = new AtomicLong();
+    private final AtomicLong failedRows = new AtomicLong();
+
+    BatchedLedgerWriter(UnitOfWork unitOfWork, DurabilityMode mode, int batchSize,
+                        long flushIntervalMs, int queueCapacity) {
+        this.unitOfWork = unitOfWork;
+        this.mode = mode;
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.writerThread = new Thread(this::run, "transaction-log-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Queue a row. Blocks while the queue is full (backpressure).
+     * Returns a future that completes once the row is committed.
+     */
+    CompletableFuture<Void> submit(String accountId, BigDecimal amount) {
+        return enqueue(new Entry(accountId, amount));
+    }
+
+    /**
+     * Wait until every row queued before this call has been written.
+     */
+    void flush() {
+        // The marker is written after everything ahead of it in the queue
+        enqueue(new Entry(null, null)).join();
+    }
+
+    long getRowsWritten() {
+        return rowsWritten.get();
+    }
+
+    long getBatchesWritten() {
+        return batchesWritten.get();
+    }
+
+    long getFailedRows() {
+        return failedRows.get();
+    }
+
+    int getQueueSize() {
+        return queue.size();
+    }
+
+    @Override
+    public void close() {
+        if (!running) {
+            return;
+        }
+        flush();
+        running = false;
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private CompletableFuture<Void> enqueue(Entry entry) {
+        if (!running) {
+            throw new IllegalStateException("Transaction log writer is closed");
+        }
+        try {
+            queue.put(entry);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            entry.done.completeExceptionally(e);
+            return entry.done;
+        }
+        // The writer may have stopped between the check above and the put
+        if (!running && queue.remove(entry)) {
+            entry.done.completeExceptionally(new IllegalStateException("Transaction log writer is closed"));
+        }
+        return entry.done;
+    }
+
+    private void run() {
+        List<Entry> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Entry first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - batch.size());
+
+                // Unless in GROUP_COMMIT nobody is waiting, so linger to build fuller batches
+                if (mode != DurabilityMode.GROUP_COMMIT && !first.isMarker()) {
+                    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                    while (batch.size() < batchSize && !batch.get(batch.size() - 1).isMarker()) {
+                        long remaining = deadline - System.nanoTime();
+                        Entry next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+                        if (next == null) {
+                            break;
+                        }
+                        batch.add(next);
+                        queue.drainTo(batch, batchSize - batch.size());
+                    }
+                }
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                running = false;
+                // Nothing may be left waiting: fail what was taken and everything still queued
+                queue.drainTo(batch);
+                failAll(batch, new IllegalStateException("Transaction log writer was interrupted", e));
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void failAll(List<Entry> entries, Exception cause) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        System.err.println("Dropping " + entries.size() + " queued ledger rows: " + cause.getMessage());
+        BankingMetrics.getInstance().recordError("ledgerBatch", cause);
+        for (Entry entry : entries) {
+            if (!entry.isMarker()) {
+                failedRows.incrementAndGet();
+            }
+            entry.done.completeExceptionally(cause);
+        }
+    }
+
+    private void writeBatch(List<Entry> batch) {
+        try {
+            int rows = unitOfWork.execute(conn -> {
+                int count = 0;
+                try (PreparedStatement stmt = conn.prepareStatement(INSERT_SQL)) {
+                    for (Entry entry : batch) {
+                        if (entry.isMarker()) {
+                            continue;
+                        }
+                        stmt.setString(1, entry.accountId);
+                        stmt.setBigDecimal(2, entry.amount);
+                        stmt.addBatch();
+                        count++;
+                    }
+                    if (count > 0) {
+                        stmt.executeBatch();
+                    }
+                }
+                return count;
+            });
+            rowsWritten.addAndGet(rows);
+            batchesWritten.incrementAndGet();
+            for (Entry entry : batch) {
+                entry.done.complete(null);
+            }
+        } catch (SQLException | RuntimeException e) {
+            System.err.println("Failed to write transaction batch: " + e.getMessage());
+            BankingMetrics.getInstance().recordError("ledgerBatch", e);
+            for (Entry entry : batch) {
+                if (!entry.isMarker()) {
+                    failedRows.incrementAndGet();
+                    entry.done.completeExceptionally(e);
+                } else {
+                    entry.done.complete(null);
+                }
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final String accountId;
+        private final BigDecimal amount;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        private Entry(String accountId, BigDecimal amount) {
+            this.accountId = accountId;
+            this.amount = amount;
+        }
+
+        private boolean isMarker() {
+            return accountId == null;
+        }
+    }
+}
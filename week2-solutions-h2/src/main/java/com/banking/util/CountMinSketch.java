@@ -0,0 +1,93 @@
+package com.banking.util;
+
+/**
+ * Approximate counts of string keys in fixed memory.
+ *
+ * Each key is counted in one cell of every row; its estimate is the smallest
+ * of those cells, so it is never below the true count and rarely above it by
+ * more than a few times total/width (the more rows, the more rarely). Sketches
+ * of the same width and depth can be merged, e.g. ones filled on different
+ * threads. Not thread-safe.
+ */
+public class CountMinSketch {
+    private final int width;
+    private final int depth;
+    private final long[] counts;
+    private long total;
+
+    public CountMinSketch(int width, int depth) {
+        if (width < 1 || depth < 1) {
+            throw new IllegalArgumentException("width and depth must be positive");
+        }
+        this.width = width;
+        this.depth = depth;
+        this.counts = new long[width * depth];
+    }
+
+    public void add(String key) {
+        add(key, 1);
+    }
+
+    public void add(String key, long count) {
+        long hash = mix(key.hashCode());
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int row = 0; row < depth; row++) {
+            counts[row * width + cell(h1 + row * h2)] += count;
+        }
+        total += count;
+    }
+
+    /**
+     * Count of the key, possibly too high but never too low.
+     */
+    public long estimate(String key) {
+        long hash = mix(key.hashCode());
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            min = Math.min(min, counts[row * width + cell(h1 + row * h2)]);
+        }
+        return min;
+    }
+
+    /**
+     * Add the other sketch's counts to this one.
+     */
+    public void merge(CountMinSketch other) {
+        if (other.width != width || other.depth != depth) {
+            throw new IllegalArgumentException("Cannot merge sketches of different sizes");
+        }
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        total += other.total;
+    }
+
+    /**
+     * Sum of all counts added.
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    private int cell(int hash) {
+        return (hash & Integer.MAX_VALUE) % width;
+    }
+
+    // Spreads String.hashCode over 64 bits (splitmix64 finalizer)
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
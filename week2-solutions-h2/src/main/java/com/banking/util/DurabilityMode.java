@@ -0,0 +1,17 @@
+package com.banking.util;
+
+/**
+ * How {@link TransactionLogger#logTransaction(String, java.math.BigDecimal)}
+ * writes ledger rows. Rows logged on the caller's connection, which is how
+ * the account engines log theirs, are always plain INSERTs in its transaction.
+ */
+public enum DurabilityMode {
+    // One autocommitted INSERT per call on the caller's thread
+    SYNC,
+    // Caller waits until the background writer has committed the batch holding its row
+    GROUP_COMMIT,
+    // Caller returns as soon as the row is queued; rows still queued are lost on a crash
+    ASYNC,
+    // Caller returns once the row is in the TransactionJournal; H2 is fed in the background
+    JOURNAL
+}
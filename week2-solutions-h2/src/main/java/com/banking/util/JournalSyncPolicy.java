@@ -0,0 +1,15 @@
+package com.banking.util;
+
+/**
+ * When {@link TransactionJournal} forces its memory-mapped segment to disk.
+ * Every policy survives a JVM crash, since written records are already in the
+ * OS page cache; they differ in what a power loss or kernel crash can take.
+ */
+public enum JournalSyncPolicy {
+    // Append returns once its record is on disk; concurrent appends share one force
+    ALWAYS,
+    // A background thread forces every syncIntervalMs; up to that much can be lost
+    INTERVAL,
+    // Only forced when a segment fills up or the journal is closed
+    NONE
+}
@@ -0,0 +1,307 @@
+package com.banking.util;
+
+import com.banking.db.DatabaseConnection;
+import com.banking.db.UnitOfWork;
+import com.banking.exception.BankingException;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Ages the ledger month by month (see {@link LedgerPartitions}):
+ * <ol>
+ *   <li>archive: rows older than the hot window move from the transactions
+ *       table into their month's table, one day per transaction;</li>
+ *   <li>compact: months older than the detail window are folded into
+ *       per-account daily rollups and their table is dropped;</li>
+ *   <li>expire: rollups older than the retention window are deleted.</li>
+ * </ol>
+ * Dropping a month is a DROP TABLE instead of a DELETE over the whole ledger.
+ * A month is registered before rows move into it, so readers always find
+ * them. Compacting drops a month's rows, so history reads of it return
+ * nothing afterwards and a read running at that moment fails.
+ */
+public class LedgerMaintenance {
+    private static final String INSERT_PARTITION =
+        "INSERT INTO ledger_partitions (period, table_name, row_count, state) VALUES (?, ?, 0, ?)";
+    private static final String SET_STATE =
+        "UPDATE ledger_partitions SET state = ?, row_count = ?, updated_at = CURRENT_TIMESTAMP WHERE period = ?";
+    private static final String ADD_ROWS =
+        "UPDATE ledger_partitions SET row_count = row_count + ?, updated_at = CURRENT_TIMESTAMP WHERE period = ?";
+
+    private final UnitOfWork unitOfWork;
+    private final int hotMonths;
+    private final int detailMonths;
+    private final int retentionMonths;
+
+    public LedgerMaintenance() {
+        this(DatabaseConnection.getInstance()::getConnection,
+             Integer.parseInt(DatabaseConnection.getInstance().getProperty("ledger.hotMonths", "3")),
+             Integer.parseInt(DatabaseConnection.getInstance().getProperty("ledger.detailMonths", "12")),
+             Integer.parseInt(DatabaseConnection.getInstance().getProperty("ledger.retentionMonths", "0")));
+    }
+
+    /**
+     * @param hotMonths       months (the current one included) kept in the transactions table
+     * @param detailMonths    months kept row by row, hot ones included
+     * @param retentionMonths months kept at all, as rows or rollups (0 = forever)
+     */
+    public LedgerMaintenance(UnitOfWork.ConnectionSource connectionSource,
+                             int hotMonths, int detailMonths, int retentionMonths) {
+        if (hotMonths < 1 || detailMonths < hotMonths) {
+            throw new IllegalArgumentException("Need 1 <= hotMonths <= detailMonths");
+        }
+        if (retentionMonths != 0 && retentionMonths < detailMonths) {
+            throw new IllegalArgumentException("retentionMonths must be 0 or at least detailMonths");
+        }
+        this.unitOfWork = new UnitOfWork(connectionSource);
+        this.hotMonths = hotMonths;
+        this.detailMonths = detailMonths;
+        this.retentionMonths = retentionMonths;
+    }
+
+    /**
+     * Archive, compact and expire everything that has aged out as of today.
+     * Runs one at a time; safe to repeat or to resume after a failure.
+     */
+    public synchronized LedgerMaintenanceStats maintain(LocalDate today) throws BankingException {
+        long start = System.nanoTime();
+        YearMonth current = YearMonth.from(today);
+        YearMonth firstHot = current.minusMonths(hotMonths - 1);
+        YearMonth firstDetailed = current.minusMonths(detailMonths - 1);
+        try {
+            dropCompactedTables();
+
+            int monthsArchived = 0;
+            long rowsArchived = 0;
+            LocalDateTime oldest = oldestHotRow(firstHot);
+            if (oldest != null) {
+                for (YearMonth month = YearMonth.from(oldest); month.isBefore(firstHot); month = month.plusMonths(1)) {
+                    long moved = archive(month);
+                    if (moved > 0) {
+                        monthsArchived++;
+                        rowsArchived += moved;
+                    }
+                }
+            }
+
+            int monthsCompacted = 0;
+            long rowsCompacted = 0;
+            LedgerPartitions partitions = unitOfWork.execute(LedgerPartitions::load);
+            for (LedgerPartitions.Partition partition : partitions.getArchived()) {
+                if (partition.getPeriod().isBefore(firstDetailed)) {
+                    rowsCompacted += compact(partition);
+                    monthsCompacted++;
+                }
+            }
+
+            long rollupsExpired = retentionMonths > 0 ? expire(current.minusMonths(retentionMonths - 1)) : 0;
+            return new LedgerMaintenanceStats(monthsArchived, rowsArchived, monthsCompacted, rowsCompacted,
+                    rollupsExpired, System.nanoTime() - start);
+        } catch (SQLException e) {
+            throw new BankingException("Ledger maintenance failed: " + e.getMessage(), e);
+        }
+    }
+
+    private LocalDateTime oldestHotRow(YearMonth firstHot) throws SQLException {
+        return unitOfWork.execute(conn -> {
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT MIN(transaction_date) FROM " + LedgerPartitions.HOT_TABLE + " WHERE transaction_date < ?")) {
+                stmt.setTimestamp(1, Timestamp.valueOf(firstHot.atDay(1).atStartOfDay()));
+                try (ResultSet rs = stmt.executeQuery()) {
+                    Timestamp oldest = rs.next() ? rs.getTimestamp(1) : null;
+                    return oldest != null ? oldest.toLocalDateTime() : null;
+                }
+            }
+        });
+    }
+
+    /**
+     * Move the month's rows out of the hot table. Returns the rows moved.
+     */
+    private long archive(YearMonth month) throws SQLException {
+        String period = month.toString();
+        String table = LedgerPartitions.tableName(month);
+        register(period, table);
+
+        String copy = "INSERT INTO " + table + " (transaction_id, account_id, amount, description, transaction_date) " +
+                "SELECT transaction_id, account_id, amount, description, transaction_date FROM " +
+                LedgerPartitions.HOT_TABLE + " WHERE transaction_date >= ? AND transaction_date < ?";
+        // Only rows the copy saw: one written meanwhile stays for the next run
+        String delete = "DELETE FROM " + LedgerPartitions.HOT_TABLE +
+                " WHERE transaction_date >= ? AND transaction_date < ? AND transaction_id IN " +
+                "(SELECT transaction_id FROM " + table + " WHERE transaction_date >= ? AND transaction_date < ?)";
+        long moved = 0;
+        for (LocalDate day = month.atDay(1); YearMonth.from(day).equals(month); day = day.plusDays(1)) {
+            Timestamp from = Timestamp.valueOf(day.atStartOfDay());
+            Timestamp to = Timestamp.valueOf(day.plusDays(1).atStartOfDay());
+            moved += unitOfWork.execute(conn -> {
+                int copied;
+                try (PreparedStatement stmt = conn.prepareStatement(copy)) {
+                    stmt.setTimestamp(1, from);
+                    stmt.setTimestamp(2, to);
+                    copied = stmt.executeUpdate();
+                }
+                if (copied == 0) {
+                    return 0;
+                }
+                try (PreparedStatement stmt = conn.prepareStatement(delete)) {
+                    stmt.setTimestamp(1, from);
+                    stmt.setTimestamp(2, to);
+                    stmt.setTimestamp(3, from);
+                    stmt.setTimestamp(4, to);
+                    stmt.executeUpdate();
+                }
+                try (PreparedStatement stmt = conn.prepareStatement(ADD_ROWS)) {
+                    stmt.setLong(1, copied);
+                    stmt.setString(2, period);
+                    stmt.executeUpdate();
+                }
+                return copied;
+            });
+        }
+        return moved;
+    }
+
+    /**
+     * Create the month's table and list it as archived, also when it was
+     * compacted before and late rows for it turned up.
+     */
+    private void register(String period, String table) throws SQLException {
+        unitOfWork.execute(conn -> {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("CREATE TABLE IF NOT EXISTS " + table + " (" +
+                        "transaction_id BIGINT PRIMARY KEY, " +
+                        "account_id VARCHAR(10) NOT NULL, " +
+                        "amount DECIMAL(10,2) NOT NULL, " +
+                        "description VARCHAR(255), " +
+                        "transaction_date TIMESTAMP NOT NULL, " +
+                        "FOREIGN KEY (account_id) REFERENCES accounts(account_id))");
+                // Same keyset indexes as the hot table
+                stmt.execute("CREATE INDEX IF NOT EXISTS idx_" + table + "_account ON " + table +
+                        "(account_id, transaction_date, transaction_id)");
+                stmt.execute("CREATE INDEX IF NOT EXISTS idx_" + table + "_date ON " + table +
+                        "(transaction_date, transaction_id)");
+            }
+            String state = null;
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT state FROM ledger_partitions WHERE period = ?")) {
+                stmt.setString(1, period);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        state = rs.getString(1);
+                    }
+                }
+            }
+            if (state == null) {
+                try (PreparedStatement stmt = conn.prepareStatement(INSERT_PARTITION)) {
+                    stmt.setString(1, period);
+                    stmt.setString(2, table);
+                    stmt.setString(3, LedgerPartitions.ARCHIVED);
+                    stmt.executeUpdate();
+                }
+            } else if (LedgerPartitions.COMPACTED.equals(state)) {
+                setState(conn, period, LedgerPartitions.ARCHIVED, 0);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Add the month's rows to the rollups and drop its table. Returns the rows folded in.
+     */
+    private long compact(LedgerPartitions.Partition partition) throws SQLException {
+        String table = partition.getTableName();
+        long rows = unitOfWork.execute(conn -> {
+            // A month compacted before can already have rollups for some days
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "MERGE INTO " + LedgerPartitions.ROLLUP_TABLE + " r USING (" +
+                    "SELECT account_id, CAST(transaction_date AS DATE) AS tx_day, " +
+                    "SUM(CASE WHEN amount > 0 THEN amount ELSE 0 END) AS deposits, " +
+                    "SUM(CASE WHEN amount < 0 THEN amount ELSE 0 END) AS withdrawals, " +
+                    "COUNT(*) AS tx_count FROM " + table +
+                    " GROUP BY account_id, CAST(transaction_date AS DATE)) s " +
+                    "ON r.account_id = s.account_id AND r.tx_day = s.tx_day " +
+                    "WHEN MATCHED THEN UPDATE SET deposits = r.deposits + s.deposits, " +
+                    "withdrawals = r.withdrawals + s.withdrawals, tx_count = r.tx_count + s.tx_count " +
+                    "WHEN NOT MATCHED THEN INSERT (account_id, tx_day, deposits, withdrawals, tx_count) " +
+                    "VALUES (s.account_id, s.tx_day, s.deposits, s.withdrawals, s.tx_count)")) {
+                stmt.executeUpdate();
+            }
+            long count;
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM " + table);
+                 ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                count = rs.getLong(1);
+            }
+            setState(conn, partition.getPeriod().toString(), LedgerPartitions.COMPACTED, count);
+            return count;
+        });
+        // DDL commits on its own in H2, so it runs after the rollups are in
+        unitOfWork.execute(conn -> dropTable(conn, table));
+        return rows;
+    }
+
+    private long expire(YearMonth firstKept) throws SQLException {
+        return unitOfWork.execute(conn -> {
+            int expired;
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "DELETE FROM " + LedgerPartitions.ROLLUP_TABLE + " WHERE tx_day < ?")) {
+                stmt.setObject(1, firstKept.atDay(1));
+                expired = stmt.executeUpdate();
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "DELETE FROM ledger_partitions WHERE period < ? AND state = ?")) {
+                stmt.setString(1, firstKept.toString());
+                stmt.setString(2, LedgerPartitions.COMPACTED);
+                stmt.executeUpdate();
+            }
+            return (long) expired;
+        });
+    }
+
+    // Left behind by a run that failed between compacting a month and dropping it
+    private void dropCompactedTables() throws SQLException {
+        unitOfWork.execute(conn -> {
+            List<String> tables = new ArrayList<>();
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT table_name FROM ledger_partitions WHERE state = ?")) {
+                stmt.setString(1, LedgerPartitions.COMPACTED);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        tables.add(rs.getString(1));
+                    }
+                }
+            }
+            for (String table : tables) {
+                dropTable(conn, table);
+            }
+            return null;
+        });
+    }
+
+    private static Void dropTable(Connection conn, String table) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP TABLE IF EXISTS " + table);
+        }
+        return null;
+    }
+
+    private static void setState(Connection conn, String period, String state, long rowCount) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(SET_STATE)) {
+            stmt.setString(1, state);
+            stmt.setLong(2, rowCount);
+            stmt.setString(3, period);
+            stmt.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.banking.util;
+
+/**
+ * Result of one {@link LedgerMaintenance#maintain} run.
+ */
+public class LedgerMaintenanceStats {
+    private final int monthsArchived;
+    private final long rowsArchived;
+    private final int monthsCompacted;
+    private final long rowsCompacted;
+    private final long rollupsExpired;
+    private final long elapsedNanos;
+
+    public LedgerMaintenanceStats(int monthsArchived, long rowsArchived, int monthsCompacted, long rowsCompacted,
+                                  long rollupsExpired, long elapsedNanos) {
+        this.monthsArchived = monthsArchived;
+        this.rowsArchived = rowsArchived;
+        this.monthsCompacted = monthsCompacted;
+        this.rowsCompacted = rowsCompacted;
+        this.rollupsExpired = rollupsExpired;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Months that had rows moved out of the hot table.
+     */
+    public int getMonthsArchived() {
+        return monthsArchived;
+    }
+
+    public long getRowsArchived() {
+        return rowsArchived;
+    }
+
+    /**
+     * Months folded into rollups and dropped.
+     */
+    public int getMonthsCompacted() {
+        return monthsCompacted;
+    }
+
+    /**
+     * Ledger rows the compacted months held.
+     */
+    public long getRowsCompacted() {
+        return rowsCompacted;
+    }
+
+    /**
+     * Rollup rows deleted for being past the retention window.
+     */
+    public long getRollupsExpired() {
+        return rollupsExpired;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Ledger maintenance: %d months archived (%d rows), %d compacted (%d rows), "
+                        + "%d rollups expired, %.1f ms",
+                monthsArchived, rowsArchived, monthsCompacted, rowsCompacted, rollupsExpired,
+                elapsedNanos / 1_000_000.0);
+    }
+}
@@ -0,0 +1,240 @@
+package com.banking.util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Where the ledger's rows live, as recorded in ledger_partitions by
+ * {@link LedgerMaintenance}, and the SQL to read across those places.
+ *
+ * New rows always go to the transactions table (the hot partition), which
+ * can hold rows of any date. Each archived month has a table of its own,
+ * transactions_YYYYMM, holding only that month's rows; a compacted month
+ * only survives as per-account daily totals in transaction_rollups. A
+ * history read over a date range touches the hot table and the month tables
+ * overlapping the range, nothing else.
+ *
+ * Instances are a snapshot of the catalog; load a new one per read.
+ */
+public class LedgerPartitions {
+    public static final String HOT_TABLE = "transactions";
+    public static final String ROLLUP_TABLE = "transaction_rollups";
+
+    static final String ARCHIVED = "ARCHIVED";
+    static final String COMPACTED = "COMPACTED";
+
+    // Archived months, newest first
+    private final List<Partition> archived;
+    private final boolean rollups;
+
+    private LedgerPartitions(List<Partition> archived, boolean rollups) {
+        this.archived = archived;
+        this.rollups = rollups;
+    }
+
+    public static LedgerPartitions load(Connection conn) throws SQLException {
+        List<Partition> archived = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT period, table_name, row_count FROM ledger_partitions WHERE state = ? ORDER BY period DESC")) {
+            stmt.setString(1, ARCHIVED);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    archived.add(new Partition(YearMonth.parse(rs.getString("period")),
+                            rs.getString("table_name"), rs.getLong("row_count")));
+                }
+            }
+        }
+        boolean rollups;
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "SELECT EXISTS (SELECT 1 FROM " + ROLLUP_TABLE + ")");
+             ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            rollups = rs.getBoolean(1);
+        }
+        return new LedgerPartitions(Collections.unmodifiableList(archived), rollups);
+    }
+
+    /**
+     * Months moved out of the hot table that still have their rows, newest first.
+     */
+    public List<Partition> getArchived() {
+        return archived;
+    }
+
+    /**
+     * Whether some months only survive as rollups.
+     */
+    public boolean hasRollups() {
+        return rollups;
+    }
+
+    /**
+     * True while every row is still in the hot table.
+     */
+    public boolean isEmpty() {
+        return archived.isEmpty() && !rollups;
+    }
+
+    /**
+     * Tables that can hold rows with from <= transaction_date < to (either
+     * bound may be null): the hot table first, then the overlapping months
+     * newest first.
+     */
+    public List<String> tables(LocalDateTime from, LocalDateTime to) {
+        List<String> tables = new ArrayList<>();
+        tables.add(HOT_TABLE);
+        for (Partition partition : archived) {
+            if (partition.overlaps(from, to)) {
+                tables.add(partition.getTableName());
+            }
+        }
+        return tables;
+    }
+
+    /**
+     * Query returning account_id and tx_count over the whole ledger,
+     * rollups included. The condition (or null) is applied to every table
+     * read, so its parameters must be bound {@link #branches()} times in a row.
+     */
+    public String accountCountsSql(String condition) {
+        String where = condition != null ? " WHERE " + condition : "";
+        if (isEmpty()) {
+            return "SELECT account_id, COUNT(*) AS tx_count FROM " + HOT_TABLE + where + " GROUP BY account_id";
+        }
+        List<String> branches = new ArrayList<>();
+        for (String table : tables(null, null)) {
+            branches.add("SELECT account_id, COUNT(*) AS tx_count FROM " + table + where + " GROUP BY account_id");
+        }
+        if (rollups) {
+            branches.add("SELECT account_id, SUM(tx_count) AS tx_count FROM " + ROLLUP_TABLE + where +
+                    " GROUP BY account_id");
+        }
+        return "SELECT account_id, CAST(SUM(tx_count) AS BIGINT) AS tx_count FROM (" + String.join(" UNION ALL ", branches) +
+                ") counts GROUP BY account_id";
+    }
+
+    /**
+     * Query returning tx_day, deposits and withdrawals per day over the
+     * whole ledger; the condition works as for {@link #accountCountsSql}.
+     */
+    public String dailyTotalsSql(String condition) {
+        String where = condition != null ? " WHERE " + condition : "";
+        List<String> branches = new ArrayList<>();
+        for (String table : tables(null, null)) {
+            branches.add("SELECT CAST(transaction_date AS DATE) AS tx_day, " +
+                    "SUM(CASE WHEN amount > 0 THEN amount ELSE 0 END) AS deposits, " +
+                    "SUM(CASE WHEN amount < 0 THEN amount ELSE 0 END) AS withdrawals " +
+                    "FROM " + table + where + " GROUP BY CAST(transaction_date AS DATE)");
+        }
+        if (isEmpty()) {
+            return branches.get(0);
+        }
+        if (rollups) {
+            branches.add("SELECT tx_day, SUM(deposits) AS deposits, SUM(withdrawals) AS withdrawals " +
+                    "FROM " + ROLLUP_TABLE + where + " GROUP BY tx_day");
+        }
+        return "SELECT tx_day, SUM(deposits) AS deposits, SUM(withdrawals) AS withdrawals FROM (" +
+                String.join(" UNION ALL ", branches) + ") days GROUP BY tx_day";
+    }
+
+    /**
+     * Number of tables the queries above read.
+     */
+    public int branches() {
+        return isEmpty() ? 1 : archived.size() + 1 + (rollups ? 1 : 0);
+    }
+
+    /**
+     * Delete the account's rows from every partition and its rollups, on the
+     * caller's connection so it commits with the account delete.
+     */
+    public void deleteAccount(Connection conn, String accountId) throws SQLException {
+        for (String table : tables(null, null)) {
+            delete(conn, "DELETE FROM " + table + " WHERE account_id = ?", accountId);
+        }
+        delete(conn, "DELETE FROM " + ROLLUP_TABLE + " WHERE account_id = ?", accountId);
+    }
+
+    /**
+     * Remove every ledger row: empties the hot table and drops the months.
+     */
+    public void clear(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("DELETE FROM " + HOT_TABLE);
+            for (Partition partition : archived) {
+                stmt.execute("DROP TABLE IF EXISTS " + partition.getTableName());
+            }
+            stmt.executeUpdate("DELETE FROM " + ROLLUP_TABLE);
+            stmt.executeUpdate("DELETE FROM ledger_partitions");
+        }
+    }
+
+    private static void delete(Connection conn, String sql, String accountId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, accountId);
+            stmt.executeUpdate();
+        }
+    }
+
+    static String tableName(YearMonth period) {
+        return String.format("%s_%04d%02d", HOT_TABLE, period.getYear(), period.getMonthValue());
+    }
+
+    /**
+     * One archived month.
+     */
+    public static final class Partition {
+        private final YearMonth period;
+        private final String tableName;
+        private final long rowCount;
+
+        Partition(YearMonth period, String tableName, long rowCount) {
+            this.period = period;
+            this.tableName = tableName;
+            this.rowCount = rowCount;
+        }
+
+        public YearMonth getPeriod() {
+            return period;
+        }
+
+        public String getTableName() {
+            return tableName;
+        }
+
+        public long getRowCount() {
+            return rowCount;
+        }
+
+        /**
+         * First instant of the month; every row is at or after it.
+         */
+        public LocalDateTime getStart() {
+            return period.atDay(1).atStartOfDay();
+        }
+
+        /**
+         * First instant of the next month; every row is before it.
+         */
+        public LocalDateTime getEnd() {
+            return period.plusMonths(1).atDay(1).atStartOfDay();
+        }
+
+        boolean overlaps(LocalDateTime from, LocalDateTime to) {
+            return (to == null || getStart().isBefore(to)) && (from == null || getEnd().isAfter(from));
+        }
+
+        @Override
+        public String toString() {
+            return tableName + "[" + period + ", " + rowCount + " rows]";
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.banking.util;
+
+import com.banking.db.UnitOfWork;
+import com.banking.exception.BankingException;
+import com.banking.model.TransactionRecord;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterates the ledger newest first, one page at a time.
+ *
+ * Pages use keyset pagination on (transaction_date, transaction_id): each
+ * query continues strictly after the last row of the previous page, so the
+ * cost per page stays flat however deep the cursor goes. A connection is only
+ * held while a page is being read, and at most one page is kept in memory.
+ *
+ * Pages also cover the archived months of the ledger (see {@link LedgerPartitions})
+ * that overlap the query's date range and that the cursor has not passed yet.
+ */
+class TransactionCursor implements Iterator<TransactionRecord> {
+    private final UnitOfWork.ConnectionSource connectionSource;
+    private final TransactionQuery query;
+    private final ArrayDeque<TransactionRecord> page;
+
+    private Timestamp lastDate;
+    private long lastMicros;
+    private long lastId;
+    private boolean exhausted;
+    private int maxBuffered;
+
+    TransactionCursor(UnitOfWork.ConnectionSource connectionSource, TransactionQuery query) {
+        this.connectionSource = connectionSource;
+        this.query = query;
+        this.page = new ArrayDeque<>(query.getPageSize());
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (page.isEmpty() && !exhausted) {
+            fetchPage();
+        }
+        return !page.isEmpty();
+    }
+
+    @Override
+    public TransactionRecord next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return page.poll();
+    }
+
+    /**
+     * Largest number of rows held at once; never more than the page size.
+     */
+    int getMaxBuffered() {
+        return maxBuffered;
+    }
+
+    private void fetchPage() {
+        try (Connection conn = connectionSource.getConnection()) {
+            List<String> tables = LedgerPartitions.load(conn).tables(query.getFrom(), pageEnd());
+            String sql;
+            if (tables.size() == 1) {
+                sql = pageSql(tables.get(0));
+            } else {
+                // Each table gives its own newest page through its keyset index; the
+                // union is cut back to one page
+                StringBuilder union = new StringBuilder();
+                for (String table : tables) {
+                    union.append(union.length() > 0 ? " UNION ALL (" : "(").append(pageSql(table)).append(')');
+                }
+                sql = "SELECT * FROM (" + union + ") page " +
+                        "ORDER BY transaction_date DESC, transaction_id DESC LIMIT ?";
+            }
+
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                int i = 1;
+                for (int t = 0; t < tables.size(); t++) {
+                    i = bindPage(stmt, i);
+                }
+                if (tables.size() > 1) {
+                    stmt.setInt(i, query.getPageSize());
+                }
+                stmt.setFetchSize(query.getFetchSize());
+                readPage(stmt);
+            }
+        } catch (SQLException e) {
+            throw new BankingException("Failed to read transaction history: " + e.getMessage(), e);
+        }
+
+        maxBuffered = Math.max(maxBuffered, page.size());
+        if (page.size() < query.getPageSize()) {
+            exhausted = true;
+        }
+    }
+
+    /**
+     * Exclusive upper bound of the rows still to come, for skipping months
+     * the cursor has already passed.
+     */
+    private LocalDateTime pageEnd() {
+        if (lastDate == null) {
+            return query.getTo();
+        }
+        // Rows dated exactly lastDate can still follow
+        LocalDateTime end = lastDate.toLocalDateTime().plusNanos(1000);
+        return query.getTo() != null && query.getTo().isBefore(end) ? query.getTo() : end;
+    }
+
+    private String pageSql(String table) {
+        StringBuilder sql = new StringBuilder(
+                "SELECT transaction_id, account_id, CAST(amount * 100 AS BIGINT) AS amount_minor, transaction_date " +
+                "FROM " + table + " WHERE 1 = 1");
+        if (query.getAccountId() != null) {
+            sql.append(" AND account_id = ?");
+        }
+        if (query.getFrom() != null) {
+            sql.append(" AND transaction_date >= ?");
+        }
+        if (query.getTo() != null) {
+            sql.append(" AND transaction_date < ?");
+        }
+        if (lastDate != null) {
+            sql.append(" AND (transaction_date < ? OR (transaction_date = ? AND transaction_id < ?))");
+        }
+        sql.append(" ORDER BY transaction_date DESC, transaction_id DESC LIMIT ?");
+        return sql.toString();
+    }
+
+    private int bindPage(PreparedStatement stmt, int i) throws SQLException {
+        if (query.getAccountId() != null) {
+            stmt.setString(i++, query.getAccountId());
+        }
+        if (query.getFrom() != null) {
+            stmt.setTimestamp(i++, Timestamp.valueOf(query.getFrom()));
+        }
+        if (query.getTo() != null) {
+            stmt.setTimestamp(i++, Timestamp.valueOf(query.getTo()));
+        }
+        if (lastDate != null) {
+            stmt.setTimestamp(i++, lastDate);
+            stmt.setTimestamp(i++, lastDate);
+            stmt.setLong(i++, lastId);
+        }
+        stmt.setInt(i++, query.getPageSize());
+        return i;
+    }
+
+    private void readPage(PreparedStatement stmt) throws SQLException {
+        // Amounts come back as cents and dates as epoch micros, so no
+        // BigDecimal or LocalDateTime is built per row
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                lastId = rs.getLong("transaction_id");
+                lastMicros = TransactionRecord.toEpochMicros(rs.getTimestamp("transaction_date"));
+                page.add(new TransactionRecord(
+                        lastId,
+                        rs.getString("account_id"),
+                        rs.getLong("amount_minor"),
+                        lastMicros
+                ));
+            }
+        }
+        if (!page.isEmpty()) {
+            lastDate = TransactionRecord.toTimestamp(lastMicros);
+        }
+    }
+}
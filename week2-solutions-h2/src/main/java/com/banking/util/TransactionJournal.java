@@ -0,0 +1,470 @@
+package com.banking.util;
+
+import com.banking.db.DatabaseConnection;
+import com.banking.exception.BankingException;
+import com.banking.model.TransactionRecord;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, memory-mapped journal of ledger rows.
+ *
+ * Every record is 64 bytes: sequence number, epoch micros, amount in cents,
+ * account id and a CRC32 of the rest. Records go into a mapped segment file;
+ * when it is full it is forced to disk and a new segment is started, named
+ * after the sequence number of its first record.
+ *
+ * Opening a journal recovers it. Records are checked in order and the log
+ * ends at the first one with a bad checksum or unexpected sequence number.
+ * In the last segment that is a torn write and the rest of the segment is
+ * zeroed; in an earlier segment it is corruption and opening fails.
+ *
+ * A journal holds an exclusive lock on journal.lock in its directory until
+ * it is closed, so a second journal on the same directory, in this process
+ * or another, fails to open instead of overwriting the first one's records.
+ */
+public class TransactionJournal implements AutoCloseable {
+    static final int RECORD_SIZE = 64;
+    // Layout: sequence (0), epoch micros (8), amount in cents (16), id length (24), id bytes, CRC (60)
+    private static final int ID_LENGTH_OFFSET = 24;
+    private static final int ID_OFFSET = 25;
+    private static final int CRC_OFFSET = 60;
+    private static final int MAX_ID_BYTES = CRC_OFFSET - ID_OFFSET;
+    private static final String SUFFIX = ".journal";
+    private static final String LOCK_FILE = "journal.lock";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final JournalSyncPolicy syncPolicy;
+    private final List<Segment> segments = new ArrayList<>();
+    private final byte[] scratch = new byte[RECORD_SIZE];
+    private final ByteBuffer record = ByteBuffer.wrap(scratch);
+    private final CRC32 crc = new CRC32();
+    private final Object syncLock = new Object();
+    private final Thread syncThread;
+    private final FileChannel lockChannel;
+
+    // Guarded by this
+    private FileChannel currentChannel;
+    private MappedByteBuffer currentBuffer;
+    private int position;
+    private long nextSequence;
+    private boolean open = true;
+
+    private volatile long syncedSequence;
+    private final AtomicLong syncs = new AtomicLong();
+
+    public TransactionJournal() {
+        this(Paths.get(DatabaseConnection.getInstance().getProperty("logger.journal.dir", "journal")),
+             Integer.parseInt(DatabaseConnection.getInstance().getProperty("logger.journal.segmentSize", "67108864")),
+             JournalSyncPolicy.valueOf(DatabaseConnection.getInstance().getProperty("logger.journal.sync", "INTERVAL")),
+             Long.parseLong(DatabaseConnection.getInstance().getProperty("logger.journal.syncIntervalMs", "10")));
+    }
+
+    public TransactionJournal(Path directory, int segmentSize, JournalSyncPolicy syncPolicy, long syncIntervalMs) {
+        if (segmentSize < RECORD_SIZE) {
+            throw new IllegalArgumentException("segmentSize must hold at least one record");
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize - segmentSize % RECORD_SIZE;
+        this.syncPolicy = syncPolicy;
+        try {
+            this.lockChannel = lock(directory);
+        } catch (IOException e) {
+            throw new BankingException("Failed to open transaction journal in " + directory + ": " + e.getMessage(), e);
+        }
+        try {
+            recover();
+        } catch (IOException e) {
+            closeQuietly(lockChannel);
+            throw new BankingException("Failed to open transaction journal in " + directory + ": " + e.getMessage(), e);
+        } catch (RuntimeException e) {
+            closeQuietly(lockChannel);
+            throw e;
+        }
+        this.syncedSequence = nextSequence - 1;
+
+        if (syncPolicy == JournalSyncPolicy.INTERVAL) {
+            this.syncThread = new Thread(() -> runSync(syncIntervalMs), "transaction-journal-sync");
+            this.syncThread.setDaemon(true);
+            this.syncThread.start();
+        } else {
+            this.syncThread = null;
+        }
+    }
+
+    /**
+     * Append a ledger row and return its sequence number. With ALWAYS the
+     * record is on disk when this returns.
+     */
+    public long append(String accountId, BigDecimal amount) {
+        byte[] id = accountId.getBytes(StandardCharsets.UTF_8);
+        if (id.length > MAX_ID_BYTES) {
+            throw new BankingException("Account id too long for the transaction journal: " + accountId);
+        }
+        long amountMinor = TransactionRecord.toMinorUnits(amount);
+        Instant now = Instant.now();
+        long epochMicros = now.getEpochSecond() * 1_000_000 + now.getNano() / 1000;
+
+        long sequence;
+        synchronized (this) {
+            if (!open) {
+                throw new IllegalStateException("Transaction journal is closed");
+            }
+            if (position == currentBuffer.capacity()) {
+                roll();
+            }
+            sequence = nextSequence++;
+            Arrays.fill(scratch, (byte) 0);
+            record.putLong(0, sequence)
+                  .putLong(8, epochMicros)
+                  .putLong(16, amountMinor)
+                  .put(ID_LENGTH_OFFSET, (byte) id.length);
+            System.arraycopy(id, 0, scratch, ID_OFFSET, id.length);
+            crc.reset();
+            crc.update(scratch, 0, CRC_OFFSET);
+            record.putInt(CRC_OFFSET, (int) crc.getValue());
+
+            currentBuffer.position(position);
+            currentBuffer.put(scratch);
+            position += RECORD_SIZE;
+        }
+
+        if (syncPolicy == JournalSyncPolicy.ALWAYS) {
+            syncTo(sequence);
+        }
+        return sequence;
+    }
+
+    /**
+     * Force everything appended so far to disk.
+     */
+    public void sync() {
+        syncTo(getLastSequence());
+    }
+
+    /**
+     * Feed every record after afterSequence to the consumer, oldest first.
+     * Returns the number of records replayed.
+     */
+    public long replay(long afterSequence, Consumer<TransactionRecord> consumer) {
+        List<Segment> snapshot;
+        long lastSequence;
+        ByteBuffer tail;
+        synchronized (this) {
+            snapshot = new ArrayList<>(segments);
+            lastSequence = nextSequence - 1;
+            tail = currentBuffer.duplicate();
+        }
+
+        long count = 0;
+        CRC32 checksum = new CRC32();
+        for (int i = 0; i < snapshot.size(); i++) {
+            Segment segment = snapshot.get(i);
+            boolean last = i == snapshot.size() - 1;
+            long end = last ? lastSequence : snapshot.get(i + 1).firstSequence - 1;
+            if (end <= afterSequence) {
+                continue;
+            }
+            ByteBuffer buffer = last ? tail : mapForReading(segment.path);
+            for (long sequence = Math.max(segment.firstSequence, afterSequence + 1); sequence <= end; sequence++) {
+                int offset = (int) ((sequence - segment.firstSequence) * RECORD_SIZE);
+                if (!isValid(buffer, offset, sequence, checksum)) {
+                    throw corrupt(segment.path, offset);
+                }
+                consumer.accept(decode(buffer, offset));
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Net journaled amount per account. This is the balance of every account
+     * whose ledger rows, including the opening deposit, all went through the journal.
+     */
+    public Map<String, BigDecimal> replayBalances() {
+        Map<String, Long> cents = new HashMap<>();
+        replay(0, row -> cents.merge(row.getAccountId(), row.getAmountMinor(), Long::sum));
+        Map<String, BigDecimal> balances = new TreeMap<>();
+        cents.forEach((accountId, total) -> balances.put(accountId, BigDecimal.valueOf(total, 2)));
+        return balances;
+    }
+
+    public synchronized long getLastSequence() {
+        return nextSequence - 1;
+    }
+
+    public long getSyncedSequence() {
+        return syncedSequence;
+    }
+
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    public long getSyncCount() {
+        return syncs.get();
+    }
+
+    public JournalSyncPolicy getSyncPolicy() {
+        return syncPolicy;
+    }
+
+    /**
+     * Force the current segment and close it. Appends fail afterwards.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (!open) {
+                return;
+            }
+            open = false;
+        }
+        if (syncThread != null) {
+            syncThread.interrupt();
+            try {
+                syncThread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            currentBuffer.force();
+            syncedSequence = nextSequence - 1;
+            try {
+                currentChannel.close();
+            } catch (IOException e) {
+                System.err.println("Failed to close transaction journal: " + e.getMessage());
+            }
+        }
+        // Closing the channel releases the directory lock
+        closeQuietly(lockChannel);
+    }
+
+    private void syncTo(long sequence) {
+        synchronized (syncLock) {
+            // Another thread's force may already have covered this record
+            if (syncedSequence >= sequence) {
+                return;
+            }
+            MappedByteBuffer buffer;
+            long written;
+            synchronized (this) {
+                buffer = currentBuffer;
+                written = nextSequence - 1;
+            }
+            // Older segments were forced when they filled up
+            buffer.force();
+            syncedSequence = written;
+            syncs.incrementAndGet();
+        }
+    }
+
+    private void runSync(long intervalMs) {
+        while (true) {
+            try {
+                Thread.sleep(intervalMs);
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                sync();
+            } catch (RuntimeException e) {
+                System.err.println("Failed to sync transaction journal: " + e.getMessage());
+            }
+        }
+    }
+
+    private static FileChannel lock(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        FileChannel channel = FileChannel.open(directory.resolve(LOCK_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock lock;
+        try {
+            lock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            // Held by another journal in this JVM
+            lock = null;
+        } catch (IOException e) {
+            closeQuietly(channel);
+            throw e;
+        }
+        if (lock == null) {
+            closeQuietly(channel);
+            throw new BankingException("Transaction journal in " + directory + " is already open");
+        }
+        return channel;
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Failed to release transaction journal lock: " + e.getMessage());
+        }
+    }
+
+    private void recover() throws IOException {
+        Files.createDirectories(directory);
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            stream.forEach(files::add);
+        }
+        // Names are zero-padded first sequence numbers, so this is log order
+        Collections.sort(files);
+
+        long expected = 1;
+        CRC32 checksum = new CRC32();
+        for (int i = 0; i < files.size(); i++) {
+            Path file = files.get(i);
+            if (firstSequence(file) != expected) {
+                throw corrupt(file, 0);
+            }
+            boolean last = i == files.size() - 1;
+            ByteBuffer buffer;
+            FileChannel channel = null;
+            if (last) {
+                channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                long size = channel.size();
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                        Math.max(size - size % RECORD_SIZE, segmentSize));
+            } else {
+                buffer = mapForReading(file);
+            }
+
+            int offset = 0;
+            while (offset < buffer.capacity() && isValid(buffer, offset, expected, checksum)) {
+                offset += RECORD_SIZE;
+                expected++;
+            }
+            segments.add(new Segment(file, firstSequence(file)));
+
+            if (!last) {
+                if (offset < buffer.capacity()) {
+                    throw corrupt(file, offset);
+                }
+                continue;
+            }
+            // Pages can reach disk out of order, so a later record may have
+            // survived a torn one; clear it so it cannot be revived later
+            boolean cleared = false;
+            for (int p = offset; p < buffer.capacity(); p += 8) {
+                if (buffer.getLong(p) != 0) {
+                    buffer.putLong(p, 0);
+                    cleared = true;
+                }
+            }
+            currentChannel = channel;
+            currentBuffer = (MappedByteBuffer) buffer;
+            position = offset;
+            if (cleared) {
+                currentBuffer.force();
+            }
+        }
+
+        nextSequence = expected;
+        if (currentBuffer == null) {
+            startSegment();
+        }
+    }
+
+    private void roll() {
+        try {
+            currentBuffer.force();
+            currentChannel.close();
+            startSegment();
+        } catch (IOException e) {
+            throw new BankingException("Failed to start transaction journal segment: " + e.getMessage(), e);
+        }
+    }
+
+    private void startSegment() throws IOException {
+        Path file = directory.resolve(String.format("%020d%s", nextSequence, SUFFIX));
+        currentChannel = FileChannel.open(file,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        currentBuffer = currentChannel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        position = 0;
+        segments.add(new Segment(file, nextSequence));
+    }
+
+    private static ByteBuffer mapForReading(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size - size % RECORD_SIZE);
+        } catch (IOException e) {
+            throw new BankingException("Failed to read transaction journal " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static boolean isValid(ByteBuffer buffer, int offset, long expectedSequence, CRC32 checksum) {
+        if (buffer.getLong(offset) != expectedSequence) {
+            return false;
+        }
+        int idLength = buffer.get(offset + ID_LENGTH_OFFSET);
+        if (idLength <= 0 || idLength > MAX_ID_BYTES) {
+            return false;
+        }
+        ByteBuffer covered = buffer.duplicate();
+        covered.limit(offset + CRC_OFFSET).position(offset);
+        checksum.reset();
+        checksum.update(covered);
+        return (int) checksum.getValue() == buffer.getInt(offset + CRC_OFFSET);
+    }
+
+    private static TransactionRecord decode(ByteBuffer buffer, int offset) {
+        byte[] id = new byte[buffer.get(offset + ID_LENGTH_OFFSET)];
+        for (int i = 0; i < id.length; i++) {
+            id[i] = buffer.get(offset + ID_OFFSET + i);
+        }
+        return new TransactionRecord(buffer.getLong(offset), new String(id, StandardCharsets.UTF_8),
+                buffer.getLong(offset + 16), buffer.getLong(offset + 8));
+    }
+
+    private static long firstSequence(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            throw corrupt(file, 0);
+        }
+    }
+
+    private static BankingException corrupt(Path file, int offset) {
+        return new BankingException("Transaction journal is corrupt: " + file.getFileName() + " at offset " + offset);
+    }
+
+    private static final class Segment {
+        private final Path path;
+        private final long firstSequence;
+
+        private Segment(Path path, long firstSequence) {
+            this.path = path;
+            this.firstSequence = firstSequence;
+        }
+    }
+}
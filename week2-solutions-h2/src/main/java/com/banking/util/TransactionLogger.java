@@ -1,84 +1,323 @@
 package com.banking.util;
 
 import com.banking.db.DatabaseConnection;
+import com.banking.db.UnitOfWork;
+import com.banking.exception.BankingException;
+import com.banking.metrics.BankingMetrics;
+import com.banking.model.TransactionRecord;
 import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-public class TransactionLogger {
-    private final DatabaseConnection dbConnection;
+public class TransactionLogger implements AutoCloseable {
+    // Public for the DatabaseConnection warmup, see AccountService.WARMUP_SQL
+    public static final String INSERT_SQL =
+        "INSERT INTO transactions (account_id, amount) VALUES (?, ?)";
+    private static final String REPLAY_SQL =
+        "INSERT INTO transactions (account_id, amount, transaction_date) VALUES (?, ?, ?)";
+
+    private final UnitOfWork.ConnectionSource connectionSource;
+    private final DurabilityMode mode;
+    private final BatchedLedgerWriter writer;
+    private final TransactionJournal journal;
+    private final boolean ownsJournal;
+    private final int batchSize;
+    private final BankingMetrics metrics = BankingMetrics.getInstance();
+
+    private static TransactionLogger instance;
+
+    /**
+     * The logger the account engines share, configured by the logger.* settings.
+     * Only one journal may be open on logger.journal.dir, so in JOURNAL mode
+     * every engine has to append through this one. It is closed on JVM
+     * shutdown, which writes the rows still queued and closes the journal.
+     */
+    public static synchronized TransactionLogger getInstance() {
+        if (instance == null) {
+            TransactionLogger logger = new TransactionLogger();
+            Runtime.getRuntime().addShutdownHook(new Thread(logger::close, "transaction-logger-shutdown"));
+            instance = logger;
+        }
+        return instance;
+    }
 
     public TransactionLogger() {
-        this.dbConnection = DatabaseConnection.getInstance();
+        this(DurabilityMode.valueOf(DatabaseConnection.getInstance().getProperty("logger.durability", "SYNC")),
+             Integer.parseInt(DatabaseConnection.getInstance().getProperty("logger.batchSize", "100")),
+             Long.parseLong(DatabaseConnection.getInstance().getProperty("logger.flushIntervalMs", "10")),
+             Integer.parseInt(DatabaseConnection.getInstance().getProperty("logger.queueCapacity", "10000")));
+    }
+
+    public TransactionLogger(DurabilityMode mode, int batchSize, long flushIntervalMs, int queueCapacity) {
+        this(DatabaseConnection.getInstance()::getConnection, mode,
+             mode == DurabilityMode.JOURNAL ? new TransactionJournal() : null, true,
+             batchSize, flushIntervalMs, queueCapacity);
+    }
+
+    /**
+     * JOURNAL mode on the caller's journal; it is not closed by {@link #close()}.
+     */
+    public TransactionLogger(TransactionJournal journal, int batchSize, long flushIntervalMs, int queueCapacity) {
+        this(DatabaseConnection.getInstance()::getConnection, DurabilityMode.JOURNAL, journal, false,
+             batchSize, flushIntervalMs, queueCapacity);
+    }
+
+    /**
+     * SYNC mode against another database, e.g. one of {@link com.banking.db.DatabaseShards}.
+     */
+    public TransactionLogger(UnitOfWork.ConnectionSource connectionSource) {
+        this(connectionSource, DurabilityMode.SYNC, null, false, 1, 0, 1);
+    }
+
+    private TransactionLogger(UnitOfWork.ConnectionSource connectionSource, DurabilityMode mode,
+                              TransactionJournal journal, boolean ownsJournal,
+                              int batchSize, long flushIntervalMs, int queueCapacity) {
+        this.connectionSource = connectionSource;
+        this.mode = mode;
+        this.journal = journal;
+        this.ownsJournal = ownsJournal;
+        this.batchSize = batchSize;
+        this.writer = mode == DurabilityMode.SYNC ? null : new BatchedLedgerWriter(
+                new UnitOfWork(connectionSource), mode, batchSize, flushIntervalMs, queueCapacity);
     }
 
+    /**
+     * Log a transaction on its own.
+     * SYNC inserts right away; GROUP_COMMIT waits for the batch holding the row
+     * to commit; ASYNC only queues the row (call flush() to make it durable);
+     * JOURNAL appends it to the journal and queues the H2 insert.
+     * This is the only call the durability mode applies to: the account
+     * engines log on their own connection, see below.
+     */
     public void logTransaction(String accountId, BigDecimal amount) {
-        try (Connection conn = dbConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(
-                 "INSERT INTO transactions (account_id, amount) VALUES (?, ?)"
-             )) {
+        if (journal != null) {
+            try {
+                journal.append(accountId, amount);
+            } catch (RuntimeException e) {
+                System.err.println("Failed to log transaction: " + e.getMessage());
+                metrics.recordError("logTransaction", e);
+                return;
+            }
+        }
+        if (writer != null) {
+            try {
+                if (mode == DurabilityMode.GROUP_COMMIT) {
+                    writer.submit(accountId, amount).join();
+                } else {
+                    writer.submit(accountId, amount);
+                }
+            } catch (CompletionException e) {
+                System.err.println("Failed to log transaction: " + e.getCause().getMessage());
+                metrics.recordError("logTransaction", e.getCause());
+            } catch (IllegalStateException e) {
+                // The writer has been closed
+                System.err.println("Failed to log transaction: " + e.getMessage());
+                metrics.recordError("logTransaction", e);
+            }
+            return;
+        }
+
+        try (Connection conn = connectionSource.getConnection()) {
+            logTransaction(conn, accountId, amount);
+        } catch (SQLException e) {
+            System.err.println("Failed to log transaction: " + e.getMessage());
+            metrics.recordError("logTransaction", e);
+        }
+    }
+
+    /**
+     * Log a transaction on the caller's connection so the ledger row
+     * commits (or rolls back) together with the balance update.
+     * Always a plain INSERT whatever the durability mode: a queued row could
+     * outlive a rollback and a journal record cannot be taken back. This is
+     * what every account engine uses, so their ledger rows never go through
+     * the background writer or the journal.
+     */
+    public void logTransaction(Connection conn, String accountId, BigDecimal amount) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(INSERT_SQL)) {
             stmt.setString(1, accountId);
             stmt.setBigDecimal(2, amount);
             stmt.executeUpdate();
-        } catch (SQLException e) {
-            System.err.println("Failed to log transaction: " + e.getMessage());
         }
     }
 
-    public List<String> readTransactionHistory() {
-        List<String> history = new ArrayList<>();
-        try (Connection conn = dbConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(
-                 "SELECT transaction_date, account_id, amount FROM transactions ORDER BY transaction_date DESC"
-             );
-             ResultSet rs = stmt.executeQuery()) {
-            while (rs.next()) {
-                history.add(String.format("%s,%s,%.2f",
-                    rs.getTimestamp("transaction_date"),
-                    rs.getString("account_id"),
-                    rs.getBigDecimal("amount")
-                ));
-            }
-        } catch (SQLException e) {
-            System.err.println("Failed to read transaction history: " + e.getMessage());
+    /**
+     * Start a batch of ledger rows on the caller's connection.
+     * Rows are sent with a single executeBatch() when execute() is called.
+     */
+    public LedgerBatch newBatch(Connection conn) throws SQLException {
+        return new LedgerBatch(conn.prepareStatement(INSERT_SQL));
+    }
+
+    /**
+     * Stream ledger rows newest first, reading one page per round trip.
+     * Only a single page is held in memory, so this is safe on very large ledgers.
+     */
+    public Stream<TransactionRecord> streamTransactions(TransactionQuery query) {
+        flush();
+        TransactionCursor cursor = new TransactionCursor(connectionSource, query);
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(cursor, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    public List<TransactionRecord> readTransactionHistory() {
+        return readHistory(TransactionQuery.all());
+    }
+
+    public List<TransactionRecord> readTransactionHistory(String accountId) {
+        return readHistory(TransactionQuery.forAccount(accountId));
+    }
+
+    private List<TransactionRecord> readHistory(TransactionQuery query) {
+        List<TransactionRecord> history = new ArrayList<>();
+        try {
+            streamTransactions(query).forEach(history::add);
+        } catch (BankingException e) {
+            System.err.println(e.getMessage());
+            metrics.recordError("readTransactionHistory", e);
         }
         return history;
     }
 
-    public List<String> readTransactionHistory(String accountId) {
-        List<String> history = new ArrayList<>();
-        try (Connection conn = dbConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(
-                 "SELECT transaction_date, amount FROM transactions WHERE account_id = ? ORDER BY transaction_date DESC"
-             )) {
-            stmt.setString(1, accountId);
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    history.add(String.format("%s,%s,%.2f",
-                        rs.getTimestamp("transaction_date"),
-                        accountId,
-                        rs.getBigDecimal("amount")
-                    ));
-                }
+    /**
+     * Insert the journal's records after afterSequence into H2, keeping their
+     * timestamps, e.g. to rebuild an in-memory ledger on startup. The accounts
+     * must already exist. Returns the number of rows inserted.
+     */
+    public long replayJournal(long afterSequence) {
+        if (journal == null) {
+            throw new IllegalStateException("Transaction logger has no journal");
+        }
+        flush();
+        UnitOfWork unitOfWork = new UnitOfWork(connectionSource);
+        List<TransactionRecord> chunk = new ArrayList<>(batchSize);
+        long replayed = journal.replay(afterSequence, row -> {
+            chunk.add(row);
+            if (chunk.size() == batchSize) {
+                insertReplayed(unitOfWork, chunk);
             }
+        });
+        insertReplayed(unitOfWork, chunk);
+        return replayed;
+    }
+
+    private void insertReplayed(UnitOfWork unitOfWork, List<TransactionRecord> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        try {
+            unitOfWork.execute(conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(REPLAY_SQL)) {
+                    for (TransactionRecord row : rows) {
+                        stmt.setString(1, row.getAccountId());
+                        stmt.setBigDecimal(2, row.getAmount());
+                        stmt.setTimestamp(3, TransactionRecord.toTimestamp(row.getEpochMicros()));
+                        stmt.addBatch();
+                    }
+                    stmt.executeBatch();
+                }
+                return null;
+            });
         } catch (SQLException e) {
-            System.err.println("Failed to read transaction history: " + e.getMessage());
+            throw new BankingException("Failed to replay transaction journal: " + e.getMessage(), e);
         }
-        return history;
+        rows.clear();
     }
 
     public void clearTransactions() {
-        try (Connection conn = dbConnection.getConnection();
-            PreparedStatement stmt = conn.prepareStatement(
-                "DELETE FROM transactions"
-            )) {
-            stmt.executeUpdate();
+        flush();
+        try (Connection conn = connectionSource.getConnection()) {
+            LedgerPartitions.load(conn).clear(conn);
         } catch (SQLException e) {
             System.err.println("Failed to clear transactions: " + e.getMessage());
         }
     }
+
+    /**
+     * Block until every queued row has been written. No-op in SYNC mode.
+     */
+    public void flush() {
+        if (writer != null) {
+            writer.flush();
+        }
+    }
+
+    /**
+     * Flush queued rows and stop the background writer.
+     */
+    @Override
+    public void close() {
+        if (writer != null) {
+            writer.close();
+        }
+        if (ownsJournal && journal != null) {
+            journal.close();
+        }
+    }
+
+    public DurabilityMode getMode() {
+        return mode;
+    }
+
+    /**
+     * The journal rows are appended to in JOURNAL mode, otherwise null.
+     */
+    public TransactionJournal getJournal() {
+        return journal;
+    }
+
+    public long getBatchesWritten() {
+        return writer != null ? writer.getBatchesWritten() : 0;
+    }
+
+    public long getRowsWritten() {
+        return writer != null ? writer.getRowsWritten() : 0;
+    }
+
+    public int getQueuedRows() {
+        return writer != null ? writer.getQueueSize() : 0;
+    }
+
+    /**
+     * Ledger rows collected with addBatch() on one prepared statement.
+     */
+    public static class LedgerBatch implements AutoCloseable {
+        private final PreparedStatement stmt;
+        private int size;
+
+        private LedgerBatch(PreparedStatement stmt) {
+            this.stmt = stmt;
+        }
+
+        public void add(String accountId, BigDecimal amount) throws SQLException {
+            stmt.setString(1, accountId);
+            stmt.setBigDecimal(2, amount);
+            stmt.addBatch();
+            size++;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public void execute() throws SQLException {
+            if (size > 0) {
+                stmt.executeBatch();
+                size = 0;
+            }
+        }
+
+        @Override
+        public void close() throws SQLException {
+            stmt.close();
+        }
+    }
 }
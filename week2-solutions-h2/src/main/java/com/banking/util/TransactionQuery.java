@@ -0,0 +1,74 @@
+package com.banking.util;
+
+import java.time.LocalDateTime;
+
+/**
+ * Filter and paging settings for {@link TransactionLogger#streamTransactions}.
+ * Instances are immutable; the with* methods return a modified copy.
+ */
+public class TransactionQuery {
+    private static final int DEFAULT_PAGE_SIZE = 1000;
+
+    private final String accountId;
+    private final LocalDateTime from;
+    private final LocalDateTime to;
+    private final int pageSize;
+    private final int fetchSize;
+
+    private TransactionQuery(String accountId, LocalDateTime from, LocalDateTime to, int pageSize, int fetchSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        this.accountId = accountId;
+        this.from = from;
+        this.to = to;
+        this.pageSize = pageSize;
+        this.fetchSize = fetchSize;
+    }
+
+    public static TransactionQuery all() {
+        return new TransactionQuery(null, null, null, DEFAULT_PAGE_SIZE, DEFAULT_PAGE_SIZE);
+    }
+
+    public static TransactionQuery forAccount(String accountId) {
+        return new TransactionQuery(accountId, null, null, DEFAULT_PAGE_SIZE, DEFAULT_PAGE_SIZE);
+    }
+
+    /**
+     * Only rows with from <= transaction_date < to. Either bound may be null.
+     */
+    public TransactionQuery between(LocalDateTime from, LocalDateTime to) {
+        return new TransactionQuery(accountId, from, to, pageSize, fetchSize);
+    }
+
+    /**
+     * Rows read per round trip; also the most rows held in memory at once.
+     */
+    public TransactionQuery withPageSize(int pageSize) {
+        return new TransactionQuery(accountId, from, to, pageSize, Math.min(fetchSize, pageSize));
+    }
+
+    public TransactionQuery withFetchSize(int fetchSize) {
+        return new TransactionQuery(accountId, from, to, pageSize, fetchSize);
+    }
+
+    public String getAccountId() {
+        return accountId;
+    }
+
+    public LocalDateTime getFrom() {
+        return from;
+    }
+
+    public LocalDateTime getTo() {
+        return to;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+}
@@ -3,9 +3,14 @@ CREATE TABLE IF NOT EXISTS accounts (
     account_id VARCHAR(10) PRIMARY KEY,
     account_type VARCHAR(20) NOT NULL,
     balance DECIMAL(10,2) NOT NULL,
-    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    -- Bumped by every balance write, optimistic writers update only the version they read
+    version BIGINT DEFAULT 0 NOT NULL
 );
 
+-- Databases created before the version column existed
+ALTER TABLE accounts ADD COLUMN IF NOT EXISTS version BIGINT DEFAULT 0 NOT NULL;
+
 -- Create Transactions table
 CREATE TABLE IF NOT EXISTS transactions (
     transaction_id BIGINT AUTO_INCREMENT PRIMARY KEY,
@@ -19,3 +24,93 @@ CREATE TABLE IF NOT EXISTS transactions (
 -- Create indexes for better performance
 CREATE INDEX IF NOT EXISTS idx_account_id ON transactions(account_id);
 CREATE INDEX IF NOT EXISTS idx_transaction_date ON transactions(transaction_date);
+
+-- Keyset pagination for history reads (newest first, ties broken by id)
+CREATE INDEX IF NOT EXISTS idx_transaction_date_id ON transactions(transaction_date, transaction_id);
+CREATE INDEX IF NOT EXISTS idx_account_date_id ON transactions(account_id, transaction_date, transaction_id);
+
+-- Which version of this file has been applied (see DatabaseConnection.ensureSchema)
+CREATE TABLE IF NOT EXISTS schema_version (
+    version INT PRIMARY KEY,
+    checksum BIGINT NOT NULL,
+    applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Month-end progress, one row per account_id range of a run (see MonthEndProcessor);
+-- a range covers lower_bound < account_id <= upper_bound, NULL meaning unbounded
+CREATE TABLE IF NOT EXISTS month_end_checkpoints (
+    period VARCHAR(7) NOT NULL,
+    partition_no INT NOT NULL,
+    lower_bound VARCHAR(10),
+    upper_bound VARCHAR(10),
+    last_account_id VARCHAR(10),
+    accounts_done BIGINT DEFAULT 0 NOT NULL,
+    completed BOOLEAN DEFAULT FALSE NOT NULL,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (period, partition_no)
+);
+
+-- Months of the ledger moved out of the transactions table (see LedgerMaintenance):
+-- ARCHIVED while the month's table_name holds its rows, COMPACTED once only rollups remain
+CREATE TABLE IF NOT EXISTS ledger_partitions (
+    period VARCHAR(7) PRIMARY KEY,
+    table_name VARCHAR(30) NOT NULL,
+    row_count BIGINT DEFAULT 0 NOT NULL,
+    state VARCHAR(10) NOT NULL,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Per-account daily totals of compacted months
+CREATE TABLE IF NOT EXISTS transaction_rollups (
+    account_id VARCHAR(10) NOT NULL,
+    tx_day DATE NOT NULL,
+    deposits DECIMAL(15,2) NOT NULL,
+    withdrawals DECIMAL(15,2) NOT NULL,
+    tx_count BIGINT NOT NULL,
+    PRIMARY KEY (account_id, tx_day),
+    FOREIGN KEY (account_id) REFERENCES accounts(account_id)
+);
+CREATE INDEX IF NOT EXISTS idx_rollups_day ON transaction_rollups(tx_day);
+
+-- Cross-shard transfers started on this shard (see ShardTransferSaga): DEBITED once the
+-- source account is debited, then COMPLETED or, if the credit cannot be made, COMPENSATED
+CREATE TABLE IF NOT EXISTS shard_transfers (
+    transfer_id VARCHAR(36) PRIMARY KEY,
+    from_account VARCHAR(10) NOT NULL,
+    to_account VARCHAR(10) NOT NULL,
+    to_shard INT NOT NULL,
+    amount DECIMAL(10,2) NOT NULL,
+    state VARCHAR(12) NOT NULL,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS idx_shard_transfers_state ON shard_transfers(state);
+
+-- Cross-shard credits applied on this shard, written with the credit so a retried one is a no-op
+CREATE TABLE IF NOT EXISTS shard_transfer_credits (
+    transfer_id VARCHAR(36) PRIMARY KEY,
+    applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Transfers between two workers of ShardedAccountService: DEBITED with the debit, then
+-- COMPLETED with the credit or COMPENSATED with the refund. Open ones are resumed at startup
+CREATE TABLE IF NOT EXISTS mailbox_transfers (
+    transfer_id VARCHAR(36) PRIMARY KEY,
+    from_account VARCHAR(10) NOT NULL,
+    to_account VARCHAR(10) NOT NULL,
+    amount DECIMAL(10,2) NOT NULL,
+    state VARCHAR(12) NOT NULL,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS idx_mailbox_transfers_state ON mailbox_transfers(state);
+
+-- Idempotency keys of deposits, withdrawals and transfers (see IdempotencyKeys), inserted
+-- in the operation's own transaction, and purged once older than idempotency.ttlMs
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+    idempotency_key VARCHAR(64) PRIMARY KEY,
+    operation VARCHAR(10) NOT NULL,
+    account_id VARCHAR(10) NOT NULL,
+    to_account_id VARCHAR(10),
+    amount DECIMAL(10,2) NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+CREATE INDEX IF NOT EXISTS idx_idempotency_created ON idempotency_keys(created_at);
@@ -0,0 +1,136 @@
+package com.banking.db;
+
+import com.banking.exception.BankingException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.Assert.*;
+
+public class BankSnapshotTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private String accountId;
+
+    @Before
+    public void setUp() throws SQLException {
+        accountId = "S" + Long.toString(System.nanoTime() % 1_000_000, 36);
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            execute(conn, "INSERT INTO accounts (account_id, account_type, balance) VALUES ('" + accountId + "', 'SAVINGS', 120.50)");
+            for (int i = 0; i < 20; i++) {
+                execute(conn, "INSERT INTO transactions (account_id, amount, description) VALUES ('" + accountId + "', "
+                        + (i - 5) + ".25, " + (i % 3 == 0 ? "'note " + i + "'" : "NULL") + ")");
+            }
+        }
+    }
+
+    @Test
+    public void testRoundTripRestoresBothTables() throws Exception {
+        List<String> before = contents();
+        Path file = folder.newFile().toPath();
+        SnapshotStats exported = new BankSnapshot(7, false).exportTo(file);
+        assertTrue(exported.getTransactionRows() >= 20);
+        assertTrue(exported.getBlocks() > 3);
+
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            execute(conn, "DELETE FROM transactions WHERE account_id = '" + accountId + "'");
+            execute(conn, "INSERT INTO accounts (account_id, account_type, balance) VALUES ('GONE', 'CHECKING', 1)");
+        }
+
+        SnapshotStats imported = new BankSnapshot(7, false).importFrom(file);
+        assertEquals(exported.getAccountRows(), imported.getAccountRows());
+        assertEquals(exported.getTransactionRows(), imported.getTransactionRows());
+        assertEquals(before, contents());
+        assertTrue("Deferred index was not rebuilt", indexExists("IDX_ACCOUNT_DATE_ID"));
+
+        // New rows must not collide with imported ids
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            execute(conn, "INSERT INTO transactions (account_id, amount) VALUES ('" + accountId + "', 1.00)");
+        }
+    }
+
+    @Test
+    public void testCompressedBlocksAreSmallerAndRoundTrip() throws Exception {
+        List<String> before = contents();
+        Path raw = folder.newFile().toPath();
+        Path compressed = folder.newFile().toPath();
+        SnapshotStats rawStats = new BankSnapshot(5, false).exportTo(raw);
+        SnapshotStats compressedStats = new BankSnapshot(5, true).exportTo(compressed);
+        assertTrue(compressedStats.getBytes() < rawStats.getBytes());
+
+        new BankSnapshot(5, true).importFrom(compressed);
+        assertEquals(before, contents());
+    }
+
+    @Test
+    public void testCorruptSnapshotIsRejectedBeforeTablesAreTouched() throws Exception {
+        Path file = folder.newFile().toPath();
+        new BankSnapshot(7, false).exportTo(file);
+        try (RandomAccessFile snapshot = new RandomAccessFile(file.toFile(), "rw")) {
+            long middle = snapshot.length() / 2;
+            snapshot.seek(middle);
+            int b = snapshot.read();
+            snapshot.seek(middle);
+            snapshot.write(b ^ 0xFF);
+        }
+        List<String> before = contents();
+
+        try {
+            new BankSnapshot(7, false).importFrom(file);
+            fail("Expected a checksum failure");
+        } catch (BankingException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("Corrupt snapshot"));
+        }
+        assertEquals(before, contents());
+    }
+
+    private static List<String> contents() throws SQLException {
+        List<String> rows = new ArrayList<>();
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             Statement stmt = conn.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery(
+                    "SELECT account_id, account_type, balance, created_at FROM accounts ORDER BY account_id")) {
+                while (rs.next()) {
+                    rows.add(rs.getString(1) + "|" + rs.getString(2) + "|" + rs.getBigDecimal(3) + "|" + rs.getTimestamp(4));
+                }
+            }
+            try (ResultSet rs = stmt.executeQuery(
+                    "SELECT transaction_id, account_id, amount, description, transaction_date FROM transactions " +
+                    "ORDER BY transaction_id")) {
+                while (rs.next()) {
+                    rows.add(rs.getLong(1) + "|" + rs.getString(2) + "|" + rs.getBigDecimal(3) + "|"
+                            + rs.getString(4) + "|" + rs.getTimestamp(5));
+                }
+            }
+        }
+        return rows;
+    }
+
+    private static boolean indexExists(String name) throws SQLException {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                 "SELECT COUNT(*) FROM INFORMATION_SCHEMA.INDEXES WHERE INDEX_NAME = ?")) {
+            stmt.setString(1, name);
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return rs.getInt(1) > 0;
+            }
+        }
+    }
+
+    private static void execute(Connection conn, String sql) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+}
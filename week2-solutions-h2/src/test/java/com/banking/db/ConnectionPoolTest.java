@@ -0,0 +1,191 @@
+package com.banking.db;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import static org.junit.Assert.*;
+
+public class ConnectionPoolTest {
+    private static final String URL = "jdbc:h2:mem:pooltest;DB_CLOSE_DELAY=-1";
+    private ConnectionPool pool;
+
+    @Before
+    public void setUp() {
+        pool = new ConnectionPool(URL, "sa", "", new PoolConfig(1, 2, 50, 0, 200, true, 1, 2));
+    }
+
+    @After
+    public void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    public void testConnectionIsReused() throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            assertTrue(conn.isValid(1));
+        }
+        try (Connection conn = pool.getConnection()) {
+            assertTrue(conn.isValid(1));
+        }
+
+        PoolMetrics metrics = pool.getMetrics();
+        assertEquals(1, metrics.getCreatedCount());
+        assertEquals(2, metrics.getBorrowCount());
+        assertEquals(0, metrics.getActive());
+        assertEquals(1, metrics.getIdle());
+    }
+
+    @Test
+    public void testBorrowTimesOutWhenExhausted() throws SQLException {
+        Connection first = pool.getConnection();
+        Connection second = pool.getConnection();
+        assertEquals(2, pool.getMetrics().getActive());
+
+        try {
+            pool.getConnection();
+            fail("Expected borrow to time out");
+        } catch (SQLException e) {
+            assertTrue(e.getMessage().contains("Timed out"));
+        }
+        assertEquals(1, pool.getMetrics().getTimeoutCount());
+
+        first.close();
+        second.close();
+    }
+
+    @Test
+    public void testClosedHandleCannotBeUsed() throws SQLException {
+        Connection conn = pool.getConnection();
+        conn.close();
+        assertTrue(conn.isClosed());
+
+        try {
+            conn.createStatement();
+            fail("Expected returned connection to be unusable");
+        } catch (SQLException e) {
+            assertTrue(e.getMessage().contains("returned to the pool"));
+        }
+    }
+
+    @Test
+    public void testBrokenConnectionIsReplacedOnBorrow() throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            // Close the physical connection behind the pool's back
+            conn.unwrap(Connection.class).close();
+        }
+
+        try (Connection conn = pool.getConnection()) {
+            assertTrue(conn.isValid(1));
+        }
+        assertEquals(1, pool.getMetrics().getDestroyedCount());
+        assertEquals(2, pool.getMetrics().getCreatedCount());
+    }
+
+    @Test
+    public void testUncommittedWorkIsRolledBackOnReturn() throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            conn.createStatement().execute("CREATE TABLE IF NOT EXISTS pool_rollback (id INT)");
+            conn.createStatement().execute("DELETE FROM pool_rollback");
+        }
+        try (Connection conn = pool.getConnection()) {
+            conn.setAutoCommit(false);
+            conn.createStatement().execute("INSERT INTO pool_rollback VALUES (1)");
+        }
+        try (Connection conn = pool.getConnection()) {
+            assertTrue(conn.getAutoCommit());
+            try (java.sql.ResultSet rs = conn.createStatement().executeQuery("SELECT COUNT(*) FROM pool_rollback")) {
+                rs.next();
+                assertEquals(0, rs.getInt(1));
+            }
+        }
+    }
+
+    @Test
+    public void testPreparedStatementsAreReusedAcrossBorrows() throws SQLException {
+        String sql = "SELECT CAST(? AS INT) + 1";
+        for (int i = 0; i < 3; i++) {
+            try (Connection conn = pool.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(sql)) {
+                assertSame(conn, stmt.getConnection());
+                stmt.setInt(1, i);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    rs.next();
+                    assertEquals(i + 1, rs.getInt(1));
+                }
+            }
+        }
+
+        StatementCacheMetrics metrics = pool.getStatementCacheMetrics();
+        assertEquals(1, metrics.getMissCount());
+        assertEquals(2, metrics.getHitCount());
+        assertEquals(1, metrics.getCached());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedStatementIsEvicted() throws SQLException {
+        try (Connection conn = pool.getConnection()) {
+            conn.prepareStatement("SELECT 1").close();
+            conn.prepareStatement("SELECT 2").close();
+            conn.prepareStatement("SELECT 1").close();
+            // Cache holds two, so SELECT 2 (least recently used) goes
+            conn.prepareStatement("SELECT 3").close();
+            conn.prepareStatement("SELECT 1").close();
+            conn.prepareStatement("SELECT 2").close();
+        }
+
+        StatementCacheMetrics metrics = pool.getStatementCacheMetrics();
+        assertEquals(2, metrics.getHitCount());
+        assertEquals(4, metrics.getMissCount());
+        assertEquals(2, metrics.getEvictionCount());
+        assertEquals(2, metrics.getCached());
+    }
+
+    @Test
+    public void testStatementLeftOpenIsReclaimedWithItsConnection() throws SQLException {
+        PreparedStatement leaked;
+        try (Connection conn = pool.getConnection()) {
+            leaked = conn.prepareStatement("SELECT CAST(? AS INT)");
+            leaked.setInt(1, 7);
+            // Same SQL while the first is still open gets its own statement
+            try (PreparedStatement second = conn.prepareStatement("SELECT CAST(? AS INT)")) {
+                second.setInt(1, 8);
+                try (ResultSet rs = second.executeQuery()) {
+                    rs.next();
+                    assertEquals(8, rs.getInt(1));
+                }
+            }
+        }
+        assertTrue(leaked.isClosed());
+
+        try (Connection conn = pool.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT CAST(? AS INT)")) {
+            // Parameters from the previous borrower were cleared
+            try {
+                stmt.executeQuery();
+                fail("Expected a missing parameter");
+            } catch (SQLException e) {
+                // expected
+            }
+        }
+        leaked.close();
+        assertEquals(1, pool.getStatementCacheMetrics().getHitCount());
+    }
+
+    @Test
+    public void testCachedStatementsAreClosedWithThePool() throws SQLException {
+        PreparedStatement physical;
+        try (Connection conn = pool.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT 1")) {
+            physical = stmt.unwrap(PreparedStatement.class);
+        }
+        assertFalse(physical.isClosed());
+
+        pool.close();
+        assertTrue(physical.isClosed());
+        assertEquals(0, pool.getStatementCacheMetrics().getCached());
+    }
+}
@@ -0,0 +1,74 @@
+package com.banking.db;
+
+import org.junit.Test;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import static org.junit.Assert.*;
+
+public class DatabaseConnectionTest {
+
+    @Test
+    public void testConcurrentCallersShareOneInstance() throws Exception {
+        Set<DatabaseConnection> instances = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    instances.add(DatabaseConnection.getInstance());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(1, instances.size());
+    }
+
+    @Test
+    public void testSchemaIsSkippedOnlyWhileItsVersionMatches() throws Exception {
+        DatabaseConnection db = DatabaseConnection.getInstance();
+        try (Connection conn = db.getConnection();
+             Statement stmt = conn.createStatement()) {
+            assertFalse(db.ensureSchema(conn));
+
+            // A different schema.sql than the one recorded is applied again
+            stmt.executeUpdate("UPDATE schema_version SET checksum = 0 WHERE version = " + DatabaseConnection.SCHEMA_VERSION);
+            assertTrue(db.ensureSchema(conn));
+            assertFalse(db.ensureSchema(conn));
+
+            try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM schema_version")) {
+                rs.next();
+                assertEquals(1, rs.getInt(1));
+            }
+        }
+    }
+
+    @Test
+    public void testStartupMetricsAreRecorded() throws Exception {
+        DatabaseConnection db = DatabaseConnection.getInstance();
+        // The warmup runs in the background
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (db.getStartupMetrics().getWarmupNanos() < 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        StartupMetrics metrics = db.getStartupMetrics();
+        assertTrue(metrics.getReadyNanos() > 0);
+        assertTrue(metrics.getReadyNanos() >= metrics.getSchemaNanos());
+        assertTrue(metrics.getWarmupNanos() >= 0);
+        assertTrue(metrics.getWarmedConnections() > 0);
+    }
+}
@@ -0,0 +1,145 @@
+package com.banking.db;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.Assert.*;
+
+public class QueryTracerTest {
+    private static final String URL = "jdbc:h2:mem:tracertest;DB_CLOSE_DELAY=-1";
+    private Connection setup;
+    private QueryTracer tracer;
+
+    @Before
+    public void setUp() throws SQLException {
+        setup = DriverManager.getConnection(URL, "sa", "");
+        try (Statement stmt = setup.createStatement()) {
+            stmt.execute("DROP TABLE IF EXISTS traced");
+            stmt.execute("CREATE TABLE traced (id INT PRIMARY KEY, name VARCHAR(20), amount DECIMAL(10,2))");
+            stmt.execute("INSERT INTO traced SELECT X, 'n' || X, X FROM SYSTEM_RANGE(1, 10)");
+        }
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        if (tracer != null) {
+            tracer.close();
+        }
+        setup.close();
+    }
+
+    @Test
+    public void testRecordsSqlParameterTypesAndRows() throws SQLException {
+        tracer = new QueryTracer(0, 10, 0, null);
+        try (Connection conn = tracer.wrap(DriverManager.getConnection(URL, "sa", ""))) {
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT * FROM traced WHERE id > ? AND name <> ?")) {
+                stmt.setInt(1, 6);
+                stmt.setString(2, "n7");
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        assertSame(stmt, rs.getStatement());
+                    }
+                }
+            }
+            try (PreparedStatement stmt = conn.prepareStatement("UPDATE traced SET amount = ? WHERE id = ?")) {
+                for (int id = 1; id <= 3; id++) {
+                    stmt.setBigDecimal(1, java.math.BigDecimal.TEN);
+                    stmt.setInt(2, id);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+            }
+            try (Statement stmt = conn.createStatement()) {
+                assertEquals(2, stmt.executeUpdate("DELETE FROM traced WHERE id > 8"));
+            }
+        }
+
+        List<QueryTrace> traces = tracer.dump();
+        assertEquals(3, traces.size());
+        assertEquals("SELECT * FROM traced WHERE id > ? AND name <> ?", traces.get(0).getSql());
+        assertEquals(Arrays.asList("Int", "String"), traces.get(0).getParameterTypes());
+        assertEquals(3, traces.get(0).getRows());
+        assertEquals(3, traces.get(1).getBatchSize());
+        assertEquals(3, traces.get(1).getRows());
+        assertEquals(Arrays.asList("BigDecimal", "Int"), traces.get(1).getParameterTypes());
+        assertEquals("DELETE FROM traced WHERE id > 8", traces.get(2).getSql());
+        assertEquals(2, traces.get(2).getRows());
+        assertNull(traces.get(2).getError());
+    }
+
+    @Test
+    public void testRingBufferKeepsTheNewestAndSkipsFastStatements() throws SQLException {
+        tracer = new QueryTracer(0, 2, 0, null);
+        try (Connection conn = tracer.wrap(DriverManager.getConnection(URL, "sa", ""));
+             Statement stmt = conn.createStatement()) {
+            for (int i = 1; i <= 3; i++) {
+                stmt.execute("SELECT " + i);
+            }
+            try {
+                stmt.execute("SELECT nope FROM traced");
+                fail("Expected a bad column");
+            } catch (SQLException e) {
+                // expected
+            }
+        }
+
+        List<QueryTrace> traces = tracer.dump();
+        assertEquals(2, traces.size());
+        assertEquals("SELECT 3", traces.get(0).getSql());
+        assertEquals("JdbcSQLSyntaxErrorException", traces.get(1).getError());
+        assertEquals(4, tracer.getRecordedCount());
+        tracer.clear();
+        assertTrue(tracer.dump().isEmpty());
+
+        tracer.close();
+        tracer = new QueryTracer(60_000, 2, 0, null);
+        try (Connection conn = tracer.wrap(DriverManager.getConnection(URL, "sa", ""));
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("SELECT 1");
+        }
+        assertEquals(0, tracer.getRecordedCount());
+    }
+
+    @Test
+    public void testLockWaitIsAttributedToTheBlocker() throws Exception {
+        tracer = new QueryTracer(0, 10, 5, () -> DriverManager.getConnection(URL, "sa", ""));
+        int blockerId;
+        try (ResultSet rs = setup.createStatement().executeQuery("SELECT SESSION_ID()")) {
+            rs.next();
+            blockerId = rs.getInt(1);
+        }
+        setup.setAutoCommit(false);
+        setup.createStatement().executeUpdate("UPDATE traced SET amount = 0 WHERE id = 1");
+
+        Connection waiter = tracer.wrap(DriverManager.getConnection(URL, "sa", ""));
+        Thread thread = new Thread(() -> {
+            try (PreparedStatement stmt = waiter.prepareStatement("SELECT amount FROM traced WHERE id = ? FOR UPDATE")) {
+                waiter.setAutoCommit(false);
+                stmt.setInt(1, 1);
+                stmt.executeQuery().close();
+                waiter.commit();
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        thread.start();
+        Thread.sleep(200);
+        setup.commit();
+        setup.setAutoCommit(true);
+        thread.join();
+        waiter.close();
+
+        QueryTrace trace = tracer.dump().get(0);
+        assertTrue(trace.toString(), trace.getLockWaitNanos() > 0);
+        assertTrue(trace.getLockWaitNanos() <= trace.getElapsedNanos());
+        assertEquals(blockerId, trace.getBlockerSessionId());
+    }
+}
@@ -0,0 +1,44 @@
+package com.banking.db;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ShardRingTest {
+    private static final int ACCOUNTS = 20_000;
+
+    @Test
+    public void testAccountsSpreadEvenly() {
+        ShardRing ring = new ShardRing(4, 128);
+        int[] counts = new int[4];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            counts[ring.shardFor("ACC" + i)]++;
+        }
+        for (int count : counts) {
+            assertTrue("Shard holds " + count, count > ACCOUNTS / 4 * 0.8 && count < ACCOUNTS / 4 * 1.2);
+        }
+    }
+
+    @Test
+    public void testAddingAShardOnlyMovesAccountsToIt() {
+        ShardRing four = new ShardRing(4, 128);
+        ShardRing five = new ShardRing(5, 128);
+        int moved = 0;
+        for (int i = 0; i < ACCOUNTS; i++) {
+            String accountId = "ACC" + i;
+            int before = four.shardFor(accountId);
+            int after = five.shardFor(accountId);
+            if (before != after) {
+                assertEquals(4, after);
+                moved++;
+            }
+        }
+        assertTrue("Moved " + moved, moved > ACCOUNTS / 5 * 0.8 && moved < ACCOUNTS / 5 * 1.2);
+    }
+
+    @Test
+    public void testSingleShardTakesEverything() {
+        ShardRing ring = new ShardRing(1, 16);
+        assertEquals(0, ring.shardFor("X"));
+        assertEquals(0, ring.shardFor(""));
+    }
+}
@@ -0,0 +1,30 @@
+package com.banking.model;
+
+import org.junit.Test;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import static org.junit.Assert.*;
+
+public class TransactionRecordTest {
+
+    @Test
+    public void testFormatsLikeTheOldHistoryLines() {
+        LocalDateTime date = LocalDateTime.of(2024, 3, 5, 14, 7, 9, 123_456_000);
+        String[] amounts = {"0.00", "0.05", "-0.05", "10.50", "-1234.99", "1000000.00"};
+        for (String amount : amounts) {
+            TransactionRecord record = new TransactionRecord(1, "CHK001", new BigDecimal(amount), date);
+            String expected = String.format("%s,%s,%.2f", Timestamp.valueOf(date), "CHK001", new BigDecimal(amount));
+            assertEquals(expected, record.toString());
+        }
+    }
+
+    @Test
+    public void testRoundTripsAmountAndDate() {
+        LocalDateTime date = LocalDateTime.of(1999, 12, 31, 23, 59, 59, 999_999_000);
+        TransactionRecord record = new TransactionRecord(7, "SAV001", new BigDecimal("-10.50"), date);
+        assertEquals(-1050, record.getAmountMinor());
+        assertEquals(new BigDecimal("-10.50"), record.getAmount());
+        assertEquals(date, record.getTransactionDate());
+    }
+}
@@ -0,0 +1,215 @@
+package com.banking.service;
+
+import com.banking.exception.AccountNotFoundException;
+import com.banking.exception.BankingException;
+import com.banking.exception.InsufficientFundsException;
+import com.banking.model.AccountType;
+import com.banking.model.TransactionRecord;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.*;
+
+/**
+ * Behaviour every AccountOperations backend must share.
+ * Subclasses only supply the implementation under test.
+ */
+public abstract class AbstractAccountOperationsTest {
+    protected AccountOperations service;
+    private String prefix;
+
+    protected abstract AccountOperations createService();
+
+    @Before
+    public void setUp() {
+        service = createService();
+        prefix = "T" + Long.toString(System.nanoTime() % 1_000_000, 36);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (service instanceof AutoCloseable) {
+            ((AutoCloseable) service).close();
+        }
+    }
+
+    @Test
+    public void testCreateAndReadBalance() {
+        service.createAccount(AccountType.SAVINGS, id("S"), new BigDecimal("1000.00"));
+        assertEquals(new BigDecimal("1000.00"), service.getBalance(id("S")));
+        assertEquals(1, service.getTransactionHistory(id("S")).size());
+    }
+
+    @Test
+    public void testDepositAndWithdraw() {
+        service.createAccount(AccountType.CHECKING, id("C"), new BigDecimal("500.00"));
+        service.deposit(id("C"), new BigDecimal("250.00"));
+        service.withdraw(id("C"), new BigDecimal("100.00"));
+
+        assertEquals(new BigDecimal("650.00"), service.getBalance(id("C")));
+        List<TransactionRecord> history = service.getTransactionHistory(id("C"));
+        assertEquals(3, history.size());
+        assertTrue(history.toString().contains("-100.00"));
+        assertEquals(-10000, history.get(0).getAmountMinor());
+    }
+
+    @Test
+    public void testWithdrawalFloorsFollowAccountType() {
+        service.createAccount(AccountType.SAVINGS, id("S"), new BigDecimal("150.00"));
+        service.createAccount(AccountType.CHECKING, id("C"), new BigDecimal("20.00"));
+        try {
+            // Would leave 50.00, below the savings minimum of 100.00
+            service.withdraw(id("S"), new BigDecimal("100.00"));
+            fail("Expected InsufficientFundsException");
+        } catch (InsufficientFundsException e) {
+            assertEquals(new BigDecimal("150.00"), service.getBalance(id("S")));
+        }
+        service.withdraw(id("S"), new BigDecimal("50.00"));
+
+        // Checking may be overdrawn down to -100.00, by a withdrawal or a transfer
+        service.withdraw(id("C"), new BigDecimal("70.00"));
+        service.transfer(id("C"), id("S"), new BigDecimal("50.00"));
+        try {
+            service.transfer(id("C"), id("S"), new BigDecimal("0.01"));
+            fail("Expected InsufficientFundsException");
+        } catch (InsufficientFundsException e) {
+            assertEquals(id("C"), e.getAccountNumber());
+        }
+        assertEquals(new BigDecimal("150.00"), service.getBalance(id("S")));
+        assertEquals(new BigDecimal("-100.00"), service.getBalance(id("C")));
+    }
+
+    @Test(expected = InsufficientFundsException.class)
+    public void testWithdrawMoreThanAvailable() {
+        service.createAccount(AccountType.SAVINGS, id("S"), new BigDecimal("1000.00"));
+        service.withdraw(id("S"), new BigDecimal("5000.00"));
+    }
+
+    @Test(expected = BankingException.class)
+    public void testNegativeDepositRejected() {
+        service.createAccount(AccountType.SAVINGS, id("S"), new BigDecimal("1000.00"));
+        service.deposit(id("S"), new BigDecimal("-1.00"));
+    }
+
+    @Test(expected = AccountNotFoundException.class)
+    public void testUnknownAccount() {
+        service.getBalance(id("X"));
+    }
+
+    @Test
+    public void testTransfer() {
+        service.createAccount(AccountType.SAVINGS, id("S"), new BigDecimal("1000.00"));
+        service.createAccount(AccountType.CHECKING, id("C"), new BigDecimal("500.00"));
+        service.transfer(id("S"), id("C"), new BigDecimal("200.00"));
+
+        assertEquals(new BigDecimal("800.00"), service.getBalance(id("S")));
+        assertEquals(new BigDecimal("700.00"), service.getBalance(id("C")));
+    }
+
+    @Test
+    public void testFailedTransferChangesNothing() {
+        service.createAccount(AccountType.SAVINGS, id("S"), new BigDecimal("1000.00"));
+        service.createAccount(AccountType.CHECKING, id("C"), new BigDecimal("500.00"));
+        try {
+            service.transfer(id("S"), id("C"), new BigDecimal("5000.00"));
+            fail("Expected InsufficientFundsException");
+        } catch (InsufficientFundsException e) {
+            assertEquals(id("S"), e.getAccountNumber());
+        }
+        try {
+            service.transfer(id("S"), id("X"), new BigDecimal("10.00"));
+            fail("Expected AccountNotFoundException");
+        } catch (AccountNotFoundException e) {
+            // Expected
+        }
+        assertEquals(new BigDecimal("1000.00"), service.getBalance(id("S")));
+        assertEquals(new BigDecimal("500.00"), service.getBalance(id("C")));
+    }
+
+    @Test
+    public void testTransferBatch() {
+        service.createAccount(AccountType.CHECKING, id("A"), new BigDecimal("500.00"));
+        service.createAccount(AccountType.CHECKING, id("B"), new BigDecimal("500.00"));
+        List<TransferResult> results = service.transferBatch(Arrays.asList(
+                new TransferInstruction(id("A"), id("B"), new BigDecimal("100.00")),
+                new TransferInstruction(id("A"), id("X"), new BigDecimal("100.00"))
+        ), BatchMode.BEST_EFFORT);
+
+        assertTrue(results.get(0).isApplied());
+        assertEquals(TransferResult.Status.REJECTED, results.get(1).getStatus());
+        assertEquals(new BigDecimal("400.00"), service.getBalance(id("A")));
+        assertEquals(new BigDecimal("600.00"), service.getBalance(id("B")));
+    }
+
+    @Test
+    public void testDeleteAccount() {
+        service.createAccount(AccountType.CHECKING, id("C"), new BigDecimal("500.00"));
+        service.deposit(id("C"), new BigDecimal("1.00"));
+        service.deleteAccount(id("C"));
+
+        assertTrue(service.getTransactionHistory(id("C")).isEmpty());
+        try {
+            service.getBalance(id("C"));
+            fail("Expected AccountNotFoundException");
+        } catch (AccountNotFoundException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testReportsIncludeNewAccounts() {
+        service.createAccount(AccountType.SAVINGS, id("S"), new BigDecimal("1000.00"));
+        assertTrue((Integer) service.getAccountSummary().get("totalAccounts") >= 1);
+        assertNotNull(service.getDailyTransactions().get("totalDeposits"));
+        assertNotNull(service.getAccountActivity().get("highestBalanceAccount"));
+    }
+
+    @Test
+    public void testConcurrentTransfersConserveMoney() throws Exception {
+        String[] accounts = {id("A"), id("B"), id("C"), id("D")};
+        for (String accountId : accounts) {
+            service.createAccount(AccountType.CHECKING, accountId, new BigDecimal("1000.00"));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            futures.add(executor.submit(() -> {
+                Random random = new Random();
+                for (int i = 0; i < 100; i++) {
+                    String from = accounts[random.nextInt(accounts.length)];
+                    String to = accounts[random.nextInt(accounts.length)];
+                    try {
+                        service.transfer(from, to, new BigDecimal(1 + random.nextInt(20)));
+                    } catch (InsufficientFundsException e) {
+                        // Expected once an account runs low
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        BigDecimal total = BigDecimal.ZERO;
+        for (String accountId : accounts) {
+            total = total.add(service.getBalance(accountId));
+        }
+        assertEquals(new BigDecimal("4000.00"), total);
+    }
+
+    protected String id(String suffix) {
+        return prefix + suffix;
+    }
+}
@@ -0,0 +1,126 @@
+package com.banking.service;
+
+import com.banking.exception.InsufficientFundsException;
+import com.banking.model.AccountType;
+import com.banking.model.TransactionRecord;
+import org.junit.Before;
+import org.junit.Test;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.*;
+
+public class AccountServiceConcurrencyTest {
+    private static final int THREADS = 8;
+    private static final int OPERATIONS_PER_THREAD = 100;
+
+    private AccountService accountService;
+    private String prefix;
+
+    @Before
+    public void setUp() {
+        accountService = new AccountService();
+        // Unique ids per test so runs against the shared in-memory database don't collide
+        prefix = "C" + Long.toString(System.nanoTime() % 100_000, 36);
+    }
+
+    @Test
+    public void testConcurrentDepositsAreNotLost() throws Exception {
+        String accountId = prefix + "D";
+        accountService.createAccount(AccountType.CHECKING, accountId, new BigDecimal("0.00"));
+
+        runConcurrently(() -> {
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                accountService.deposit(accountId, new BigDecimal("1.00"));
+            }
+            return null;
+        });
+
+        BigDecimal expected = new BigDecimal(THREADS * OPERATIONS_PER_THREAD).setScale(2);
+        assertEquals(expected, accountService.getBalance(accountId));
+        assertEquals(THREADS * OPERATIONS_PER_THREAD + 1, accountService.getTransactionHistory(accountId).size());
+    }
+
+    @Test
+    public void testConcurrentTransfersConserveMoney() throws Exception {
+        String[] accounts = {prefix + "A", prefix + "B", prefix + "C"};
+        for (String id : accounts) {
+            accountService.createAccount(AccountType.SAVINGS, id, new BigDecimal("500.00"));
+        }
+
+        runConcurrently(() -> {
+            Random random = new Random();
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                String from = accounts[random.nextInt(accounts.length)];
+                String to = accounts[random.nextInt(accounts.length)];
+                if (from.equals(to)) {
+                    continue;
+                }
+                try {
+                    accountService.transfer(from, to, new BigDecimal(1 + random.nextInt(50)));
+                } catch (InsufficientFundsException e) {
+                    // Expected once an account runs dry
+                }
+            }
+            return null;
+        });
+
+        BigDecimal total = BigDecimal.ZERO;
+        for (String id : accounts) {
+            BigDecimal balance = accountService.getBalance(id);
+            assertTrue("Balance went negative for " + id, balance.signum() >= 0);
+            assertEquals("Ledger disagrees with balance for " + id, ledgerTotal(id), balance);
+            total = total.add(balance);
+        }
+        assertEquals(new BigDecimal("1500.00"), total);
+    }
+
+    @Test
+    public void testConcurrentWithdrawalsNeverOverdraw() throws Exception {
+        String accountId = prefix + "W";
+        accountService.createAccount(AccountType.SAVINGS, accountId, new BigDecimal("150.00"));
+
+        runConcurrently(() -> {
+            for (int i = 0; i < 10; i++) {
+                try {
+                    accountService.withdraw(accountId, new BigDecimal("1.00"));
+                } catch (InsufficientFundsException e) {
+                    // Expected once the account is down to the savings minimum
+                }
+            }
+            return null;
+        });
+
+        assertEquals(new BigDecimal("100.00"), accountService.getBalance(accountId));
+        assertEquals(ledgerTotal(accountId), accountService.getBalance(accountId));
+    }
+
+    private BigDecimal ledgerTotal(String accountId) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (TransactionRecord row : accountService.getTransactionHistory(accountId)) {
+            total = total.add(row.getAmount());
+        }
+        return total;
+    }
+
+    private void runConcurrently(Callable<Void> task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(executor.submit(task));
+            }
+            for (Future<Void> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.banking.service;
+
+public class AccountServiceContractTest extends AbstractAccountOperationsTest {
+    @Override
+    protected AccountOperations createService() {
+        return new AccountService();
+    }
+}
@@ -0,0 +1,93 @@
+package com.banking.service;
+
+import com.banking.exception.InsufficientFundsException;
+import com.banking.model.AccountType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.Assert.*;
+
+public class AsyncAccountServiceTest {
+    private AccountService accountService;
+    private AsyncAccountService async;
+    private String prefix;
+
+    @Before
+    public void setUp() {
+        accountService = new AccountService();
+        async = new AsyncAccountService(accountService, 4, 10_000);
+        prefix = "Y" + Long.toString(System.nanoTime() % 1_000_000, 36);
+    }
+
+    @After
+    public void tearDown() {
+        async.close();
+    }
+
+    @Test
+    public void testConcurrentDepositsAndTransfers() throws Exception {
+        async.createAccount(AccountType.CHECKING, prefix + "A", new BigDecimal("1000.00")).get();
+        async.createAccount(AccountType.CHECKING, prefix + "B", new BigDecimal("0.00")).get();
+
+        List<CompletableFuture<Void>> calls = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            calls.add(async.deposit(prefix + "A", BigDecimal.ONE));
+            calls.add(async.transfer(prefix + "A", prefix + "B", BigDecimal.ONE));
+        }
+        CompletableFuture.allOf(calls.toArray(new CompletableFuture<?>[0])).get();
+
+        assertEquals(new BigDecimal("1000.00"), async.getBalance(prefix + "A").get());
+        assertEquals(new BigDecimal("200.00"), async.getBalance(prefix + "B").get());
+        assertNotNull(async.getAccountSummary().get().get("totalAccounts"));
+    }
+
+    @Test
+    public void testFailuresCompleteTheFuture() throws Exception {
+        async.createAccount(AccountType.SAVINGS, prefix + "S", new BigDecimal("150.00")).get();
+        try {
+            async.withdraw(prefix + "S", new BigDecimal("500.00")).get();
+            fail("Expected insufficient funds");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof InsufficientFundsException);
+        }
+    }
+
+    @Test
+    public void testConcurrencyIsBounded() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<CompletableFuture<Object>> calls = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            calls.add(async.submit(() -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.sleep(5);
+                running.decrementAndGet();
+                return null;
+            }));
+        }
+        CompletableFuture.allOf(calls.toArray(new CompletableFuture<?>[0])).get();
+        assertTrue("Ran " + maxRunning.get() + " at once", maxRunning.get() <= 4);
+    }
+
+    @Test
+    public void testSlowCallTimesOut() throws Exception {
+        AsyncAccountService impatient = async.withTimeout(50);
+        CompletableFuture<Object> slow = impatient.submit(() -> {
+            Thread.sleep(1000);
+            return null;
+        });
+        try {
+            slow.get();
+            fail("Expected timeout");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+    }
+}
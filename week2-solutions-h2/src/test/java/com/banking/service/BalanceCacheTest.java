@@ -0,0 +1,98 @@
+package com.banking.service;
+
+import com.banking.model.AccountType;
+import org.junit.Test;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.*;
+
+public class BalanceCacheTest {
+
+    @Test
+    public void testHitsMissesAndEviction() {
+        BalanceCache cache = new BalanceCache(16);
+        assertNull(cache.get("A1"));
+        cache.putIfUnchanged("A1", BigDecimal.TEN, cache.stamp("A1"));
+        assertEquals(BigDecimal.TEN, cache.get("A1"));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        for (int i = 0; i < 1000; i++) {
+            String id = "E" + i;
+            cache.putIfUnchanged(id, BigDecimal.ONE, cache.stamp(id));
+        }
+        assertTrue(cache.size() <= 16);
+        assertTrue(cache.getEvictionCount() > 0);
+    }
+
+    @Test
+    public void testLoadStartedBeforeInvalidationIsNotCached() {
+        BalanceCache cache = new BalanceCache(100);
+        long stamp = cache.stamp("A1");
+        // A writer commits and invalidates while the reader is still loading
+        cache.invalidate("A1");
+        cache.putIfUnchanged("A1", BigDecimal.ONE, stamp);
+        assertNull(cache.get("A1"));
+    }
+
+    @Test
+    public void testDisabledCacheStoresNothing() {
+        BalanceCache cache = BalanceCache.disabled();
+        cache.putIfUnchanged("A1", BigDecimal.ONE, cache.stamp("A1"));
+        assertNull(cache.get("A1"));
+        assertFalse(cache.isEnabled());
+    }
+
+    @Test
+    public void testServiceReadsTheirOwnWritesUnderConcurrency() throws Exception {
+        AccountService cached = new AccountService(new BalanceCache(1000));
+        AccountService uncached = new AccountService(BalanceCache.disabled());
+        String prefix = "K" + Long.toString(System.nanoTime() % 1_000_000, 36);
+        String[] accounts = {prefix + "A", prefix + "B"};
+        for (String id : accounts) {
+            cached.createAccount(AccountType.CHECKING, id, new BigDecimal("0.00"));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int threadIndex = t;
+            futures.add(executor.submit(() -> {
+                BigDecimal lastSeen = BigDecimal.ZERO;
+                for (int i = 0; i < 50; i++) {
+                    String id = accounts[(threadIndex + i) % accounts.length];
+                    if (threadIndex % 2 == 0) {
+                        // Writers: a deposit must be visible to the same thread right after
+                        BigDecimal before = cached.getBalance(id);
+                        cached.deposit(id, BigDecimal.ONE);
+                        BigDecimal after = cached.getBalance(id);
+                        assertTrue("Stale read after own deposit", after.compareTo(before.add(BigDecimal.ONE)) >= 0);
+                    } else if (id.equals(accounts[0])) {
+                        // Readers: deposit-only balances never go backwards
+                        BigDecimal seen = cached.getBalance(id);
+                        assertTrue("Balance went backwards", seen.compareTo(lastSeen) >= 0);
+                        lastSeen = seen;
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        for (String id : accounts) {
+            assertEquals(uncached.getBalance(id), cached.getBalance(id));
+        }
+        assertTrue(cached.getBalanceCache().getHitCount() > 0);
+
+        cached.deleteAccount(accounts[0]);
+        assertNull(cached.getBalanceCache().get(accounts[0]));
+    }
+}
@@ -0,0 +1,123 @@
+package com.banking.service;
+
+import com.banking.exception.BankingException;
+import com.banking.exception.InsufficientFundsException;
+import com.banking.model.AccountType;
+import org.junit.Before;
+import org.junit.Test;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.*;
+
+public class IdempotencyKeysTest {
+    private AccountService service;
+    private String prefix;
+
+    @Before
+    public void setUp() {
+        service = new AccountService(BalanceCache.disabled(), ReportAggregates.disabled());
+        prefix = "I" + Long.toString(System.nanoTime() % 1_000_000, 36);
+    }
+
+    @Test
+    public void testRetriedDepositIsReplayed() {
+        service.createAccount(AccountType.CHECKING, prefix + "A", new BigDecimal("100.00"));
+        String key = UUID.randomUUID().toString();
+
+        OperationResult first = service.deposit(prefix + "A", new BigDecimal("25.00"), key);
+        OperationResult retry = service.deposit(prefix + "A", new BigDecimal("25.00"), key);
+
+        assertFalse(first.isReplayed());
+        assertTrue(retry.isReplayed());
+        assertEquals(first.getCompletedAtMillis(), retry.getCompletedAtMillis());
+        assertEquals(new BigDecimal("125.00"), service.getBalance(prefix + "A"));
+        assertEquals(2, service.getTransactionHistory(prefix + "A").size());
+    }
+
+    @Test
+    public void testRetryAfterEvictionIsFoundInTheTable() {
+        service.createAccount(AccountType.CHECKING, prefix + "A", new BigDecimal("100.00"));
+        service.createAccount(AccountType.CHECKING, prefix + "B", new BigDecimal("100.00"));
+        String key = UUID.randomUUID().toString();
+        service.transfer(prefix + "A", prefix + "B", new BigDecimal("40.00"), key);
+
+        // A fresh service, as after a restart, has nothing in memory
+        AccountService restarted = new AccountService(BalanceCache.disabled(), ReportAggregates.disabled());
+        OperationResult retry = restarted.transfer(prefix + "A", prefix + "B", new BigDecimal("40.00"), key);
+
+        assertTrue(retry.isReplayed());
+        assertEquals(1, restarted.getIdempotencyKeys().getTableHitCount());
+        assertEquals(new BigDecimal("60.00"), restarted.getBalance(prefix + "A"));
+        assertEquals(new BigDecimal("140.00"), restarted.getBalance(prefix + "B"));
+    }
+
+    @Test
+    public void testFailedWithdrawalDoesNotUseTheKey() {
+        service.createAccount(AccountType.CHECKING, prefix + "A", new BigDecimal("10.00"));
+        String key = UUID.randomUUID().toString();
+        try {
+            // Past the -100.00 checking overdraft
+            service.withdraw(prefix + "A", new BigDecimal("150.00"), key);
+            fail("Expected InsufficientFundsException");
+        } catch (InsufficientFundsException e) {
+            // Expected
+        }
+        service.deposit(prefix + "A", new BigDecimal("200.00"));
+
+        assertFalse(service.withdraw(prefix + "A", new BigDecimal("150.00"), key).isReplayed());
+        assertEquals(new BigDecimal("60.00"), service.getBalance(prefix + "A"));
+    }
+
+    @Test(expected = BankingException.class)
+    public void testKeyReusedForAnotherRequestIsRejected() {
+        service.createAccount(AccountType.CHECKING, prefix + "A", new BigDecimal("100.00"));
+        String key = UUID.randomUUID().toString();
+        service.deposit(prefix + "A", new BigDecimal("25.00"), key);
+        service.deposit(prefix + "A", new BigDecimal("30.00"), key);
+    }
+
+    @Test
+    public void testConcurrentRetriesApplyOnce() throws Exception {
+        service.createAccount(AccountType.CHECKING, prefix + "A", new BigDecimal("0.00"));
+        String key = UUID.randomUUID().toString();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<OperationResult>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            // Separate services, so only the table can tell them apart
+            AccountService client = new AccountService(BalanceCache.disabled(), ReportAggregates.disabled());
+            futures.add(executor.submit(() -> client.deposit(prefix + "A", BigDecimal.TEN, key)));
+        }
+        int applied = 0;
+        for (Future<OperationResult> future : futures) {
+            if (!future.get(60, TimeUnit.SECONDS).isReplayed()) {
+                applied++;
+            }
+        }
+        executor.shutdown();
+
+        assertEquals(1, applied);
+        assertEquals(new BigDecimal("10.00"), service.getBalance(prefix + "A"));
+    }
+
+    @Test
+    public void testMemoryIndexIsBoundedAndExpires() throws Exception {
+        IdempotencyKeys keys = new IdempotencyKeys(2, 50);
+        for (int i = 0; i < 3; i++) {
+            keys.remember(new OperationResult("k" + i, OperationResult.Kind.DEPOSIT, "A", null,
+                    BigDecimal.ONE, System.currentTimeMillis(), false));
+        }
+        assertEquals(2, keys.size());
+        assertNull(keys.get("k0"));
+        assertNotNull(keys.get("k2"));
+
+        Thread.sleep(60);
+        assertNull(keys.get("k2"));
+    }
+}
@@ -0,0 +1,24 @@
+package com.banking.service;
+
+import com.banking.model.AccountType;
+import org.junit.Test;
+import java.math.BigDecimal;
+import static org.junit.Assert.*;
+
+public class InMemoryAccountServiceContractTest extends AbstractAccountOperationsTest {
+    @Override
+    protected AccountOperations createService() {
+        return new InMemoryAccountService();
+    }
+
+    @Test
+    public void testChangesArePersistedBehind() {
+        service.createAccount(AccountType.CHECKING, id("P"), new BigDecimal("100.00"));
+        service.deposit(id("P"), new BigDecimal("50.00"));
+        ((InMemoryAccountService) service).flush();
+
+        AccountService jdbc = new AccountService(BalanceCache.disabled());
+        assertEquals(new BigDecimal("150.00"), jdbc.getBalance(id("P")));
+        assertEquals(2, jdbc.getTransactionHistory(id("P")).size());
+    }
+}
@@ -0,0 +1,98 @@
+package com.banking.service;
+
+import com.banking.exception.BankingException;
+import com.banking.metrics.BankingMetrics;
+import com.banking.metrics.MetricsSnapshot;
+import com.banking.metrics.OperationSnapshot;
+import com.banking.metrics.Phase;
+import com.banking.model.AccountType;
+import org.junit.Test;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.Assert.*;
+
+public class InstrumentedAccountOperationsTest extends AbstractAccountOperationsTest {
+    private BankingMetrics metrics;
+
+    @Override
+    protected AccountOperations createService() {
+        metrics = new BankingMetrics();
+        return new InstrumentedAccountOperations(
+                new AccountService(BalanceCache.disabled(), ReportAggregates.disabled(), metrics), metrics);
+    }
+
+    @Test
+    public void testCallsErrorsAndPhasesAreRecorded() {
+        String id = "M" + Long.toString(System.nanoTime() % 1_000_000, 36);
+        service.createAccount(AccountType.SAVINGS, id, new BigDecimal("100.00"));
+        service.deposit(id, new BigDecimal("10.00"));
+        service.deposit(id, new BigDecimal("10.00"));
+        expectFailure(() -> service.withdraw(id, new BigDecimal("1000.00")));
+        expectFailure(() -> service.withdraw(id + "X", new BigDecimal("1.00")));
+        expectFailure(() -> service.deposit(id, new BigDecimal("-1.00")));
+
+        MetricsSnapshot snapshot = metrics.snapshot();
+        OperationSnapshot deposit = snapshot.getOperation("deposit");
+        assertEquals(3, deposit.getCalls());
+        assertEquals(Long.valueOf(1), deposit.getErrorsByType().get("BankingException"));
+        assertEquals(3, deposit.getLatency(Phase.TOTAL).getCount());
+        // The rejected deposit never reached the database
+        assertEquals(2, deposit.getLatency(Phase.ACQUIRE).getCount());
+        assertEquals(2, deposit.getLatency(Phase.COMMIT).getCount());
+        assertTrue(deposit.getLatency(Phase.TOTAL).getMaxNanos()
+                >= deposit.getLatency(Phase.EXECUTE).getMaxNanos());
+
+        OperationSnapshot withdraw = snapshot.getOperation("withdraw");
+        assertEquals(2, withdraw.getErrors());
+        assertEquals(Long.valueOf(1), withdraw.getErrorsByType().get("InsufficientFundsException"));
+        assertEquals(Long.valueOf(1), withdraw.getErrorsByType().get("AccountNotFoundException"));
+        assertEquals(0, withdraw.getLatency(Phase.COMMIT).getCount());
+        assertNull(snapshot.getOperation(BankingMetrics.UNATTRIBUTED));
+    }
+
+    @Test
+    public void testReportersReceiveSnapshots() {
+        List<MetricsSnapshot> received = new ArrayList<>();
+        metrics.addReporter(received::add);
+        service.getAccountSummary();
+        metrics.report();
+
+        assertEquals(1, received.size());
+        assertEquals(1, received.get(0).getOperation("getAccountSummary").getCalls());
+    }
+
+    @Test
+    public void testOperationsAreVisibleOverJmx() throws Exception {
+        BankingMetrics jmxMetrics = new BankingMetrics(true, true);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("com.banking:type=Operation,name=\"jmxProbe\"");
+        try {
+            jmxMetrics.start("jmxProbe").stop();
+            assertEquals(1L, server.getAttribute(name, "Calls"));
+        } finally {
+            jmxMetrics.close();
+        }
+        assertFalse(server.isRegistered(name));
+    }
+
+    @Test
+    public void testDisabledMetricsRecordNothing() {
+        BankingMetrics disabled = BankingMetrics.disabled();
+        disabled.start("deposit").stop();
+        disabled.recordError("deposit", new RuntimeException());
+        assertTrue(disabled.snapshot().getOperations().isEmpty());
+    }
+
+    private static void expectFailure(Runnable call) {
+        try {
+            call.run();
+            fail("Expected a BankingException");
+        } catch (BankingException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.banking.service;
+
+import com.banking.db.DatabaseConnection;
+import com.banking.exception.BankingException;
+import com.banking.model.AccountType;
+import org.junit.Before;
+import org.junit.Test;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.YearMonth;
+import static org.junit.Assert.*;
+
+public class MonthEndProcessorTest {
+    private AccountService accountService;
+    private String prefix;
+    private YearMonth period;
+
+    @Before
+    public void setUp() {
+        accountService = new AccountService();
+        prefix = "M" + Long.toString(System.nanoTime() % 1_000_000, 36);
+        // Runs are checkpointed per period, so every test gets one of its own
+        period = YearMonth.of(1900, 1).plusMonths(System.nanoTime() % 12_000);
+    }
+
+    @Test
+    public void testAppliesFeesAndInterestOncePerPeriod() throws SQLException {
+        accountService.createAccount(AccountType.CHECKING, prefix + "C", new BigDecimal("500.00"));
+        accountService.createAccount(AccountType.SAVINGS, prefix + "S", new BigDecimal("1000.00"));
+        accountService.createAccount(AccountType.CHECKING, prefix + "O", new BigDecimal("-95.00"));
+        MonthEndProcessor processor = new MonthEndProcessor(accountService, 4, 2, 2);
+
+        MonthEndStats stats = processor.run(period);
+        assertEquals(accountCount(), stats.getAccounts());
+        assertTrue(stats.getWaived() >= 1);
+        assertEquals(new BigDecimal("488.00"), accountService.getBalance(prefix + "C"));
+        assertEquals(new BigDecimal("1025.00"), accountService.getBalance(prefix + "S"));
+        // The fee would take it past the overdraft limit
+        assertEquals(new BigDecimal("-95.00"), accountService.getBalance(prefix + "O"));
+        assertEquals(2, accountService.getTransactionHistory(prefix + "C").size());
+        assertEquals(1, accountService.getTransactionHistory(prefix + "O").size());
+        assertEquals(1, ledgerRows(prefix + "C", "Monthly fee " + period));
+        assertEquals(1, ledgerRows(prefix + "S", "Interest " + period));
+
+        MonthEndStats again = processor.run(period);
+        assertEquals(0, again.getAccounts());
+        assertEquals(again.getPartitions(), again.getPartitionsAlreadyDone());
+        assertEquals(new BigDecimal("488.00"), accountService.getBalance(prefix + "C"));
+
+        // A new period charges again
+        processor.run(period.plusMonths(1));
+        assertEquals(new BigDecimal("476.00"), accountService.getBalance(prefix + "C"));
+    }
+
+    @Test
+    public void testResumesAfterFailureWithoutChargingTwice() throws SQLException {
+        for (int i = 0; i < 10; i++) {
+            accountService.createAccount(AccountType.CHECKING, prefix + i, new BigDecimal("100.00"));
+        }
+        long total = accountCount();
+        MonthEndProcessor processor = new MonthEndProcessor(accountService, 1, 3, 1);
+        processor.setProgressListener((p, partition, done) -> {
+            throw new IllegalStateException("Simulated crash after " + done + " accounts");
+        });
+        try {
+            processor.run(period);
+            fail("Expected the run to fail");
+        } catch (BankingException e) {
+            assertTrue(e.getMessage().contains("resume"));
+        }
+
+        // The first chunk committed before the failure and is not processed again
+        processor.setProgressListener(null);
+        MonthEndStats resumed = processor.run(period);
+        assertEquals(total - 3, resumed.getAccounts());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(new BigDecimal("88.00"), accountService.getBalance(prefix + i));
+            assertEquals(1, ledgerRows(prefix + i, "Monthly fee " + period));
+        }
+    }
+
+    @Test
+    public void testKeepsReportAggregatesInStep() throws SQLException {
+        ReportAggregates aggregates;
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            aggregates = ReportAggregates.load(conn);
+        }
+        AccountService service = new AccountService(new BalanceCache(100), aggregates);
+        service.createAccount(AccountType.SAVINGS, prefix + "S", new BigDecimal("200.00"));
+        assertEquals(new BigDecimal("200.00"), service.getBalance(prefix + "S"));
+
+        new MonthEndProcessor(service, 3, 5, 2).run(period);
+        assertEquals(new BigDecimal("205.00"), service.getBalance(prefix + "S"));
+        assertEquals(0, totalBalance().compareTo(aggregates.getTotalBalance()));
+    }
+
+    private static BigDecimal totalBalance() throws SQLException {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT SUM(balance) FROM accounts");
+             ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            return rs.getBigDecimal(1);
+        }
+    }
+
+    private static long accountCount() throws SQLException {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM accounts");
+             ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static int ledgerRows(String accountId, String description) throws SQLException {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT COUNT(*) FROM transactions WHERE account_id = ? AND description = ?")) {
+            stmt.setString(1, accountId);
+            stmt.setString(2, description);
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+}
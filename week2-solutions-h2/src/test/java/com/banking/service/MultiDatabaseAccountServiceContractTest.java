@@ -0,0 +1,182 @@
+package com.banking.service;
+
+import com.banking.db.DatabaseShards;
+import com.banking.exception.BankingException;
+import com.banking.model.AccountType;
+import com.banking.model.TransactionRecord;
+import org.junit.Test;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import static org.junit.Assert.*;
+
+public class MultiDatabaseAccountServiceContractTest extends AbstractAccountOperationsTest {
+    @Override
+    protected AccountOperations createService() {
+        return new MultiDatabaseAccountService(
+                new DatabaseShards(3, "jdbc:h2:mem:contract_shard{shard};MODE=MySQL;DB_CLOSE_DELAY=-1", 64));
+    }
+
+    @Test
+    public void testCrossShardTransferIsLoggedAsCompleted() throws Exception {
+        String[] ids = onDifferentShards();
+        service.createAccount(AccountType.CHECKING, ids[0], new BigDecimal("500.00"));
+        service.createAccount(AccountType.CHECKING, ids[1], new BigDecimal("500.00"));
+        service.transfer(ids[0], ids[1], new BigDecimal("125.00"));
+
+        assertEquals(new BigDecimal("375.00"), service.getBalance(ids[0]));
+        assertEquals(new BigDecimal("625.00"), service.getBalance(ids[1]));
+        assertEquals(2, service.getTransactionHistory(ids[1]).size());
+        assertEquals(ShardTransferSaga.COMPLETED, transferState(ids[0]));
+        assertEquals(1, multi().getCrossShardTransfers());
+    }
+
+    @Test
+    public void testAllTransactionsAreMergedNewestFirst() {
+        String[] ids = onDifferentShards();
+        service.createAccount(AccountType.CHECKING, ids[0], new BigDecimal("500.00"));
+        service.createAccount(AccountType.CHECKING, ids[1], new BigDecimal("500.00"));
+        service.deposit(ids[0], BigDecimal.ONE);
+        service.deposit(ids[1], BigDecimal.ONE);
+
+        List<TransactionRecord> all = service.getAllTransactions();
+        List<TransactionRecord> ours = all.stream()
+                .filter(row -> row.getAccountId().startsWith(id("")))
+                .collect(Collectors.toList());
+        assertEquals(4, ours.size());
+        for (int i = 1; i < all.size(); i++) {
+            assertTrue(all.get(i - 1).getEpochMicros() >= all.get(i).getEpochMicros());
+        }
+    }
+
+    @Test
+    public void testRecoveryCreditsAnInterruptedTransferOnce() throws Exception {
+        String[] ids = onDifferentShards();
+        service.createAccount(AccountType.CHECKING, ids[0], new BigDecimal("500.00"));
+        service.createAccount(AccountType.CHECKING, ids[1], new BigDecimal("500.00"));
+        // What a crash right after the debit leaves behind
+        debitedTransfer(id("R1"), ids[0], ids[1], new BigDecimal("50.00"));
+
+        assertTrue(multi().recoverTransfers() >= 1);
+        assertEquals(0, multi().recoverTransfers());
+        assertEquals(new BigDecimal("450.00"), service.getBalance(ids[0]));
+        assertEquals(new BigDecimal("550.00"), service.getBalance(ids[1]));
+        assertEquals(ShardTransferSaga.COMPLETED, transferState(ids[0]));
+    }
+
+    @Test
+    public void testRecoveryRefundsWhenTheTargetIsGone() throws Exception {
+        String[] ids = onDifferentShards();
+        service.createAccount(AccountType.CHECKING, ids[0], new BigDecimal("500.00"));
+        debitedTransfer(id("R2"), ids[0], ids[1], new BigDecimal("50.00"));
+
+        multi().recoverTransfers();
+        assertEquals(new BigDecimal("500.00"), service.getBalance(ids[0]));
+        assertEquals(ShardTransferSaga.COMPENSATED, transferState(ids[0]));
+        assertEquals(1, multi().getCompensatedTransfers());
+    }
+
+    @Test
+    public void testBatchAcrossShards() {
+        String[] ids = onDifferentShards();
+        service.createAccount(AccountType.CHECKING, ids[0], new BigDecimal("500.00"));
+        service.createAccount(AccountType.CHECKING, ids[1], new BigDecimal("500.00"));
+        List<TransferInstruction> batch = Arrays.asList(
+                new TransferInstruction(ids[0], ids[1], new BigDecimal("100.00")),
+                new TransferInstruction(ids[1], ids[0], new BigDecimal("900.00")));
+
+        List<TransferResult> results = service.transferBatch(batch, BatchMode.BEST_EFFORT);
+        assertTrue(results.get(0).isApplied());
+        assertEquals(TransferResult.Status.REJECTED, results.get(1).getStatus());
+        assertEquals(new BigDecimal("400.00"), service.getBalance(ids[0]));
+        try {
+            service.transferBatch(batch, BatchMode.ALL_OR_NOTHING);
+            fail("Expected cross-shard ALL_OR_NOTHING to be refused");
+        } catch (BankingException e) {
+            assertTrue(e.getMessage().contains("span"));
+        }
+    }
+
+    @Test
+    public void testBatchReportsADebitedTransferAsPending() throws Exception {
+        String[] ids = onDifferentShards();
+        service.createAccount(AccountType.CHECKING, ids[0], new BigDecimal("500.00"));
+        service.createAccount(AccountType.CHECKING, ids[1], new BigDecimal("500.00"));
+        List<TransferInstruction> batch = Arrays.asList(
+                new TransferInstruction(ids[0], ids[1], new BigDecimal("100.00")));
+
+        // Make the credit fail after the debit has committed
+        DatabaseShards shards = multi().getShards();
+        List<TransferResult> results;
+        try (Connection conn = shards.getConnection(shards.shardFor(ids[1]));
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("ALTER TABLE shard_transfer_credits RENAME TO shard_transfer_credits_off");
+            try {
+                results = service.transferBatch(batch, BatchMode.BEST_EFFORT);
+            } finally {
+                stmt.execute("ALTER TABLE shard_transfer_credits_off RENAME TO shard_transfer_credits");
+            }
+        }
+
+        assertEquals(TransferResult.Status.PENDING, results.get(0).getStatus());
+        assertEquals(new BigDecimal("400.00"), service.getBalance(ids[0]));
+        assertEquals(ShardTransferSaga.DEBITED, transferState(ids[0]));
+        assertTrue(multi().recoverTransfers() >= 1);
+        assertEquals(new BigDecimal("600.00"), service.getBalance(ids[1]));
+    }
+
+    private MultiDatabaseAccountService multi() {
+        return (MultiDatabaseAccountService) service;
+    }
+
+    private String[] onDifferentShards() {
+        DatabaseShards shards = multi().getShards();
+        String from = id("A");
+        for (int i = 0; ; i++) {
+            String to = id("B" + i);
+            if (shards.shardFor(to) != shards.shardFor(from)) {
+                return new String[]{from, to};
+            }
+        }
+    }
+
+    private void debitedTransfer(String transferId, String from, String to, BigDecimal amount) throws Exception {
+        DatabaseShards shards = multi().getShards();
+        try (Connection conn = shards.getConnection(shards.shardFor(from))) {
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "UPDATE accounts SET balance = balance - ? WHERE account_id = ?")) {
+                stmt.setBigDecimal(1, amount);
+                stmt.setString(2, from);
+                stmt.executeUpdate();
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "INSERT INTO shard_transfers (transfer_id, from_account, to_account, to_shard, amount, state) " +
+                    "VALUES (?, ?, ?, ?, ?, 'DEBITED')")) {
+                stmt.setString(1, transferId);
+                stmt.setString(2, from);
+                stmt.setString(3, to);
+                stmt.setInt(4, shards.shardFor(to));
+                stmt.setBigDecimal(5, amount);
+                stmt.executeUpdate();
+            }
+        }
+    }
+
+    private String transferState(String from) throws Exception {
+        DatabaseShards shards = multi().getShards();
+        try (Connection conn = shards.getConnection(shards.shardFor(from));
+             PreparedStatement stmt = conn.prepareStatement(
+                 "SELECT state FROM shard_transfers WHERE from_account = ?")) {
+            stmt.setString(1, from);
+            try (ResultSet rs = stmt.executeQuery()) {
+                assertTrue(rs.next());
+                return rs.getString(1);
+            }
+        }
+    }
+}
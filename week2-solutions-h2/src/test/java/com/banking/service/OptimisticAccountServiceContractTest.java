@@ -0,0 +1,8 @@
+package com.banking.service;
+
+public class OptimisticAccountServiceContractTest extends AbstractAccountOperationsTest {
+    @Override
+    protected AccountOperations createService() {
+        return new AccountService(BalanceCache.disabled(), ReportAggregates.disabled(), ConcurrencyMode.OPTIMISTIC);
+    }
+}
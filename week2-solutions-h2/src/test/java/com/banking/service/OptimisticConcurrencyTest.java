@@ -0,0 +1,127 @@
+package com.banking.service;
+
+import com.banking.db.DatabaseConnection;
+import com.banking.exception.BankingException;
+import com.banking.exception.InsufficientFundsException;
+import com.banking.model.AccountType;
+import org.junit.Before;
+import org.junit.Test;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.*;
+
+public class OptimisticConcurrencyTest {
+    private AccountService service;
+    private String prefix;
+
+    @Before
+    public void setUp() {
+        service = new AccountService(BalanceCache.disabled(), ReportAggregates.disabled(), ConcurrencyMode.OPTIMISTIC);
+        prefix = "O" + Long.toString(System.nanoTime() % 1_000_000, 36);
+    }
+
+    @Test
+    public void testEveryBalanceWriteBumpsTheVersion() throws Exception {
+        service.createAccount(AccountType.CHECKING, prefix + "A", new BigDecimal("100.00"));
+        service.createAccount(AccountType.CHECKING, prefix + "B", new BigDecimal("100.00"));
+        long before = version(prefix + "A");
+
+        service.deposit(prefix + "A", new BigDecimal("10.00"));
+        service.withdraw(prefix + "A", new BigDecimal("20.00"));
+        service.transfer(prefix + "A", prefix + "B", new BigDecimal("30.00"));
+        service.transfer(prefix + "B", prefix + "A", new BigDecimal("5.00"));
+
+        assertEquals(before + 4, version(prefix + "A"));
+        assertEquals(new BigDecimal("65.00"), service.getBalance(prefix + "A"));
+    }
+
+    @Test
+    public void testConcurrentWithdrawalsNeverOverdraw() throws Exception {
+        // 50.00 above the savings minimum
+        service.createAccount(AccountType.SAVINGS, prefix + "A", new BigDecimal("150.00"));
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Boolean>> futures = new ArrayList<>();
+        for (int i = 0; i < 80; i++) {
+            futures.add(executor.submit(() -> {
+                try {
+                    service.withdraw(prefix + "A", BigDecimal.ONE);
+                    return true;
+                } catch (InsufficientFundsException e) {
+                    return false;
+                } catch (BankingException e) {
+                    // Retries used up; nothing was withdrawn
+                    return false;
+                }
+            }));
+        }
+        int applied = 0;
+        for (Future<Boolean> future : futures) {
+            if (future.get(60, TimeUnit.SECONDS)) {
+                applied++;
+            }
+        }
+        executor.shutdown();
+
+        assertTrue(applied <= 50);
+        assertEquals(new BigDecimal(150 - applied).setScale(2), service.getBalance(prefix + "A"));
+        assertEquals(applied + 1, service.getTransactionHistory(prefix + "A").size());
+    }
+
+    @Test
+    public void testOpposingTransfersConserveMoney() throws Exception {
+        service.createAccount(AccountType.CHECKING, prefix + "A", new BigDecimal("1000.00"));
+        service.createAccount(AccountType.CHECKING, prefix + "B", new BigDecimal("1000.00"));
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Boolean>> futures = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            String from = prefix + (i % 2 == 0 ? "A" : "B");
+            String to = prefix + (i % 2 == 0 ? "B" : "A");
+            futures.add(executor.submit(() -> {
+                try {
+                    service.transfer(from, to, new BigDecimal("3.00"));
+                    return true;
+                } catch (BankingException e) {
+                    // Two accounts shared by every thread can use up the retries
+                    return false;
+                }
+            }));
+        }
+        BigDecimal expectedA = new BigDecimal("1000.00");
+        for (int i = 0; i < futures.size(); i++) {
+            if (futures.get(i).get(60, TimeUnit.SECONDS)) {
+                expectedA = i % 2 == 0 ? expectedA.subtract(new BigDecimal("3.00")) : expectedA.add(new BigDecimal("3.00"));
+            }
+        }
+        executor.shutdown();
+
+        assertEquals(expectedA, service.getBalance(prefix + "A"));
+        assertEquals(new BigDecimal("2000.00"), service.getBalance(prefix + "A").add(service.getBalance(prefix + "B")));
+    }
+
+    @Test
+    public void testPessimisticModeIsTheDefault() {
+        assertEquals(ConcurrencyMode.PESSIMISTIC,
+                new AccountService(BalanceCache.disabled(), ReportAggregates.disabled()).getConcurrencyMode());
+    }
+
+    private static long version(String accountId) throws Exception {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT version FROM accounts WHERE account_id = ?")) {
+            stmt.setString(1, accountId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                assertTrue(rs.next());
+                return rs.getLong(1);
+            }
+        }
+    }
+}
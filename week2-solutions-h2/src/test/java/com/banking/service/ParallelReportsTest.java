@@ -0,0 +1,83 @@
+package com.banking.service;
+
+import com.banking.db.DatabaseConnection;
+import com.banking.model.AccountType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Map;
+import static org.junit.Assert.*;
+
+public class ParallelReportsTest {
+    private AccountService serial;
+    private ParallelReports reports;
+    private String busy;
+
+    @Before
+    public void setUp() throws SQLException {
+        // Aggregates off, so the service runs the single-connection scans
+        serial = new AccountService(BalanceCache.disabled(), ReportAggregates.disabled());
+        busy = "P" + Long.toString(System.nanoTime() % 1_000_000, 36);
+        serial.createAccount(AccountType.SAVINGS, busy, new BigDecimal("99999.00"));
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "INSERT INTO transactions (account_id, amount) SELECT ?, 1.00 FROM SYSTEM_RANGE(1, 2000)")) {
+            stmt.setString(1, busy);
+            stmt.executeUpdate();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        if (reports != null) {
+            reports.close();
+        }
+    }
+
+    @Test
+    public void testExactReportsMatchTheSerialScans() {
+        reports = new ParallelReports(DatabaseConnection.getInstance()::getConnection, 4, 3, 0);
+
+        assertEquals(serial.getAccountSummary(), reports.getAccountSummary());
+        assertEquals(serial.getDailyTransactions(), reports.getDailyTransactions());
+
+        Map<String, Object> expected = serial.getAccountActivity();
+        Map<String, Object> actual = reports.getAccountActivity();
+        assertEquals(expected.get("transactionCount"), actual.get("transactionCount"));
+        assertEquals(expected.get("highestBalance"), actual.get("highestBalance"));
+        assertFalse(actual.containsKey("approximate"));
+    }
+
+    @Test
+    public void testBudgetedActivityUsesSketchEstimates() {
+        reports = new ParallelReports(DatabaseConnection.getInstance()::getConnection, 4, 3, 60_000);
+
+        Map<String, Object> exact = serial.getAccountActivity();
+        Map<String, Object> approximate = reports.getAccountActivity();
+        assertEquals(Boolean.TRUE, approximate.get("approximate"));
+        assertEquals(1.0, (Double) approximate.get("coverage"), 0.0);
+        // Count-min estimates can only be too high
+        assertTrue((Integer) approximate.get("transactionCount") >= (Integer) exact.get("transactionCount"));
+        assertEquals(exact.get("highestBalance"), approximate.get("highestBalance"));
+    }
+
+    @Test
+    public void testExpiredBudgetReturnsPartialResult() {
+        reports = new ParallelReports(() -> {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return DatabaseConnection.getInstance().getConnection();
+        }, 4, 4, 20);
+
+        Map<String, Object> summary = reports.getAccountSummary();
+        assertEquals(Boolean.TRUE, summary.get("approximate"));
+        assertTrue((Double) summary.get("coverage") < 1.0);
+    }
+}
@@ -0,0 +1,176 @@
+package com.banking.service;
+
+import com.banking.db.DatabaseConnection;
+import com.banking.model.AccountType;
+import org.junit.Before;
+import org.junit.Test;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import static org.junit.Assert.*;
+
+public class ReportAggregatesTest {
+    private DatabaseConnection db;
+    private String prefix;
+
+    @Before
+    public void setUp() {
+        db = DatabaseConnection.getInstance();
+        prefix = "R" + Long.toString(System.nanoTime() % 1_000_000, 36);
+    }
+
+    @Test
+    public void testRankingsAndDailyTotals() {
+        ReportAggregates aggregates = new ReportAggregates();
+        LocalDate today = LocalDate.now();
+        aggregates.accountCreated("A", new BigDecimal("50.00"));
+        aggregates.accountCreated("B", new BigDecimal("75.00"));
+        aggregates.accountCreated("C", new BigDecimal("10.00"));
+        aggregates.transactionLogged("A", new BigDecimal("20.00"), today);
+        aggregates.transactionLogged("A", new BigDecimal("-5.00"), today);
+        aggregates.transactionLogged("C", new BigDecimal("3.00"), today);
+        aggregates.balanceChanged("A", new BigDecimal("40.00"));
+
+        List<Map.Entry<String, BigDecimal>> top = aggregates.getTopBalances(2);
+        assertEquals("A", top.get(0).getKey());
+        assertEquals(0, new BigDecimal("90.00").compareTo(top.get(0).getValue()));
+        assertEquals("B", top.get(1).getKey());
+        assertEquals("A", aggregates.getMostActiveAccount().getKey());
+        assertEquals(3, aggregates.getAccountCount());
+        assertEquals(0, new BigDecimal("175.00").compareTo(aggregates.getTotalBalance()));
+        assertEquals(0, new BigDecimal("23.00").compareTo(aggregates.getDeposits(today)));
+        assertEquals(0, new BigDecimal("-5.00").compareTo(aggregates.getWithdrawals(today)));
+
+        aggregates.accountDeleted("A", Collections.singletonMap(today,
+                new BigDecimal[]{new BigDecimal("20.00"), new BigDecimal("-5.00")}));
+        assertEquals("B", aggregates.getTopBalances(1).get(0).getKey());
+        assertEquals("C", aggregates.getMostActiveAccount().getKey());
+        assertEquals(0, new BigDecimal("3.00").compareTo(aggregates.getDeposits(today)));
+    }
+
+    @Test
+    public void testReportsMatchSqlAfterWrites() throws Exception {
+        ReportAggregates aggregates;
+        try (Connection conn = db.getConnection()) {
+            aggregates = ReportAggregates.load(conn);
+        }
+        AccountService service = new AccountService(BalanceCache.disabled(), aggregates);
+        AccountService sql = new AccountService(BalanceCache.disabled(), ReportAggregates.disabled());
+
+        service.createAccount(AccountType.CHECKING, prefix + "A", new BigDecimal("500.00"));
+        service.createAccount(AccountType.SAVINGS, prefix + "B", new BigDecimal("250.00"));
+        service.createAccount(AccountType.CHECKING, prefix + "C", new BigDecimal("100.00"));
+        service.deposit(prefix + "A", new BigDecimal("12.34"));
+        service.withdraw(prefix + "B", new BigDecimal("20.00"));
+        service.transfer(prefix + "A", prefix + "C", new BigDecimal("30.00"));
+        service.transferBatch(Arrays.asList(
+                new TransferInstruction(prefix + "C", prefix + "B", new BigDecimal("5.00")),
+                new TransferInstruction(prefix + "C", prefix + "B", new BigDecimal("99999.00"))));
+        try {
+            service.withdraw(prefix + "C", new BigDecimal("99999.00"));
+            fail("Expected insufficient funds");
+        } catch (Exception expected) {
+            // A failed write must leave the aggregates alone
+        }
+        service.deleteAccount(prefix + "C");
+
+        assertSameReport(sql.getAccountSummary(), service.getAccountSummary());
+        assertSameReport(sql.getDailyTransactions(), service.getDailyTransactions());
+        Map<String, Object> activity = service.getAccountActivity();
+        Map<String, Object> expected = sql.getAccountActivity();
+        assertEquals(expected.get("transactionCount"), activity.get("transactionCount"));
+        assertEquals(0, ((BigDecimal) expected.get("highestBalance")).compareTo((BigDecimal) activity.get("highestBalance")));
+
+        AggregateReconciler reconciler = new AggregateReconciler(aggregates, db::getConnection, false);
+        assertEquals(Collections.emptyMap(), reconciler.reconcile());
+    }
+
+    @Test
+    public void testReconcilerReportsAndRepairsDrift() throws Exception {
+        ReportAggregates aggregates;
+        try (Connection conn = db.getConnection()) {
+            aggregates = ReportAggregates.load(conn);
+        }
+        AccountService service = new AccountService(BalanceCache.disabled(), aggregates);
+        String accountId = prefix + "D";
+        service.createAccount(AccountType.CHECKING, accountId, new BigDecimal("10.00"));
+
+        // A ledger row written behind the service's back
+        try (Connection conn = db.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                 "INSERT INTO transactions (account_id, amount) VALUES (?, ?)"
+             )) {
+            stmt.setString(1, accountId);
+            stmt.setBigDecimal(2, BigDecimal.ONE);
+            stmt.executeUpdate();
+        }
+
+        Map<String, String> differences = new AggregateReconciler(aggregates, db::getConnection, false).reconcile();
+        assertTrue(differences.containsKey("transactions:" + accountId));
+
+        AggregateReconciler repairing = new AggregateReconciler(aggregates, db::getConnection, true);
+        assertFalse(repairing.reconcile().isEmpty());
+        assertTrue(repairing.reconcile().isEmpty());
+        assertTrue(repairing.getDiscrepancies() > 0);
+    }
+
+    @Test
+    public void testRepairWaitsForWritesBetweenCommitAndApply() throws Exception {
+        ReportAggregates aggregates;
+        try (Connection conn = db.getConnection()) {
+            aggregates = ReportAggregates.load(conn);
+        }
+        AccountService service = new AccountService(BalanceCache.disabled(), aggregates);
+        String accountId = prefix + "F";
+        service.createAccount(AccountType.CHECKING, accountId, new BigDecimal("10.00"));
+
+        // A deposit that has committed but not yet been applied to the aggregates
+        ReportAggregates.WriteFence fence = aggregates.enterWrite();
+        try (Connection conn = db.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                 "UPDATE accounts SET balance = balance + 5 WHERE account_id = ?"
+             )) {
+            stmt.setString(1, accountId);
+            stmt.executeUpdate();
+        }
+        AtomicReference<Exception> failure = new AtomicReference<>();
+        Thread repair = new Thread(() -> {
+            try {
+                aggregates.reloadFrom(db::getConnection);
+            } catch (Exception e) {
+                failure.set(e);
+            }
+        });
+        repair.start();
+        repair.join(200);
+        assertTrue("Repair must wait for the write to be applied", repair.isAlive());
+
+        aggregates.balanceChanged(accountId, new BigDecimal("5"));
+        fence.close();
+        repair.join(10_000);
+        assertFalse(repair.isAlive());
+        assertNull(failure.get());
+
+        // Applied once: neither wiped by the reload nor counted on top of it
+        assertEquals(Collections.emptyMap(),
+                new AggregateReconciler(aggregates, db::getConnection, false).reconcile());
+    }
+
+    private void assertSameReport(Map<String, Object> expected, Map<String, Object> actual) {
+        assertEquals(expected.keySet(), actual.keySet());
+        for (Map.Entry<String, Object> entry : expected.entrySet()) {
+            Object value = actual.get(entry.getKey());
+            if (entry.getValue() instanceof BigDecimal) {
+                assertEquals(entry.getKey(), 0, ((BigDecimal) entry.getValue()).compareTo((BigDecimal) value));
+            } else {
+                assertEquals(entry.getKey(), entry.getValue(), value);
+            }
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.banking.service;
+
+import com.banking.db.DatabaseConnection;
+import com.banking.exception.AccountNotFoundException;
+import com.banking.exception.BankingException;
+import com.banking.exception.TransferPendingException;
+import com.banking.model.AccountType;
+import com.banking.model.TransactionRecord;
+import org.junit.Test;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.*;
+
+public class ShardedAccountServiceContractTest extends AbstractAccountOperationsTest {
+    @Override
+    protected AccountOperations createService() {
+        return new ShardedAccountService(4, 64, 1000);
+    }
+
+    @Test
+    public void testConcurrentDepositsToHotAccountAreCoalesced() throws Exception {
+        ShardedAccountService sharded = (ShardedAccountService) service;
+        service.createAccount(AccountType.CHECKING, id("H"), new BigDecimal("0.00"));
+
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 16; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 50; i++) {
+                    service.deposit(id("H"), BigDecimal.ONE);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(new BigDecimal("800.00"), service.getBalance(id("H")));
+        assertEquals(801, service.getTransactionHistory(id("H")).size());
+        assertTrue("Expected several deposits per commit",
+                sharded.getCommandsProcessed() > sharded.getBatchesCommitted());
+    }
+
+    @Test
+    public void testBatchesRacingMailboxesKeepLedgerAndBalancesInStep() throws Exception {
+        service.createAccount(AccountType.CHECKING, id("A"), new BigDecimal("1000.00"));
+        service.createAccount(AccountType.CHECKING, id("B"), new BigDecimal("1000.00"));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 3; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 100; i++) {
+                    service.withdraw(id("A"), BigDecimal.ONE);
+                    service.deposit(id("B"), BigDecimal.ONE);
+                }
+                return null;
+            }));
+        }
+        // transferBatch runs on the JDBC engine and changes balances behind the workers
+        futures.add(executor.submit(() -> {
+            for (int i = 0; i < 50; i++) {
+                service.transferBatch(Arrays.asList(
+                        new TransferInstruction(id("B"), id("A"), new BigDecimal("2.00"))), BatchMode.BEST_EFFORT);
+            }
+            return null;
+        }));
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(new BigDecimal("800.00"), service.getBalance(id("A")));
+        assertEquals(new BigDecimal("1200.00"), service.getBalance(id("B")));
+        for (String accountId : new String[]{id("A"), id("B")}) {
+            BigDecimal ledger = BigDecimal.ZERO;
+            for (TransactionRecord row : service.getTransactionHistory(accountId)) {
+                ledger = ledger.add(row.getAmount());
+            }
+            assertEquals(service.getBalance(accountId), ledger);
+        }
+    }
+
+    @Test
+    public void testTransferToMissingAccountLeavesSourceUnchanged() {
+        service.createAccount(AccountType.CHECKING, id("A"), new BigDecimal("100.00"));
+        try {
+            service.transfer(id("A"), id("Z"), new BigDecimal("10.00"));
+            fail("Expected AccountNotFoundException");
+        } catch (AccountNotFoundException e) {
+            assertEquals(id("Z"), e.getAccountNumber());
+        }
+        assertEquals(new BigDecimal("100.00"), service.getBalance(id("A")));
+    }
+
+    @Test
+    public void testSameWorkerTransferIsOneTransactionWithoutLogRow() throws Exception {
+        String to = peerOf(id("A"), true);
+        service.createAccount(AccountType.CHECKING, id("A"), new BigDecimal("100.00"));
+        service.createAccount(AccountType.CHECKING, to, new BigDecimal("0.00"));
+
+        service.transfer(id("A"), to, new BigDecimal("30.00"));
+
+        assertEquals(new BigDecimal("70.00"), service.getBalance(id("A")));
+        assertEquals(new BigDecimal("30.00"), service.getBalance(to));
+        assertNull(transferState(id("A")));
+    }
+
+    @Test
+    public void testCrossWorkerTransferIsLoggedAsCompleted() throws Exception {
+        String to = peerOf(id("A"), false);
+        service.createAccount(AccountType.CHECKING, id("A"), new BigDecimal("100.00"));
+        service.createAccount(AccountType.CHECKING, to, new BigDecimal("0.00"));
+
+        service.transfer(id("A"), to, new BigDecimal("30.00"));
+
+        assertEquals(new BigDecimal("70.00"), service.getBalance(id("A")));
+        assertEquals(new BigDecimal("30.00"), service.getBalance(to));
+        assertEquals(MailboxWorker.COMPLETED, transferState(id("A")));
+    }
+
+    @Test
+    public void testRecoveryCreditsAnInterruptedTransferOnce() throws Exception {
+        ShardedAccountService sharded = (ShardedAccountService) service;
+        String to = peerOf(id("A"), false);
+        service.createAccount(AccountType.CHECKING, id("A"), new BigDecimal("100.00"));
+        service.createAccount(AccountType.CHECKING, to, new BigDecimal("0.00"));
+        // The debit committed, then the process stopped before the credit
+        insertDebitedTransfer(id("A"), to, new BigDecimal("40.00"));
+
+        assertTrue(sharded.recoverTransfers() >= 1);
+        sharded.recoverTransfers();
+
+        assertEquals(new BigDecimal("60.00"), service.getBalance(id("A")));
+        assertEquals(new BigDecimal("40.00"), service.getBalance(to));
+        assertEquals(MailboxWorker.COMPLETED, transferState(id("A")));
+    }
+
+    @Test
+    public void testRecoveryRefundsWhenTargetIsGone() throws Exception {
+        service.createAccount(AccountType.CHECKING, id("A"), new BigDecimal("100.00"));
+        insertDebitedTransfer(id("A"), id("Z"), new BigDecimal("40.00"));
+
+        ((ShardedAccountService) service).recoverTransfers();
+
+        assertEquals(new BigDecimal("100.00"), service.getBalance(id("A")));
+        assertEquals(MailboxWorker.COMPENSATED, transferState(id("A")));
+    }
+
+    @Test
+    public void testFailedRefundIsSurfacedAndLeftForRecovery() throws Exception {
+        // Neither account exists: the credit fails, then the refund does
+        insertDebitedTransfer(id("X"), id("Y"), new BigDecimal("40.00"));
+        try {
+            ((ShardedAccountService) service).recoverTransfers();
+            assertEquals(MailboxWorker.DEBITED, transferState(id("X")));
+        } finally {
+            try (Connection conn = DatabaseConnection.getInstance().getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(
+                         "DELETE FROM mailbox_transfers WHERE from_account = ?")) {
+                stmt.setString(1, id("X"));
+                stmt.executeUpdate();
+            }
+        }
+    }
+
+    @Test
+    public void testClosedEngineRefusesCommandsAndForwardedLegs() {
+        ShardedAccountService sharded = (ShardedAccountService) service;
+        service.createAccount(AccountType.CHECKING, id("A"), new BigDecimal("100.00"));
+        sharded.close();
+
+        try {
+            service.deposit(id("A"), BigDecimal.ONE);
+            fail("Expected BankingException");
+        } catch (BankingException e) {
+            assertTrue(e.getMessage().contains("closed"));
+        }
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        sharded.forward(new MailboxWorker.Command(MailboxWorker.Kind.CREDIT, id("A"), BigDecimal.ONE,
+                id("B"), UUID.randomUUID().toString(), null, result));
+        try {
+            result.join();
+            fail("Expected TransferPendingException");
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof TransferPendingException);
+        }
+        assertEquals(0, sharded.getQueuedCommands());
+    }
+
+    private String peerOf(String accountId, boolean sameWorker) {
+        ShardedAccountService sharded = (ShardedAccountService) service;
+        for (int i = 0; ; i++) {
+            String candidate = id("P" + i);
+            if ((sharded.workerFor(candidate) == sharded.workerFor(accountId)) == sameWorker) {
+                return candidate;
+            }
+        }
+    }
+
+    private void insertDebitedTransfer(String from, String to, BigDecimal amount) throws SQLException {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement debit = conn.prepareStatement(
+                         "UPDATE accounts SET balance = balance - ? WHERE account_id = ?");
+                 PreparedStatement log = conn.prepareStatement(
+                         "INSERT INTO mailbox_transfers (transfer_id, from_account, to_account, amount, state) " +
+                         "VALUES (?, ?, ?, ?, ?)")) {
+                debit.setBigDecimal(1, amount);
+                debit.setString(2, from);
+                debit.executeUpdate();
+                log.setString(1, UUID.randomUUID().toString());
+                log.setString(2, from);
+                log.setString(3, to);
+                log.setBigDecimal(4, amount);
+                log.setString(5, MailboxWorker.DEBITED);
+                log.executeUpdate();
+            }
+            conn.commit();
+        }
+    }
+
+    private String transferState(String from) throws SQLException {
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT state FROM mailbox_transfers WHERE from_account = ?")) {
+            stmt.setString(1, from);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getString(1) : null;
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.banking.service;
+
+import com.banking.model.AccountType;
+import org.junit.Before;
+import org.junit.Test;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.*;
+
+public class TransferBatchTest {
+    private AccountService accountService;
+    private String a;
+    private String b;
+    private String c;
+
+    @Before
+    public void setUp() {
+        accountService = new AccountService();
+        String prefix = "B" + Long.toString(System.nanoTime() % 1_000_000, 36);
+        a = prefix + "A";
+        b = prefix + "B";
+        c = prefix + "C";
+        accountService.createAccount(AccountType.CHECKING, a, new BigDecimal("100.00"));
+        accountService.createAccount(AccountType.CHECKING, b, new BigDecimal("100.00"));
+        accountService.createAccount(AccountType.CHECKING, c, new BigDecimal("100.00"));
+    }
+
+    @Test
+    public void testBestEffortAppliesValidInstructions() {
+        List<TransferResult> results = accountService.transferBatch(Arrays.asList(
+                new TransferInstruction(a, b, new BigDecimal("30.00")),
+                new TransferInstruction(b, c, new BigDecimal("500.00")),  // insufficient funds
+                new TransferInstruction(c, "NOPE", new BigDecimal("1.00")),   // unknown account
+                new TransferInstruction(c, a, new BigDecimal("-5.00")),    // invalid amount
+                new TransferInstruction(b, c, new BigDecimal("130.00"))   // uses money from the first transfer
+        ), BatchMode.BEST_EFFORT);
+
+        assertEquals(TransferResult.Status.APPLIED, results.get(0).getStatus());
+        assertEquals(TransferResult.Status.REJECTED, results.get(1).getStatus());
+        assertEquals(TransferResult.Status.REJECTED, results.get(2).getStatus());
+        assertEquals(TransferResult.Status.REJECTED, results.get(3).getStatus());
+        assertEquals(TransferResult.Status.APPLIED, results.get(4).getStatus());
+
+        assertEquals(new BigDecimal("70.00"), accountService.getBalance(a));
+        assertEquals(new BigDecimal("0.00"), accountService.getBalance(b));
+        assertEquals(new BigDecimal("230.00"), accountService.getBalance(c));
+
+        // Initial deposit plus one ledger row per applied leg
+        assertEquals(2, accountService.getTransactionHistory(a).size());
+        assertEquals(3, accountService.getTransactionHistory(b).size());
+        assertEquals(2, accountService.getTransactionHistory(c).size());
+    }
+
+    @Test
+    public void testAllOrNothingAppliesNothingOnFailure() {
+        List<TransferResult> results = accountService.transferBatch(Arrays.asList(
+                new TransferInstruction(a, b, new BigDecimal("30.00")),
+                new TransferInstruction(b, c, new BigDecimal("500.00"))
+        ), BatchMode.ALL_OR_NOTHING);
+
+        assertEquals(TransferResult.Status.ROLLED_BACK, results.get(0).getStatus());
+        assertEquals(TransferResult.Status.REJECTED, results.get(1).getStatus());
+        assertEquals(new BigDecimal("100.00"), accountService.getBalance(a));
+        assertEquals(new BigDecimal("100.00"), accountService.getBalance(b));
+        assertEquals(1, accountService.getTransactionHistory(a).size());
+    }
+
+    @Test
+    public void testOpposingConcurrentBatchesDoNotDeadlock() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            boolean forward = t % 2 == 0;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 20; i++) {
+                    List<TransferInstruction> batch = forward
+                            ? Arrays.asList(new TransferInstruction(a, b, BigDecimal.ONE), new TransferInstruction(b, c, BigDecimal.ONE))
+                            : Arrays.asList(new TransferInstruction(c, b, BigDecimal.ONE), new TransferInstruction(b, a, BigDecimal.ONE));
+                    accountService.transferBatch(batch, BatchMode.ALL_OR_NOTHING);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        BigDecimal total = accountService.getBalance(a)
+                .add(accountService.getBalance(b))
+                .add(accountService.getBalance(c));
+        assertEquals(new BigDecimal("300.00"), total);
+    }
+}
@@ -0,0 +1,101 @@
+package com.banking.service;
+
+import com.banking.db.DatabaseConnection;
+import com.banking.db.QueryTrace;
+import com.banking.db.QueryTracer;
+import com.banking.db.UnitOfWork;
+import com.banking.exception.AccountNotFoundException;
+import com.banking.exception.InsufficientFundsException;
+import com.banking.model.AccountType;
+import org.junit.Before;
+import org.junit.Test;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import static org.junit.Assert.*;
+
+public class WithdrawalFloorsTest {
+    private AccountService service;
+    private String prefix;
+
+    @Before
+    public void setUp() {
+        service = new AccountService(BalanceCache.disabled(), ReportAggregates.disabled());
+        prefix = "W" + Long.toString(System.nanoTime() % 1_000_000, 36);
+    }
+
+    @Test
+    public void testSuccessfulWithdrawalIsOneUpdateAndOneInsert() {
+        service.createAccount(AccountType.CHECKING, prefix + "A", new BigDecimal("100.00"));
+        QueryTracer tracer = new QueryTracer(0, 10, 0, null);
+        AccountService traced = new AccountService(
+                () -> tracer.wrap(DatabaseConnection.getInstance().getConnection()), BalanceCache.disabled());
+
+        traced.withdraw(prefix + "A", new BigDecimal("100.00"));
+
+        List<QueryTrace> traces = tracer.dump();
+        assertEquals(2, traces.size());
+        assertTrue(traces.get(0).getSql().startsWith("UPDATE accounts"));
+        assertTrue(traces.get(1).getSql().startsWith("INSERT INTO transactions"));
+        assertEquals(new BigDecimal("0.00"), service.getBalance(prefix + "A"));
+    }
+
+    @Test
+    public void testRefusedWithdrawalReadsTheBalanceForTheException() {
+        service.createAccount(AccountType.SAVINGS, prefix + "A", new BigDecimal("130.00"));
+        try {
+            service.withdraw(prefix + "A", new BigDecimal("30.01"));
+            fail("Expected InsufficientFundsException");
+        } catch (InsufficientFundsException e) {
+            assertEquals(new BigDecimal("130.00"), e.getAvailableBalance());
+        }
+        assertEquals(1, service.getTransactionHistory(prefix + "A").size());
+    }
+
+    @Test
+    public void testGuardedDebitStopsAtTheTypeFloor() throws Exception {
+        service.createAccount(AccountType.SAVINGS, prefix + "S", new BigDecimal("150.00"));
+        service.createAccount(AccountType.CHECKING, prefix + "C", new BigDecimal("20.00"));
+        UnitOfWork unitOfWork = new UnitOfWork(DatabaseConnection.getInstance()::getConnection);
+
+        unitOfWork.execute(conn -> {
+            // Savings keep their minimum balance
+            assertRefused(conn, prefix + "S", new BigDecimal("50.01"));
+            WithdrawalFloors.debit(conn, prefix + "S", new BigDecimal("50.00"));
+            // Checking may be overdrawn down to -100.00
+            WithdrawalFloors.debit(conn, prefix + "C", new BigDecimal("120.00"));
+            assertRefused(conn, prefix + "C", new BigDecimal("0.01"));
+            return null;
+        });
+
+        assertEquals(new BigDecimal("100.00"), service.getBalance(prefix + "S"));
+        assertEquals(new BigDecimal("-100.00"), service.getBalance(prefix + "C"));
+        assertTrue(WithdrawalFloors.allows("CHECKING", new BigDecimal("-99.00"), BigDecimal.ONE));
+        assertFalse(WithdrawalFloors.allows("SAVINGS", new BigDecimal("100.00"), new BigDecimal("0.01")));
+    }
+
+    @Test
+    public void testFloorsComeFromTheAccountModel() {
+        for (AccountType type : AccountType.values()) {
+            assertEquals(type.getWithdrawalFloor(), WithdrawalFloors.floorFor(type.name()));
+        }
+        assertEquals(0, new BigDecimal("100.00").compareTo(AccountType.SAVINGS.getWithdrawalFloor()));
+        assertEquals(0, new BigDecimal("-100.00").compareTo(AccountType.CHECKING.getWithdrawalFloor()));
+    }
+
+    @Test(expected = AccountNotFoundException.class)
+    public void testMissingAccountIsNotReportedAsShort() {
+        service.withdraw(prefix + "X", BigDecimal.ONE);
+    }
+
+    private static void assertRefused(Connection conn, String accountId, BigDecimal amount)
+            throws SQLException {
+        try {
+            WithdrawalFloors.debit(conn, accountId, amount);
+            fail("Expected InsufficientFundsException");
+        } catch (InsufficientFundsException e) {
+            // Expected
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.banking.service;
+
+import com.banking.db.DatabaseConnection;
+import com.banking.db.UnitOfWork;
+import com.banking.exception.BankingException;
+import com.banking.util.TransactionLogger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.Assert.*;
+
+public class WriteBehindQueueTest {
+    private WriteBehindQueue queue;
+    private String prefix;
+
+    @Before
+    public void setUp() {
+        prefix = "Q" + Long.toString(System.nanoTime() % 1_000_000, 36);
+    }
+
+    @After
+    public void tearDown() {
+        try {
+            queue.close();
+        } catch (BankingException e) {
+            // The failure tests leave the queue stopped
+        }
+    }
+
+    @Test
+    public void testTransientFailureIsRetriedInOrder() {
+        AtomicInteger connections = new AtomicInteger();
+        UnitOfWork.ConnectionSource flaky = () -> {
+            if (connections.incrementAndGet() == 1) {
+                throw new SQLException("Simulated outage");
+            }
+            return DatabaseConnection.getInstance().getConnection();
+        };
+        queue = new WriteBehindQueue(new UnitOfWork(flaky), new TransactionLogger(), 10, 100, 3, 1);
+
+        queue.accountCreated(prefix + "A", "CHECKING", new BigDecimal("10.00"));
+        queue.balanceChanged(prefix + "A", new BigDecimal("15.00"));
+        queue.flush();
+
+        assertEquals(1, queue.getFailedBatches());
+        assertFalse(queue.isFailed());
+        assertEquals(new BigDecimal("15.00"), new AccountService(BalanceCache.disabled(), ReportAggregates.disabled())
+                .getBalance(prefix + "A"));
+    }
+
+    @Test
+    public void testPermanentFailureStopsTheQueue() throws Exception {
+        queue = new WriteBehindQueue(new UnitOfWork(DatabaseConnection.getInstance()::getConnection),
+                new TransactionLogger(), 10, 100, 2, 1);
+        queue.accountCreated(prefix + "A", "CHECKING", new BigDecimal("10.00"));
+        queue.flush();
+
+        // The row disappears behind the queue's back, so the ledger insert hits the foreign key
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement("DELETE FROM accounts WHERE account_id = ?")) {
+            stmt.setString(1, prefix + "A");
+            stmt.executeUpdate();
+        }
+        queue.transactionLogged(prefix + "A", new BigDecimal("5.00"));
+
+        try {
+            queue.flush();
+            fail("Expected the failed write to surface");
+        } catch (BankingException e) {
+            assertNotNull(e.getCause());
+        }
+        assertTrue(queue.isFailed());
+        assertEquals(3, queue.getFailedBatches());
+        try {
+            queue.balanceChanged(prefix + "A", BigDecimal.ONE);
+            fail("Expected later changes to be refused");
+        } catch (BankingException e) {
+            // Expected
+        }
+        try {
+            queue.close();
+            fail("Expected close to report the failure");
+        } catch (BankingException e) {
+            // Expected
+        }
+    }
+}
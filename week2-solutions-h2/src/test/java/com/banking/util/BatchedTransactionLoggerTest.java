@@ -0,0 +1,137 @@
+package com.banking.util;
+
+import com.banking.db.DatabaseConnection;
+import com.banking.db.UnitOfWork;
+import org.junit.Before;
+import org.junit.Test;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import static org.junit.Assert.*;
+
+public class BatchedTransactionLoggerTest {
+    private String accountId;
+
+    @Before
+    public void setUp() throws Exception {
+        accountId = "L" + Long.toString(System.nanoTime() % 1_000_000, 36);
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                 "INSERT INTO accounts (account_id, account_type, balance) VALUES (?, 'CHECKING', 0)"
+             )) {
+            stmt.setString(1, accountId);
+            stmt.executeUpdate();
+        }
+    }
+
+    @Test
+    public void testAsyncRowsAreWrittenInBatches() {
+        try (TransactionLogger logger = new TransactionLogger(DurabilityMode.ASYNC, 50, 20, 1000)) {
+            for (int i = 0; i < 500; i++) {
+                logger.logTransaction(accountId, new BigDecimal("1.00"));
+            }
+            logger.flush();
+
+            assertEquals(0, logger.getQueuedRows());
+            assertEquals(500, logger.getRowsWritten());
+            assertTrue("Expected rows to be grouped into batches", logger.getBatchesWritten() < 500);
+            assertEquals(500, logger.readTransactionHistory(accountId).size());
+        }
+    }
+
+    @Test
+    public void testGroupCommitRowIsVisibleWhenCallReturns() throws Exception {
+        try (TransactionLogger logger = new TransactionLogger(DurabilityMode.GROUP_COMMIT, 64, 5, 1000)) {
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 25; i++) {
+                        logger.logTransaction(accountId, new BigDecimal("2.00"));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+            executor.shutdown();
+
+            // No flush: group commit only returns after the row is committed
+            assertEquals(200, logger.getRowsWritten());
+            assertEquals(200, new TransactionLogger().readTransactionHistory(accountId).size());
+        }
+    }
+
+    @Test
+    public void testCloseFlushesQueuedRows() {
+        TransactionLogger logger = new TransactionLogger(DurabilityMode.ASYNC, 1000, 1000, 1000);
+        for (int i = 0; i < 10; i++) {
+            logger.logTransaction(accountId, new BigDecimal("3.00"));
+        }
+        logger.close();
+
+        assertEquals(10, new TransactionLogger().readTransactionHistory(accountId).size());
+    }
+
+    @Test
+    public void testInterruptedWriterFailsEveryQueuedRow() throws Exception {
+        AtomicReference<Thread> writerThread = new AtomicReference<>();
+        CountDownLatch entered = new CountDownLatch(1);
+        // Holds the first batch until the writer thread is interrupted
+        UnitOfWork.ConnectionSource blocking = () -> {
+            writerThread.set(Thread.currentThread());
+            entered.countDown();
+            try {
+                new CountDownLatch(1).await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            throw new SQLException("interrupted");
+        };
+        BatchedLedgerWriter writer = new BatchedLedgerWriter(new UnitOfWork(blocking), DurabilityMode.ASYNC, 1, 1, 100);
+        List<CompletableFuture<Void>> rows = new ArrayList<>();
+        rows.add(writer.submit(accountId, BigDecimal.ONE));
+        assertTrue(entered.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < 5; i++) {
+            rows.add(writer.submit(accountId, BigDecimal.ONE));
+        }
+
+        writerThread.get().interrupt();
+
+        for (CompletableFuture<Void> row : rows) {
+            try {
+                row.get(10, TimeUnit.SECONDS);
+                fail("Expected the row to fail");
+            } catch (ExecutionException e) {
+                // expected
+            }
+        }
+        assertEquals(6, writer.getFailedRows());
+        try {
+            writer.submit(accountId, BigDecimal.ONE);
+            fail("Expected the stopped writer to refuse rows");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testLoggingAfterCloseIsReportedNotThrown() {
+        TransactionLogger logger = new TransactionLogger(DurabilityMode.GROUP_COMMIT, 10, 10, 10);
+        logger.close();
+        logger.logTransaction(accountId, new BigDecimal("1.00"));
+
+        assertEquals(0, new TransactionLogger().readTransactionHistory(accountId).size());
+    }
+}
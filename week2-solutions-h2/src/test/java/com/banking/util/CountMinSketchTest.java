@@ -0,0 +1,52 @@
+package com.banking.util;
+
+import org.junit.Test;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import static org.junit.Assert.*;
+
+public class CountMinSketchTest {
+
+    @Test
+    public void testEstimatesAreNeverBelowTheTrueCount() {
+        CountMinSketch sketch = new CountMinSketch(256, 4);
+        Map<String, Long> exact = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 20_000; i++) {
+            // Skewed: low ids are far more frequent
+            String key = "A" + (int) Math.abs(random.nextGaussian() * 200);
+            sketch.add(key);
+            exact.merge(key, 1L, Long::sum);
+        }
+        assertEquals(20_000, sketch.getTotal());
+        for (Map.Entry<String, Long> entry : exact.entrySet()) {
+            assertTrue(sketch.estimate(entry.getKey()) >= entry.getValue());
+        }
+        // The heaviest keys stand well above the collision noise
+        long a0 = exact.get("A0");
+        assertTrue(sketch.estimate("A0") < a0 + 20_000 / 256 * 3);
+    }
+
+    @Test
+    public void testMergedSketchEqualsOneFilledWithEverything() {
+        CountMinSketch left = new CountMinSketch(64, 3);
+        CountMinSketch right = new CountMinSketch(64, 3);
+        CountMinSketch both = new CountMinSketch(64, 3);
+        for (int i = 0; i < 1000; i++) {
+            String key = "K" + (i % 37);
+            (i % 2 == 0 ? left : right).add(key);
+            both.add(key);
+        }
+        left.merge(right);
+        assertEquals(both.getTotal(), left.getTotal());
+        for (int i = 0; i < 37; i++) {
+            assertEquals(both.estimate("K" + i), left.estimate("K" + i));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSketchesOfDifferentSizesCannotBeMerged() {
+        new CountMinSketch(64, 3).merge(new CountMinSketch(32, 3));
+    }
+}
@@ -0,0 +1,175 @@
+package com.banking.util;
+
+import com.banking.db.DatabaseConnection;
+import com.banking.model.TransactionRecord;
+import com.banking.service.AccountService;
+import org.junit.Before;
+import org.junit.Test;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import static org.junit.Assert.*;
+
+public class LedgerMaintenanceTest {
+    // One row every 6 hours from January to June; maintenance runs "in" June.
+    // Each test uses its own year so that it is the only one with rows that old.
+    private static final int ROWS = 181 * 4;
+
+    private DatabaseConnection db;
+    private String accountId;
+
+    @Before
+    public void setUp() throws Exception {
+        db = DatabaseConnection.getInstance();
+        accountId = "L" + Long.toString(System.nanoTime() % 1_000_000, 36);
+        try (Connection conn = db.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                 "INSERT INTO accounts (account_id, account_type, balance) VALUES (?, 'CHECKING', 0)"
+             )) {
+            stmt.setString(1, accountId);
+            stmt.executeUpdate();
+        }
+    }
+
+    @Test
+    public void testArchivedMonthsStayReadable() throws Exception {
+        insertRows(1990);
+        List<TransactionRecord> before = history(TransactionQuery.forAccount(accountId));
+
+        LedgerMaintenanceStats stats = new LedgerMaintenance(db::getConnection, 2, 6, 0)
+                .maintain(LocalDate.of(1990, 6, 15));
+        assertTrue(stats.getMonthsArchived() >= 4);
+        assertTrue(stats.getRowsArchived() >= 4 * 30 * 4);
+        // May and June are hot, so only they are left in the transactions table
+        assertEquals(61 * 4, countHot());
+
+        List<TransactionRecord> after = history(TransactionQuery.forAccount(accountId).withPageSize(50));
+        assertEquals(ids(before), ids(after));
+
+        // A March query reads the hot table and March only
+        LocalDateTime march = LocalDateTime.of(1990, 3, 1, 0, 0);
+        try (Connection conn = db.getConnection()) {
+            assertEquals(Arrays.asList("transactions", "transactions_199003"),
+                    LedgerPartitions.load(conn).tables(march, march.plusMonths(1)));
+        }
+        assertEquals(31 * 4, history(TransactionQuery.forAccount(accountId).between(march, march.plusMonths(1))).size());
+
+        new AccountService().deleteAccount(accountId);
+        assertTrue(history(TransactionQuery.forAccount(accountId)).isEmpty());
+    }
+
+    @Test
+    public void testCompactedMonthsKeepCountsAndDailyTotals() throws Exception {
+        insertRows(1991);
+        new LedgerMaintenance(db::getConnection, 1, 2, 0).maintain(LocalDate.of(1991, 6, 15));
+
+        // January to April are only rollups now
+        LocalDateTime january = LocalDateTime.of(1991, 1, 1, 0, 0);
+        assertEquals(61 * 4, history(TransactionQuery.forAccount(accountId)).size());
+        assertTrue(history(TransactionQuery.forAccount(accountId).between(january, january.plusMonths(4))).isEmpty());
+        try (Connection conn = db.getConnection()) {
+            LedgerPartitions ledger = LedgerPartitions.load(conn);
+            assertTrue(ledger.hasRollups());
+            assertEquals(ROWS, countFor(conn, ledger.accountCountsSql("account_id = ?"), ledger.branches()));
+            // Row x is worth x - 1 cents; January 2nd holds rows 5 to 8
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT deposits FROM (" + ledger.dailyTotalsSql("account_id = ?") + ") t WHERE tx_day = ?")) {
+                for (int i = 1; i <= ledger.branches(); i++) {
+                    stmt.setString(i, accountId);
+                }
+                stmt.setObject(ledger.branches() + 1, LocalDate.of(1991, 1, 2));
+                try (ResultSet rs = stmt.executeQuery()) {
+                    assertTrue(rs.next());
+                    assertEquals(0, rs.getBigDecimal(1).compareTo(new BigDecimal("0.22")));
+                }
+            }
+        }
+
+        // Keeping three months expires the rollups of January to March
+        LedgerMaintenanceStats stats = new LedgerMaintenance(db::getConnection, 1, 2, 3)
+                .maintain(LocalDate.of(1991, 6, 15));
+        assertTrue(stats.getRollupsExpired() >= 31 + 28 + 31);
+        try (Connection conn = db.getConnection()) {
+            LedgerPartitions ledger = LedgerPartitions.load(conn);
+            assertEquals(ROWS - (31 + 28 + 31) * 4,
+                    countFor(conn, ledger.accountCountsSql("account_id = ?"), ledger.branches()));
+        }
+
+        new AccountService().deleteAccount(accountId);
+    }
+
+    @Test
+    public void testRowsAddedToAnArchivedMonthAreArchivedOnTheNextRun() throws Exception {
+        insertRows(1993);
+        LedgerMaintenance maintenance = new LedgerMaintenance(db::getConnection, 2, 6, 0);
+        maintenance.maintain(LocalDate.of(1993, 6, 15));
+
+        try (Connection conn = db.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                 "INSERT INTO transactions (account_id, amount, transaction_date) VALUES (?, 1.00, ?)"
+             )) {
+            stmt.setString(1, accountId);
+            stmt.setTimestamp(2, Timestamp.valueOf(LocalDateTime.of(1993, 2, 10, 12, 0)));
+            stmt.executeUpdate();
+        }
+        assertEquals(61 * 4 + 1, countHot());
+        // Still found before the next run, in the hot table
+        assertEquals(ROWS + 1, history(TransactionQuery.forAccount(accountId)).size());
+
+        maintenance.maintain(LocalDate.of(1993, 6, 15));
+        assertEquals(61 * 4, countHot());
+        assertEquals(ROWS + 1, history(TransactionQuery.forAccount(accountId)).size());
+
+        new AccountService().deleteAccount(accountId);
+    }
+
+    private void insertRows(int year) throws Exception {
+        try (Connection conn = db.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                 "INSERT INTO transactions (account_id, amount, transaction_date) " +
+                 "SELECT ?, (X - 1) / 100.0, DATEADD('HOUR', (X - 1) * 6, CAST(? AS TIMESTAMP)) FROM SYSTEM_RANGE(1, ?)"
+             )) {
+            stmt.setString(1, accountId);
+            stmt.setTimestamp(2, Timestamp.valueOf(LocalDateTime.of(year, 1, 1, 0, 0)));
+            stmt.setInt(3, ROWS);
+            stmt.executeUpdate();
+        }
+    }
+
+    private int countHot() throws Exception {
+        try (Connection conn = db.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM transactions WHERE account_id = ?")) {
+            stmt.setString(1, accountId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return rs.getInt(1);
+            }
+        }
+    }
+
+    private long countFor(Connection conn, String sql, int branches) throws Exception {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (int i = 1; i <= branches; i++) {
+                stmt.setString(i, accountId);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getLong("tx_count") : 0;
+            }
+        }
+    }
+
+    private List<TransactionRecord> history(TransactionQuery query) {
+        return new TransactionLogger().streamTransactions(query).collect(Collectors.toList());
+    }
+
+    private static List<Long> ids(List<TransactionRecord> records) {
+        return records.stream().map(TransactionRecord::getTransactionId).collect(Collectors.toList());
+    }
+}
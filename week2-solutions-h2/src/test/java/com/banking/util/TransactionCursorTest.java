@@ -0,0 +1,114 @@
+package com.banking.util;
+
+import com.banking.db.DatabaseConnection;
+import com.banking.model.TransactionRecord;
+import org.junit.Before;
+import org.junit.Test;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+import static org.junit.Assert.*;
+
+public class TransactionCursorTest {
+    // Raise with -Dhistory.rows=10000000 for a full-size run
+    private static final int ROWS = Integer.getInteger("history.rows", 20_000);
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    private DatabaseConnection db;
+    private String accountId;
+
+    @Before
+    public void setUp() throws Exception {
+        db = DatabaseConnection.getInstance();
+        accountId = "H" + Long.toString(System.nanoTime() % 1_000_000, 36);
+        try (Connection conn = db.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                 "INSERT INTO accounts (account_id, account_type, balance) VALUES (?, 'CHECKING', 0)"
+             )) {
+            stmt.setString(1, accountId);
+            stmt.executeUpdate();
+        }
+    }
+
+    @Test
+    public void testIteratesEveryRowInOrderWithBoundedBuffer() throws Exception {
+        // Ten rows share each timestamp, so ordering relies on the id tie-breaker
+        insertRows(ROWS, 10);
+
+        TransactionCursor cursor = new TransactionCursor(db::getConnection,
+                TransactionQuery.forAccount(accountId).withPageSize(500));
+        int count = 0;
+        TransactionRecord previous = null;
+        while (cursor.hasNext()) {
+            TransactionRecord record = cursor.next();
+            if (previous != null) {
+                int byDate = record.getTransactionDate().compareTo(previous.getTransactionDate());
+                assertTrue("Rows out of order", byDate < 0
+                        || (byDate == 0 && record.getTransactionId() < previous.getTransactionId()));
+            }
+            previous = record;
+            count++;
+        }
+
+        assertEquals(ROWS, count);
+        assertTrue("Cursor held more than one page", cursor.getMaxBuffered() <= 500);
+    }
+
+    @Test
+    public void testDateRangeFilter() throws Exception {
+        insertRows(100, 1);
+
+        // Row i is dated BASE + i minutes; [10, 20) should return 10 rows
+        List<TransactionRecord> rows = new TransactionLogger()
+                .streamTransactions(TransactionQuery.forAccount(accountId)
+                        .between(BASE.plusMinutes(10), BASE.plusMinutes(20))
+                        .withPageSize(3))
+                .collect(Collectors.toList());
+
+        assertEquals(10, rows.size());
+        assertEquals(BASE.plusMinutes(19), rows.get(0).getTransactionDate());
+        assertEquals(BASE.plusMinutes(10), rows.get(9).getTransactionDate());
+    }
+
+    @Test
+    public void testLegacyHistoryMatchesStream() throws Exception {
+        insertRows(25, 5);
+        TransactionLogger logger = new TransactionLogger();
+
+        List<String> legacy = logger.readTransactionHistory(accountId).stream()
+                .map(TransactionRecord::toString)
+                .collect(Collectors.toList());
+        List<String> streamed = logger.streamTransactions(TransactionQuery.forAccount(accountId).withPageSize(7))
+                .map(TransactionRecord::toString)
+                .collect(Collectors.toList());
+
+        assertEquals(25, legacy.size());
+        assertEquals(legacy, streamed);
+        assertTrue(legacy.get(0).startsWith("2024-01-01 00:04:00"));
+        assertTrue(legacy.get(0).endsWith("," + accountId + ",1.00"));
+    }
+
+    private void insertRows(int rows, int rowsPerTimestamp) throws Exception {
+        try (Connection conn = db.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                 "INSERT INTO transactions (account_id, amount, transaction_date) VALUES (?, ?, ?)"
+             )) {
+            conn.setAutoCommit(false);
+            for (int i = 0; i < rows; i++) {
+                stmt.setString(1, accountId);
+                stmt.setBigDecimal(2, BigDecimal.ONE);
+                stmt.setTimestamp(3, Timestamp.valueOf(BASE.plusMinutes(i / rowsPerTimestamp)));
+                stmt.addBatch();
+                if (i % 5000 == 4999) {
+                    stmt.executeBatch();
+                }
+            }
+            stmt.executeBatch();
+            conn.commit();
+        }
+    }
+}
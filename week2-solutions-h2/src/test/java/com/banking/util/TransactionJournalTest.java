@@ -0,0 +1,161 @@
+package com.banking.util;
+
+import com.banking.db.DatabaseConnection;
+import com.banking.exception.BankingException;
+import com.banking.model.TransactionRecord;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import static org.junit.Assert.*;
+
+public class TransactionJournalTest {
+    // Room for ten records per segment
+    private static final int SEGMENT_SIZE = TransactionJournal.RECORD_SIZE * 10;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRecordsReplayInOrderAcrossSegments() throws Exception {
+        Path dir = folder.newFolder().toPath();
+        try (TransactionJournal journal = new TransactionJournal(dir, SEGMENT_SIZE, JournalSyncPolicy.ALWAYS, 0)) {
+            for (int i = 1; i <= 25; i++) {
+                assertEquals(i, journal.append("ACC" + (i % 3), new BigDecimal(i + ".25")));
+            }
+            assertEquals(3, journal.getSegmentCount());
+            assertEquals(25, journal.getSyncedSequence());
+
+            List<TransactionRecord> rows = new ArrayList<>();
+            assertEquals(5, journal.replay(20, rows::add));
+            assertEquals(21, rows.get(0).getTransactionId());
+            assertEquals("ACC0", rows.get(0).getAccountId());
+            assertEquals(new BigDecimal("21.25"), rows.get(0).getAmount());
+            assertEquals(25, rows.get(4).getTransactionId());
+        }
+
+        try (TransactionJournal reopened = new TransactionJournal(dir, SEGMENT_SIZE, JournalSyncPolicy.NONE, 0)) {
+            assertEquals(25, reopened.getLastSequence());
+            assertEquals(26, reopened.append("ACC1", BigDecimal.ONE));
+            assertEquals(26, reopened.replay(0, row -> { }));
+        }
+    }
+
+    @Test
+    public void testTornTailIsDiscardedOnRecovery() throws Exception {
+        Path dir = folder.newFolder().toPath();
+        try (TransactionJournal journal = new TransactionJournal(dir, SEGMENT_SIZE, JournalSyncPolicy.NONE, 0)) {
+            for (int i = 0; i < 5; i++) {
+                journal.append("TORN", new BigDecimal("10.00"));
+            }
+        }
+
+        // Record 4 only half reached disk; record 5 made it
+        Path segment;
+        try (Stream<Path> files = Files.list(dir)) {
+            segment = files.filter(f -> f.toString().endsWith(".journal")).collect(Collectors.toList()).get(0);
+        }
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(3L * TransactionJournal.RECORD_SIZE + 20);
+            file.writeInt(0xDEADBEEF);
+        }
+
+        try (TransactionJournal recovered = new TransactionJournal(dir, SEGMENT_SIZE, JournalSyncPolicy.NONE, 0)) {
+            assertEquals(3, recovered.getLastSequence());
+            assertEquals(4, recovered.append("TORN", new BigDecimal("1.00")));
+        }
+        try (TransactionJournal reopened = new TransactionJournal(dir, SEGMENT_SIZE, JournalSyncPolicy.NONE, 0)) {
+            // The stale record 5 must not come back after the new record 4
+            assertEquals(4, reopened.getLastSequence());
+            assertEquals(new BigDecimal("31.00"), reopened.replayBalances().get("TORN"));
+        }
+    }
+
+    @Test
+    public void testCorruptionBeforeTheLastSegmentFailsToOpen() throws Exception {
+        Path dir = folder.newFolder().toPath();
+        try (TransactionJournal journal = new TransactionJournal(dir, SEGMENT_SIZE, JournalSyncPolicy.NONE, 0)) {
+            for (int i = 0; i < 15; i++) {
+                journal.append("BAD", BigDecimal.ONE);
+            }
+        }
+        Path first;
+        try (Stream<Path> files = Files.list(dir)) {
+            first = files.filter(f -> f.toString().endsWith(".journal")).sorted().collect(Collectors.toList()).get(0);
+        }
+        try (RandomAccessFile file = new RandomAccessFile(first.toFile(), "rw")) {
+            file.seek(2L * TransactionJournal.RECORD_SIZE + 16);
+            file.writeLong(999);
+        }
+
+        try {
+            new TransactionJournal(dir, SEGMENT_SIZE, JournalSyncPolicy.NONE, 0);
+            fail("Expected the corrupt segment to be rejected");
+        } catch (BankingException e) {
+            assertTrue(e.getMessage().contains("corrupt"));
+        }
+    }
+
+    @Test
+    public void testSecondJournalOnTheSameDirectoryFailsUntilTheFirstCloses() throws Exception {
+        Path dir = folder.newFolder().toPath();
+        try (TransactionJournal journal = new TransactionJournal(dir, SEGMENT_SIZE, JournalSyncPolicy.NONE, 0)) {
+            journal.append("LOCK", BigDecimal.ONE);
+            try {
+                new TransactionJournal(dir, SEGMENT_SIZE, JournalSyncPolicy.NONE, 0);
+                fail("Expected the locked directory to be rejected");
+            } catch (BankingException e) {
+                assertTrue(e.getMessage().contains("already open"));
+            }
+            assertEquals(2, journal.append("LOCK", BigDecimal.ONE));
+        }
+
+        try (TransactionJournal reopened = new TransactionJournal(dir, SEGMENT_SIZE, JournalSyncPolicy.NONE, 0)) {
+            assertEquals(2, reopened.getLastSequence());
+        }
+    }
+
+    @Test
+    public void testJournalModeFeedsH2AndCanReplayIt() throws Exception {
+        String accountId = "J" + Long.toString(System.nanoTime() % 1_000_000, 36);
+        try (Connection conn = DatabaseConnection.getInstance().getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                 "INSERT INTO accounts (account_id, account_type, balance) VALUES (?, 'CHECKING', 0)"
+             )) {
+            stmt.setString(1, accountId);
+            stmt.executeUpdate();
+        }
+
+        Path dir = folder.newFolder().toPath();
+        try (TransactionJournal journal = new TransactionJournal(dir, SEGMENT_SIZE, JournalSyncPolicy.INTERVAL, 5);
+             TransactionLogger logger = new TransactionLogger(journal, 8, 5, 100)) {
+            for (int i = 0; i < 30; i++) {
+                logger.logTransaction(accountId, new BigDecimal("2.50"));
+            }
+            assertEquals(30, journal.getLastSequence());
+            assertEquals(30, logger.readTransactionHistory(accountId).size());
+
+            // Lose the H2 copy, then rebuild it from the journal
+            try (Connection conn = DatabaseConnection.getInstance().getConnection();
+                 PreparedStatement stmt = conn.prepareStatement("DELETE FROM transactions WHERE account_id = ?")) {
+                stmt.setString(1, accountId);
+                stmt.executeUpdate();
+            }
+            assertEquals(30, logger.replayJournal(0));
+            assertEquals(30, logger.readTransactionHistory(accountId).size());
+
+            Map<String, BigDecimal> balances = journal.replayBalances();
+            assertEquals(new BigDecimal("75.00"), balances.get(accountId));
+        }
+    }
+}